@@ -0,0 +1,246 @@
+/*  Copyright (C) 2011 Mobile Sorcery AB
+
+    This program is free software; you can redistribute it and/or modify it
+    under the terms of the Eclipse Public License v1.0.
+
+    This program is distributed in the hope that it will be useful, but WITHOUT
+    ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+    FITNESS FOR A PARTICULAR PURPOSE. See the Eclipse Public License v1.0 for
+    more details.
+
+    You should have received a copy of the Eclipse Public License v1.0 along
+    with this program. It is also available at http://www.eclipse.org/legal/epl-v10.html
+*/
+package com.mobilesorcery.sdk.builder.android.launch;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ADBClientTest {
+
+	/**
+	 * A minimal adb server, supporting just enough of the
+	 * protocol for these tests.
+	 */
+	private static class FakeADBServer implements Runnable {
+		private final ServerSocket serverSocket;
+		private final List<String> requests = Collections.synchronizedList(new ArrayList<String>());
+		private final List<Socket> trackers = new ArrayList<Socket>();
+		private volatile String devices = "";
+
+		FakeADBServer() throws IOException {
+			serverSocket = new ServerSocket(0, 50, InetAddress.getByName("127.0.0.1"));
+			Thread thread = new Thread(this, "Fake adb server");
+			thread.setDaemon(true);
+			thread.start();
+		}
+
+		int getPort() {
+			return serverSocket.getLocalPort();
+		}
+
+		List<String> getRequests() {
+			return new ArrayList<String>(requests);
+		}
+
+		void setDevices(String devices) {
+			this.devices = devices;
+			synchronized (trackers) {
+				for (Iterator<Socket> trackerIterator = trackers.iterator(); trackerIterator.hasNext(); ) {
+					Socket tracker = trackerIterator.next();
+					try {
+						writeHexLengthString(tracker.getOutputStream(), devices);
+					} catch (IOException e) {
+						// The client stopped tracking
+						trackerIterator.remove();
+					}
+				}
+			}
+		}
+
+		void close() throws IOException {
+			serverSocket.close();
+			synchronized (trackers) {
+				for (Socket tracker : trackers) {
+					tracker.close();
+				}
+			}
+		}
+
+		@Override
+		public void run() {
+			try {
+				while (true) {
+					final Socket socket = serverSocket.accept();
+					new Thread(new Runnable() {
+						@Override
+						public void run() {
+							handle(socket);
+						}
+					}).start();
+				}
+			} catch (IOException e) {
+				// Closed.
+			}
+		}
+
+		private void handle(Socket socket) {
+			boolean keepOpen = false;
+			try {
+				DataInputStream input = new DataInputStream(socket.getInputStream());
+				OutputStream output = socket.getOutputStream();
+				String request = readRequest(input);
+				if (request.startsWith("host:transport:")) {
+					output.write("OKAY".getBytes("US-ASCII"));
+					request = readRequest(input);
+				}
+				if ("host:version".equals(request)) {
+					output.write("OKAY".getBytes("US-ASCII"));
+					writeHexLengthString(output, "001f");
+				} else if ("host:devices".equals(request)) {
+					output.write("OKAY".getBytes("US-ASCII"));
+					writeHexLengthString(output, devices);
+				} else if ("host:track-devices".equals(request)) {
+					synchronized (trackers) {
+						output.write("OKAY".getBytes("US-ASCII"));
+						writeHexLengthString(output, devices);
+						trackers.add(socket);
+					}
+					keepOpen = true;
+				} else if (request.startsWith("shell:")) {
+					output.write("OKAY".getBytes("US-ASCII"));
+					output.write(("ran " + request.substring("shell:".length())).getBytes("UTF-8"));
+				} else {
+					output.write("FAIL".getBytes("US-ASCII"));
+					writeHexLengthString(output, "unknown request");
+				}
+				output.flush();
+			} catch (IOException e) {
+				// Client went away.
+			} finally {
+				if (!keepOpen) {
+					try {
+						socket.close();
+					} catch (IOException e) {
+						// Ignore.
+					}
+				}
+			}
+		}
+
+		private String readRequest(DataInputStream input) throws IOException {
+			byte[] length = new byte[4];
+			input.readFully(length);
+			byte[] payload = new byte[Integer.parseInt(new String(length, "US-ASCII"), 16)];
+			input.readFully(payload);
+			String request = new String(payload, "UTF-8");
+			requests.add(request);
+			return request;
+		}
+
+		private static synchronized void writeHexLengthString(OutputStream output, String str) throws IOException {
+			byte[] payload = str.getBytes("UTF-8");
+			output.write(String.format("%04x", payload.length).getBytes("US-ASCII"));
+			output.write(payload);
+			output.flush();
+		}
+	}
+
+	private FakeADBServer server;
+	private ADBClient client;
+
+	@Before
+	public void setUp() throws IOException {
+		server = new FakeADBServer();
+		client = new ADBClient("127.0.0.1", server.getPort());
+	}
+
+	@After
+	public void tearDown() throws IOException {
+		client.stopTracking();
+		server.close();
+	}
+
+	@Test
+	public void testVersion() throws IOException {
+		assertEquals(0x1f, client.getVersion());
+	}
+
+	@Test
+	public void testDevices() throws IOException {
+		server.setDevices("emulator-5554\tdevice\n0123456789\toffline\n");
+		Map<String, String> devices = client.getDevices();
+		assertEquals(2, devices.size());
+		assertEquals(ADBClient.ONLINE, devices.get("emulator-5554"));
+		assertEquals("offline", devices.get("0123456789"));
+		assertEquals(Collections.singletonList("emulator-5554"), ADBClient.filter(devices, ADBClient.ONLINE));
+	}
+
+	@Test
+	public void testShell() throws IOException {
+		assertEquals("ran getprop ro.build.version.sdk", client.shell("emulator-5554", "getprop ro.build.version.sdk"));
+		assertTrue(server.getRequests().contains("host:transport:emulator-5554"));
+	}
+
+	@Test
+	public void testTracking() throws Exception {
+		client.startTracking();
+		assertTrue(client.isTracking());
+		server.setDevices("emulator-5554\tdevice\n");
+		while (!client.getDevices().containsKey("emulator-5554")) {
+			assertTrue(client.awaitDevicesChanged(5000));
+		}
+		int devicesRequests = count("host:devices");
+		assertEquals(ADBClient.ONLINE, client.getDevices().get("emulator-5554"));
+		assertEquals(devicesRequests, count("host:devices"));
+
+		// Tracked devices must not be served once we stop tracking
+		client.stopTracking();
+		assertFalse(client.isTracking());
+		server.setDevices("");
+		assertTrue(client.getDevices().isEmpty());
+		assertEquals(devicesRequests + 1, count("host:devices"));
+	}
+
+	@Test
+	public void testServerRunningIsCached() throws IOException {
+		assertTrue(client.isServerRunning());
+		assertTrue(client.isServerRunning());
+		assertEquals(1, count("host:version"));
+
+		server.close();
+		try {
+			client.getDevices();
+		} catch (IOException e) {
+			// Expected.
+		}
+		assertFalse(client.isServerRunning());
+	}
+
+	private int count(String request) {
+		int result = 0;
+		for (String candidate : server.getRequests()) {
+			if (request.equals(candidate)) {
+				result++;
+			}
+		}
+		return result;
+	}
+}
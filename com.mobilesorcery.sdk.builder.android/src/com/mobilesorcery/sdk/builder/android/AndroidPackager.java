@@ -13,9 +13,11 @@ import org.eclipse.jface.dialogs.IMessageProvider;
 import com.mobilesorcery.sdk.builder.java.KeystoreCertificateInfo;
 import com.mobilesorcery.sdk.core.CommandLineBuilder;
 import com.mobilesorcery.sdk.core.DefaultPackager;
+import com.mobilesorcery.sdk.core.IBuildSession;
 import com.mobilesorcery.sdk.core.IBuildVariant;
 import com.mobilesorcery.sdk.core.MoSyncBuilder;
 import com.mobilesorcery.sdk.core.MoSyncProject;
+import com.mobilesorcery.sdk.core.PackageFingerprint;
 import com.mobilesorcery.sdk.core.PackageToolPackager;
 import com.mobilesorcery.sdk.core.ParameterResolver;
 import com.mobilesorcery.sdk.core.ParameterResolverException;
@@ -69,6 +71,31 @@ public class AndroidPackager extends PackageToolPackager {
         }
 	}
 
+	@Override
+	protected void addPackageInputs(MoSyncProject project, IBuildSession session,
+			IBuildVariant variant, PackageFingerprint fingerprint) throws Exception {
+		super.addPackageInputs(project, session, variant, fingerprint);
+		KeystoreCertificateInfo keystoreCertInfo = KeystoreCertificateInfo.loadOne(
+				PropertyInitializer.ANDROID_KEYSTORE_CERT_INFO,
+				PropertyInitializer.ANDROID_PROJECT_SPECIFIC_KEYS,
+				project,
+				Activator.getDefault().getPreferenceStore());
+		if (keystoreCertInfo != null) {
+			ParameterResolver resolver = MoSyncBuilder.createParameterResolver(project, variant);
+			addFile(fingerprint, "android-keystore", Util.replace(keystoreCertInfo.getKeystoreLocation(), resolver));
+			fingerprint.add("android-alias", keystoreCertInfo.getAlias());
+		}
+
+		String manifestTemplate = project.getProperty(PropertyInitializer.ANDROID_MANIFEST_TEMPLATE);
+		if (!Util.isEmpty(manifestTemplate)) {
+			File manifestTemplateFile = new File(manifestTemplate);
+			if (!manifestTemplateFile.isAbsolute()) {
+				manifestTemplateFile = project.getWrappedProject().getLocation().append(manifestTemplate).toFile();
+			}
+			fingerprint.add("android-manifest-template", manifestTemplateFile);
+		}
+	}
+
 	@Override
 	protected Map<String, List<File>> computeBuildResult(MoSyncProject project,
 			IBuildVariant variant) throws ParameterResolverException {
@@ -19,11 +19,13 @@ import java.text.MessageFormat;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IPath;
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.OperationCanceledException;
 import org.eclipse.core.runtime.Status;
 import org.eclipse.jface.preference.IPreferenceStore;
 import org.eclipse.jface.util.IPropertyChangeListener;
@@ -35,13 +37,19 @@ import com.mobilesorcery.sdk.core.AbstractTool;
 import com.mobilesorcery.sdk.core.CollectingLineHandler;
 import com.mobilesorcery.sdk.core.CommandLineExecutor;
 import com.mobilesorcery.sdk.core.CoreMoSyncPlugin;
+import com.mobilesorcery.sdk.core.IProcessConsole;
 import com.mobilesorcery.sdk.core.LineReader;
+import com.mobilesorcery.sdk.core.MoSyncBuilder;
 import com.mobilesorcery.sdk.core.MoSyncTool;
 import com.mobilesorcery.sdk.core.Util;
 import com.mobilesorcery.sdk.core.LineReader.LineHandlerList;
 
 /**
  * A class representing the Android Debug Bridge.
+ * Whenever the adb server can be reached, requests are sent
+ * directly to it using an {@link ADBClient}; the adb binary
+ * is only used for starting and stopping the server, and as
+ * a fallback.
  *
  * @author Mattias Bybro
  *
@@ -125,9 +133,14 @@ public class ADB extends AbstractTool {
 	}
 
 	private static ADB instance = new ADB();
+
+	// There is only one adb server, so all ADBs share the same client
+	private static ADBClient client = new ADBClient();
+
 	private boolean logcatStarted;
 	private IPropertyChangeListener logCatListener = null;
 	private ProcessKiller logcatProcessHandler;
+	private ADBClient.LogcatReader logcatReader;
 
 	private ADB() {
 		this(MoSyncTool.getDefault().getBinary("android/adb"));
@@ -173,6 +186,30 @@ public class ADB extends AbstractTool {
 		return primaryADB;
 	}
 
+	/**
+	 * Returns a client that talks directly to the adb server,
+	 * starting the server if it is not running.
+	 * @return {@code null} if the adb server could not be reached;
+	 * clients should then use the adb binary instead.
+	 */
+	public ADBClient getClient() {
+		synchronized (client) {
+			if (client.isTracking() || client.isServerRunning()) {
+				return client;
+			}
+			if (isValid()) {
+				try {
+					execute(new String[] { getToolPath().getAbsolutePath(),
+							"start-server"
+					}, null, null, CoreMoSyncPlugin.LOG_CONSOLE_NAME, false);
+				} catch (CoreException e) {
+					CoreMoSyncPlugin.getDefault().log(e);
+				}
+			}
+			return client.isServerRunning() ? client : null;
+		}
+	}
+
 	/**
 	 * Returns a list of all online android devices (no emulators)
 	 *
@@ -197,6 +234,22 @@ public class ADB extends AbstractTool {
 
 	private List<String> listDevices(boolean emulators, boolean realDevices,
 			boolean useConsole) throws CoreException {
+		ADBClient client = getClient();
+		if (client != null) {
+			try {
+				ArrayList<String> result = new ArrayList<String>();
+				for (String serialNumber : ADBClient.filter(client.getDevices(), ADBClient.ONLINE)) {
+					boolean isEmulator = serialNumber.startsWith("emulator-");
+					if ((realDevices && !isEmulator) || (emulators && isEmulator)) {
+						result.add(serialNumber);
+					}
+				}
+				return result;
+			} catch (IOException e) {
+				CoreMoSyncPlugin.getDefault().log(e);
+			}
+		}
+
 		CollectingLineHandler collectingLineHandler = new CollectingLineHandler();
 		execute(new String[] { getToolPath().getAbsolutePath(), "devices" },
 				collectingLineHandler, collectingLineHandler, CoreMoSyncPlugin.LOG_CONSOLE_NAME, false);
@@ -227,28 +280,120 @@ public class ADB extends AbstractTool {
 		return result;
 	}
 
+	/**
+	 * Waits for an android device to be connected or disconnected.
+	 * @param timeoutInMs The maximum time to wait
+	 * @throws InterruptedException
+	 */
+	public void awaitDevicesChanged(long timeoutInMs) throws InterruptedException {
+		ADBClient client = getClient();
+		if (client != null) {
+			try {
+				client.awaitDevicesChanged(timeoutInMs);
+				return;
+			} catch (IOException e) {
+				// Fall back to just waiting.
+			}
+		}
+		Thread.sleep(timeoutInMs);
+	}
+
 	public void uninstall(String packageName, String serialNumberOfDevice, ProcessKiller processKiller) throws CoreException {
+		ADBClient client = getClient();
+		if (client != null) {
+			try {
+				client.uninstall(serialNumberOfDevice, packageName);
+				return;
+			} catch (IOException e) {
+				throw new CoreException(new Status(IStatus.ERROR,
+						Activator.PLUGIN_ID, MessageFormat.format(
+								"Could not uninstall from device: {0}", e.getMessage()), e));
+			}
+		}
 		runAndCollectError(processKiller, new String[] { getToolPath().getAbsolutePath(), "-s",
 				serialNumberOfDevice, "uninstall", packageName });
 	}
 	
+	/**
+	 * Installs a package on a device.
+	 * @param packageToInstall
+	 * @param packageName
+	 * @param serialNumberOfDevice
+	 * @param processKiller
+	 * @throws CoreException If installation failed
+	 * @throws OperationCanceledException If the monitor of <code>processKiller</code>
+	 * was canceled before or during installation; the package may then not be installed
+	 */
 	public void install(File packageToInstall, String packageName, String serialNumberOfDevice, ProcessKiller processKiller) throws CoreException {
 		IProgressMonitor monitor = processKiller.monitor;
-		
-		if (packageName != null && Activator.getDefault().getPreferenceStore().getBoolean(PropertyInitializer.ADB_UNINSTALL_FIRST)) {
+		boolean uninstallFirst = Activator.getDefault().getPreferenceStore().getBoolean(PropertyInitializer.ADB_UNINSTALL_FIRST);
+
+		ADBClient client = getClient();
+		if (client != null) {
+			checkCanceled(monitor);
+			try {
+				client.install(serialNumberOfDevice, packageToInstall, packageName, uninstallFirst);
+			} catch (IOException e) {
+				throw new CoreException(new Status(IStatus.ERROR,
+						Activator.PLUGIN_ID, MessageFormat.format(
+								"Could not install on device: {0}", e.getMessage()), e));
+			}
+			return;
+		}
+
+		if (packageName != null && uninstallFirst) {
 			try {
 				uninstall(packageName, serialNumberOfDevice, processKiller);
 			} catch (CoreException e) {
 				// Ignore -- the apk might not exist.
 			}
 		}
-		if (monitor == null || !monitor.isCanceled()) {
-			runAndCollectError(processKiller, new String[] { getToolPath().getAbsolutePath(), "-s",
-							serialNumberOfDevice, "install", "-r",
-							packageToInstall.getAbsolutePath() });
+		checkCanceled(monitor);
+		runAndCollectError(processKiller, new String[] { getToolPath().getAbsolutePath(), "-s",
+						serialNumberOfDevice, "install", "-r",
+						packageToInstall.getAbsolutePath() });
+		// A cancel kills adb, which need not report an error
+		checkCanceled(monitor);
+	}
+
+	private static void checkCanceled(IProgressMonitor monitor) {
+		if (monitor != null && monitor.isCanceled()) {
+			throw new OperationCanceledException();
 		}
 	}
 	
+	/**
+	 * Installs a package on several devices; if the adb server
+	 * can be reached, the devices are installed to in parallel.
+	 * @param packageToInstall
+	 * @param packageName
+	 * @param serialNumbersOfDevices
+	 * @param processKiller
+	 * @throws CoreException If installation failed on any device
+	 */
+	public void install(File packageToInstall, String packageName, List<String> serialNumbersOfDevices, ProcessKiller processKiller) throws CoreException {
+		ADBClient client = getClient();
+		if (client == null) {
+			for (String serialNumberOfDevice : serialNumbersOfDevices) {
+				install(packageToInstall, packageName, serialNumberOfDevice, processKiller);
+			}
+			return;
+		}
+
+		checkCanceled(processKiller.monitor);
+		boolean uninstallFirst = Activator.getDefault().getPreferenceStore().getBoolean(PropertyInitializer.ADB_UNINSTALL_FIRST);
+		Map<String, IOException> failures = client.install(serialNumbersOfDevices, packageToInstall, packageName, uninstallFirst);
+		if (!failures.isEmpty()) {
+			ArrayList<String> errors = new ArrayList<String>();
+			for (Map.Entry<String, IOException> failure : failures.entrySet()) {
+				errors.add(failure.getKey() + ": " + failure.getValue().getMessage());
+			}
+			throw new CoreException(new Status(IStatus.ERROR,
+					Activator.PLUGIN_ID, MessageFormat.format(
+							"Could not install on device(s): {0}", Util.join(errors.toArray(), ", "))));
+		}
+	}
+
 	private void runAndCollectError(ProcessKiller processKiller, String[] commandLine)
 			throws CoreException {
 		LineHandlerList stdout = new LineHandlerList();
@@ -284,6 +429,17 @@ public class ADB extends AbstractTool {
 
 	public void launch(String activityName, String serialNumberOfDevice, ProcessKiller processKiller)
 			throws CoreException {
+		ADBClient client = getClient();
+		if (client != null) {
+			try {
+				client.launch(serialNumberOfDevice, activityName);
+				return;
+			} catch (IOException e) {
+				throw new CoreException(new Status(IStatus.ERROR,
+						Activator.PLUGIN_ID, MessageFormat.format(
+								"Could not launch on device: {0}", e.getMessage()), e));
+			}
+		}
 		CollectingLineHandler collectingLineHandler = new CollectingLineHandler();
 		CollectingLineHandler errorLineHandler = new CollectingLineHandler();
 		int errorCode = execute(new String[] { getToolPath().getAbsolutePath(),
@@ -298,6 +454,21 @@ public class ADB extends AbstractTool {
 	}
 
 	public void awaitBoot(String serialNumberOfDevice, long timeoutInMs) throws CoreException {
+		ADBClient client = getClient();
+		if (client != null) {
+			try {
+				// The device tells us when it is done; no polling
+				if (!client.awaitBoot(serialNumberOfDevice, timeoutInMs)) {
+					throw new CoreException(new Status(IStatus.ERROR, Activator.PLUGIN_ID, "Connection to Android Emulator timed out"));
+				}
+				return;
+			} catch (IOException e) {
+				throw new CoreException(new Status(IStatus.ERROR, Activator.PLUGIN_ID, "Could not connect to Android Emulator", e));
+			} catch (InterruptedException e) {
+				throw new CoreException(new Status(IStatus.ERROR, Activator.PLUGIN_ID, "Connection to Android Emulator timed out", e));
+			}
+		}
+
 		long startTime = System.currentTimeMillis();
 		while (!isBootComplete(serialNumberOfDevice)) {
 			if (System.currentTimeMillis() - startTime > timeoutInMs) {
@@ -317,6 +488,14 @@ public class ADB extends AbstractTool {
 	}
 
 	public String getProp(String serialNumberOfDevice, String prop) throws CoreException {
+		ADBClient client = getClient();
+		if (client != null) {
+			try {
+				return client.getProp(serialNumberOfDevice, prop);
+			} catch (IOException e) {
+				throw new CoreException(new Status(IStatus.ERROR, Activator.PLUGIN_ID, e.getMessage(), e));
+			}
+		}
 		CollectingLineHandler cl = new CollectingLineHandler();
 		execute(new String[] { getToolPath().getAbsolutePath(), "-s",
 				serialNumberOfDevice, "shell", "getprop", prop
@@ -326,6 +505,15 @@ public class ADB extends AbstractTool {
 	}
 
 	public void setProp(String serialNumberOfDevice, String propKey, String propValue) throws CoreException {
+		ADBClient client = getClient();
+		if (client != null) {
+			try {
+				client.setProp(serialNumberOfDevice, propKey, propValue);
+				return;
+			} catch (IOException e) {
+				throw new CoreException(new Status(IStatus.ERROR, Activator.PLUGIN_ID, e.getMessage(), e));
+			}
+		}
 		CollectingLineHandler cl = new CollectingLineHandler();
 		execute(new String[] { getToolPath().getAbsolutePath(), "-s",
 				serialNumberOfDevice, "shell", "setprop", propKey, propValue
@@ -341,12 +529,29 @@ public class ADB extends AbstractTool {
 		boolean silent = !prefs.getBoolean(PropertyInitializer.ADB_DEBUG_LOG);
 
 		logcatProcessHandler.killProcess();
+		stopLogCatReader();
 		if (!silent) {
+			String logcatArgs = prefs.getString(PropertyInitializer.ADB_LOGCAT_ARGS);
+			ADBClient client = getClient();
+			if (client != null) {
+				final IProcessConsole console = CoreMoSyncPlugin.getDefault().createConsole(MoSyncBuilder.CONSOLE_ID);
+				try {
+					logcatReader = client.logcat(null, logcatArgs, new LineReader.LineAdapter() {
+						@Override
+						public void newLine(String line) {
+							console.addMessage(IProcessConsole.OUT, line);
+						}
+					});
+					return;
+				} catch (IOException e) {
+					// Fall back to the adb binary.
+				}
+			}
 				// Then restart!
 			ArrayList<String> commandLine = new ArrayList<String>();
 			commandLine.add(getToolPath().getAbsolutePath());
 			commandLine.add("logcat");
-			String[] args = CommandLineExecutor.parseCommandLine(prefs.getString(PropertyInitializer.ADB_LOGCAT_ARGS));
+			String[] args = CommandLineExecutor.parseCommandLine(logcatArgs);
 			commandLine.addAll(Arrays.asList(args));
 			
 			// We never have more than one logcat process.
@@ -354,14 +559,23 @@ public class ADB extends AbstractTool {
 		}
 	}
 	
+	private void stopLogCatReader() {
+		if (logcatReader != null) {
+			logcatReader.stop();
+			logcatReader = null;
+		}
+	}
+
 	private synchronized void stopLogCat() {
 		logcatProcessHandler.killProcess();
+		stopLogCatReader();
 		logcatStarted = false;
 		IPreferenceStore prefs = Activator.getDefault().getPreferenceStore();
 		prefs.removePropertyChangeListener(logCatListener);
 	}
 
 	public synchronized void killServer() throws CoreException {
+		client.stopTracking();
 		execute(new String[] { getToolPath().getAbsolutePath(),
 				"kill-server"
 		}, null, null, CoreMoSyncPlugin.LOG_CONSOLE_NAME, false);
@@ -0,0 +1,659 @@
+/*  Copyright (C) 2010 Mobile Sorcery AB
+
+    This program is free software; you can redistribute it and/or modify it
+    under the terms of the Eclipse Public License v1.0.
+
+    This program is distributed in the hope that it will be useful, but WITHOUT
+    ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+    FITNESS FOR A PARTICULAR PURPOSE. See the Eclipse Public License v1.0 for
+    more details.
+
+    You should have received a copy of the Eclipse Public License v1.0 along
+    with this program. It is also available at http://www.eclipse.org/legal/epl-v10.html
+ */
+package com.mobilesorcery.sdk.builder.android.launch;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import com.mobilesorcery.sdk.core.LineReader.ILineHandler;
+import com.mobilesorcery.sdk.core.Util;
+
+/**
+ * <p>A client that talks directly to the adb server using its
+ * socket protocol, instead of launching the adb binary for every
+ * request.</p>
+ * <p>The client supports listing and tracking devices, shell
+ * commands, pushing files using the sync protocol, installing
+ * packages on several devices in parallel and streaming logcat
+ * output. The adb server itself must already be running; it is
+ * typically started using <code>adb start-server</code>.</p>
+ */
+public class ADBClient {
+
+	/**
+	 * The default port of the adb server.
+	 */
+	public static final int DEFAULT_PORT = 5037;
+
+	/**
+	 * The state of a device that is online.
+	 */
+	public static final String ONLINE = "device";
+
+	private static final String OKAY = "OKAY";
+	private static final String FAIL = "FAIL";
+
+	private static final int CONNECT_TIMEOUT = 2000;
+	private static final int SYNC_MAX_DATA = 64 * 1024;
+	private static final int MAX_PARALLEL_INSTALLS = 8;
+
+	private static final String REMOTE_TMP_DIR = "/data/local/tmp/";
+
+	/**
+	 * A handle to a logcat stream.
+	 */
+	public static class LogcatReader {
+		private final Socket socket;
+		private final Thread thread;
+
+		LogcatReader(Socket socket, Thread thread) {
+			this.socket = socket;
+			this.thread = thread;
+		}
+
+		/**
+		 * Stops reading logcat output.
+		 */
+		public void stop() {
+			close(socket);
+			thread.interrupt();
+		}
+
+		public boolean isRunning() {
+			return thread.isAlive();
+		}
+	}
+
+	/**
+	 * Keeps a persistent <code>host:track-devices</code> connection
+	 * to the adb server, and thus always knows the current devices
+	 * and their states.
+	 */
+	private class DeviceTracker implements Runnable {
+		private final Map<String, String> devices = new LinkedHashMap<String, String>();
+		private Socket socket;
+		private boolean running;
+		private boolean hasDevices;
+		private int generation;
+
+		synchronized boolean isRunning() {
+			return running;
+		}
+
+		synchronized void start() throws IOException {
+			if (running) {
+				return;
+			}
+			socket = connect();
+			request(socket, "host:track-devices");
+			running = true;
+			Thread thread = new Thread(this, "ADB device tracker");
+			thread.setDaemon(true);
+			thread.start();
+		}
+
+		synchronized void stop() {
+			stop(socket);
+		}
+
+		private synchronized void stop(Socket trackerSocket) {
+			if (trackerSocket != socket) {
+				// Already stopped, and maybe restarted
+				return;
+			}
+			close(socket);
+			socket = null;
+			running = false;
+			// Once we stop tracking, the list will soon be stale
+			hasDevices = false;
+			devices.clear();
+			notifyAll();
+		}
+
+		@Override
+		public void run() {
+			Socket trackerSocket;
+			synchronized (this) {
+				trackerSocket = socket;
+			}
+			try {
+				DataInputStream input = new DataInputStream(trackerSocket.getInputStream());
+				while (true) {
+					String deviceList = readHexLengthString(input);
+					update(trackerSocket, parseDevices(deviceList));
+				}
+			} catch (IOException e) {
+				// Disconnected or stopped; callers will fall back to host:devices.
+			} finally {
+				stop(trackerSocket);
+			}
+		}
+
+		private synchronized void update(Socket trackerSocket, Map<String, String> newDevices) {
+			if (trackerSocket != socket) {
+				return;
+			}
+			devices.clear();
+			devices.putAll(newDevices);
+			hasDevices = true;
+			generation++;
+			notifyAll();
+		}
+
+		synchronized Map<String, String> getDevices() {
+			return hasDevices ? new LinkedHashMap<String, String>(devices) : null;
+		}
+
+		synchronized boolean awaitChange(long timeout) throws InterruptedException {
+			int currentGeneration = generation;
+			long end = System.currentTimeMillis() + timeout;
+			long remaining = timeout;
+			while (running && generation == currentGeneration && remaining > 0) {
+				wait(remaining);
+				remaining = end - System.currentTimeMillis();
+			}
+			return generation != currentGeneration;
+		}
+
+		synchronized boolean awaitState(String serial, String state, long timeout) throws InterruptedException {
+			long end = System.currentTimeMillis() + timeout;
+			long remaining = timeout;
+			while (running && !state.equals(devices.get(serial)) && remaining > 0) {
+				wait(remaining);
+				remaining = end - System.currentTimeMillis();
+			}
+			return state.equals(devices.get(serial));
+		}
+	}
+
+	private final String host;
+	private final int port;
+	private final DeviceTracker tracker = new DeviceTracker();
+
+	// Set once the server has been reached, cleared if it cannot be
+	private volatile boolean serverReachable;
+
+	public ADBClient() {
+		this("127.0.0.1", DEFAULT_PORT);
+	}
+
+	public ADBClient(String host, int port) {
+		this.host = host;
+		this.port = port;
+	}
+
+	/**
+	 * Returns <code>true</code> if the adb server is running. Once the
+	 * server has been reached, no more requests are made for this
+	 * check until a connection to the server fails.
+	 * @return
+	 */
+	public boolean isServerRunning() {
+		if (serverReachable) {
+			return true;
+		}
+		try {
+			getVersion();
+			return true;
+		} catch (IOException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Returns the protocol version of the adb server.
+	 * @return
+	 * @throws IOException
+	 */
+	public int getVersion() throws IOException {
+		Socket socket = connect();
+		try {
+			request(socket, "host:version");
+			return Integer.parseInt(readHexLengthString(new DataInputStream(socket.getInputStream())), 16);
+		} catch (NumberFormatException e) {
+			throw new IOException("Invalid adb version");
+		} finally {
+			close(socket);
+		}
+	}
+
+	/**
+	 * Returns all devices known to the adb server, and their states.
+	 * If device tracking has been started, no request is sent to the
+	 * server.
+	 * @return A map of serial numbers to states, such as {@link #ONLINE}.
+	 * @throws IOException
+	 */
+	public Map<String, String> getDevices() throws IOException {
+		Map<String, String> tracked = tracker.getDevices();
+		if (tracked != null) {
+			return tracked;
+		}
+		Socket socket = connect();
+		try {
+			request(socket, "host:devices");
+			return parseDevices(readHexLengthString(new DataInputStream(socket.getInputStream())));
+		} finally {
+			close(socket);
+		}
+	}
+
+	/**
+	 * Starts tracking devices using a persistent connection.
+	 * @throws IOException
+	 */
+	public void startTracking() throws IOException {
+		tracker.start();
+	}
+
+	/**
+	 * Stops tracking devices.
+	 */
+	public void stopTracking() {
+		tracker.stop();
+	}
+
+	public boolean isTracking() {
+		return tracker.isRunning();
+	}
+
+	/**
+	 * Waits for the list of devices to change.
+	 * @param timeout The maximum time to wait, in ms
+	 * @return <code>true</code> if the list changed
+	 * @throws IOException If devices could not be tracked
+	 * @throws InterruptedException
+	 */
+	public boolean awaitDevicesChanged(long timeout) throws IOException, InterruptedException {
+		startTracking();
+		return tracker.awaitChange(timeout);
+	}
+
+	/**
+	 * Waits for a device to come online and finish booting.
+	 * @param serial
+	 * @param timeout The maximum time to wait, in ms
+	 * @return <code>true</code> if the device booted within the timeout
+	 * @throws IOException
+	 * @throws InterruptedException
+	 */
+	public boolean awaitBoot(String serial, long timeout) throws IOException, InterruptedException {
+		long end = System.currentTimeMillis() + timeout;
+		startTracking();
+		if (!tracker.awaitState(serial, ONLINE, timeout)) {
+			return false;
+		}
+		// Let the device tell us when it is done instead of polling it
+		String script = "while [ \"$(getprop dev.bootcomplete)\" != \"1\" ]; do sleep 1; done; echo booted";
+		try {
+			String reply = shell(serial, script, Math.max(1, end - System.currentTimeMillis()));
+			return reply.trim().endsWith("booted");
+		} catch (SocketTimeoutException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Executes a shell command on a device.
+	 * @param serial
+	 * @param command
+	 * @return The output of the command
+	 * @throws IOException
+	 */
+	public String shell(String serial, String command) throws IOException {
+		return shell(serial, command, 0);
+	}
+
+	private String shell(String serial, String command, long timeout) throws IOException {
+		Socket socket = connect();
+		try {
+			socket.setSoTimeout((int) Math.min(Integer.MAX_VALUE, timeout));
+			transport(socket, serial);
+			request(socket, "shell:" + command);
+			InputStream input = socket.getInputStream();
+			ByteArrayOutputStream output = new ByteArrayOutputStream();
+			Util.transfer(input, output);
+			return new String(output.toByteArray(), "UTF-8");
+		} finally {
+			close(socket);
+		}
+	}
+
+	/**
+	 * Returns a system property of a device.
+	 * @param serial
+	 * @param property
+	 * @return
+	 * @throws IOException
+	 */
+	public String getProp(String serial, String property) throws IOException {
+		return shell(serial, "getprop " + property).trim();
+	}
+
+	public void setProp(String serial, String property, String value) throws IOException {
+		shell(serial, "setprop " + property + " " + value);
+	}
+
+	/**
+	 * Pushes a file to a device using the sync protocol.
+	 * @param serial
+	 * @param localFile
+	 * @param remotePath
+	 * @throws IOException
+	 */
+	public void push(String serial, File localFile, String remotePath) throws IOException {
+		Socket socket = connect();
+		try {
+			transport(socket, serial);
+			request(socket, "sync:");
+			OutputStream output = socket.getOutputStream();
+			DataInputStream input = new DataInputStream(socket.getInputStream());
+
+			byte[] pathAndMode = (remotePath + ",0644").getBytes("UTF-8");
+			writeSyncHeader(output, "SEND", pathAndMode.length);
+			output.write(pathAndMode);
+
+			byte[] buffer = new byte[SYNC_MAX_DATA];
+			FileInputStream fileInput = new FileInputStream(localFile);
+			try {
+				for (int read = fileInput.read(buffer); read != -1; read = fileInput.read(buffer)) {
+					writeSyncHeader(output, "DATA", read);
+					output.write(buffer, 0, read);
+				}
+			} finally {
+				Util.safeClose(fileInput);
+			}
+			writeSyncHeader(output, "DONE", (int) (localFile.lastModified() / 1000));
+			output.flush();
+
+			String status = readString(input, 4);
+			int length = readLittleEndianInt(input);
+			if (!OKAY.equals(status)) {
+				String message = FAIL.equals(status) ? readString(input, length) : status;
+				throw new IOException("Could not push file: " + message);
+			}
+			writeSyncHeader(output, "QUIT", 0);
+		} finally {
+			close(socket);
+		}
+	}
+
+	/**
+	 * Installs a package on a device.
+	 * @param serial
+	 * @param apk
+	 * @param packageName The name of the package, used for uninstalling any
+	 * previous version; may be <code>null</code>
+	 * @param uninstallFirst
+	 * @throws IOException
+	 */
+	public void install(String serial, File apk, String packageName, boolean uninstallFirst) throws IOException {
+		if (packageName != null && uninstallFirst) {
+			// Ignore the result -- the package might not exist.
+			shell(serial, "pm uninstall " + packageName);
+		}
+		String remotePath = REMOTE_TMP_DIR + apk.getName();
+		push(serial, apk, remotePath);
+		try {
+			String reply = shell(serial, "pm install -r " + quote(remotePath));
+			checkPackageManagerReply(reply);
+		} finally {
+			shell(serial, "rm " + quote(remotePath));
+		}
+	}
+
+	/**
+	 * Installs a package on several devices in parallel.
+	 * @param serials
+	 * @param apk
+	 * @param packageName
+	 * @param uninstallFirst
+	 * @return The devices where installation failed, and why;
+	 * an empty map if all installations succeeded.
+	 */
+	public Map<String, IOException> install(List<String> serials, final File apk, final String packageName, final boolean uninstallFirst) {
+		Map<String, IOException> failures = new LinkedHashMap<String, IOException>();
+		if (serials.isEmpty()) {
+			return failures;
+		}
+		ExecutorService executor = Executors.newFixedThreadPool(Math.min(serials.size(), MAX_PARALLEL_INSTALLS), new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread thread = new Thread(r, "ADB install");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		try {
+			LinkedHashMap<String, Future<Object>> pending = new LinkedHashMap<String, Future<Object>>();
+			for (final String serial : serials) {
+				pending.put(serial, executor.submit(new Callable<Object>() {
+					@Override
+					public Object call() throws Exception {
+						install(serial, apk, packageName, uninstallFirst);
+						return null;
+					}
+				}));
+			}
+			for (Map.Entry<String, Future<Object>> install : pending.entrySet()) {
+				try {
+					install.getValue().get();
+				} catch (ExecutionException e) {
+					Throwable cause = e.getCause();
+					IOException failure = cause instanceof IOException ? (IOException) cause : new IOException(cause.getMessage());
+					failures.put(install.getKey(), failure);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					failures.put(install.getKey(), new IOException("Interrupted"));
+				}
+			}
+		} finally {
+			executor.shutdown();
+		}
+		return failures;
+	}
+
+	public void uninstall(String serial, String packageName) throws IOException {
+		checkPackageManagerReply(shell(serial, "pm uninstall " + packageName));
+	}
+
+	/**
+	 * Launches an activity.
+	 * @param serial
+	 * @param activityName The fully qualified component name
+	 * @throws IOException
+	 */
+	public void launch(String serial, String activityName) throws IOException {
+		String reply = shell(serial, "am start -n " + activityName);
+		if (reply.contains("Error:")) {
+			throw new IOException(reply.trim());
+		}
+	}
+
+	/**
+	 * Starts streaming logcat output from a device.
+	 * @param serial The device serial number, or <code>null</code> for any device
+	 * @param args Extra logcat arguments, may be <code>null</code>
+	 * @param handler Receives the logcat output, line by line
+	 * @return A handle that can be used for stopping the stream
+	 * @throws IOException
+	 */
+	public LogcatReader logcat(String serial, String args, final ILineHandler handler) throws IOException {
+		final Socket socket = connect();
+		try {
+			transport(socket, serial);
+			request(socket, "shell:logcat" + (Util.isEmpty(args) ? "" : " " + args));
+		} catch (IOException e) {
+			close(socket);
+			throw e;
+		}
+
+		Thread thread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				IOException error = null;
+				try {
+					BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), "UTF-8"));
+					for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+						handler.newLine(line);
+					}
+				} catch (IOException e) {
+					error = e;
+				} finally {
+					close(socket);
+					handler.stop(error);
+				}
+			}
+		}, "ADB logcat");
+		thread.setDaemon(true);
+		handler.start(null);
+		thread.start();
+		return new LogcatReader(socket, thread);
+	}
+
+	private Socket connect() throws IOException {
+		Socket socket = new Socket();
+		try {
+			socket.connect(new InetSocketAddress(host, port), CONNECT_TIMEOUT);
+		} catch (IOException e) {
+			serverReachable = false;
+			close(socket);
+			throw e;
+		}
+		serverReachable = true;
+		return socket;
+	}
+
+	private static void close(Socket socket) {
+		// Sockets are not Closeable in Java 6
+		if (socket != null) {
+			try {
+				socket.close();
+			} catch (IOException e) {
+				// Ignore.
+			}
+		}
+	}
+
+	private void transport(Socket socket, String serial) throws IOException {
+		request(socket, serial == null ? "host:transport-any" : "host:transport:" + serial);
+	}
+
+	private static void request(Socket socket, String request) throws IOException {
+		byte[] payload = request.getBytes("UTF-8");
+		OutputStream output = socket.getOutputStream();
+		output.write(String.format("%04x", payload.length).getBytes("US-ASCII"));
+		output.write(payload);
+		output.flush();
+
+		DataInputStream input = new DataInputStream(socket.getInputStream());
+		String status = readString(input, 4);
+		if (FAIL.equals(status)) {
+			throw new IOException(readHexLengthString(input));
+		} else if (!OKAY.equals(status)) {
+			throw new IOException("Unexpected reply from adb server: " + status);
+		}
+	}
+
+	static Map<String, String> parseDevices(String deviceList) {
+		LinkedHashMap<String, String> result = new LinkedHashMap<String, String>();
+		for (String line : deviceList.split("\n")) {
+			String[] device = line.trim().split("\\s+");
+			if (device.length > 1) {
+				result.put(device[0], device[device.length - 1]);
+			}
+		}
+		return result;
+	}
+
+	private static void checkPackageManagerReply(String reply) throws IOException {
+		for (String line : reply.split("\n")) {
+			if (line.trim().startsWith("Failure")) {
+				throw new IOException(line.trim());
+			}
+		}
+	}
+
+	private static String quote(String path) {
+		return "'" + path.replace("'", "'\\''") + "'";
+	}
+
+	private static String readHexLengthString(DataInputStream input) throws IOException {
+		String lengthStr = readString(input, 4);
+		try {
+			return readString(input, Integer.parseInt(lengthStr, 16));
+		} catch (NumberFormatException e) {
+			throw new IOException("Invalid length from adb server: " + lengthStr);
+		}
+	}
+
+	private static String readString(DataInputStream input, int length) throws IOException {
+		byte[] buffer = new byte[length];
+		try {
+			input.readFully(buffer);
+		} catch (EOFException e) {
+			throw new IOException("Connection to adb server closed");
+		}
+		return new String(buffer, "UTF-8");
+	}
+
+	private static void writeSyncHeader(OutputStream output, String id, int value) throws IOException {
+		output.write(id.getBytes("US-ASCII"));
+		output.write(new byte[] { (byte) value, (byte) (value >> 8), (byte) (value >> 16), (byte) (value >> 24) });
+	}
+
+	private static int readLittleEndianInt(DataInputStream input) throws IOException {
+		byte[] buffer = new byte[4];
+		input.readFully(buffer);
+		return (buffer[0] & 0xff) | (buffer[1] & 0xff) << 8 | (buffer[2] & 0xff) << 16 | (buffer[3] & 0xff) << 24;
+	}
+
+	/**
+	 * Returns the serial numbers of all devices in a certain state.
+	 * @param devices
+	 * @param state
+	 * @return
+	 */
+	public static List<String> filter(Map<String, String> devices, String state) {
+		ArrayList<String> result = new ArrayList<String>();
+		for (Map.Entry<String, String> device : devices.entrySet()) {
+			if (state.equals(device.getValue())) {
+				result.add(device.getKey());
+			}
+		}
+		return Collections.unmodifiableList(result);
+	}
+}
@@ -113,7 +113,7 @@ public class Emulator extends AbstractTool {
 					return;
 				}
 				try {
-					Thread.sleep(5000);
+					adb.awaitDevicesChanged(5000);
 				} catch (InterruptedException e) {
 					break;
 				}
@@ -15,9 +15,11 @@ import com.mobilesorcery.sdk.builder.java.KeystoreCertificateInfo;
 import com.mobilesorcery.sdk.core.CommandLineBuilder;
 import com.mobilesorcery.sdk.core.CoreMoSyncPlugin;
 import com.mobilesorcery.sdk.core.IBuildResult;
+import com.mobilesorcery.sdk.core.IBuildSession;
 import com.mobilesorcery.sdk.core.IBuildVariant;
 import com.mobilesorcery.sdk.core.MoSyncProject;
 import com.mobilesorcery.sdk.core.MoSyncTool;
+import com.mobilesorcery.sdk.core.PackageFingerprint;
 import com.mobilesorcery.sdk.core.ParameterResolverException;
 import com.mobilesorcery.sdk.core.PreferenceStorePropertyOwner;
 import com.mobilesorcery.sdk.core.PropertyUtil;
@@ -61,6 +63,15 @@ public class BlackBerryPackager extends JavaPackager {
 		}
 	}
 
+	@Override
+	protected void addPackageInputs(MoSyncProject project, IBuildSession session,
+			IBuildVariant variant, PackageFingerprint fingerprint) throws Exception {
+		super.addPackageInputs(project, session, variant, fingerprint);
+		JDE jde = matchingJDE(JDE.TYPE_DEV_TOOLS, project, variant.getProfile());
+		fingerprint.add("blackberry-jde", jde == null ? null : jde.getLocation().toOSString());
+		fingerprint.add("blackberry-sign", Boolean.toString(shouldSign(project)));
+	}
+
 	private boolean shouldPackAsCOD(MoSyncProject project, IBuildVariant variant) {
 		JDE jde = matchingJDE(JDE.TYPE_DEV_TOOLS, project, variant.getProfile());
 		return jde != null;
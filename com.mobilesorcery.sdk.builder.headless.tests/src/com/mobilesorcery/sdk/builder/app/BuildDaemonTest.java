@@ -0,0 +1,114 @@
+/*  Copyright (C) 2011 Mobile Sorcery AB
+
+    This program is free software; you can redistribute it and/or modify it
+    under the terms of the Eclipse Public License v1.0.
+
+    This program is distributed in the hope that it will be useful, but WITHOUT
+    ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+    FITNESS FOR A PARTICULAR PURPOSE. See the Eclipse Public License v1.0 for
+    more details.
+
+    You should have received a copy of the Eclipse Public License v1.0 along
+    with this program. It is also available at http://www.eclipse.org/legal/epl-v10.html
+*/
+package com.mobilesorcery.sdk.builder.app;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.net.Socket;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.mobilesorcery.sdk.core.Util;
+
+public class BuildDaemonTest {
+
+	private static final long TIMEOUT = 10000;
+
+	private File tokenFile;
+	private BuildDaemon daemon;
+	private Thread daemonThread;
+
+	@Before
+	public void setUp() throws Exception {
+		tokenFile = File.createTempFile("buildserver", ".token");
+		daemon = new BuildDaemon(0, tokenFile);
+		daemonThread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					daemon.run();
+				} catch (IOException e) {
+					throw new RuntimeException(e);
+				}
+			}
+		});
+		daemonThread.start();
+		long end = System.currentTimeMillis() + TIMEOUT;
+		while (!daemon.isRunning()) {
+			assertTrue("Daemon did not start", System.currentTimeMillis() < end);
+			Thread.sleep(10);
+		}
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		daemon.stop();
+		daemonThread.join(TIMEOUT);
+		tokenFile.delete();
+	}
+
+	@Test
+	public void testTokenFile() throws Exception {
+		String token = Util.readFile(tokenFile.getAbsolutePath());
+		assertTrue(token.length() > 0);
+		assertTrue(tokenFile.canRead());
+	}
+
+	@Test
+	public void testInvalidToken() throws Exception {
+		assertTrue(send("not the token", "shutdown").startsWith("EXIT 1"));
+		assertTrue(send(null, "shutdown").startsWith("EXIT 1"));
+		assertTrue(daemon.isRunning());
+	}
+
+	@Test
+	public void testShutdown() throws Exception {
+		String token = Util.readFile(tokenFile.getAbsolutePath());
+		assertEquals("EXIT 0", send(token, "shutdown"));
+		daemonThread.join(TIMEOUT);
+		assertFalse(daemonThread.isAlive());
+		assertFalse(daemon.isRunning());
+		assertFalse(tokenFile.exists());
+	}
+
+	private String send(String token, String request) throws IOException {
+		Socket socket = new Socket("127.0.0.1", daemon.getPort());
+		try {
+			PrintWriter output = new PrintWriter(new OutputStreamWriter(socket.getOutputStream(), "UTF-8"));
+			if (token != null) {
+				output.println(token);
+			}
+			output.println(request);
+			output.flush();
+			BufferedReader input = new BufferedReader(new InputStreamReader(socket.getInputStream(), "UTF-8"));
+			String lastLine = null;
+			for (String line = input.readLine(); line != null; line = input.readLine()) {
+				lastLine = line;
+			}
+			return lastLine;
+		} finally {
+			socket.close();
+		}
+	}
+}
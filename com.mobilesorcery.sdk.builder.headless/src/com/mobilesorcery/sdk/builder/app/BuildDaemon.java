@@ -0,0 +1,313 @@
+/*  Copyright (C) 2009 Mobile Sorcery AB
+
+    This program is free software; you can redistribute it and/or modify it
+    under the terms of the Eclipse Public License v1.0.
+
+    This program is distributed in the hope that it will be useful, but WITHOUT
+    ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+    FITNESS FOR A PARTICULAR PURPOSE. See the Eclipse Public License v1.0 for
+    more details.
+
+    You should have received a copy of the Eclipse Public License v1.0 along
+    with this program. It is also available at http://www.eclipse.org/legal/epl-v10.html
+ */
+package com.mobilesorcery.sdk.builder.app;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.math.BigInteger;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.osgi.util.NLS;
+
+import com.mobilesorcery.sdk.core.AbstractProcessConsole;
+import com.mobilesorcery.sdk.core.CommandLineExecutor;
+import com.mobilesorcery.sdk.core.CoreMoSyncPlugin;
+import com.mobilesorcery.sdk.core.IProcessConsole;
+import com.mobilesorcery.sdk.core.IProvider;
+import com.mobilesorcery.sdk.core.Util;
+
+/**
+ * <p>A long-lived build server that keeps the workspace, the profile
+ * database and all build state loaded between builds.</p>
+ * <p>Clients connect to a port on the loopback interface and first
+ * send a line with the access token, which the server writes at startup
+ * to a file only readable by the current user. The next line holds the
+ * same arguments as a one-shot headless build, for example
+ * <code>-project MyProject -cfg Release -profiles Nokia/N95,Sony Ericsson/K800 -clean</code>.
+ * The console output of the build is then streamed back line by line,
+ * and the last line sent is <code>EXIT 0</code> if the build succeeded
+ * or <code>EXIT 1 </code><i>message</i> if it failed.
+ * Sending the line <code>shutdown</code> stops the server. Requests
+ * with a missing or wrong token get <code>EXIT 1</code> and are ignored.</p>
+ * <p>Each connection is served by its own thread; builds of different
+ * projects run concurrently, builds of the same project are queued.</p>
+ */
+public class BuildDaemon {
+
+	public static final int DEFAULT_PORT = 7777;
+
+	private static final String SHUTDOWN = "shutdown"; //$NON-NLS-1$
+
+	private static final String EXIT = "EXIT"; //$NON-NLS-1$
+
+	private static final int TOKEN_BITS = 128;
+
+	private class SocketConsole extends AbstractProcessConsole {
+
+		private final PrintWriter output;
+		private boolean closed;
+
+		SocketConsole(PrintWriter output) {
+			this.output = output;
+		}
+
+		@Override
+		protected synchronized void writeLine(int type, String line) {
+			if (!closed) {
+				output.println(line);
+				output.flush();
+			}
+		}
+
+		synchronized void close() {
+			closed = true;
+		}
+
+		synchronized boolean isClosed() {
+			return closed;
+		}
+	}
+
+	private class RequestHandler implements Runnable {
+
+		private final Socket socket;
+
+		RequestHandler(Socket socket) {
+			this.socket = socket;
+		}
+
+		@Override
+		public void run() {
+			try {
+				handle();
+			} catch (IOException e) {
+				CoreMoSyncPlugin.getDefault().log(e);
+			} finally {
+				close(socket);
+			}
+		}
+
+		private void handle() throws IOException {
+			BufferedReader input = new BufferedReader(new InputStreamReader(socket.getInputStream(), "UTF-8")); //$NON-NLS-1$
+			final PrintWriter output = new PrintWriter(new OutputStreamWriter(socket.getOutputStream(), "UTF-8")); //$NON-NLS-1$
+			if (!isAuthorized(input.readLine())) {
+				output.println(EXIT + " 1 Invalid access token"); //$NON-NLS-1$
+				output.flush();
+				return;
+			}
+			String line = input.readLine();
+			if (line == null) {
+				return;
+			}
+			line = line.trim();
+			if (SHUTDOWN.equals(line)) {
+				output.println(EXIT + " 0"); //$NON-NLS-1$
+				output.flush();
+				stop();
+				return;
+			}
+
+			final SocketConsole console = new SocketConsole(output);
+			CoreMoSyncPlugin.getDefault().setThreadProcessConsoleProvider(new IProvider<IProcessConsole, String>() {
+				@Override
+				public IProcessConsole get(String name) {
+					// Threads spawned during this build may outlive it.
+					return console.isClosed() ? null : console;
+				}
+			});
+
+			String result = EXIT + " 0"; //$NON-NLS-1$
+			long startTime = System.currentTimeMillis();
+			try {
+				BuildRequest request = BuildRequest.parse(CommandLineExecutor.parseCommandLine(line));
+				if (CoreMoSyncPlugin.getDefault().isDebugging()) {
+					CoreMoSyncPlugin.trace("Build request for {0}", request.getProjectName()); //$NON-NLS-1$
+				}
+				request.execute(new NullProgressMonitor() {
+					@Override
+					public boolean isCanceled() {
+						// The client went away
+						return output.checkError();
+					}
+				});
+			} catch (Exception e) {
+				String message = e.getMessage() == null ? e.toString() : e.getMessage();
+				result = EXIT + " 1 " + message.replace('\n', ' '); //$NON-NLS-1$
+			} finally {
+				console.close();
+				CoreMoSyncPlugin.getDefault().setThreadProcessConsoleProvider(null);
+				if (CoreMoSyncPlugin.getDefault().isDebugging()) {
+					CoreMoSyncPlugin.trace("Build request finished in {0} ms: {1}", //$NON-NLS-1$
+							System.currentTimeMillis() - startTime, result);
+				}
+			}
+			output.println(result);
+			output.flush();
+		}
+	}
+
+	private final int port;
+	private final File tokenFile;
+	private String token;
+	private volatile ServerSocket serverSocket;
+	private ExecutorService executor;
+	private volatile boolean running;
+
+	/**
+	 * Creates a build daemon.
+	 * @param port The port to listen to, or 0 for any free port
+	 * @param tokenFile The file to write the access token to
+	 */
+	public BuildDaemon(int port, File tokenFile) {
+		this.port = port;
+		this.tokenFile = tokenFile;
+	}
+
+	/**
+	 * Accepts build requests until {@link #stop()} is called
+	 * or a <code>shutdown</code> request is received.
+	 * @throws IOException If the server socket could not be opened,
+	 * or if the token file could not be written
+	 */
+	public void run() throws IOException {
+		serverSocket = new ServerSocket(port, 0, InetAddress.getByName("127.0.0.1")); //$NON-NLS-1$
+		try {
+			token = new BigInteger(TOKEN_BITS, new SecureRandom()).toString(16);
+			writeTokenFile();
+		} catch (IOException e) {
+			close(serverSocket);
+			throw e;
+		}
+		executor = Executors.newCachedThreadPool(new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread thread = new Thread(r, "Build request"); //$NON-NLS-1$
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		running = true;
+		System.out.println(NLS.bind(Messages.BuildDaemon_Listening, Integer.toString(serverSocket.getLocalPort()), tokenFile.getAbsolutePath()));
+		try {
+			while (running) {
+				Socket socket;
+				try {
+					socket = serverSocket.accept();
+				} catch (SocketException e) {
+					// Closed by stop()
+					break;
+				}
+				executor.execute(new RequestHandler(socket));
+			}
+		} finally {
+			running = false;
+			close(serverSocket);
+			tokenFile.delete();
+			executor.shutdown();
+			try {
+				executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	/**
+	 * Stops accepting requests; requests already being
+	 * served are allowed to finish.
+	 */
+	public void stop() {
+		running = false;
+		close(serverSocket);
+	}
+
+	/**
+	 * Returns whether this daemon accepts requests.
+	 * @return
+	 */
+	public boolean isRunning() {
+		return running;
+	}
+
+	/**
+	 * Returns the port this daemon listens to.
+	 * @return The port, or -1 if not started
+	 */
+	public int getPort() {
+		ServerSocket socket = serverSocket;
+		return socket == null ? -1 : socket.getLocalPort();
+	}
+
+	private void writeTokenFile() throws IOException {
+		tokenFile.getParentFile().mkdirs();
+		tokenFile.delete();
+		if (!tokenFile.createNewFile()) {
+			throw new IOException("Could not create " + tokenFile); //$NON-NLS-1$
+		}
+		// Restrict access before the token is written
+		tokenFile.setReadable(false, false);
+		tokenFile.setWritable(false, false);
+		tokenFile.setReadable(true, true);
+		tokenFile.setWritable(true, true);
+		FileOutputStream output = new FileOutputStream(tokenFile);
+		try {
+			output.write(token.getBytes("US-ASCII")); //$NON-NLS-1$
+		} finally {
+			Util.safeClose(output);
+		}
+	}
+
+	private boolean isAuthorized(String line) throws IOException {
+		if (line == null) {
+			return false;
+		}
+		// Constant time comparison
+		return MessageDigest.isEqual(token.getBytes("US-ASCII"), line.trim().getBytes("US-ASCII")); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	private static void close(Socket socket) {
+		try {
+			if (socket != null) {
+				socket.close();
+			}
+		} catch (IOException e) {
+			// Ignore.
+		}
+	}
+
+	private static void close(ServerSocket socket) {
+		try {
+			if (socket != null) {
+				socket.close();
+			}
+		} catch (IOException e) {
+			// Ignore.
+		}
+	}
+}
@@ -0,0 +1,142 @@
+/*  Copyright (C) 2009 Mobile Sorcery AB
+
+    This program is free software; you can redistribute it and/or modify it
+    under the terms of the Eclipse Public License v1.0.
+
+    This program is distributed in the hope that it will be useful, but WITHOUT
+    ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+    FITNESS FOR A PARTICULAR PURPOSE. See the Eclipse Public License v1.0 for
+    more details.
+
+    You should have received a copy of the Eclipse Public License v1.0 along
+    with this program. It is also available at http://www.eclipse.org/legal/epl-v10.html
+ */
+package com.mobilesorcery.sdk.builder.app;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.text.MessageFormat;
+
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.jobs.IJobManager;
+import org.eclipse.core.runtime.jobs.Job;
+
+import com.mobilesorcery.sdk.core.MoSyncProject;
+import com.mobilesorcery.sdk.core.Util;
+import com.mobilesorcery.sdk.finalizer.core.FinalizerParser;
+
+/**
+ * A request to build a project, as given on the command line
+ * or sent to a {@link BuildDaemon}.
+ */
+class BuildRequest {
+
+	private String projectName;
+	private String finalizerScript;
+	private String cfgId;
+	private String[] profiles;
+	private boolean clean;
+
+	/**
+	 * Parses a build request.
+	 * @param args
+	 * @return
+	 * @throws IllegalArgumentException If no project was specified
+	 */
+	public static BuildRequest parse(String[] args) {
+		BuildRequest request = new BuildRequest();
+		int i = 0;
+		while (i < args.length) {
+			String arg = args[i];
+			String nextArg = i == args.length - 1 ? "" : args[i + 1]; //$NON-NLS-1$
+
+			if ("-project".equals(arg)) { //$NON-NLS-1$
+				request.projectName = nextArg;
+				i++;
+			} else if ("-f".equals(arg)) { //$NON-NLS-1$
+				request.finalizerScript = nextArg;
+				i++;
+			} else if ("-cfg".equals(arg)) { //$NON-NLS-1$
+				request.cfgId = nextArg;
+				i++;
+			} else if ("-profiles".equals(arg)) { //$NON-NLS-1$
+				request.profiles = nextArg.split(","); //$NON-NLS-1$
+				i++;
+			} else if ("-clean".equals(arg)) { //$NON-NLS-1$
+				request.clean = true;
+			}
+			i++;
+		}
+
+		if (request.projectName == null) {
+			throw new IllegalArgumentException(Messages.HeadlessBuild_Usage);
+		}
+
+		return request;
+	}
+
+	public String getProjectName() {
+		return projectName;
+	}
+
+	/**
+	 * Executes this request in the current thread; builds of
+	 * the same project are serialized, builds of different
+	 * projects may run concurrently.
+	 * @param monitor
+	 * @throws Exception
+	 */
+	public void execute(IProgressMonitor monitor) throws Exception {
+		IProject project = ResourcesPlugin.getWorkspace().getRoot().getProject(projectName);
+		if (!project.exists() || !project.isOpen()) {
+			throw new IOException(Messages.HeadlessBuild_IllegalProjectState);
+		}
+
+		// The workspace may be long-lived; pick up any changes made by others.
+		// This must be done before we begin the project rule, since refreshing
+		// a project requires the workspace root rule.
+		project.refreshLocal(IResource.DEPTH_INFINITE, monitor);
+
+		// A build only modifies resources in its own project and takes no
+		// other rules, so the project rule is enough (and does not nest
+		// with anything). The workspace build rule would serialize all builds.
+		IJobManager jobManager = Job.getJobManager();
+		jobManager.beginRule(project, monitor);
+		try {
+			MoSyncProject mosyncProject = MoSyncProject.create(project);
+			if (cfgId != null && mosyncProject.getBuildConfiguration(cfgId) == null) {
+				String availableCfgs = Util.join(mosyncProject
+						.getBuildConfigurations().toArray(), ", ");
+				throw new IOException(
+						MessageFormat
+								.format("Unknown build configuration: {0}. Available configurations for this project are: {1}",
+										cfgId, availableCfgs));
+			}
+
+			FinalizerParser parser = new FinalizerParser(project, cfgId);
+			parser.setClean(clean);
+			parser.execute(new StringReader(getScript(parser, mosyncProject)), monitor);
+		} finally {
+			jobManager.endRule(project);
+		}
+	}
+
+	private String getScript(FinalizerParser parser, MoSyncProject mosyncProject) throws IOException {
+		if (finalizerScript != null) {
+			return Util.readFile(finalizerScript);
+		}
+
+		if (profiles != null) {
+			StringBuffer script = new StringBuffer();
+			for (String profile : profiles) {
+				script.append("begin " + profile.trim() + " end\n"); //$NON-NLS-1$ //$NON-NLS-2$
+			}
+			return script.toString();
+		}
+
+		return parser.extractScriptFromProject(mosyncProject);
+	}
+}
@@ -13,19 +13,11 @@
  */
 package com.mobilesorcery.sdk.builder.app;
 
-import java.io.IOException;
-import java.text.MessageFormat;
+import java.io.File;
 import java.util.Date;
 
-import org.eclipse.core.internal.jobs.JobManager;
-import org.eclipse.core.resources.IProject;
-import org.eclipse.core.resources.IWorkspace;
-import org.eclipse.core.resources.IWorkspaceDescription;
-import org.eclipse.core.resources.ResourcesPlugin;
-import org.eclipse.core.runtime.CoreException;
-import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.NullProgressMonitor;
 import org.eclipse.core.runtime.Platform;
-import org.eclipse.core.runtime.jobs.Job;
 import org.eclipse.equinox.app.IApplication;
 import org.eclipse.equinox.app.IApplicationContext;
 import org.eclipse.swt.widgets.Display;
@@ -33,15 +25,13 @@ import org.eclipse.ui.PlatformUI;
 import org.osgi.framework.Bundle;
 
 import com.mobilesorcery.sdk.core.CoreMoSyncPlugin;
-import com.mobilesorcery.sdk.core.MoSyncProject;
-import com.mobilesorcery.sdk.core.Util;
-import com.mobilesorcery.sdk.finalizer.core.FinalizerParser;
-import com.mobilesorcery.sdk.finalizer.ui.FinalizeJob;
 
-/* Rudimentary headless build
+/* Rudimentary headless build; with -server, a build daemon (see BuildDaemon)
  */
 public class HeadlessBuild implements IApplication {
 
+	private static final String TOKEN_FILE = "buildserver.token"; //$NON-NLS-1$
+
 	public class BuildRunnable implements Runnable {
 
 		private final String[] args;
@@ -127,75 +117,38 @@ public class HeadlessBuild implements IApplication {
 	}
 
 	Integer startBuild(String[] args) throws Exception {
-		IWorkspace ws = ResourcesPlugin.getWorkspace();
-
-		int i = 0;
-
-		String projectName = null;
-		String finalizerScript = null;
-		String cfgId = null;
-
-		while (i < args.length) {
-			String arg = args[i];
-			String nextArg = i == args.length - 1 ? "" : args[i + 1]; //$NON-NLS-1$
-
-			if ("-project".equals(arg)) { //$NON-NLS-1$
-				projectName = nextArg;
-				i++;
-			} else if ("-f".equals(arg)) { //$NON-NLS-1$
-				finalizerScript = nextArg;
-				i++;
-			} else if ("-cfg".equals(arg)) { //$NON-NLS-1$
-				cfgId = nextArg;
-				i++;
-			}
-			i++;
+		int serverPort = getServerPort(args);
+		if (serverPort != -1) {
+			File tokenFile = CoreMoSyncPlugin.getDefault().getStateLocation().append(TOKEN_FILE).toFile();
+			new BuildDaemon(serverPort, tokenFile).run();
+			return EXIT_OK;
 		}
 
-		if (projectName == null) {
+		BuildRequest request;
+		try {
+			request = BuildRequest.parse(args);
+		} catch (IllegalArgumentException e) {
 			printUsage();
-			throw new Exception(Messages.HeadlessBuild_Usage);
-		}
-
-		IProject project = ws.getRoot().getProject(projectName);
-		if (!project.exists() || !project.isOpen()) {
-			throw new IOException(Messages.HeadlessBuild_IllegalProjectState);
+			throw new Exception(e.getMessage());
 		}
 
-		MoSyncProject mosyncProject = MoSyncProject.create(project);
-
-		if (cfgId != null && mosyncProject.getBuildConfiguration(cfgId) == null) {
-			String availableCfgs = Util.join(mosyncProject
-					.getBuildConfigurations().toArray(), ", ");
-			throw new IOException(
-					MessageFormat
-							.format("Unknown build configuration: {0}. Available configurations for this project are: {1}",
-									cfgId, availableCfgs));
-		}
-
-		String script = null;
-		if (finalizerScript != null) {
-			script = Util.readFile(finalizerScript);
-		}
+		request.execute(new NullProgressMonitor());
 
-		FinalizerParser parser = new FinalizerParser(project);
-		if (script == null) {
-			script = parser.extractScriptFromProject(mosyncProject);
-		}
-
-		FinalizeJob job = new FinalizeJob(mosyncProject, script, cfgId);
-		job.setUser(true);
-		job.setRule(mosyncProject.getWrappedProject().getWorkspace().getRuleFactory().buildRule());
-		job.schedule();
-		job.join();
-
-		IStatus result = job.getResult();
+		return EXIT_OK;
+	}
 
-		if (result.getSeverity() != IStatus.OK) {
-			throw new CoreException(result);
+	private int getServerPort(String[] args) {
+		for (int i = 0; i < args.length; i++) {
+			if ("-server".equals(args[i])) { //$NON-NLS-1$
+				String nextArg = i == args.length - 1 ? "" : args[i + 1]; //$NON-NLS-1$
+				try {
+					return Integer.parseInt(nextArg);
+				} catch (NumberFormatException e) {
+					return BuildDaemon.DEFAULT_PORT;
+				}
+			}
 		}
-
-		return EXIT_OK;
+		return -1;
 	}
 
 	private void printUsage() {
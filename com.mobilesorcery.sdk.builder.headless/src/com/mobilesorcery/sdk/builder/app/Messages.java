@@ -17,6 +17,7 @@ import org.eclipse.osgi.util.NLS;
 
 public class Messages extends NLS {
 	private static final String BUNDLE_NAME = "com.mobilesorcery.sdk.builder.app.messages"; //$NON-NLS-1$
+	public static String BuildDaemon_Listening;
 	public static String HeadlessBuild_IllegalProjectState;
 	public static String HeadlessBuild_Usage;
 	static {
@@ -37,6 +37,7 @@ import com.mobilesorcery.sdk.core.IBuildVariant;
 import com.mobilesorcery.sdk.core.IFileTreeDiff;
 import com.mobilesorcery.sdk.core.IProcessConsole;
 import com.mobilesorcery.sdk.core.MoSyncProject;
+import com.mobilesorcery.sdk.core.PackageFingerprint;
 import com.mobilesorcery.sdk.core.PackageToolPackager;
 import com.mobilesorcery.sdk.core.PropertyUtil;
 import com.mobilesorcery.sdk.core.Util;
@@ -229,6 +230,21 @@ public class IPhoneOSPackager extends PackageToolPackager
     	commandLine.flag("--cpp-output").with(internal.resolveFile("%program-output%").getParent());
 	}
 
+	@Override
+	protected void addPackageInputs(MoSyncProject project, IBuildSession session,
+			IBuildVariant variant, PackageFingerprint fingerprint) throws Exception {
+		super.addPackageInputs(project, session, variant, fingerprint);
+		fingerprint.add("ios-cert", getCertificate(project, variant));
+		boolean buildWithXcode = shouldBuildWithXcode(project, variant);
+		fingerprint.add("ios-xcode-build", Boolean.toString(buildWithXcode));
+		if (buildWithXcode) {
+			fingerprint.add("ios-sdk", getSDK(project, variant).getId());
+		}
+		if (shouldUseProvisioning(project, variant)) {
+			addFile(fingerprint, "ios-provisioning", project.getProperty(PropertyInitializer.IOS_PROVISIONING_FILE));
+		}
+	}
+
 	public static String getCertificate(MoSyncProject project, IBuildVariant variant) {
 		return PropertyUtil.getBoolean(project, PropertyInitializer.IPHONE_PROJECT_SPECIFIC_CERT) ?
         		project.getProperty(PropertyInitializer.IPHONE_CERT):
@@ -27,6 +27,7 @@ import com.mobilesorcery.sdk.core.IFileTreeDiff;
 import com.mobilesorcery.sdk.core.MoSyncBuilder;
 import com.mobilesorcery.sdk.core.MoSyncProject;
 import com.mobilesorcery.sdk.core.MoSyncTool;
+import com.mobilesorcery.sdk.core.PackageFingerprint;
 import com.mobilesorcery.sdk.core.PackageToolPackager;
 import com.mobilesorcery.sdk.core.ParameterResolver;
 import com.mobilesorcery.sdk.core.ParameterResolverException;
@@ -51,12 +52,7 @@ public class JavaPackager extends PackageToolPackager {
 			throws Exception {
 		KeystoreCertificateInfo keystoreCertInfo = null;
 
-		boolean useProjectSpecific = PropertyUtil.getBoolean(project,
-				PropertyInitializer.JAVAME_PROJECT_SPECIFIC_KEYS);
-		boolean doSign = useProjectSpecific ? PropertyUtil.getBoolean(project,
-				PropertyInitializer.JAVAME_DO_SIGN) : Activator.getDefault()
-				.getPreferenceStore()
-				.getBoolean(PropertyInitializer.JAVAME_DO_SIGN);
+		boolean doSign = shouldSign(project);
 
 		ParameterResolver resolver = MoSyncBuilder.createParameterResolver(project, variant);
 
@@ -86,6 +82,34 @@ public class JavaPackager extends PackageToolPackager {
 		}
 	}
 
+	private boolean shouldSign(MoSyncProject project) {
+		boolean useProjectSpecific = PropertyUtil.getBoolean(project,
+				PropertyInitializer.JAVAME_PROJECT_SPECIFIC_KEYS);
+		return useProjectSpecific ? PropertyUtil.getBoolean(project,
+				PropertyInitializer.JAVAME_DO_SIGN) : Activator.getDefault()
+				.getPreferenceStore()
+				.getBoolean(PropertyInitializer.JAVAME_DO_SIGN);
+	}
+
+	@Override
+	protected void addPackageInputs(MoSyncProject project, IBuildSession session,
+			IBuildVariant variant, PackageFingerprint fingerprint) throws Exception {
+		super.addPackageInputs(project, session, variant, fingerprint);
+		boolean doSign = shouldSign(project);
+		fingerprint.add("javame-sign", Boolean.toString(doSign));
+		if (doSign) {
+			KeystoreCertificateInfo keystoreCertInfo = KeystoreCertificateInfo.loadOne(
+					PropertyInitializer.JAVAME_KEYSTORE_CERT_INFOS,
+					PropertyInitializer.JAVAME_PROJECT_SPECIFIC_KEYS, project,
+					Activator.getDefault().getPreferenceStore());
+			if (keystoreCertInfo != null) {
+				ParameterResolver resolver = MoSyncBuilder.createParameterResolver(project, variant);
+				addFile(fingerprint, "javame-keystore", Util.replace(keystoreCertInfo.getKeystoreLocation(), resolver));
+				fingerprint.add("javame-alias", keystoreCertInfo.getAlias());
+			}
+		}
+	}
+
 	@Override
 	public void createPackage(MoSyncProject project, IBuildSession session,
 			IBuildVariant variant, IFileTreeDiff diff, IBuildResult buildResult)
@@ -19,6 +19,7 @@ import com.mobilesorcery.sdk.core.IFileTreeDiff;
 import com.mobilesorcery.sdk.core.IPackager;
 import com.mobilesorcery.sdk.core.MoSyncProject;
 import com.mobilesorcery.sdk.core.MoSyncTool;
+import com.mobilesorcery.sdk.core.PackageFingerprint;
 import com.mobilesorcery.sdk.core.PackageToolPackager;
 import com.mobilesorcery.sdk.core.ParameterResolverException;
 import com.mobilesorcery.sdk.core.PropertyUtil;
@@ -98,6 +99,20 @@ public class V2V3Packager extends PackageToolPackager {
 		commandLine.flag("--s60pass", true).with(pass);
 	}
 
+	@Override
+	protected void addPackageInputs(MoSyncProject project, IBuildSession session,
+			IBuildVariant variant, PackageFingerprint fingerprint) throws Exception {
+		super.addPackageInputs(project, session, variant, fingerprint);
+		boolean useProjectSpecificKeys = PropertyUtil.getBoolean(project, PropertyInitializer.S60_PROJECT_SPECIFIC_KEYS);
+		IPreferenceStore prefs = Activator.getDefault().getPreferenceStore();
+		addFile(fingerprint, "s60-cert", useProjectSpecificKeys ?
+				project.getProperty(PropertyInitializer.S60_CERT_FILE) :
+				prefs.getString(PropertyInitializer.S60_CERT_FILE));
+		addFile(fingerprint, "s60-key", useProjectSpecificKeys ?
+				project.getProperty(PropertyInitializer.S60_KEY_FILE) :
+				prefs.getString(PropertyInitializer.S60_KEY_FILE));
+	}
+
 	@Override
 	protected File getDefaultIconFile() {
 		return null;
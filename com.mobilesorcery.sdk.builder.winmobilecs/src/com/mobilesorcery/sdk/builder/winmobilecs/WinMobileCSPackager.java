@@ -17,6 +17,7 @@ import com.mobilesorcery.sdk.core.IBuildSession;
 import com.mobilesorcery.sdk.core.IBuildVariant;
 import com.mobilesorcery.sdk.core.IFileTreeDiff;
 import com.mobilesorcery.sdk.core.MoSyncProject;
+import com.mobilesorcery.sdk.core.PackageFingerprint;
 import com.mobilesorcery.sdk.core.PackageToolPackager;
 import com.mobilesorcery.sdk.profiles.IProfile;
 
@@ -49,6 +50,17 @@ public class WinMobileCSPackager extends PackageToolPackager {
         }
 	}
 
+	@Override
+	protected void addPackageInputs(MoSyncProject project, IBuildSession session,
+			IBuildVariant variant, PackageFingerprint fingerprint) throws Exception {
+		super.addPackageInputs(project, session, variant, fingerprint);
+		boolean buildWithVS = shouldBuildWithVS(project, variant);
+		fingerprint.add("wp-vs-build", Boolean.toString(buildWithVS));
+		if (buildWithVS) {
+			fingerprint.add("wp-vs-build-path", MSBuild.getDefault().getToolPath());
+		}
+	}
+
 	@Override
 	public Map<String, List<File>> computeBuildResult(MoSyncProject project,
 			IBuildVariant variant) {
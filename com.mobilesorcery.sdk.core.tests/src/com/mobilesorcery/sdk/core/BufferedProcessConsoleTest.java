@@ -0,0 +1,243 @@
+/*  Copyright (C) 2011 Mobile Sorcery AB
+
+    This program is free software; you can redistribute it and/or modify it
+    under the terms of the Eclipse Public License v1.0.
+
+    This program is distributed in the hope that it will be useful, but WITHOUT
+    ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+    FITNESS FOR A PARTICULAR PURPOSE. See the Eclipse Public License v1.0 for
+    more details.
+
+    You should have received a copy of the Eclipse Public License v1.0 along
+    with this program. It is also available at http://www.eclipse.org/legal/epl-v10.html
+*/
+package com.mobilesorcery.sdk.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class BufferedProcessConsoleTest {
+
+	private static final int LINES = 200000;
+
+	private static class CollectingConsole extends AbstractProcessConsole {
+		final ArrayList<String> lines = new ArrayList<String>();
+		int messages;
+
+		@Override
+		protected void writeLine(int type, String line) {
+			messages++;
+			for (String part : line.split("\n")) {
+				lines.add(part);
+			}
+			// Simulate a slow console
+			if (messages % 100 == 0) {
+				try {
+					Thread.sleep(1);
+				} catch (InterruptedException e) {
+					// Ignore.
+				}
+			}
+		}
+	}
+
+	private File dir;
+
+	@Before
+	public void setUp() throws IOException {
+		dir = File.createTempFile("console", "test");
+		dir.delete();
+		dir.mkdirs();
+	}
+
+	@After
+	public void tearDown() {
+		Util.deleteFiles(dir, null, Util.INFINITE_DEPTH, new NullProgressMonitor());
+		dir.delete();
+	}
+
+	@Test
+	public void testReplayGCCLog() throws Exception {
+		CollectingConsole delegate = new CollectingConsole();
+		BufferedProcessConsole console = new BufferedProcessConsole("test", delegate, 1024);
+		console.setLogFile(new File(dir, "build.log"), 1024 * 1024, 2);
+
+		for (int i = 0; i < LINES; i++) {
+			console.addMessage(i % 10 == 0 ? IProcessConsole.ERR : IProcessConsole.OUT, gccLine(i));
+		}
+		assertTrue(console.flush(60000));
+
+		assertEquals(LINES, delegate.lines.size());
+		for (int i = 0; i < LINES; i++) {
+			assertEquals(gccLine(i), delegate.lines.get(i));
+		}
+		assertEquals(LINES, console.getDeliveredLines());
+		assertEquals(delegate.messages, console.getDeliveredChunks());
+
+		// The log was rotated, and only two old logs were kept
+		assertTrue(new File(dir, "build.log").exists());
+		assertTrue(new File(dir, "build.log.1").exists());
+		assertTrue(new File(dir, "build.log.2").exists());
+		assertTrue(!new File(dir, "build.log.3").exists());
+		console.close();
+	}
+
+	@Test
+	public void testLogFlushedWhenIdle() throws Exception {
+		File logFile = new File(dir, "idle.log");
+		BufferedProcessConsole console = new BufferedProcessConsole("test", new CollectingConsole());
+		console.setLogFile(logFile, 1024 * 1024, 1);
+		console.addMessage("a line");
+		// No explicit flush
+		long end = System.currentTimeMillis() + 10000;
+		while (logFile.length() < "a line\n".length()) {
+			assertTrue("Log not flushed", System.currentTimeMillis() < end);
+			Thread.sleep(10);
+		}
+		console.close();
+	}
+
+	@Test
+	public void testRotateOnBytes() throws Exception {
+		File logFile = new File(dir, "utf8.log");
+		BufferedProcessConsole console = new BufferedProcessConsole("test", new CollectingConsole());
+		// 10 characters, but 20 bytes + a newline in UTF-8
+		String line = "\u00e5\u00e4\u00f6\u00e5\u00e4\u00f6\u00e5\u00e4\u00f6\u00e5";
+		assertEquals(20, BufferedProcessConsole.utf8Length(line));
+		console.setLogFile(logFile, 100, 1);
+		for (int i = 0; i < 5; i++) {
+			console.addMessage(line);
+		}
+		assertTrue(console.flush(10000));
+		// Rotated after 105 bytes (5 lines), not after 55 characters
+		assertTrue(new File(dir, "utf8.log.1").exists());
+		assertEquals(105, new File(dir, "utf8.log.1").length());
+		console.close();
+	}
+
+	@Test
+	public void testClose() throws Exception {
+		File logFile = new File(dir, "closed.log");
+		CollectingConsole delegate = new CollectingConsole();
+		BufferedProcessConsole console = new BufferedProcessConsole("test", delegate);
+		console.setLogFile(logFile, 1024 * 1024, 1);
+		console.addMessage("before");
+		console.close();
+		console.addMessage("after");
+		assertTrue(console.flush(10000));
+		long end = System.currentTimeMillis() + 10000;
+		while (console.getDeliveredLines() < 1) {
+			assertTrue("Output lost on close", System.currentTimeMillis() < end);
+			Thread.sleep(10);
+		}
+		while (logFile.length() < "before\n".length()) {
+			assertTrue("Log not closed", System.currentTimeMillis() < end);
+			Thread.sleep(10);
+		}
+		assertEquals(1, console.getDeliveredLines());
+		assertEquals("before", delegate.lines.get(0));
+		assertEquals("before\n", Util.readFile(logFile.getAbsolutePath()));
+		assertFalse(delegate.lines.contains("after"));
+	}
+
+	@Test
+	public void testWriterRacesClose() throws Exception {
+		final CollectingConsole delegate = new CollectingConsole();
+		// Small enough for the writer to be waiting for room when we close
+		final BufferedProcessConsole console = new BufferedProcessConsole("test", delegate, 16);
+		Thread writer = new Thread() {
+			@Override
+			public void run() {
+				for (int i = 0; i < LINES; i++) {
+					console.addMessage(i % 2 == 0 ? IProcessConsole.ERR : IProcessConsole.OUT, gccLine(i));
+				}
+			}
+		};
+		writer.start();
+		Thread.sleep(100);
+		console.close();
+		long delivered = console.getDeliveredLines();
+
+		// The writer must not be stuck waiting for room...
+		writer.join(10000);
+		assertFalse("Writer blocked after close", writer.isAlive());
+		// ...and nothing is passed on after close returns
+		Thread.sleep(200);
+		assertEquals(delivered, console.getDeliveredLines());
+		assertTrue(delivered < LINES);
+		// What was passed on was passed on in order
+		assertEquals(delivered, delegate.lines.size());
+		for (int i = 0; i < delivered; i++) {
+			assertEquals(gccLine(i), delegate.lines.get(i));
+		}
+	}
+
+	@Test
+	public void testFailingConsole() throws Exception {
+		final ArrayList<String> lines = new ArrayList<String>();
+		AbstractProcessConsole delegate = new AbstractProcessConsole() {
+			@Override
+			protected void writeLine(int type, String line) {
+				lines.add(line);
+			}
+
+			@Override
+			public void clear() {
+				throw new IllegalStateException("Disposed");
+			}
+
+			@Override
+			public void prepare() {
+				throw new IllegalStateException("Disposed");
+			}
+		};
+		BufferedProcessConsole console = new BufferedProcessConsole("test", delegate);
+		console.clear();
+		console.prepare();
+		console.addMessage("still here");
+		assertTrue(console.flush(10000));
+		assertEquals("still here", lines.get(0));
+		console.close();
+	}
+
+	private static String gccLine(int i) {
+		if (i % 10 == 0) {
+			return "src/module" + (i % 97) + ".cpp:" + i + ": warning: unused variable 'x" + i + "'";
+		}
+		return "xgcc -c -O2 -Wall -Isrc -Iinclude src/module" + (i % 97) + ".cpp -o obj/module" + i + ".s";
+	}
+
+	@Test
+	public void testClearIsOrdered() throws IOException, InterruptedException {
+		final ArrayList<String> events = new ArrayList<String>();
+		AbstractProcessConsole delegate = new AbstractProcessConsole() {
+			@Override
+			protected void writeLine(int type, String line) {
+				events.add(line);
+			}
+
+			@Override
+			public void clear() {
+				events.add("<clear>");
+			}
+		};
+		BufferedProcessConsole console = new BufferedProcessConsole("test", delegate);
+		console.addMessage("a");
+		console.clear();
+		console.addMessage("b");
+		assertTrue(console.flush(10000));
+		assertEquals("a", events.get(0));
+		assertEquals("<clear>", events.get(1));
+		assertEquals("b", events.get(2));
+	}
+}
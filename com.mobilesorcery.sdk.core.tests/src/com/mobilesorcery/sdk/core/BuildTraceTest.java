@@ -0,0 +1,134 @@
+/*  Copyright (C) 2011 Mobile Sorcery AB
+
+    This program is free software; you can redistribute it and/or modify it
+    under the terms of the Eclipse Public License v1.0.
+
+    This program is distributed in the hope that it will be useful, but WITHOUT
+    ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+    FITNESS FOR A PARTICULAR PURPOSE. See the Eclipse Public License v1.0 for
+    more details.
+
+    You should have received a copy of the Eclipse Public License v1.0 along
+    with this program. It is also available at http://www.eclipse.org/legal/epl-v10.html
+*/
+package com.mobilesorcery.sdk.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+import org.json.simple.parser.JSONParser;
+import org.junit.Test;
+
+public class BuildTraceTest {
+
+	@Test
+	public void testSpansAreInherited() throws Exception {
+		final BuildTrace trace = new BuildTrace("test");
+		BuildTrace.setCurrent(trace);
+		try {
+			BuildTrace.Span step = BuildTrace.begin("Compile", BuildTrace.CATEGORY_STEP);
+			Thread worker = new Thread() {
+				@Override
+				public void run() {
+					BuildTrace.Span process = BuildTrace.begin("xgcc", BuildTrace.CATEGORY_PROCESS);
+					process.setArg("exit", 0);
+					process.end();
+				}
+			};
+			worker.start();
+			worker.join();
+			step.end();
+		} finally {
+			BuildTrace.setCurrent(null);
+		}
+		assertNull(BuildTrace.getCurrent());
+		assertEquals(2, trace.getSpans().size());
+
+		JSONObject report = trace.createReport();
+		assertEquals(1L, report.get("processes"));
+		assertEquals(1, ((JSONObject) report.get("steps")).size());
+	}
+
+	@Test
+	public void testExport() throws Exception {
+		BuildTrace trace = new BuildTrace("test");
+		trace.beginSpan("Link", BuildTrace.CATEGORY_STEP).end();
+		File file = File.createTempFile("trace", ".json");
+		try {
+			trace.export(file);
+			JSONObject exported = (JSONObject) new JSONParser().parse(Util.readFile(file.getAbsolutePath()));
+			JSONArray events = (JSONArray) exported.get("traceEvents");
+			assertEquals(1, events.size());
+			JSONObject event = (JSONObject) events.get(0);
+			assertEquals("Link", event.get("name"));
+			assertEquals("X", event.get("ph"));
+		} finally {
+			file.delete();
+		}
+	}
+
+	@Test
+	public void testStepsWithSameNameAreSummed() throws Exception {
+		BuildTrace trace = new BuildTrace("test");
+		BuildTrace.Span first = trace.beginSpan("Command Line", BuildTrace.CATEGORY_STEP);
+		Thread.sleep(20);
+		first.end();
+		BuildTrace.Span second = trace.beginSpan("Command Line", BuildTrace.CATEGORY_STEP);
+		Thread.sleep(20);
+		second.end();
+		JSONObject steps = (JSONObject) trace.createReport().get("steps");
+		assertEquals(1, steps.size());
+		assertEquals(first.getDuration() + second.getDuration(), steps.get("Command Line"));
+	}
+
+	@Test
+	public void testComparableReport() throws Exception {
+		JSONArray reports = new JSONArray();
+		reports.add(createReport("full", true, "Compile", "Link"));
+		reports.add(createReport("failed", false, "Compile", "Link"));
+		reports.add(createReport("resources", true, "Resources"));
+		assertEquals("full", BuildTrace.findComparableReport(reports, createReport("new", true, "Link", "Compile")).get("name"));
+		assertEquals("resources", BuildTrace.findComparableReport(reports, createReport("new", true, "Resources")).get("name"));
+		assertNull(BuildTrace.findComparableReport(reports, createReport("new", true, "Compile")));
+	}
+
+	private JSONObject createReport(String name, boolean success, String... stepNames) {
+		BuildTrace trace = new BuildTrace(name);
+		for (String stepName : stepNames) {
+			trace.beginSpan(stepName, BuildTrace.CATEGORY_STEP).end();
+		}
+		JSONObject report = trace.createReport();
+		report.put("success", success);
+		return report;
+	}
+
+	@Test
+	public void testReportsAreBounded() throws IOException {
+		File file = File.createTempFile("reports", ".json");
+		file.delete();
+		try {
+			JSONObject previous = null;
+			for (int i = 0; i < 30; i++) {
+				JSONObject report = new BuildTrace("test " + i).createReport();
+				JSONObject returned = BuildTrace.addReport(file, report);
+				if (previous != null) {
+					assertEquals(previous.get("name"), returned.get("name"));
+				} else {
+					assertSame(null, returned);
+				}
+				previous = report;
+			}
+			JSONArray reports = BuildTrace.loadReports(file);
+			assertEquals(20, reports.size());
+			assertEquals("test 29", ((JSONObject) reports.get(19)).get("name"));
+		} finally {
+			file.delete();
+		}
+	}
+}
@@ -0,0 +1,157 @@
+/*  Copyright (C) 2011 Mobile Sorcery AB
+
+    This program is free software; you can redistribute it and/or modify it
+    under the terms of the Eclipse Public License v1.0.
+
+    This program is distributed in the hope that it will be useful, but WITHOUT
+    ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+    FITNESS FOR A PARTICULAR PURPOSE. See the Eclipse Public License v1.0 for
+    more details.
+
+    You should have received a copy of the Eclipse Public License v1.0 along
+    with this program. It is also available at http://www.eclipse.org/legal/epl-v10.html
+*/
+package com.mobilesorcery.sdk.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+public class CacheTest {
+
+	private static final int THREADS = 8;
+
+	private static final int OPERATIONS = 10000;
+
+	@Test
+	public void testLeastRecentlyUsedIsEvicted() {
+		final ArrayList<String> removed = new ArrayList<String>();
+		Cache<String, String> cache = new Cache<String, String>(2) {
+			@Override
+			protected void onRemoval(String key, String value) {
+				removed.add(key);
+			}
+		};
+		cache.put("a", "A");
+		cache.put("b", "B");
+		// a is now more recently used than b
+		assertEquals("A", cache.get("a"));
+		cache.put("c", "C");
+		assertNull(cache.get("b"));
+		assertEquals("A", cache.get("a"));
+		assertEquals("C", cache.get("c"));
+		assertEquals(1, removed.size());
+		assertEquals("b", removed.get(0));
+		assertEquals(1, cache.getEvictionCount());
+		assertEquals(1, cache.getMissCount());
+		assertEquals(3, cache.getHitCount());
+	}
+
+	@Test
+	public void testWeights() {
+		Cache<String, byte[]> cache = new Cache<String, byte[]>(100) {
+			@Override
+			protected int weigh(String key, byte[] value) {
+				return value.length;
+			}
+		};
+		cache.put("a", new byte[40]);
+		cache.put("b", new byte[40]);
+		assertEquals(80, cache.weight());
+		cache.put("c", new byte[40]);
+		assertEquals(2, cache.size());
+		assertFalse(cache.containsKey("a"));
+		// An entry heavier than the maximum is kept until the next one is added
+		cache.put("d", new byte[200]);
+		assertEquals(1, cache.size());
+		assertTrue(cache.containsKey("d"));
+		cache.remove("d");
+		assertEquals(0, cache.weight());
+	}
+
+	private static class BlockingCache extends Cache<String, String> {
+		String otherThreadResult;
+
+		BlockingCache() {
+			super(1);
+		}
+
+		@Override
+		protected void onRemoval(String key, String value) {
+			// Another thread must be able to use the cache meanwhile
+			Thread other = new Thread() {
+				@Override
+				public void run() {
+					otherThreadResult = get("b");
+				}
+			};
+			other.start();
+			try {
+				other.join(10000);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	@Test
+	public void testRemovalListenerRunsOutsideLock() {
+		BlockingCache cache = new BlockingCache();
+		cache.put("a", "A");
+		cache.put("b", "B");
+		assertEquals("B", cache.otherThreadResult);
+	}
+
+	@Test
+	public void testConcurrentAccess() throws InterruptedException {
+		final AtomicInteger removals = new AtomicInteger();
+		final Cache<Integer, Integer> cache = new Cache<Integer, Integer>(64) {
+			@Override
+			protected void onRemoval(Integer key, Integer value) {
+				removals.incrementAndGet();
+			}
+		};
+		final CountDownLatch start = new CountDownLatch(1);
+		final CountDownLatch done = new CountDownLatch(THREADS);
+		final AtomicInteger errors = new AtomicInteger();
+		for (int i = 0; i < THREADS; i++) {
+			final int seed = i;
+			new Thread() {
+				@Override
+				public void run() {
+					try {
+						start.await();
+						for (int j = 0; j < OPERATIONS; j++) {
+							// Mostly a hot set that fits in the cache, sometimes a cold key
+							Integer key = j % 10 == 0 ? 64 + (j + seed) % 64 : (j * 31 + seed) % 48;
+							Integer value = cache.get(key);
+							if (value == null) {
+								cache.putIfAbsent(key, key);
+							} else if (!value.equals(key)) {
+								errors.incrementAndGet();
+							}
+						}
+					} catch (InterruptedException e) {
+						errors.incrementAndGet();
+					} finally {
+						done.countDown();
+					}
+				}
+			}.start();
+		}
+		start.countDown();
+		done.await();
+
+		assertEquals(0, errors.get());
+		assertEquals(64, cache.size());
+		assertEquals(THREADS * OPERATIONS, cache.getHitCount() + cache.getMissCount());
+		assertEquals(cache.getEvictionCount(), removals.get());
+	}
+}
@@ -0,0 +1,131 @@
+/*  Copyright (C) 2009 Mobile Sorcery AB
+
+    This program is free software; you can redistribute it and/or modify it
+    under the terms of the Eclipse Public License v1.0.
+
+    This program is distributed in the hope that it will be useful, but WITHOUT
+    ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+    FITNESS FOR A PARTICULAR PURPOSE. See the Eclipse Public License v1.0 for
+    more details.
+
+    You should have received a copy of the Eclipse Public License v1.0 along
+    with this program. It is also available at http://www.eclipse.org/legal/epl-v10.html
+*/
+package com.mobilesorcery.sdk.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileFilter;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.junit.After;
+import org.junit.Test;
+
+public class FileCopierTest {
+
+	private static final int FILE_COUNT = 20;
+
+	private final ArrayList<File> tempDirs = new ArrayList<File>();
+
+	@After
+	public void deleteTempDirs() {
+		for (File tempDir : tempDirs) {
+			Util.deleteFiles(tempDir, null, Util.INFINITE_DEPTH, new NullProgressMonitor());
+		}
+		tempDirs.clear();
+	}
+
+	@Test
+	public void testIncremental() throws IOException {
+		File root = createTempDir();
+		File src = new File(root, "src");
+		File dest = new File(root, "dest");
+		createTree(src);
+
+		FileCopier first = new FileCopier();
+		first.copy(new NullProgressMonitor(), src, dest);
+		assertEquals(FILE_COUNT, first.getFilesCopied());
+		assertEquals(0, first.getFilesSkipped());
+		assertTrue(new File(dest, "sub/file-1.txt").isFile());
+
+		FileCopier second = new FileCopier();
+		second.copy(new NullProgressMonitor(), src, dest);
+		assertEquals(0, second.getFilesCopied());
+		assertEquals(FILE_COUNT, second.getFilesSkipped());
+		assertEquals(first.getBytesCopied(), second.getBytesSkipped());
+
+		// Changing the size of a file should always trigger a copy
+		write(new File(src, "sub/file-1.txt"), "Changed contents");
+		FileCopier third = new FileCopier().setCompareContents(true);
+		third.copy(new NullProgressMonitor(), src, dest);
+		assertEquals(1, third.getFilesCopied());
+		assertEquals(FILE_COUNT - 1, third.getFilesSkipped());
+	}
+
+	@Test
+	public void testOlderSource() throws IOException {
+		File root = createTempDir();
+		File src = new File(root, "src.txt");
+		File dest = new File(root, "dest.txt");
+		write(src, "Version 2");
+		new FileCopier().copy(new NullProgressMonitor(), src, dest);
+		assertEquals(src.lastModified(), dest.lastModified());
+
+		// Restore an older version of the same size
+		write(src, "Version 1");
+		src.setLastModified(dest.lastModified() - 60000);
+		FileCopier copier = new FileCopier();
+		copier.copy(new NullProgressMonitor(), src, dest);
+		assertEquals(1, copier.getFilesCopied());
+		assertEquals("Version 1", Util.readFile(dest.getAbsolutePath()));
+	}
+
+	@Test
+	public void testFilterAndDepth() throws IOException {
+		File root = createTempDir();
+		File src = new File(root, "src");
+		File dest = new File(root, "dest");
+		createTree(src);
+
+		FileCopier copier = new FileCopier().setMaxDepth(0).setFilter(new FileFilter() {
+			public boolean accept(File file) {
+				return !file.getName().equals("file-0.txt");
+			}
+		});
+		copier.copy(new NullProgressMonitor(), src, dest);
+		assertEquals(FILE_COUNT / 2 - 1, copier.getFilesCopied());
+		assertFalse(new File(dest, "file-0.txt").exists());
+		assertFalse(new File(dest, "sub").exists());
+	}
+
+	private void createTree(File src) throws IOException {
+		for (int i = 0; i < FILE_COUNT / 2; i++) {
+			write(new File(src, "file-" + i + ".txt"), "File #" + i);
+			write(new File(src, "sub/file-" + i + ".txt"), "Sub file #" + i);
+		}
+	}
+
+	private void write(File file, String contents) throws IOException {
+		file.getParentFile().mkdirs();
+		FileOutputStream output = new FileOutputStream(file);
+		try {
+			output.write(contents.getBytes("UTF-8"));
+		} finally {
+			output.close();
+		}
+	}
+
+	private File createTempDir() throws IOException {
+		File result = File.createTempFile("copier", "test");
+		result.delete();
+		result.mkdirs();
+		tempDirs.add(result);
+		return result;
+	}
+}
@@ -0,0 +1,54 @@
+/*  Copyright (C) 2011 Mobile Sorcery AB
+
+    This program is free software; you can redistribute it and/or modify it
+    under the terms of the Eclipse Public License v1.0.
+
+    This program is distributed in the hope that it will be useful, but WITHOUT
+    ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+    FITNESS FOR A PARTICULAR PURPOSE. See the Eclipse Public License v1.0 for
+    more details.
+
+    You should have received a copy of the Eclipse Public License v1.0 along
+    with this program. It is also available at http://www.eclipse.org/legal/epl-v10.html
+*/
+package com.mobilesorcery.sdk.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.junit.Test;
+
+public class FileHashCacheTest {
+
+	@Test
+	public void testCachedHashes() throws IOException {
+		File dir = File.createTempFile("hashes", "test");
+		dir.delete();
+		dir.mkdirs();
+		File media = new File(dir, "media.png");
+		Util.writeToFile(media, "media");
+		// Make sure the file is old enough to be cached
+		media.setLastModified(System.currentTimeMillis() - 60000);
+
+		File cacheFile = new File(dir, ".hashes");
+		FileHashCache hashes = FileHashCache.load(cacheFile);
+		String hash = hashes.getHash(media);
+		assertEquals(Util.toBase16(Util.md5(media)), hash);
+		assertEquals(0, hashes.getHits());
+		assertEquals(1, hashes.getMisses());
+		hashes.save(cacheFile);
+
+		hashes = FileHashCache.load(cacheFile);
+		assertEquals(hash, hashes.getHash(media));
+		assertEquals(1, hashes.getHits());
+		assertEquals(0, hashes.getMisses());
+
+		Util.writeToFile(media, "changed media");
+		media.setLastModified(System.currentTimeMillis() - 30000);
+		assertFalse(hash.equals(hashes.getHash(media)));
+		assertEquals(1, hashes.getMisses());
+	}
+}
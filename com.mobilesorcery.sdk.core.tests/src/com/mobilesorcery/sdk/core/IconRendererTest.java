@@ -0,0 +1,81 @@
+/*  Copyright (C) 2009 Mobile Sorcery AB
+
+    This program is free software; you can redistribute it and/or modify it
+    under the terms of the Eclipse Public License v1.0.
+
+    This program is distributed in the hope that it will be useful, but WITHOUT
+    ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+    FITNESS FOR A PARTICULAR PURPOSE. See the Eclipse Public License v1.0 for
+    more details.
+
+    You should have received a copy of the Eclipse Public License v1.0 along
+    with this program. It is also available at http://www.eclipse.org/legal/epl-v10.html
+*/
+package com.mobilesorcery.sdk.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+
+import javax.imageio.ImageIO;
+
+import org.junit.Test;
+
+public class IconRendererTest {
+
+	@Test
+	public void testRenderAndCache() throws IOException {
+		File dir = File.createTempFile("icons", "test");
+		dir.delete();
+		dir.mkdirs();
+		File source = new File(dir, "icon.png");
+		BufferedImage image = new BufferedImage(512, 512, BufferedImage.TYPE_INT_ARGB);
+		for (int i = 0; i < 512; i++) {
+			image.setRGB(i, i, 0xffff0000);
+		}
+		ImageIO.write(image, "png", source);
+
+		IconRenderer renderer = new IconRenderer(new File(dir, "cache"));
+		int[] sizes = { 16, 32, 48, 72, 96, 600 };
+		for (int size : sizes) {
+			File rendered = renderer.render(source, size, size, "png");
+			BufferedImage result = ImageIO.read(rendered);
+			assertEquals(size, result.getWidth());
+			assertEquals(size, result.getHeight());
+		}
+		assertEquals(sizes.length, renderer.getRendered());
+
+		// Another variant asking for the same icons
+		IconRenderer otherRenderer = new IconRenderer(new File(dir, "cache"));
+		for (int size : sizes) {
+			otherRenderer.render(source, size, size, "png");
+		}
+		assertEquals(0, otherRenderer.getRendered());
+		assertEquals(sizes.length, otherRenderer.getCacheHits());
+
+		assertNull(renderer.render(source, 32, 32, "svg"));
+	}
+
+	@Test
+	public void testKeepAspectRatio() {
+		BufferedImage wide = new BufferedImage(200, 100, BufferedImage.TYPE_INT_ARGB);
+		for (int x = 0; x < wide.getWidth(); x++) {
+			for (int y = 0; y < wide.getHeight(); y++) {
+				wide.setRGB(x, y, 0xffff0000);
+			}
+		}
+		BufferedImage result = IconRenderer.scale(wide, 48, 48, true);
+		assertEquals(48, result.getWidth());
+		assertEquals(48, result.getHeight());
+		// Padded above and below, not stretched
+		assertEquals(0, result.getRGB(24, 0) >>> 24);
+		assertEquals(0xffff0000, result.getRGB(24, 24));
+		assertEquals(0, result.getRGB(24, 47) >>> 24);
+
+		BufferedImage opaque = IconRenderer.scale(wide, 48, 48, false);
+		assertEquals(0xffffffff, opaque.getRGB(24, 0));
+	}
+}
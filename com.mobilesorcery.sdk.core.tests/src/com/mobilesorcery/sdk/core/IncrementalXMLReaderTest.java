@@ -0,0 +1,114 @@
+/*  Copyright (C) 2011 Mobile Sorcery AB
+
+    This program is free software; you can redistribute it and/or modify it
+    under the terms of the Eclipse Public License v1.0.
+
+    This program is distributed in the hope that it will be useful, but WITHOUT
+    ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+    FITNESS FOR A PARTICULAR PURPOSE. See the Eclipse Public License v1.0 for
+    more details.
+
+    You should have received a copy of the Eclipse Public License v1.0 along
+    with this program. It is also available at http://www.eclipse.org/legal/epl-v10.html
+*/
+package com.mobilesorcery.sdk.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+
+import javax.xml.parsers.SAXParserFactory;
+
+import org.junit.Test;
+import org.xml.sax.Attributes;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.DefaultHandler;
+
+public class IncrementalXMLReaderTest {
+
+	private static final String XML = "<report>\n" +
+			"<test name=\"a &gt; b\" expr='x>y'>text &amp; more<!-- a > comment --></test>\n" +
+			"<test name=\"åäö\"><![CDATA[<not a tag>]]></test>\n" +
+			"<empty/>\n" +
+			"</report>";
+
+	private static class RecordingHandler extends DefaultHandler {
+		StringBuffer events = new StringBuffer();
+
+		@Override
+		public void startElement(String uri, String localName, String qName, Attributes atts) {
+			events.append("<" + qName);
+			for (int i = 0; i < atts.getLength(); i++) {
+				events.append(" " + atts.getQName(i) + "=" + atts.getValue(i));
+			}
+			events.append(">");
+		}
+
+		@Override
+		public void endElement(String uri, String localName, String qName) {
+			events.append("</" + qName + ">");
+		}
+
+		@Override
+		public void characters(char[] ch, int start, int length) {
+			events.append(ch, start, length);
+		}
+	}
+
+	@Test
+	public void testSameAsSAX() throws Exception {
+		byte[] data = XML.getBytes("UTF-8");
+		RecordingHandler expected = new RecordingHandler();
+		SAXParserFactory.newInstance().newSAXParser().parse(new ByteArrayInputStream(data), expected);
+
+		RecordingHandler whole = new RecordingHandler();
+		IncrementalXMLReader reader = new IncrementalXMLReader(whole);
+		reader.feed(data, 0, data.length);
+		reader.end();
+		assertEquals(expected.events.toString(), whole.events.toString());
+
+		// Feeding one byte at a time splits every construct,
+		// including multi-byte characters and quoted '>'s
+		RecordingHandler bytewise = new RecordingHandler();
+		reader = new IncrementalXMLReader(bytewise);
+		for (int i = 0; i < data.length; i++) {
+			reader.feed(data, i, 1);
+		}
+		reader.end();
+		assertEquals(expected.events.toString(), bytewise.events.toString());
+	}
+
+	@Test
+	public void testMismatchedEndTag() throws Exception {
+		IncrementalXMLReader reader = new IncrementalXMLReader(new RecordingHandler());
+		reader.feed("<a><b>");
+		try {
+			reader.feed("</a>");
+			fail("Mismatched end tag accepted");
+		} catch (SAXException e) {
+			// Expected.
+		}
+	}
+
+	@Test
+	public void testUnexpectedEndTag() throws Exception {
+		IncrementalXMLReader reader = new IncrementalXMLReader(new RecordingHandler());
+		try {
+			reader.feed("<a/></a>");
+			fail("Unexpected end tag accepted");
+		} catch (SAXException e) {
+			// Expected.
+		}
+	}
+
+	@Test
+	public void testTruncatedOutput() throws Exception {
+		// An emulator that exits mid-report still reports what it got
+		RecordingHandler handler = new RecordingHandler();
+		IncrementalXMLReader reader = new IncrementalXMLReader(handler);
+		reader.feed("<a><b>text");
+		reader.end();
+		assertEquals("<a><b>text</b></a>", handler.events.toString());
+	}
+}
@@ -0,0 +1,77 @@
+/*  Copyright (C) 2011 Mobile Sorcery AB
+
+    This program is free software; you can redistribute it and/or modify it
+    under the terms of the Eclipse Public License v1.0.
+
+    This program is distributed in the hope that it will be useful, but WITHOUT
+    ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+    FITNESS FOR A PARTICULAR PURPOSE. See the Eclipse Public License v1.0 for
+    more details.
+
+    You should have received a copy of the Eclipse Public License v1.0 along
+    with this program. It is also available at http://www.eclipse.org/legal/epl-v10.html
+*/
+package com.mobilesorcery.sdk.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.junit.Test;
+
+public class PackageFingerprintTest {
+
+	@Test
+	public void testFileContents() throws IOException {
+		File dir = File.createTempFile("fingerprint", "test");
+		dir.delete();
+		dir.mkdirs();
+		File program = new File(dir, "program");
+		Util.writeToFile(program, "program");
+
+		String original = fingerprint(program).getValue();
+		// Touching the file does not change the fingerprint
+		program.setLastModified(program.lastModified() + 10000);
+		assertEquals(original, fingerprint(program).getValue());
+
+		Util.writeToFile(program, "changed program");
+		assertFalse(original.equals(fingerprint(program).getValue()));
+
+		program.delete();
+		assertFalse(original.equals(fingerprint(program).getValue()));
+	}
+
+	@Test
+	public void testOrderIndependent() {
+		PackageFingerprint a = new PackageFingerprint();
+		a.add("app-name", "Test");
+		a.add("app-version", "1.0");
+		PackageFingerprint b = new PackageFingerprint();
+		b.add("app-version", "1.0");
+		b.add("app-name", "Test");
+		assertEquals(a.getValue(), b.getValue());
+		b.add("app-version", "1.1");
+		assertFalse(a.getValue().equals(b.getValue()));
+	}
+
+	@Test
+	public void testSaveAndLoad() throws IOException {
+		File file = File.createTempFile("fingerprint", "test");
+		file.delete();
+		assertNull(PackageFingerprint.load(file));
+		PackageFingerprint fingerprint = new PackageFingerprint();
+		fingerprint.add("app-name", "Test");
+		fingerprint.save(file);
+		assertEquals(fingerprint.getValue(), PackageFingerprint.load(file));
+	}
+
+	private PackageFingerprint fingerprint(File program) throws IOException {
+		PackageFingerprint fingerprint = new PackageFingerprint();
+		fingerprint.add("program", program);
+		fingerprint.add("app-name", "Test");
+		return fingerprint;
+	}
+}
@@ -0,0 +1,179 @@
+/*  Copyright (C) 2009 Mobile Sorcery AB
+
+    This program is free software; you can redistribute it and/or modify it
+    under the terms of the Eclipse Public License v1.0.
+
+    This program is distributed in the hope that it will be useful, but WITHOUT
+    ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+    FITNESS FOR A PARTICULAR PURPOSE. See the Eclipse Public License v1.0 for
+    more details.
+
+    You should have received a copy of the Eclipse Public License v1.0 along
+    with this program. It is also available at http://www.eclipse.org/legal/epl-v10.html
+*/
+package com.mobilesorcery.sdk.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+import org.junit.Test;
+
+public class ParameterTemplateTest {
+
+	private static final String[] PROFILES = { "Nokia/N95", "Android/Android", "Apple/iPhone", "Sony Ericsson/K800i", "Samsung/Wave" };
+
+	private static final int BUILDS = 10;
+
+	@Test
+	public void testSyntax() throws ParameterResolverException {
+		HashMap<String, String> map = new HashMap<String, String>();
+		map.put("a", "A");
+		map.put("b", "%a%/b");
+		map.put("c", "50%");
+		ParameterResolver resolver = new DefaultParameterResolver(map);
+
+		String[] inputs = { "", "plain", "%a%", "x%a%y", "%b%", "%%", "100%%", "%unknown%",
+				"%#comment%text", "trailing%a", "%c%", "%a%%b%%%" };
+		for (String input : inputs) {
+			assertEquals(input, legacyReplace(input, resolver, 0), Util.replace(input, resolver));
+		}
+		assertEquals(Arrays.asList("a", "b"), ParameterTemplate.compile("%a%/%#x%/%b%%%").getParameters());
+	}
+
+	@Test
+	public void testCycles() throws ParameterResolverException {
+		HashMap<String, String> map = new HashMap<String, String>();
+		map.put("a", "%b%");
+		map.put("b", "x%c%");
+		map.put("c", "%a%");
+		map.put("d", "%a%");
+		ParameterResolver resolver = new DefaultParameterResolver(map);
+
+		try {
+			Util.replace("%a%", resolver);
+			fail("Cyclic parameters not detected");
+		} catch (IllegalArgumentException e) {
+			assertEquals("Cyclic parameters: a -> b -> c -> a", e.getMessage());
+		}
+		try {
+			Util.replace("%d%", resolver);
+			fail("Cyclic parameters not detected");
+		} catch (IllegalArgumentException e) {
+			assertTrue(e.getMessage().endsWith("a -> b -> c -> a"));
+		}
+	}
+
+	@Test
+	public void testCaching() throws ParameterResolverException {
+		final int[] calls = new int[1];
+		CachingParameterResolver resolver = new CachingParameterResolver(new ParameterResolver() {
+			@Override
+			public String get(String key) {
+				calls[0]++;
+				return "a".equals(key) ? "A" : null;
+			}
+
+			@Override
+			public List<String> listPrefixes() {
+				return new ArrayList<String>();
+			}
+		});
+		for (int i = 0; i < 10; i++) {
+			assertEquals("A %b%", Util.replace("%a% %b%", resolver));
+		}
+		assertEquals(2, calls[0]);
+	}
+
+	/**
+	 * Resolves the command lines of a number of full multi-profile builds,
+	 * comparing compiled templates to re-parsing on every call.
+	 */
+	@Test
+	public void testBuilds() throws ParameterResolverException {
+		String[] args = createArguments();
+		for (int build = 0; build < BUILDS; build++) {
+			for (String profile : PROFILES) {
+				ParameterResolver resolver = new CachingParameterResolver(new DefaultParameterResolver(createParameters(profile)));
+				for (String arg : args) {
+					assertEquals(legacyReplace(arg, resolver, 0), Util.replace(arg, resolver));
+				}
+			}
+		}
+	}
+
+	private HashMap<String, String> createParameters(String profile) {
+		HashMap<String, String> result = new HashMap<String, String>();
+		result.put(DefaultPackager.MOSYNC_HOME, "C:\\MoSync");
+		result.put(DefaultPackager.MOSYNC_BIN, "%mosync-home%\\bin");
+		result.put(DefaultPackager.PROFILE_NAME, profile);
+		result.put(DefaultPackager.RUNTIME_DIR, "%mosync-home%\\profiles\\runtimes\\" + profile.toLowerCase());
+		result.put(DefaultPackager.PROJECT_NAME, "HelloWorld");
+		result.put(DefaultPackager.OUTPUT_DIR, "C:\\workspace\\%project-name%\\Output\\Release\\%profile%");
+		result.put(DefaultPackager.COMPILE_OUTPUT_DIR, "%output-dir%\\compile");
+		result.put(DefaultPackager.PACKAGE_OUTPUT_DIR, "%output-dir%\\package");
+		return result;
+	}
+
+	private String[] createArguments() {
+		ArrayList<String> result = new ArrayList<String>();
+		for (int i = 0; i < 100; i++) {
+			result.add("%compile-output-dir%\\file" + i + ".s");
+			result.add("-I%mosync-home%\\include");
+			result.add("-DMA_PROF_STRING_PLATFORM=\"%profile%\"");
+			result.add("-O2");
+		}
+		result.add("%mosync-bin%\\pipe-tool");
+		result.add("-s%runtime-dir%");
+		result.add("%package-output-dir%\\%project-name%.jar");
+		return result.toArray(new String[result.size()]);
+	}
+
+	/**
+	 * The original, re-parsing implementation of {@link Util#replace(String, ParameterResolver)}.
+	 */
+	private static String legacyReplace(String input, ParameterResolver map, int depth) throws ParameterResolverException {
+		if (depth > 12) {
+			throw new IllegalArgumentException("Cyclic parameters");
+		}
+
+		StringBuffer result = new StringBuffer();
+		char[] chars = input.toCharArray();
+		boolean inParam = false;
+		int paramStart = 0;
+
+		for (int i = 0; i < chars.length; i++) {
+			if ('%' == chars[i]) {
+				if (!inParam) {
+					paramStart = i;
+				} else {
+					String paramName = input.substring(paramStart + 1, i);
+					if (paramName.length() > 0 && paramName.charAt(0) == '#') {
+						// Comment
+					} else if (paramName.length() == 0) {
+						result.append("%");
+					} else {
+						String paramValue = map == null ? null : map.get(paramName);
+						if (paramValue != null) {
+							result.append(legacyReplace(paramValue, map, depth + 1));
+						} else {
+							result.append('%');
+							result.append(paramName);
+							result.append('%');
+						}
+					}
+				}
+				inParam = !inParam;
+			} else if (!inParam) {
+				result.append(chars[i]);
+			}
+		}
+
+		return result.toString();
+	}
+}
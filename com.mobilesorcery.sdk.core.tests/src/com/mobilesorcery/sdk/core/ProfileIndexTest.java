@@ -0,0 +1,71 @@
+/*  Copyright (C) 2011 Mobile Sorcery AB
+
+    This program is free software; you can redistribute it and/or modify it
+    under the terms of the Eclipse Public License v1.0.
+
+    This program is distributed in the hope that it will be useful, but WITHOUT
+    ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+    FITNESS FOR A PARTICULAR PURPOSE. See the Eclipse Public License v1.0 for
+    more details.
+
+    You should have received a copy of the Eclipse Public License v1.0 along
+    with this program. It is also available at http://www.eclipse.org/legal/epl-v10.html
+*/
+package com.mobilesorcery.sdk.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Set;
+
+import org.junit.Test;
+
+import com.mobilesorcery.sdk.profiles.IVendor;
+import com.mobilesorcery.sdk.profiles.Profile;
+import com.mobilesorcery.sdk.profiles.Vendor;
+import com.mobilesorcery.sdk.profiles.filter.ProfileFilter;
+
+public class ProfileIndexTest {
+
+	@Test
+	public void testIncrementalUpdate() {
+		Vendor a = createVendor("A", 3);
+		Vendor b = createVendor("B", 2);
+		IVendor[] vendors = new IVendor[] { a, b };
+
+		ProfileIndex index = new ProfileIndex();
+		assertNull(index.update(vendors, null));
+		assertEquals(5, index.getProfileCount());
+		assertEquals(5, index.getTotalProfileCount());
+		assertEquals(2, index.getVendors().length);
+
+		// Remove one profile of A; only A has changed
+		ProfileFilter filter = new ProfileFilter();
+		filter.setStyle(ProfileFilter.DISALLOW);
+		filter.setProfile(a.getProfiles()[0], true);
+		Set<IVendor> changed = index.update(vendors, filter);
+		assertEquals(1, changed.size());
+		assertTrue(changed.contains(a));
+		assertEquals(2, index.getProfiles(a).length);
+		assertEquals(4, index.getProfileCount());
+
+		// Same filter, nothing changed
+		assertTrue(index.update(vendors, filter).isEmpty());
+
+		// Remove all of B; the visible vendors have changed
+		filter.setVendor(b, true);
+		assertNull(index.update(vendors, filter));
+		assertEquals(1, index.getVendors().length);
+		assertEquals(0, index.getProfiles(b).length);
+		assertEquals(5, index.getTotalProfileCount());
+	}
+
+	private Vendor createVendor(String name, int profileCount) {
+		Vendor vendor = new Vendor(name, null);
+		for (int i = 0; i < profileCount; i++) {
+			vendor.addProfile(new Profile(vendor, name + i, MoSyncTool.LEGACY_PROFILE_TYPE));
+		}
+		return vendor;
+	}
+}
@@ -0,0 +1,108 @@
+/*  Copyright (C) 2011 Mobile Sorcery AB
+
+    This program is free software; you can redistribute it and/or modify it
+    under the terms of the Eclipse Public License v1.0.
+
+    This program is distributed in the hope that it will be useful, but WITHOUT
+    ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+    FITNESS FOR A PARTICULAR PURPOSE. See the Eclipse Public License v1.0 for
+    more details.
+
+    You should have received a copy of the Eclipse Public License v1.0 along
+    with this program. It is also available at http://www.eclipse.org/legal/epl-v10.html
+*/
+package com.mobilesorcery.sdk.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+
+import java.io.File;
+import java.util.concurrent.CountDownLatch;
+
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.Path;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class SLDTest {
+
+	private static final int THREADS = 8;
+
+	private IProject project;
+
+	private File sldFile;
+
+	private SLD sld;
+
+	@Before
+	public void setUp() throws Exception {
+		project = ResourcesPlugin.getWorkspace().getRoot().getProject("sldtest");
+		if (project.exists()) {
+			project.delete(true, new NullProgressMonitor());
+		}
+		project.create(null);
+		MoSyncNature.addNatureToProject(project, false);
+		sldFile = File.createTempFile("test", ".sld");
+		sld = new SLD(MoSyncProject.create(project), new Path(sldFile.getAbsolutePath()));
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		sldFile.delete();
+		project.delete(true, new NullProgressMonitor());
+	}
+
+	@Test
+	public void testConcurrentRequestsShareOneParse() throws Exception {
+		writeSLD("main.c", 0);
+		final ISLDInfo[] results = new ISLDInfo[THREADS];
+		final CountDownLatch start = new CountDownLatch(1);
+		Thread[] threads = new Thread[THREADS];
+		for (int i = 0; i < THREADS; i++) {
+			final int ix = i;
+			threads[i] = new Thread() {
+				@Override
+				public void run() {
+					try {
+						start.await();
+						results[ix] = sld.parseSLD();
+					} catch (InterruptedException e) {
+						// Leaves a null result.
+					}
+				}
+			};
+			threads[i].start();
+		}
+		start.countDown();
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		assertNotNull(results[0]);
+		for (ISLDInfo result : results) {
+			assertSame(results[0], result);
+		}
+	}
+
+	@Test
+	public void testPreloadedSLDIsNeverStale() throws Exception {
+		writeSLD("old.c", 0);
+		ISLDInfo old = sld.parseSLD();
+		assertEquals("old.c", old.getFileName(0x10));
+
+		writeSLD("new.c", 10000);
+		sld.preload();
+		ISLDInfo current = sld.parseSLD();
+		assertEquals("new.c", current.getFileName(0x10));
+		assertSame(current, sld.getSymbolizer().getSLDInfo());
+	}
+
+	private void writeSLD(String fileName, long age) throws Exception {
+		Util.writeToFile(sldFile, "Files\n1:0:" + fileName + "\nSLD\n10:3:1\n");
+		// Make sure the time stamp changes
+		sldFile.setLastModified(System.currentTimeMillis() - 60000 + age);
+	}
+}
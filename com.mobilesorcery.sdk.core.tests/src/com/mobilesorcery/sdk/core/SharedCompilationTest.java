@@ -0,0 +1,96 @@
+/*  Copyright (C) 2011 Mobile Sorcery AB
+
+    This program is free software; you can redistribute it and/or modify it
+    under the terms of the Eclipse Public License v1.0.
+
+    This program is distributed in the hope that it will be useful, but WITHOUT
+    ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+    FITNESS FOR A PARTICULAR PURPOSE. See the Eclipse Public License v1.0 for
+    more details.
+
+    You should have received a copy of the Eclipse Public License v1.0 along
+    with this program. It is also available at http://www.eclipse.org/legal/epl-v10.html
+*/
+package com.mobilesorcery.sdk.core;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.mobilesorcery.sdk.core.build.BuildSequence;
+import com.mobilesorcery.sdk.core.build.IBuildStepFactory;
+import com.mobilesorcery.sdk.profiles.IVendor;
+import com.mobilesorcery.sdk.profiles.Profile;
+import com.mobilesorcery.sdk.profiles.Vendor;
+
+public class SharedCompilationTest {
+
+	private IProject project;
+
+	private IBuildVariant compiled;
+
+	private IBuildVariant shared;
+
+	@Before
+	public void setUp() throws Exception {
+		project = ResourcesPlugin.getWorkspace().getRoot().getProject("sharedcompilation");
+		if (project.exists()) {
+			project.delete(true, new NullProgressMonitor());
+		}
+		project.create(null);
+		MoSyncNature.addNatureToProject(project, false);
+		// No build steps, so we do not need any tools to build
+		MoSyncProject mosyncProject = MoSyncProject.create(project);
+		new BuildSequence(mosyncProject).apply(new ArrayList<IBuildStepFactory>());
+		createFile("main.c", "#include \"main.h\"\n");
+		createFile("main.h", "#define A 1\n");
+
+		IVendor vendor = new Vendor("test", null);
+		compiled = new BuildVariant(new Profile(vendor, "compiled", MoSyncTool.DEFAULT_PROFILE_TYPE), (String) null);
+		shared = new BuildVariant(new Profile(vendor, "shared", MoSyncTool.DEFAULT_PROFILE_TYPE), (String) null);
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		project.delete(true, new NullProgressMonitor());
+	}
+
+	@Test
+	public void testHeaderChangeAfterSharedCompilation() throws Exception {
+		IBuildSession session = MoSyncBuilder.createFinalizerBuildSession(Arrays.asList(compiled, shared));
+		Map<IBuildVariant, IBuildVariant> sharedCompilation = new HashMap<IBuildVariant, IBuildVariant>();
+		sharedCompilation.put(shared, compiled);
+		session.getProperties().put(MoSyncBuilder.SHARED_COMPILATION, sharedCompilation);
+
+		MoSyncBuilder builder = new MoSyncBuilder();
+		assertTrue(builder.build(project, session, compiled, null, new NullProgressMonitor()).success());
+		assertTrue(builder.build(project, session, shared, null, new NullProgressMonitor()).success());
+
+		project.getFile("main.h").setContents(new ByteArrayInputStream("#define A 2\n".getBytes()), true, false, null);
+
+		MoSyncProject mosyncProject = MoSyncProject.create(project);
+		// The compiled variant knows its dependencies...
+		assertFalse(mosyncProject.getBuildState(compiled).fullRebuildNeeded());
+		// ...but the shared one has none, so it must not trust an incremental build.
+		assertTrue(mosyncProject.getBuildState(shared).fullRebuildNeeded());
+	}
+
+	private IFile createFile(String name, String contents) throws Exception {
+		IFile file = project.getFile(name);
+		file.create(new ByteArrayInputStream(contents.getBytes()), true, null);
+		return file;
+	}
+}
@@ -0,0 +1,65 @@
+/*  Copyright (C) 2011 Mobile Sorcery AB
+
+    This program is free software; you can redistribute it and/or modify it
+    under the terms of the Eclipse Public License v1.0.
+
+    This program is distributed in the hope that it will be useful, but WITHOUT
+    ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+    FITNESS FOR A PARTICULAR PURPOSE. See the Eclipse Public License v1.0 for
+    more details.
+
+    You should have received a copy of the Eclipse Public License v1.0 along
+    with this program. It is also available at http://www.eclipse.org/legal/epl-v10.html
+*/
+package com.mobilesorcery.sdk.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.io.ByteArrayInputStream;
+
+import org.junit.Test;
+
+import com.mobilesorcery.sdk.core.Symbolizer.Frame;
+
+public class SymbolizerTest {
+
+	private static final String SLD =
+		"Files\n" +
+		"1:0:main.c\n" +
+		"2:0:util.c\n" +
+		"SLD\n" +
+		"10:3:1\n" +
+		"20:7:1\n" +
+		"30:12:2\n";
+
+	@Test
+	public void testSymbolize() throws Exception {
+		ISLDInfo sld = SLD.parseSLDInfo(new ByteArrayInputStream(SLD.getBytes("UTF-8")), null);
+		Symbolizer symbolizer = new Symbolizer(sld);
+
+		int[] stack = new int[] { 0x31, 0x15, 0x31 };
+		Frame[] frames = symbolizer.symbolize(stack);
+		assertEquals(3, frames.length);
+		for (int i = 0; i < stack.length; i++) {
+			assertEquals(stack[i], frames[i].getAddress());
+			assertEquals(sld.getFileName(stack[i]), frames[i].getFileName());
+			assertEquals(sld.getLine(stack[i]), frames[i].getLine());
+		}
+		assertEquals("util.c:12", frames[0].toString());
+		// Memoized
+		assertSame(frames[0], frames[2]);
+		assertSame(frames[1], symbolizer.symbolize(0x15));
+
+		Frame[] async = symbolizer.symbolizeAsync(stack).get();
+		assertSame(frames[1], async[1]);
+	}
+
+	@Test
+	public void testNoDebugInformation() {
+		Frame frame = new Symbolizer(null).symbolize(0x10);
+		assertNull(frame.getFileName());
+		assertEquals("Unknown file", frame.toString());
+	}
+}
@@ -0,0 +1,90 @@
+/*  Copyright (C) 2011 Mobile Sorcery AB
+
+    This program is free software; you can redistribute it and/or modify it
+    under the terms of the Eclipse Public License v1.0.
+
+    This program is distributed in the hope that it will be useful, but WITHOUT
+    ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+    FITNESS FOR A PARTICULAR PURPOSE. See the Eclipse Public License v1.0 for
+    more details.
+
+    You should have received a copy of the Eclipse Public License v1.0 along
+    with this program. It is also available at http://www.eclipse.org/legal/epl-v10.html
+*/
+package com.mobilesorcery.sdk.core;
+
+import java.io.ByteArrayInputStream;
+
+import javax.xml.parsers.SAXParserFactory;
+
+import org.xml.sax.InputSource;
+
+import com.mobilesorcery.sdk.core.XMLReaderPoolTest.CountingHandler;
+
+/**
+ * Compares the time it takes to parse the documents of
+ * {@link XMLReaderPoolTest} with a new SAX parser per document,
+ * with a pooled reader and through the line adapter.
+ * This is not a test, since timings vary too much between
+ * machines; run it as a Java application.
+ */
+public class XMLReaderPoolBenchmark {
+
+	private static final int WARMUP = 50;
+
+	private static final int ITERATIONS = 200;
+
+	public static void main(String[] args) throws Exception {
+		run("profile db", XMLReaderPoolTest.profileDBDump());
+		run("test report", XMLReaderPoolTest.testReport());
+	}
+
+	private static void run(String name, String xml) throws Exception {
+		byte[] data = xml.getBytes("UTF-8");
+		String[] lines = xml.split("\n");
+
+		for (int i = 0; i < WARMUP; i++) {
+			parseUnpooled(data);
+			parsePooled(data);
+			parseLines(lines);
+		}
+
+		long start = System.nanoTime();
+		for (int i = 0; i < ITERATIONS; i++) {
+			parseUnpooled(data);
+		}
+		long unpooled = System.nanoTime() - start;
+
+		start = System.nanoTime();
+		for (int i = 0; i < ITERATIONS; i++) {
+			parsePooled(data);
+		}
+		long pooled = System.nanoTime() - start;
+
+		start = System.nanoTime();
+		for (int i = 0; i < ITERATIONS; i++) {
+			parseLines(lines);
+		}
+		long streamed = System.nanoTime() - start;
+
+		System.out.println(name + " (" + data.length + " bytes): new parser " + unpooled / ITERATIONS / 1000 +
+				" us, pooled " + pooled / ITERATIONS / 1000 + " us, line adapter " + streamed / ITERATIONS / 1000 + " us");
+	}
+
+	private static void parseUnpooled(byte[] data) throws Exception {
+		// The old way; a new factory and parser per document
+		SAXParserFactory.newInstance().newSAXParser().parse(new ByteArrayInputStream(data), new CountingHandler());
+	}
+
+	private static void parsePooled(byte[] data) throws Exception {
+		XMLReaderPool.parse(new InputSource(new ByteArrayInputStream(data)), new CountingHandler());
+	}
+
+	private static void parseLines(String[] lines) throws Exception {
+		CountingHandler handler = new CountingHandler();
+		for (String line : lines) {
+			handler.newLine(line);
+		}
+		handler.stop(null);
+	}
+}
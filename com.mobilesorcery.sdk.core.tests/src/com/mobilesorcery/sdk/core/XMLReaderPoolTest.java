@@ -0,0 +1,164 @@
+/*  Copyright (C) 2011 Mobile Sorcery AB
+
+    This program is free software; you can redistribute it and/or modify it
+    under the terms of the Eclipse Public License v1.0.
+
+    This program is distributed in the hope that it will be useful, but WITHOUT
+    ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+    FITNESS FOR A PARTICULAR PURPOSE. See the Eclipse Public License v1.0 for
+    more details.
+
+    You should have received a copy of the Eclipse Public License v1.0 along
+    with this program. It is also available at http://www.eclipse.org/legal/epl-v10.html
+*/
+package com.mobilesorcery.sdk.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+
+import javax.xml.parsers.SAXParserFactory;
+
+import org.junit.Test;
+import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.DefaultHandler;
+
+import com.mobilesorcery.sdk.core.LineReader.XMLLineAdapter;
+
+public class XMLReaderPoolTest {
+
+	static class CountingHandler extends XMLLineAdapter {
+		int elements;
+		int attributes;
+		int characters;
+
+		@Override
+		public void startElement(String uri, String localName, String qName, Attributes atts) {
+			elements++;
+			attributes += atts.getLength();
+		}
+
+		@Override
+		public void characters(char[] ch, int start, int length) {
+			characters += length;
+		}
+	}
+
+	@Test
+	public void testProfileDBDump() throws Exception {
+		compare(profileDBDump());
+	}
+
+	@Test
+	public void testTestReport() throws Exception {
+		compare(testReport());
+	}
+
+	private void compare(String xml) throws Exception {
+		byte[] data = xml.getBytes("UTF-8");
+
+		CountingHandler expected = new CountingHandler();
+		SAXParserFactory.newInstance().newSAXParser().parse(new ByteArrayInputStream(data), expected);
+
+		// The pooled reader is reused, so parse more than once
+		for (int i = 0; i < 3; i++) {
+			CountingHandler handler = new CountingHandler();
+			XMLReaderPool.parse(new InputSource(new ByteArrayInputStream(data)), handler);
+			assertSame(expected, handler);
+		}
+
+		CountingHandler handler = new CountingHandler();
+		for (String line : xml.split("\n")) {
+			handler.newLine(line);
+		}
+		handler.stop(null);
+		assertSame(expected, handler);
+	}
+
+	private void assertSame(CountingHandler expected, CountingHandler actual) {
+		assertEquals(expected.elements, actual.elements);
+		assertEquals(expected.attributes, actual.attributes);
+		assertEquals(expected.characters, actual.characters);
+	}
+
+	@Test
+	public void testLineAdapterDoctype() throws Exception {
+		// The line adapter is used for profile databases, which may use a full DTD
+		final StringBuffer vendor = new StringBuffer();
+		XMLLineAdapter handler = new XMLLineAdapter() {
+			@Override
+			public void startElement(String uri, String localName, String qName, Attributes atts) {
+				vendor.append(atts.getValue("family"));
+			}
+		};
+		handler.newLine("<!DOCTYPE db [");
+		handler.newLine("<!ENTITY vendor \"Nokia\">");
+		handler.newLine("]>");
+		handler.newLine("<db family=\"&vendor;\"/>");
+		handler.stop(null);
+		assertEquals("Nokia", vendor.toString());
+	}
+
+	@Test
+	public void testLineAdapterMismatchedTags() throws Exception {
+		final Exception[] error = new Exception[1];
+		XMLLineAdapter handler = new XMLLineAdapter() {
+			@Override
+			protected void doStop(Exception e) {
+				error[0] = e;
+			}
+		};
+		handler.newLine("<db><platform></db>");
+		handler.stop(null);
+		assertTrue(error[0] instanceof SAXException);
+	}
+
+	@Test
+	public void testReentrant() throws Exception {
+		final byte[] inner = "<inner a=\"1\"/>".getBytes("UTF-8");
+		final CountingHandler innerHandler = new CountingHandler();
+		DefaultHandler outerHandler = new DefaultHandler() {
+			@Override
+			public void startElement(String uri, String localName, String qName, Attributes atts) {
+				try {
+					XMLReaderPool.parse(new InputSource(new ByteArrayInputStream(inner)), innerHandler);
+				} catch (Exception e) {
+					throw new RuntimeException(e);
+				}
+			}
+		};
+		XMLReaderPool.parse(new InputSource(new ByteArrayInputStream("<a><b/></a>".getBytes("UTF-8"))), outerHandler);
+		assertEquals(2, innerHandler.elements);
+		assertEquals(2, innerHandler.attributes);
+	}
+
+	static String profileDBDump() {
+		StringBuffer result = new StringBuffer("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<db>\n");
+		for (int i = 0; i < 200; i++) {
+			result.append("<platform family=\"vendor" + (i % 20) + "\" variant=\"device" + i + "\" runtime=\"rt" + (i % 7) + "\">\n");
+			for (int j = 0; j < 20; j++) {
+				result.append("  <capability name=\"Cap" + j + "\" type=\"property\" value=\"" + (i * j) +
+						"\" state=\"SUPPORTED\" fragmentation=\"buildtime\"/>\n");
+			}
+			result.append("</platform>\n");
+		}
+		result.append("</db>\n");
+		return result.toString();
+	}
+
+	static String testReport() {
+		StringBuffer result = new StringBuffer("<testsuites>\n<testsuite name=\"suite\">\n");
+		for (int i = 0; i < 500; i++) {
+			result.append("<testcase name=\"test" + i + "\" time=\"0.01\">\n");
+			if (i % 10 == 0) {
+				result.append("<failure message=\"expected &lt;1&gt; but was &lt;2&gt;\">Assertion failed at line " + i + "</failure>\n");
+			}
+			result.append("</testcase>\n");
+		}
+		result.append("</testsuite>\n</testsuites>\n");
+		return result.toString();
+	}
+}
@@ -0,0 +1,203 @@
+/*  Copyright (C) 2011 Mobile Sorcery AB
+
+    This program is free software; you can redistribute it and/or modify it
+    under the terms of the Eclipse Public License v1.0.
+
+    This program is distributed in the hope that it will be useful, but WITHOUT
+    ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+    FITNESS FOR A PARTICULAR PURPOSE. See the Eclipse Public License v1.0 for
+    more details.
+
+    You should have received a copy of the Eclipse Public License v1.0 along
+    with this program. It is also available at http://www.eclipse.org/legal/epl-v10.html
+*/
+package com.mobilesorcery.sdk.core.build;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.OperationCanceledException;
+import org.eclipse.ui.IMemento;
+import org.eclipse.ui.XMLMemento;
+import org.junit.Test;
+
+import com.mobilesorcery.sdk.core.AbstractProcessConsole;
+import com.mobilesorcery.sdk.core.IProcessConsole;
+import com.mobilesorcery.sdk.core.ParameterResolverException;
+import com.mobilesorcery.sdk.core.build.CommandLineBuildStep.FileRun;
+import com.mobilesorcery.sdk.core.build.CommandLineBuildStep.FileRuns;
+
+public class CommandLineBuildStepTest {
+
+	private static class RecordingConsole extends AbstractProcessConsole {
+		final List<String> lines = Collections.synchronizedList(new ArrayList<String>());
+
+		@Override
+		protected void writeLine(int type, String line) {
+			lines.add(line);
+		}
+	}
+
+	/**
+	 * Writes two lines, taking longer the earlier it was submitted,
+	 * and optionally fails.
+	 */
+	private static class TestRun implements FileRun {
+		private final int ix;
+		private final long delay;
+		private final boolean fail;
+		volatile boolean ran;
+		volatile boolean interrupted;
+
+		TestRun(int ix, long delay, boolean fail) {
+			this.ix = ix;
+			this.delay = delay;
+			this.fail = fail;
+		}
+
+		@Override
+		public void run(IProcessConsole console) throws IOException, ParameterResolverException {
+			ran = true;
+			if (console != null) {
+				console.addMessage("start " + ix);
+			}
+			try {
+				Thread.sleep(delay);
+			} catch (InterruptedException e) {
+				interrupted = true;
+				throw new IOException("Process interrupted.");
+			}
+			if (console != null) {
+				console.addMessage("end " + ix);
+			}
+			if (fail) {
+				throw new IOException("Failed " + ix);
+			}
+		}
+	}
+
+	@Test
+	public void testMemento() throws Exception {
+		CommandLineBuildStep.Factory factory = new CommandLineBuildStep.Factory();
+		factory.setRawScript("convert %file% %file%.png");
+		factory.setRunPerFile(true);
+		factory.setFailFast(false);
+		factory.setMaxParallelRuns(4);
+		factory.setOutputPattern("%file%.png");
+		XMLMemento memento = XMLMemento.createWriteRoot("step");
+		factory.store(memento);
+
+		IMemento command = memento.getChild("cmd");
+		assertEquals(Integer.valueOf(4), command.getInteger("jobs"));
+		assertEquals(Boolean.FALSE, command.getBoolean("ff"));
+		assertEquals("%file%.png", command.getString("out"));
+
+		CommandLineBuildStep.Factory loaded = new CommandLineBuildStep.Factory();
+		loaded.load(memento);
+		assertFalse(loaded.shouldFailFast());
+		assertEquals(4, loaded.getMaxParallelRuns());
+		assertEquals("%file%.png", loaded.getOutputPattern());
+	}
+
+	@Test
+	public void testMementoDefaults() throws Exception {
+		// Build steps stored before these keys existed
+		XMLMemento memento = XMLMemento.createWriteRoot("step");
+		memento.createChild("cmd").putTextData("echo %file%");
+		CommandLineBuildStep.Factory loaded = new CommandLineBuildStep.Factory();
+		loaded.load(memento);
+		assertTrue(loaded.shouldFailFast());
+		assertEquals(1, loaded.getMaxParallelRuns());
+		assertNull(loaded.getOutputPattern());
+	}
+
+	@Test
+	public void testReplayInFileOrder() throws Exception {
+		ArrayList<TestRun> runs = new ArrayList<TestRun>();
+		for (int i = 0; i < 8; i++) {
+			runs.add(new TestRun(i, (8 - i) * 20, false));
+		}
+		RecordingConsole console = new RecordingConsole();
+		FileRuns fileRuns = new FileRuns(runs, true);
+		fileRuns.runInParallel(4, console, new NullProgressMonitor());
+
+		ArrayList<String> expected = new ArrayList<String>();
+		for (int i = 0; i < 8; i++) {
+			expected.add("start " + i);
+			expected.add("end " + i);
+		}
+		assertEquals(expected, console.lines);
+		assertEquals(0, fileRuns.getFailures());
+		fileRuns.rethrow("test");
+	}
+
+	@Test
+	public void testFailFastStopsRunningScripts() throws Exception {
+		ArrayList<TestRun> runs = new ArrayList<TestRun>();
+		runs.add(new TestRun(0, 0, true));
+		runs.add(new TestRun(1, 60000, false));
+		runs.add(new TestRun(2, 0, false));
+		FileRuns fileRuns = new FileRuns(runs, true);
+		long start = System.currentTimeMillis();
+		fileRuns.runInParallel(2, new RecordingConsole(), new NullProgressMonitor());
+		assertTrue(System.currentTimeMillis() - start < 30000);
+		assertTrue(runs.get(1).interrupted);
+		assertEquals(1, fileRuns.getFailures());
+		try {
+			fileRuns.rethrow("test");
+			fail("No error reported");
+		} catch (IOException e) {
+			assertEquals("Failed 0", e.getMessage());
+		}
+	}
+
+	@Test
+	public void testNoFailFastSequentially() throws Exception {
+		ArrayList<TestRun> runs = new ArrayList<TestRun>();
+		for (int i = 0; i < 5; i++) {
+			runs.add(new TestRun(i, 0, i % 2 == 1));
+		}
+		FileRuns fileRuns = new FileRuns(runs, false);
+		fileRuns.runSequentially(new NullProgressMonitor());
+		for (TestRun run : runs) {
+			assertTrue(run.ran);
+		}
+		assertEquals(2, fileRuns.getFailures());
+		try {
+			fileRuns.rethrow("test");
+			fail("No error reported");
+		} catch (IOException e) {
+			assertTrue(e.getMessage().contains("2 of 5"));
+		}
+	}
+
+	@Test
+	public void testCancel() throws Exception {
+		ArrayList<TestRun> runs = new ArrayList<TestRun>();
+		runs.add(new TestRun(0, 60000, false));
+		runs.add(new TestRun(1, 60000, false));
+		NullProgressMonitor monitor = new NullProgressMonitor();
+		monitor.setCanceled(true);
+		try {
+			new FileRuns(runs, true).runInParallel(2, new RecordingConsole(), monitor);
+			fail("Not cancelled");
+		} catch (OperationCanceledException e) {
+			// Expected.
+		}
+		try {
+			new FileRuns(runs, true).runSequentially(monitor);
+			fail("Not cancelled");
+		} catch (OperationCanceledException e) {
+			// Expected.
+		}
+	}
+}
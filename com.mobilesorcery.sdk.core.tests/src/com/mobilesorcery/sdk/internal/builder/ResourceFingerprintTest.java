@@ -0,0 +1,124 @@
+/*  Copyright (C) 2011 Mobile Sorcery AB
+
+    This program is free software; you can redistribute it and/or modify it
+    under the terms of the Eclipse Public License v1.0.
+
+    This program is distributed in the hope that it will be useful, but WITHOUT
+    ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+    FITNESS FOR A PARTICULAR PURPOSE. See the Eclipse Public License v1.0 for
+    more details.
+
+    You should have received a copy of the Eclipse Public License v1.0 along
+    with this program. It is also available at http://www.eclipse.org/legal/epl-v10.html
+*/
+package com.mobilesorcery.sdk.internal.builder;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.mobilesorcery.sdk.core.Util;
+
+public class ResourceFingerprintTest {
+
+	private File dir;
+
+	private File lstx;
+
+	private File media;
+
+	private int compilations;
+
+	@Before
+	public void setUp() throws IOException {
+		dir = File.createTempFile("resources", "test");
+		dir.delete();
+		dir.mkdirs();
+		lstx = new File(dir, "res.lstx");
+		Util.writeToFile(lstx, "<resources><image resource=\"R_ICON\" file=\"icon.png\"/></resources>");
+		File resDir = new File(dir, "Resources");
+		resDir.mkdirs();
+		media = new File(resDir, "icon.png");
+		Util.writeToFile(media, "png");
+		// Make sure the files are old enough for their hashes to be cached
+		setAge(lstx, 60000);
+		setAge(media, 60000);
+	}
+
+	@After
+	public void tearDown() {
+		Util.deleteFiles(dir, null, Util.INFINITE_DEPTH, new NullProgressMonitor());
+	}
+
+	@Test
+	public void testUnchangedResourcesAreNotCompiled() throws IOException {
+		build();
+		assertEquals(1, compilations);
+		build();
+		assertEquals(1, compilations);
+	}
+
+	@Test
+	public void testTouchedLstxIsCompiled() throws IOException {
+		build();
+		// Only the time stamp changes; nothing to compile
+		setAge(lstx, 30000);
+		build();
+		assertEquals(1, compilations);
+
+		Util.writeToFile(lstx, "<resources><image resource=\"R_LOGO\" file=\"icon.png\"/></resources>");
+		setAge(lstx, 20000);
+		build();
+		assertEquals(2, compilations);
+		build();
+		assertEquals(2, compilations);
+	}
+
+	@Test
+	public void testChangedMediaIsCompiled() throws IOException {
+		build();
+		Util.writeToFile(media, "another png");
+		setAge(media, 30000);
+		build();
+		assertEquals(2, compilations);
+	}
+
+	@Test
+	public void testChangedSettingIsCompiled() throws IOException {
+		build("platform1");
+		build("platform2");
+		assertEquals(2, compilations);
+	}
+
+	private void build() throws IOException {
+		build("platform");
+	}
+
+	/**
+	 * Does what MoSyncResourceBuilderVisitor does, except compiling.
+	 */
+	private void build(String platform) throws IOException {
+		// The resource file and the resource directory, as given to rescomp
+		List<String> inputs = new ArrayList<String>(Arrays.asList(lstx.getAbsolutePath(), media.getParent()));
+		ResourceFingerprint fingerprint = new ResourceFingerprint(new File(dir, "state"));
+		fingerprint.setSetting("platform", platform);
+		if (!fingerprint.isUpToDate(inputs)) {
+			fingerprint.invalidate();
+			compilations++;
+			fingerprint.save(inputs);
+		}
+	}
+
+	private static void setAge(File file, long age) {
+		file.setLastModified(System.currentTimeMillis() - age);
+	}
+}
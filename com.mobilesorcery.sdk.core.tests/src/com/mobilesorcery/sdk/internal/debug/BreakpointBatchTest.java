@@ -0,0 +1,78 @@
+/*  Copyright (C) 2009 Mobile Sorcery AB
+
+    This program is free software; you can redistribute it and/or modify it
+    under the terms of the Eclipse Public License v1.0.
+
+    This program is distributed in the hope that it will be useful, but WITHOUT
+    ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+    FITNESS FOR A PARTICULAR PURPOSE. See the Eclipse Public License v1.0 for
+    more details.
+
+    You should have received a copy of the Eclipse Public License v1.0 along
+    with this program. It is also available at http://www.eclipse.org/legal/epl-v10.html
+*/
+package com.mobilesorcery.sdk.internal.debug;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+public class BreakpointBatchTest {
+
+	private static final int BREAKPOINT_COUNT = 100;
+
+	/**
+	 * A fake MI backend; each install is one round trip,
+	 * and every tenth breakpoint fails.
+	 */
+	static class FakeMIBackend implements BreakpointBatch.IInstaller<Integer> {
+		final ArrayList<Integer> installed = new ArrayList<Integer>();
+
+		public void install(Integer breakpoint) throws Exception {
+			installed.add(breakpoint);
+			if (breakpoint % 10 == 9) {
+				throw new Exception("No line " + breakpoint);
+			}
+		}
+	}
+
+	@Test
+	public void testInstall() {
+		FakeMIBackend backend = new FakeMIBackend();
+		BreakpointBatch<Integer> batch = new BreakpointBatch<Integer>(createBreakpoints());
+		batch.install(backend);
+
+		assertEquals(createBreakpoints(), backend.installed);
+		assertEquals(BREAKPOINT_COUNT, batch.getRoundTrips());
+		assertEquals(BREAKPOINT_COUNT / 10, batch.getFailures().size());
+		assertTrue(batch.getFailures().containsKey(9));
+		assertEquals("No line 9", batch.getFailures().get(9).getMessage());
+	}
+
+	@Test
+	public void testResolve() {
+		FakeMIBackend backend = new FakeMIBackend();
+		BreakpointBatch<Integer> batch = new BreakpointBatch<Integer>(createBreakpoints());
+		batch.resolve(new BreakpointBatch.IResolver<Integer>() {
+			public boolean isResolvable(Integer breakpoint) {
+				return breakpoint % 2 == 0;
+			}
+		});
+		batch.install(backend);
+		assertEquals(BREAKPOINT_COUNT / 2, batch.getUnresolved().size());
+		assertEquals(BREAKPOINT_COUNT / 2, backend.installed.size());
+		assertEquals(BREAKPOINT_COUNT / 2, batch.getRoundTrips());
+	}
+
+	private List<Integer> createBreakpoints() {
+		ArrayList<Integer> result = new ArrayList<Integer>();
+		for (int i = 0; i < BREAKPOINT_COUNT; i++) {
+			result.add(i);
+		}
+		return result;
+	}
+}
@@ -0,0 +1,73 @@
+/*  Copyright (C) 2011 Mobile Sorcery AB
+
+    This program is free software; you can redistribute it and/or modify it
+    under the terms of the Eclipse Public License v1.0.
+
+    This program is distributed in the hope that it will be useful, but WITHOUT
+    ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+    FITNESS FOR A PARTICULAR PURPOSE. See the Eclipse Public License v1.0 for
+    more details.
+
+    You should have received a copy of the Eclipse Public License v1.0 along
+    with this program. It is also available at http://www.eclipse.org/legal/epl-v10.html
+*/
+package com.mobilesorcery.sdk.internal.debug;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.ByteArrayInputStream;
+
+import org.junit.Test;
+
+import com.mobilesorcery.sdk.core.ISLDInfo;
+import com.mobilesorcery.sdk.core.SLD;
+
+public class SLDBreakpointResolverTest {
+
+	private static final String SLD_TEXT =
+		"Files\n" +
+		"1:0:main.c\n" +
+		"2:0:a/util.c\n" +
+		"3:0:b/util.c\n" +
+		"4:0:main.c\n" +
+		"SLD\n" +
+		"10:3:1\n" +
+		"20:5:2\n" +
+		"30:8:3\n" +
+		"40:12:4\n";
+
+	@Test
+	public void testFindSLDFileName() throws Exception {
+		SLDBreakpointResolver resolver = new SLDBreakpointResolver(parse());
+		assertEquals("main.c", resolver.findSLDFileName("/project/main.c"));
+		assertEquals("a/util.c", resolver.findSLDFileName("/project/a/util.c"));
+		assertEquals("b/util.c", resolver.findSLDFileName("C:\\project\\b\\util.c"));
+		assertNull(resolver.findSLDFileName("/project/other.c"));
+	}
+
+	@Test
+	public void testAmbiguousFileNames() throws Exception {
+		ISLDInfo sld = SLD.parseSLDInfo(new ByteArrayInputStream(
+				"Files\n1:0:a/util.c\n2:0:b/a/util.c\n3:0:./x.c\n4:0:x.c\nSLD\n10:1:1\n".getBytes("UTF-8")), null);
+		SLDBreakpointResolver resolver = new SLDBreakpointResolver(sld);
+		// Both 'a/util.c' and 'b/a/util.c' match
+		assertNull(resolver.findSLDFileName("/project/b/a/util.c"));
+		assertEquals("a/util.c", resolver.findSLDFileName("/project/c/a/util.c"));
+		// Two different SLD names for 'x.c'
+		assertNull(resolver.findSLDFileName("x.c"));
+	}
+
+	@Test
+	public void testFirstLineWithCode() throws Exception {
+		ISLDInfo sld = parse();
+		// main.c occurs twice in the file table
+		assertEquals(3, sld.getFirstLineWithCode("main.c", 1));
+		assertEquals(12, sld.getFirstLineWithCode("main.c", 4));
+		assertEquals(ISLDInfo.UNKNOWN_LINE, sld.getFirstLineWithCode("main.c", 13));
+	}
+
+	private ISLDInfo parse() throws Exception {
+		return SLD.parseSLDInfo(new ByteArrayInputStream(SLD_TEXT.getBytes("UTF-8")), null);
+	}
+}
@@ -0,0 +1,51 @@
+/*  Copyright (C) 2011 Mobile Sorcery AB
+
+    This program is free software; you can redistribute it and/or modify it
+    under the terms of the Eclipse Public License v1.0.
+
+    This program is distributed in the hope that it will be useful, but WITHOUT
+    ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+    FITNESS FOR A PARTICULAR PURPOSE. See the Eclipse Public License v1.0 for
+    more details.
+
+    You should have received a copy of the Eclipse Public License v1.0 along
+    with this program. It is also available at http://www.eclipse.org/legal/epl-v10.html
+*/
+package com.mobilesorcery.sdk.internal.debug;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import org.eclipse.cdt.debug.mi.core.output.MIOutput;
+import org.junit.Test;
+
+public class VariableChildrenCacheTest {
+
+	@Test
+	public void testCache() {
+		VariableChildrenCache cache = new VariableChildrenCache();
+		MIOutput var1 = new MIOutput();
+		assertNull(cache.get("var1"));
+		cache.put("var1", var1);
+		assertSame(var1, cache.get("var1"));
+		assertEquals(1, cache.getHits());
+		assertEquals(1, cache.getMisses());
+
+		cache.invalidate();
+		assertNull(cache.get("var1"));
+	}
+
+	@Test
+	public void testRemove() {
+		VariableChildrenCache cache = new VariableChildrenCache();
+		cache.put("var1", new MIOutput());
+		cache.put("var1.x", new MIOutput());
+		cache.put("var1.x.y", new MIOutput());
+		cache.put("var10", new MIOutput());
+		cache.remove("var1");
+		assertEquals(1, cache.size());
+		assertNull(cache.get("var1.x"));
+		assertEquals(1, cache.getMisses());
+	}
+}
@@ -0,0 +1,79 @@
+/*  Copyright (C) 2011 Mobile Sorcery AB
+
+    This program is free software; you can redistribute it and/or modify it
+    under the terms of the Eclipse Public License v1.0.
+
+    This program is distributed in the hope that it will be useful, but WITHOUT
+    ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+    FITNESS FOR A PARTICULAR PURPOSE. See the Eclipse Public License v1.0 for
+    more details.
+
+    You should have received a copy of the Eclipse Public License v1.0 along
+    with this program. It is also available at http://www.eclipse.org/legal/epl-v10.html
+*/
+package com.mobilesorcery.sdk.internal.launch;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+
+import org.junit.Test;
+
+import com.mobilesorcery.sdk.core.Symbolizer;
+import com.mobilesorcery.sdk.core.Symbolizer.Frame;
+import com.mobilesorcery.sdk.internal.EmulatorOutputParser;
+import com.mobilesorcery.sdk.internal.EmulatorOutputParser.ParseEvent;
+
+public class EmulatorParseEventHandlerTest {
+
+	/**
+	 * Resolves call stacks more slowly than single addresses,
+	 * so that they finish out of order.
+	 */
+	private static class SlowSymbolizer extends Symbolizer {
+		SlowSymbolizer() {
+			super(null);
+		}
+
+		@Override
+		public Future<Frame[]> symbolizeAsync(final int[] addresses) {
+			FutureTask<Frame[]> result = new FutureTask<Frame[]>(new Callable<Frame[]>() {
+				@Override
+				public Frame[] call() throws Exception {
+					Thread.sleep(addresses.length > 1 ? 300 : 0);
+					return symbolize(addresses);
+				}
+			});
+			new Thread(result).start();
+			return result;
+		}
+	}
+
+	@Test
+	public void testOutputIsInEventOrder() throws Exception {
+		EmulatorParseEventHandler handler = new EmulatorParseEventHandler(new SlowSymbolizer());
+		PipedOutputStream messageStream = new PipedOutputStream();
+		PipedInputStream input = new PipedInputStream(messageStream, 4096);
+		handler.setMessageOutputStream(messageStream);
+
+		handler.handleEvent(new ParseEvent(EmulatorOutputParser.REPORT_STRING, "first", -1, null));
+		handler.handleEvent(new ParseEvent(EmulatorOutputParser.REPORT_CALL_STACK, null, -1, new int[] { 0x10, 0x20 }));
+		handler.handleEvent(new ParseEvent(EmulatorOutputParser.REPORT_STRING, "second", -1, null));
+		handler.handleEvent(new ParseEvent(EmulatorOutputParser.REPORT_IP, 0x30));
+		handler.handleEvent(new ParseEvent(EmulatorOutputParser.REPORT_EXIT_STRING, "exit", -1, null));
+		handler.awaitOutput(10000);
+
+		byte[] output = new byte[input.available()];
+		input.read(output);
+		assertEquals("first\n" +
+				"IP:0x10: Unknown file\n" +
+				"IP:0x20: Unknown file\n" +
+				"second\n" +
+				"IP:0x30: Unknown file\n" +
+				"exit\n", new String(output));
+	}
+}
@@ -13,6 +13,15 @@
  */
 package com.mobilesorcery.sdk.core;
 
+import java.io.File;
+import java.io.IOException;
+
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+
+import com.mobilesorcery.sdk.core.build.AbstractBuildStep;
+import com.mobilesorcery.sdk.core.security.IApplicationPermissions;
 import com.mobilesorcery.sdk.internal.PipeTool;
 import com.mobilesorcery.sdk.profiles.IProfile;
 
@@ -40,4 +49,85 @@ public abstract class AbstractPackager implements IPackagerDelegate {
 		return profile.getName();
 	}
 
+	@Override
+	public PackageFingerprint getPackageFingerprint(MoSyncProject project,
+			IBuildSession session, IBuildVariant variant) throws CoreException {
+		PackageFingerprint fingerprint = new PackageFingerprint();
+		try {
+			addPackageInputs(project, session, variant, fingerprint);
+		} catch (CoreException e) {
+			throw e;
+		} catch (Exception e) {
+			throw new CoreException(new Status(IStatus.ERROR, CoreMoSyncPlugin.PLUGIN_ID,
+					"Could not compute package fingerprint", e));
+		}
+		return fingerprint;
+	}
+
+	/**
+	 * <p>Adds the inputs of packaging to a fingerprint.</p>
+	 * <p>The default implementation adds the linked program and
+	 * resources, the icon, the project properties, the requested
+	 * permissions and the runtime version. Subclasses that have
+	 * other inputs, such as keystores or global preferences,
+	 * should override this method and call <code>super</code>.</p>
+	 * @param project
+	 * @param session
+	 * @param variant
+	 * @param fingerprint
+	 * @throws Exception
+	 */
+	protected void addPackageInputs(MoSyncProject project, IBuildSession session,
+			IBuildVariant variant, PackageFingerprint fingerprint) throws Exception {
+		DefaultPackager internal = new DefaultPackager(project, variant);
+		IProfile profile = variant.getProfile();
+
+		fingerprint.add("packager", getClass().getName());
+		fingerprint.add("profile", MoSyncTool.toString(profile));
+		fingerprint.add("configuration", variant.getConfigurationId());
+		fingerprint.add("runtime-version", MoSyncTool.getDefault().getVersionInfo(MoSyncTool.BINARY_VERSION));
+		fingerprint.add("runtime-dir", internal.get(DefaultPackager.RUNTIME_DIR));
+		fingerprint.add("package-output-dir", internal.get(DefaultPackager.PACKAGE_OUTPUT_DIR));
+
+		fingerprint.add("program", internal.resolveFile("%program-output%"));
+		fingerprint.add("resources", internal.resolveFile("%resource-output%"));
+		if (!BUILD_C_MODE.equals(getGenerateMode(profile))) {
+			// The generated sources are also part of the output
+			File[] outputFiles = MoSyncBuilder.getOutputPath(project.getWrappedProject(), variant).toFile().listFiles();
+			if (outputFiles != null) {
+				for (File outputFile : outputFiles) {
+					if (outputFile.isFile()) {
+						fingerprint.add("output/" + outputFile.getName(), outputFile);
+					}
+				}
+			}
+		}
+		fingerprint.add("icon", project.getIconFile());
+
+		fingerprint.add("app-name", internal.get(DefaultPackager.APP_NAME));
+		fingerprint.add("app-vendor", internal.get(DefaultPackager.APP_VENDOR_NAME));
+		fingerprint.add("app-version", internal.get(DefaultPackager.APP_VERSION));
+		fingerprint.add("debug-runtimes", Boolean.toString(shouldUseDebugRuntimes(project, variant)));
+
+		IApplicationPermissions permissions = project.getPermissions();
+		Object modifiedPermissions = session.getProperties().get(AbstractBuildStep.MODIFIED_PERMISSIONS);
+		if (modifiedPermissions instanceof IApplicationPermissions) {
+			permissions = (IApplicationPermissions) modifiedPermissions;
+		}
+		fingerprint.add("permissions", Util.join(permissions.getRequestedPermissions(true).toArray(), ","));
+
+		fingerprint.addAll("property:", project.getProperties());
+	}
+
+	/**
+	 * A convenience method for adding a file to a fingerprint.
+	 * @param fingerprint
+	 * @param key
+	 * @param path The path of the file, or <code>null</code>
+	 * @throws IOException
+	 */
+	protected static void addFile(PackageFingerprint fingerprint, String key, String path) throws IOException {
+		fingerprint.add(key, Util.isEmpty(path) ? null : new File(path));
+	}
+
 }
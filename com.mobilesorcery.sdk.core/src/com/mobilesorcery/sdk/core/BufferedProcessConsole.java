@@ -0,0 +1,460 @@
+/*  Copyright (C) 2011 Mobile Sorcery AB
+
+    This program is free software; you can redistribute it and/or modify it
+    under the terms of the Eclipse Public License v1.0.
+
+    This program is distributed in the hope that it will be useful, but WITHOUT
+    ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+    FITNESS FOR A PARTICULAR PURPOSE. See the Eclipse Public License v1.0 for
+    more details.
+
+    You should have received a copy of the Eclipse Public License v1.0 along
+    with this program. It is also available at http://www.eclipse.org/legal/epl-v10.html
+*/
+package com.mobilesorcery.sdk.core;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>An {@link IProcessConsole} that passes its output on to another
+ * console in chunks, from a separate thread.</p>
+ * <p>Lines are queued and consecutive lines of the same type are
+ * delivered to the underlying console as one message, so a noisy
+ * process does not cause one console update per line. The queue is
+ * bounded; if the underlying console cannot keep up, writers block
+ * until there is room (which in turn blocks the process being
+ * read from).</p>
+ * <p>Optionally, all output is also written to a log file on disk,
+ * which is rotated when it grows beyond a maximum size. The log is
+ * written from the same thread and flushed whenever that thread
+ * runs out of output to pass on.</p>
+ */
+public class BufferedProcessConsole extends AbstractProcessConsole {
+
+	/**
+	 * The default number of lines that may be queued before writers block
+	 */
+	public static final int DEFAULT_CAPACITY = 8192;
+
+	/**
+	 * The maximum number of lines delivered as one chunk
+	 */
+	private static final int MAX_CHUNK = 512;
+
+	/**
+	 * The time (in ms) to wait for writers to get out of the way
+	 * and for the output thread to finish when closing
+	 */
+	private static final long CLOSE_TIMEOUT = 5000;
+
+	/**
+	 * The time (in ms) between checks for a close while waiting
+	 * for room in the queue, or for output
+	 */
+	private static final long OFFER_INTERVAL = 100;
+
+	private static final int CLEAR = -1;
+	private static final int PREPARE = -2;
+	private static final int FLUSH = -3;
+
+	private static class Entry {
+		final int type;
+		final String line;
+		final CountDownLatch flushed;
+
+		Entry(int type, String line, CountDownLatch flushed) {
+			this.type = type;
+			this.line = line;
+			this.flushed = flushed;
+		}
+	}
+
+	/**
+	 * A log file that is rotated when it reaches a maximum size;
+	 * <code>log</code> is renamed to <code>log.1</code>,
+	 * <code>log.1</code> to <code>log.2</code>, etc.
+	 */
+	private static class RotatingLog {
+		private final File file;
+		private final long maxSize;
+		private final int maxFiles;
+		private Writer writer;
+		private long size;
+		private boolean closed;
+
+		RotatingLog(File file, long maxSize, int maxFiles) {
+			this.file = file;
+			this.maxSize = maxSize;
+			this.maxFiles = maxFiles;
+		}
+
+		synchronized void write(String line) throws IOException {
+			if (closed) {
+				return;
+			}
+			if (writer == null) {
+				file.getParentFile().mkdirs();
+				size = file.length();
+				writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file, true), "UTF-8"));
+			}
+			writer.write(line);
+			writer.write('\n');
+			size += utf8Length(line) + 1;
+			if (size > maxSize) {
+				rotate();
+			}
+		}
+
+		synchronized void flush() throws IOException {
+			if (writer != null) {
+				writer.flush();
+			}
+		}
+
+		synchronized void close() throws IOException {
+			closed = true;
+			if (writer != null) {
+				writer.close();
+				writer = null;
+			}
+		}
+
+		private void rotate() throws IOException {
+			writer.close();
+			writer = null;
+			new File(file.getPath() + "." + maxFiles).delete();
+			for (int i = maxFiles - 1; i >= 1; i--) {
+				new File(file.getPath() + "." + i).renameTo(new File(file.getPath() + "." + (i + 1)));
+			}
+			file.renameTo(new File(file.getPath() + ".1"));
+		}
+	}
+
+	private final IProcessConsole delegate;
+
+	private final BlockingQueue<Entry> queue;
+
+	private volatile RotatingLog log;
+
+	private volatile boolean closed;
+
+	private final Thread drainer;
+
+	private final Object closeLock = new Object();
+
+	private boolean drainerDone;
+
+	private boolean closerGaveUp;
+
+	private long delivered;
+
+	private long chunks;
+
+	/**
+	 * Creates a buffered console with the default capacity.
+	 * @param name The name of this console
+	 * @param delegate The console to pass the output on to
+	 */
+	public BufferedProcessConsole(String name, IProcessConsole delegate) {
+		this(name, delegate, DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Creates a buffered console.
+	 * @param name The name of this console
+	 * @param delegate The console to pass the output on to
+	 * @param capacity The number of lines that may be queued
+	 * before writers block
+	 */
+	public BufferedProcessConsole(String name, IProcessConsole delegate, int capacity) {
+		this.delegate = delegate;
+		this.queue = new ArrayBlockingQueue<Entry>(capacity);
+		drainer = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				drain();
+				synchronized (closeLock) {
+					drainerDone = true;
+					if (!closerGaveUp) {
+						return;
+					}
+				}
+				finishClose();
+			}
+		}, "Console: " + name);
+		drainer.setDaemon(true);
+		drainer.start();
+	}
+
+	/**
+	 * Makes this console write all of its output to a log file
+	 * as well.
+	 * @param file
+	 * @param maxSize The size in bytes at which the log file is rotated
+	 * @param maxFiles The number of rotated files to keep
+	 */
+	public void setLogFile(File file, long maxSize, int maxFiles) {
+		this.log = file == null ? null : new RotatingLog(file, maxSize, maxFiles);
+	}
+
+	@Override
+	protected void writeLine(int type, String line) {
+		enqueue(new Entry(type, line, null));
+	}
+
+	@Override
+	public void clear() {
+		enqueue(new Entry(CLEAR, null, null));
+	}
+
+	@Override
+	public void prepare() {
+		enqueue(new Entry(PREPARE, null, null));
+	}
+
+	/**
+	 * Waits for all output written so far to be passed on
+	 * to the underlying console.
+	 * @param timeout The maximum time to wait, in ms
+	 * @return {@code true} if all output was passed on
+	 * within the timeout
+	 * @throws InterruptedException
+	 */
+	public boolean flush(long timeout) throws InterruptedException {
+		CountDownLatch flushed = new CountDownLatch(1);
+		if (!offer(new Entry(FLUSH, null, flushed))) {
+			return true;
+		}
+		return flushed.await(timeout, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Closes this console; the output written so far is passed on
+	 * and the log file is closed, and any later output is ignored.
+	 * Output that writers manage to queue while the console is
+	 * closing is passed on by the calling thread.
+	 */
+	public void close() {
+		synchronized (closeLock) {
+			if (closed) {
+				return;
+			}
+			closed = true;
+		}
+		try {
+			// Writers stop waiting for room once they see that we are closed,
+			// and the output thread stops once it has emptied the queue.
+			drainer.join(CLOSE_TIMEOUT);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		synchronized (closeLock) {
+			if (!drainerDone) {
+				// Stuck in the underlying console; let it finish up.
+				closerGaveUp = true;
+				return;
+			}
+		}
+		finishClose();
+	}
+
+	private void finishClose() {
+		ArrayList<Entry> entries = new ArrayList<Entry>();
+		queue.drainTo(entries);
+		process(entries);
+		closeLog();
+	}
+
+	/**
+	 * Returns the number of lines passed on to the underlying console.
+	 * @return
+	 */
+	public synchronized long getDeliveredLines() {
+		return delivered;
+	}
+
+	/**
+	 * Returns the number of messages (chunks) the lines were
+	 * passed on in.
+	 * @return
+	 */
+	public synchronized long getDeliveredChunks() {
+		return chunks;
+	}
+
+	private void enqueue(Entry entry) {
+		try {
+			offer(entry);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Waits for room in the queue, but gives up if this
+	 * console is closed meanwhile; once closed, the output
+	 * thread stops as soon as the queue is empty.
+	 * @return {@code true} if the entry was queued
+	 */
+	private boolean offer(Entry entry) throws InterruptedException {
+		while (!closed) {
+			if (queue.offer(entry, OFFER_INTERVAL, TimeUnit.MILLISECONDS)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private void drain() {
+		ArrayList<Entry> entries = new ArrayList<Entry>(MAX_CHUNK);
+		while (true) {
+			if (queue.isEmpty()) {
+				// Idle; make sure the log is up to date on disk
+				flushLog();
+			}
+			Entry entry;
+			try {
+				entry = queue.poll(OFFER_INTERVAL, TimeUnit.MILLISECONDS);
+			} catch (InterruptedException e) {
+				return;
+			}
+			if (entry == null) {
+				if (closed) {
+					return;
+				}
+				continue;
+			}
+			entries.add(entry);
+			queue.drainTo(entries, MAX_CHUNK - 1);
+			process(entries);
+			entries.clear();
+		}
+	}
+
+	/**
+	 * Passes a number of entries on to the underlying console.
+	 */
+	private void process(List<Entry> entries) {
+		StringBuffer chunk = new StringBuffer();
+		int chunkType = CLEAR;
+		int chunkLines = 0;
+		for (Entry entry : entries) {
+			if (entry.type != chunkType && chunkLines > 0) {
+				deliver(chunkType, chunk, chunkLines);
+				chunkLines = 0;
+			}
+			chunkType = entry.type;
+			switch (entry.type) {
+			case CLEAR:
+			case PREPARE:
+				deliver(entry.type);
+				break;
+			case FLUSH:
+				flushLog();
+				entry.flushed.countDown();
+				break;
+			default:
+				writeLog(entry.line);
+				if (chunkLines > 0) {
+					chunk.append('\n');
+				}
+				chunk.append(entry.line);
+				chunkLines++;
+			}
+		}
+		if (chunkLines > 0) {
+			deliver(chunkType, chunk, chunkLines);
+		}
+	}
+
+	private void writeLog(String line) {
+		RotatingLog log = this.log;
+		if (log != null) {
+			try {
+				log.write(line);
+			} catch (IOException e) {
+				// We do not want to bring down the build because of this.
+				this.log = null;
+				CoreMoSyncPlugin.getDefault().log(e);
+			}
+		}
+	}
+
+	private void flushLog() {
+		RotatingLog log = this.log;
+		if (log != null) {
+			try {
+				log.flush();
+			} catch (IOException e) {
+				CoreMoSyncPlugin.getDefault().log(e);
+			}
+		}
+	}
+
+	private void closeLog() {
+		RotatingLog log = this.log;
+		if (log != null) {
+			try {
+				log.close();
+			} catch (IOException e) {
+				CoreMoSyncPlugin.getDefault().log(e);
+			}
+		}
+	}
+
+	static int utf8Length(String str) {
+		int length = 0;
+		for (int i = 0; i < str.length(); i++) {
+			char ch = str.charAt(i);
+			if (ch < 0x80) {
+				length++;
+			} else if (ch < 0x800) {
+				length += 2;
+			} else if (Character.isHighSurrogate(ch) && i + 1 < str.length() && Character.isLowSurrogate(str.charAt(i + 1))) {
+				length += 4;
+				i++;
+			} else {
+				length += 3;
+			}
+		}
+		return length;
+	}
+
+	private void deliver(int command) {
+		try {
+			if (command == CLEAR) {
+				delegate.clear();
+			} else {
+				delegate.prepare();
+			}
+		} catch (Throwable t) {
+			// Do not let a failing console stop the drainer.
+			CoreMoSyncPlugin.getDefault().log(t);
+		}
+	}
+
+	private void deliver(int type, StringBuffer chunk, int lines) {
+		try {
+			delegate.addMessage(type, chunk.toString());
+		} catch (Throwable t) {
+			// Do not let a failing console stop the drainer.
+			CoreMoSyncPlugin.getDefault().log(t);
+		}
+		chunk.setLength(0);
+		synchronized (this) {
+			delivered += lines;
+			chunks++;
+		}
+	}
+}
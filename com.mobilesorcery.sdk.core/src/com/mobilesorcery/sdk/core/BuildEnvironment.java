@@ -0,0 +1,145 @@
+/*  Copyright (C) 2011 Mobile Sorcery AB
+
+    This program is free software; you can redistribute it and/or modify it
+    under the terms of the Eclipse Public License v1.0.
+
+    This program is distributed in the hope that it will be useful, but WITHOUT
+    ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+    FITNESS FOR A PARTICULAR PURPOSE. See the Eclipse Public License v1.0 for
+    more details.
+
+    You should have received a copy of the Eclipse Public License v1.0 along
+    with this program. It is also available at http://www.eclipse.org/legal/epl-v10.html
+*/
+package com.mobilesorcery.sdk.core;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.core.runtime.IPath;
+
+import com.mobilesorcery.sdk.internal.dependencies.LibraryLookup;
+
+/**
+ * <p>The resolved include paths, library paths, libraries and extra
+ * compiler switches of a build variant of a project.</p>
+ * <p>Computing these requires reading a number of properties and
+ * resolving parameters, so they are computed once and shared by
+ * the compiler, the linker, the CDT indexer, etc. Use
+ * {@link MoSyncProject#getBuildEnvironment(IBuildVariant)}
+ * to get the environment of a variant; it is discarded
+ * whenever a property of the project changes, and all environments
+ * are discarded whenever the MoSync home or the profiles are updated
+ * (see {@link #invalidateAll()}).</p>
+ */
+public class BuildEnvironment {
+
+	private static final AtomicInteger generation = new AtomicInteger();
+
+	private final int createdInGeneration = generation.get();
+
+	private IPath[] includePaths;
+
+	private ParameterResolverException includePathsError;
+
+	private IPath[] libraryPaths;
+
+	private IPath[] resolvedLibraryPaths;
+
+	private ParameterResolverException libraryPathsError;
+
+	private final IPath[] libraries;
+
+	private String extraCompilerSwitches;
+
+	private ParameterResolverException extraCompilerSwitchesError;
+
+	private final LibraryLookup libraryLookup;
+
+	BuildEnvironment(MoSyncProject project, IBuildVariant variant) {
+		IPropertyOwner buildProperties = MoSyncBuilder.getPropertyOwner(project, variant.getConfigurationId());
+		ParameterResolver resolver = new CachingParameterResolver(MoSyncBuilder.createParameterResolver(project, variant));
+
+		try {
+			includePaths = MoSyncBuilder.computeBaseIncludePaths(project, variant, buildProperties, resolver);
+		} catch (ParameterResolverException e) {
+			includePathsError = e;
+		}
+
+		libraryPaths = MoSyncBuilder.getLibraryPaths(project.getWrappedProject(), buildProperties);
+		try {
+			resolvedLibraryPaths = MoSyncBuilder.resolvePaths(libraryPaths, resolver);
+		} catch (ParameterResolverException e) {
+			libraryPathsError = e;
+		}
+		libraries = MoSyncBuilder.getLibraries(project, variant, buildProperties);
+		libraryLookup = new LibraryLookup(resolvedLibraryPaths == null ? libraryPaths : resolvedLibraryPaths, libraries);
+
+		try {
+			extraCompilerSwitches = Util.replace(buildProperties.getProperty(MoSyncBuilder.EXTRA_COMPILER_SWITCHES), resolver);
+		} catch (ParameterResolverException e) {
+			extraCompilerSwitchesError = e;
+		}
+	}
+
+	/**
+	 * Discards all build environments, for example when the MoSync
+	 * home or the profile database has changed.
+	 */
+	public static void invalidateAll() {
+		generation.incrementAndGet();
+	}
+
+	/**
+	 * Returns <code>false</code> if this environment has been
+	 * discarded by {@link #invalidateAll()}.
+	 * @return
+	 */
+	public boolean isValid() {
+		return createdInGeneration == generation.get();
+	}
+
+	/**
+	 * Returns the resolved include paths, not including the output path.
+	 * @return
+	 * @throws ParameterResolverException
+	 */
+	public IPath[] getIncludePaths() throws ParameterResolverException {
+		if (includePathsError != null) {
+			throw includePathsError;
+		}
+		return includePaths.clone();
+	}
+
+	/**
+	 * Returns the resolved library paths.
+	 * @return
+	 * @throws ParameterResolverException
+	 */
+	public IPath[] getLibraryPaths() throws ParameterResolverException {
+		if (libraryPathsError != null) {
+			throw libraryPathsError;
+		}
+		return resolvedLibraryPaths.clone();
+	}
+
+	public IPath[] getLibraries() {
+		return libraries.clone();
+	}
+
+	public LibraryLookup getLibraryLookup() {
+		return libraryLookup;
+	}
+
+	/**
+	 * Returns the resolved extra compiler switches, as entered
+	 * by the user (ie not parsed into separate arguments).
+	 * @return
+	 * @throws ParameterResolverException
+	 */
+	public String getExtraCompilerSwitches() throws ParameterResolverException {
+		if (extraCompilerSwitchesError != null) {
+			throw extraCompilerSwitchesError;
+		}
+		return extraCompilerSwitches;
+	}
+}
@@ -0,0 +1,348 @@
+/*  Copyright (C) 2011 Mobile Sorcery AB
+
+    This program is free software; you can redistribute it and/or modify it
+    under the terms of the Eclipse Public License v1.0.
+
+    This program is distributed in the hope that it will be useful, but WITHOUT
+    ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+    FITNESS FOR A PARTICULAR PURPOSE. See the Eclipse Public License v1.0 for
+    more details.
+
+    You should have received a copy of the Eclipse Public License v1.0 along
+    with this program. It is also available at http://www.eclipse.org/legal/epl-v10.html
+*/
+package com.mobilesorcery.sdk.core;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+import org.json.simple.parser.JSONParser;
+
+/**
+ * <p>Records what a build spends its time on, as a set of
+ * (possibly nested and overlapping) spans: build steps, external
+ * processes, diff creation, etc.</p>
+ * <p>The trace of the build running on the current thread (and any
+ * threads it starts) is available through {@link #getCurrent()};
+ * clients that want to add spans of their own use this pattern:
+ * <blockquote><code>
+ *     BuildTrace.Span span = BuildTrace.begin("Something", BuildTrace.CATEGORY_BUILD);
+ *     try {
+ *         ...
+ *     } finally {
+ *         span.end();
+ *     }
+ * </code></blockquote>
+ * </p>
+ * <p>A trace can be exported in the Chrome trace event format
+ * (open it with <code>chrome://tracing</code>), and summarized
+ * as a build report.</p>
+ * <p>Spans record wall clock and CPU time, but not I/O byte counts;
+ * neither the JVM nor {@link Process} offers any portable per-thread
+ * or per-process I/O accounting.</p>
+ */
+public class BuildTrace {
+
+	public static final String CATEGORY_BUILD = "build";
+
+	public static final String CATEGORY_STEP = "step";
+
+	public static final String CATEGORY_PROCESS = "process";
+
+	/**
+	 * The name of the trace file of the last build, in the build state directory
+	 */
+	public static final String TRACE_FILE = "build-trace.json";
+
+	/**
+	 * The name of the file holding the reports of the last builds,
+	 * in the build state directory
+	 */
+	public static final String REPORTS_FILE = "build-reports.json";
+
+	private static final int MAX_REPORTS = 20;
+
+	private static final InheritableThreadLocal<BuildTrace> current = new InheritableThreadLocal<BuildTrace>();
+
+	private static final Span NULL_SPAN = new Span(null, null, null);
+
+	private static final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+
+	/**
+	 * A span of time; spans must be ended by the thread that began them.
+	 */
+	public static class Span {
+		private final BuildTrace trace;
+		final String name;
+		final String category;
+		final long threadId;
+		final String threadName;
+		final long start;
+		final long startCpu;
+		long end;
+		long cpu = -1;
+		Map<String, Object> args;
+
+		Span(BuildTrace trace, String name, String category) {
+			this.trace = trace;
+			this.name = name;
+			this.category = category;
+			Thread thread = Thread.currentThread();
+			this.threadId = thread.getId();
+			this.threadName = thread.getName();
+			this.start = System.nanoTime();
+			this.startCpu = trace == null ? -1 : currentThreadCpuTime();
+		}
+
+		/**
+		 * Adds an argument to this span, such as the exit code of a process.
+		 * @param key
+		 * @param value A <code>String</code> or a <code>Number</code>
+		 * @return This span
+		 */
+		public Span setArg(String key, Object value) {
+			if (trace != null) {
+				synchronized (trace) {
+					if (args == null) {
+						args = new LinkedHashMap<String, Object>();
+					}
+					args.put(key, value);
+				}
+			}
+			return this;
+		}
+
+		public void end() {
+			if (trace != null) {
+				long endCpu = currentThreadCpuTime();
+				synchronized (trace) {
+					if (end == 0) {
+						end = System.nanoTime();
+						if (startCpu >= 0 && endCpu >= 0) {
+							cpu = endCpu - startCpu;
+						}
+					}
+				}
+			}
+		}
+
+		/**
+		 * Returns the duration of this span in ms.
+		 * @return
+		 */
+		public long getDuration() {
+			return ((end == 0 ? System.nanoTime() : end) - start) / 1000000;
+		}
+	}
+
+	private final String name;
+
+	private final long start = System.nanoTime();
+
+	private final long timestamp = System.currentTimeMillis();
+
+	private final ArrayList<Span> spans = new ArrayList<Span>();
+
+	/**
+	 * Creates a new trace.
+	 * @param name The name of the traced build
+	 */
+	public BuildTrace(String name) {
+		this.name = name;
+	}
+
+	/**
+	 * Makes a trace the current trace of this thread and
+	 * any threads it starts.
+	 * @param trace The trace, or <code>null</code> to stop tracing
+	 */
+	public static void setCurrent(BuildTrace trace) {
+		if (trace == null) {
+			current.remove();
+		} else {
+			current.set(trace);
+		}
+	}
+
+	public static BuildTrace getCurrent() {
+		return current.get();
+	}
+
+	/**
+	 * Begins a span in the current trace; if there is no
+	 * current trace, a span that records nothing is returned.
+	 * @param name
+	 * @param category
+	 * @return
+	 */
+	public static Span begin(String name, String category) {
+		BuildTrace trace = getCurrent();
+		return trace == null ? NULL_SPAN : trace.beginSpan(name, category);
+	}
+
+	public Span beginSpan(String name, String category) {
+		Span span = new Span(this, name, category);
+		synchronized (this) {
+			spans.add(span);
+		}
+		return span;
+	}
+
+	/**
+	 * Returns the spans of this trace.
+	 * @return
+	 */
+	public synchronized List<Span> getSpans() {
+		return new ArrayList<Span>(spans);
+	}
+
+	/**
+	 * Writes this trace to a file in the Chrome trace event format.
+	 * @param file
+	 * @throws IOException
+	 */
+	public void export(File file) throws IOException {
+		JSONArray events = new JSONArray();
+		synchronized (this) {
+			for (Span span : spans) {
+				JSONObject event = new JSONObject();
+				event.put("name", span.name);
+				event.put("cat", span.category);
+				event.put("ph", "X");
+				event.put("ts", (span.start - start) / 1000);
+				event.put("dur", Math.max(0, ((span.end == 0 ? span.start : span.end) - span.start) / 1000));
+				event.put("pid", 1);
+				event.put("tid", span.threadId);
+				JSONObject args = new JSONObject();
+				if (span.args != null) {
+					args.putAll(span.args);
+				}
+				if (span.cpu >= 0) {
+					args.put("cpu-ms", span.cpu / 1000000);
+				}
+				args.put("thread", span.threadName);
+				event.put("args", args);
+				events.add(event);
+			}
+		}
+		JSONObject trace = new JSONObject();
+		trace.put("traceEvents", events);
+		trace.put("displayTimeUnit", "ms");
+		file.getParentFile().mkdirs();
+		Util.writeToFile(file, trace.toJSONString());
+	}
+
+	/**
+	 * Summarizes this trace: the total time, the time of each build
+	 * step and the number of and time spent in external processes.
+	 * @return
+	 */
+	public JSONObject createReport() {
+		JSONObject report = new JSONObject();
+		report.put("name", name);
+		report.put("timestamp", timestamp);
+		report.put("total-ms", (System.nanoTime() - start) / 1000000);
+		JSONObject steps = new JSONObject();
+		JSONObject other = new JSONObject();
+		long processCount = 0;
+		long processTime = 0;
+		synchronized (this) {
+			for (Span span : spans) {
+				if (CATEGORY_STEP.equals(span.category)) {
+					// Several steps may have the same name
+					Long previous = (Long) steps.get(span.name);
+					steps.put(span.name, (previous == null ? 0 : previous) + span.getDuration());
+				} else if (CATEGORY_PROCESS.equals(span.category)) {
+					processCount++;
+					processTime += span.getDuration();
+				} else {
+					Long previous = (Long) other.get(span.name);
+					other.put(span.name, (previous == null ? 0 : previous) + span.getDuration());
+				}
+			}
+		}
+		report.put("steps", steps);
+		report.put("other", other);
+		report.put("processes", processCount);
+		report.put("process-ms", processTime);
+		return report;
+	}
+
+	/**
+	 * Adds a report to a report file, keeping only the
+	 * last few reports.
+	 * @param file
+	 * @param report
+	 * @return The previous report in the file, or <code>null</code>
+	 * if there was none
+	 * @throws IOException
+	 */
+	public static JSONObject addReport(File file, JSONObject report) throws IOException {
+		JSONArray reports = loadReports(file);
+		JSONObject previous = reports.isEmpty() ? null : (JSONObject) reports.get(reports.size() - 1);
+		reports.add(report);
+		while (reports.size() > MAX_REPORTS) {
+			reports.remove(0);
+		}
+		file.getParentFile().mkdirs();
+		Util.writeToFile(file, reports.toJSONString());
+		return previous;
+	}
+
+	/**
+	 * Returns the most recent successful report of a build
+	 * that ran the same build steps as another build; the time
+	 * of builds that ran different steps cannot be compared.
+	 * @param reports The reports, oldest first
+	 * @param report
+	 * @return The report, or <code>null</code> if there is none
+	 */
+	public static JSONObject findComparableReport(JSONArray reports, JSONObject report) {
+		Object steps = report.get("steps");
+		for (int i = reports.size() - 1; i >= 0; i--) {
+			JSONObject candidate = (JSONObject) reports.get(i);
+			Object candidateSteps = candidate.get("steps");
+			if (Boolean.TRUE.equals(candidate.get("success")) && steps instanceof Map && candidateSteps instanceof Map &&
+					((Map<?, ?>) steps).keySet().equals(((Map<?, ?>) candidateSteps).keySet())) {
+				return candidate;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Reads the reports previously written by {@link #addReport(File, JSONObject)},
+	 * oldest first.
+	 * @param file
+	 * @return
+	 */
+	public static JSONArray loadReports(File file) {
+		if (file.exists()) {
+			try {
+				Object reports = new JSONParser().parse(Util.readFile(file.getAbsolutePath()));
+				if (reports instanceof JSONArray) {
+					return (JSONArray) reports;
+				}
+			} catch (Exception e) {
+				// Start over.
+			}
+		}
+		return new JSONArray();
+	}
+
+	private static long currentThreadCpuTime() {
+		try {
+			return threads.isCurrentThreadCpuTimeSupported() ? threads.getCurrentThreadCpuTime() : -1;
+		} catch (Exception e) {
+			return -1;
+		}
+	}
+}
@@ -1,35 +1,259 @@
 package com.mobilesorcery.sdk.core;
 
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
 
-public class Cache<K, V> extends LinkedHashMap<K, V> {
+import com.mobilesorcery.sdk.core.stats.CounterVariable;
+import com.mobilesorcery.sdk.core.stats.Variables;
+
+/**
+ * <p>A thread-safe cache that evicts the least recently used
+ * entries once the total weight of its entries exceeds a maximum.</p>
+ * <p>By default each entry weighs 1, so the maximum is the number
+ * of entries; clients may override {@link #weigh(Object, Object)}
+ * to weigh entries by, for example, their size in bytes.</p>
+ * <p>{@link #onRemoval(Object, Object)} is always called after the
+ * cache has been updated and without holding any locks, so it is safe
+ * to do expensive work (such as disposing images) there.</p>
+ * <p>Named caches report their hit, miss and eviction counts to
+ * the usage statistics, see {@link #reportStats(Variables)}.</p>
+ */
+public class Cache<K, V> {
+
+	private static final CopyOnWriteArrayList<WeakReference<Cache<?, ?>>> namedCaches = new CopyOnWriteArrayList<WeakReference<Cache<?, ?>>>();
+
+	private static class Entry<V> {
+		final V value;
+		final int weight;
+
+		Entry(V value, int weight) {
+			this.value = value;
+			this.weight = weight;
+		}
+	}
+
+	private final String name;
 
 	private final int maxSize;
 
+	private final ReentrantLock lock = new ReentrantLock();
+
+	// Access ordered, so the eldest entry is the least recently used one
+	private final LinkedHashMap<K, Entry<V>> entries = new LinkedHashMap<K, Entry<V>>(16, 0.75f, true);
+
+	private long weight;
+
+	private final AtomicLong hits = new AtomicLong();
+
+	private final AtomicLong misses = new AtomicLong();
+
+	private final AtomicLong evictions = new AtomicLong();
+
+	private final long[] reported = new long[3];
+
 	public Cache(int maxSize) {
+		this(null, maxSize);
+	}
+
+	/**
+	 * Creates a named cache.
+	 * @param name The name used for reporting statistics,
+	 * or <code>null</code> for no statistics
+	 * @param maxSize The maximum total weight of the entries
+	 */
+	public Cache(String name, int maxSize) {
+		this.name = name;
 		this.maxSize = maxSize;
+		if (name != null) {
+			namedCaches.add(new WeakReference<Cache<?, ?>>(this));
+		}
 	}
 
+	/**
+	 * Returns the maximum total weight of the entries in this cache.
+	 * @return
+	 */
 	protected int maxSize() {
 		return maxSize;
 	}
 
-	@Override
-	protected boolean removeEldestEntry(Map.Entry<K, V> entry) {
-		boolean remove = size() > maxSize();
-		if (remove) {
-			onRemoval(entry.getKey(), entry.getValue());
+	/**
+	 * Clients may override; returns the weight of an entry.
+	 * Will be called once, when the entry is added. The default
+	 * implementation returns 1.
+	 * @param key
+	 * @param value
+	 * @return
+	 */
+	protected int weigh(K key, V value) {
+		return 1;
+	}
+
+	/**
+	 * Returns the cached value for a key, or <code>null</code>
+	 * if there is none.
+	 * @param key
+	 * @return
+	 */
+	public V get(K key) {
+		Entry<V> entry;
+		lock.lock();
+		try {
+			entry = entries.get(key);
+		} finally {
+			lock.unlock();
+		}
+		if (entry == null) {
+			misses.incrementAndGet();
+			return null;
+		}
+		hits.incrementAndGet();
+		return entry.value;
+	}
+
+	/**
+	 * Adds a value to this cache.
+	 * @param key
+	 * @param value
+	 * @return The previous value for the key, or <code>null</code>
+	 */
+	public V put(K key, V value) {
+		return put(key, value, true);
+	}
+
+	/**
+	 * Adds a value to this cache, unless there already is one for
+	 * the key.
+	 * @param key
+	 * @param value
+	 * @return The value already in this cache, or <code>null</code>
+	 * if <code>value</code> was added
+	 */
+	public V putIfAbsent(K key, V value) {
+		return put(key, value, false);
+	}
+
+	private V put(K key, V value, boolean replace) {
+		Entry<V> newEntry = new Entry<V>(value, weigh(key, value));
+		ArrayList<Map.Entry<K, V>> removed = new ArrayList<Map.Entry<K, V>>();
+		V previous = null;
+		lock.lock();
+		try {
+			Entry<V> previousEntry = entries.get(key);
+			if (previousEntry != null) {
+				previous = previousEntry.value;
+				if (!replace) {
+					return previous;
+				}
+				weight -= previousEntry.weight;
+				if (previous != value) {
+					removed.add(new KeyValue<K, V>(key, previous));
+				}
+			}
+			entries.put(key, newEntry);
+			weight += newEntry.weight;
+			evict(removed);
+		} finally {
+			lock.unlock();
+		}
+		notifyRemoved(removed);
+		return replace ? previous : null;
+	}
+
+	private void evict(List<Map.Entry<K, V>> removed) {
+		// Never evict the entry just added, even if it weighs too much.
+		int maxSize = maxSize();
+		Iterator<Map.Entry<K, Entry<V>>> eldest = entries.entrySet().iterator();
+		while (weight > maxSize && entries.size() > 1) {
+			Map.Entry<K, Entry<V>> entry = eldest.next();
+			eldest.remove();
+			weight -= entry.getValue().weight;
+			evictions.incrementAndGet();
+			removed.add(new KeyValue<K, V>(entry.getKey(), entry.getValue().value));
+		}
+	}
+
+	/**
+	 * Removes a value from this cache; {@link #onRemoval(Object, Object)}
+	 * is not called, since the value is returned to the caller.
+	 * @param key
+	 * @return
+	 */
+	public V remove(K key) {
+		lock.lock();
+		try {
+			Entry<V> entry = entries.remove(key);
+			if (entry == null) {
+				return null;
+			}
+			weight -= entry.weight;
+			return entry.value;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	public boolean containsKey(K key) {
+		lock.lock();
+		try {
+			return entries.containsKey(key);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	public int size() {
+		lock.lock();
+		try {
+			return entries.size();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Returns the total weight of the entries in this cache.
+	 * @return
+	 */
+	public long weight() {
+		lock.lock();
+		try {
+			return weight;
+		} finally {
+			lock.unlock();
 		}
-		return remove;
 	}
 
-	@Override
 	public void clear() {
-		for (Map.Entry<K, V> entry : entrySet()) {
-			onRemoval(entry.getKey(), entry.getValue());
+		ArrayList<Map.Entry<K, V>> removed = new ArrayList<Map.Entry<K, V>>();
+		lock.lock();
+		try {
+			for (Map.Entry<K, Entry<V>> entry : entries.entrySet()) {
+				removed.add(new KeyValue<K, V>(entry.getKey(), entry.getValue().value));
+			}
+			entries.clear();
+			weight = 0;
+		} finally {
+			lock.unlock();
+		}
+		notifyRemoved(removed);
+	}
+
+	private void notifyRemoved(List<Map.Entry<K, V>> removed) {
+		for (Map.Entry<K, V> entry : removed) {
+			try {
+				onRemoval(entry.getKey(), entry.getValue());
+			} catch (RuntimeException e) {
+				CoreMoSyncPlugin.getDefault().log(e);
+			}
 		}
-		super.clear();
 	}
 
 	/**
@@ -40,4 +264,77 @@ public class Cache<K, V> extends LinkedHashMap<K, V> {
 	protected void onRemoval(K key, V value) {
 
 	}
+
+	public long getHitCount() {
+		return hits.get();
+	}
+
+	public long getMissCount() {
+		return misses.get();
+	}
+
+	public long getEvictionCount() {
+		return evictions.get();
+	}
+
+	/**
+	 * Adds the hits, misses and evictions since the last report
+	 * to a set of usage statistics variables.
+	 * @param variables
+	 */
+	public synchronized void reportStats(Variables variables) {
+		if (name == null || variables == null) {
+			return;
+		}
+		long[] current = new long[] { getHitCount(), getMissCount(), getEvictionCount() };
+		String[] suffixes = new String[] { "hits", "misses", "evictions" };
+		for (int i = 0; i < current.length; i++) {
+			long delta = current[i] - reported[i];
+			if (delta > 0) {
+				variables.get(CounterVariable.class, "cache-" + name + "-" + suffixes[i]).add(delta);
+			}
+			reported[i] = current[i];
+		}
+	}
+
+	/**
+	 * Reports the statistics of all named caches.
+	 * @param variables
+	 * @see #reportStats(Variables)
+	 */
+	public static void reportAllStats(Variables variables) {
+		for (WeakReference<Cache<?, ?>> ref : namedCaches) {
+			Cache<?, ?> cache = ref.get();
+			if (cache == null) {
+				namedCaches.remove(ref);
+			} else {
+				cache.reportStats(variables);
+			}
+		}
+	}
+
+	private static class KeyValue<K, V> implements Map.Entry<K, V> {
+		private final K key;
+		private final V value;
+
+		KeyValue(K key, V value) {
+			this.key = key;
+			this.value = value;
+		}
+
+		@Override
+		public K getKey() {
+			return key;
+		}
+
+		@Override
+		public V getValue() {
+			return value;
+		}
+
+		@Override
+		public V setValue(V value) {
+			throw new UnsupportedOperationException();
+		}
+	}
 }
@@ -0,0 +1,67 @@
+/*  Copyright (C) 2009 Mobile Sorcery AB
+
+    This program is free software; you can redistribute it and/or modify it
+    under the terms of the Eclipse Public License v1.0.
+
+    This program is distributed in the hope that it will be useful, but WITHOUT
+    ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+    FITNESS FOR A PARTICULAR PURPOSE. See the Eclipse Public License v1.0 for
+    more details.
+
+    You should have received a copy of the Eclipse Public License v1.0 along
+    with this program. It is also available at http://www.eclipse.org/legal/epl-v10.html
+*/
+package com.mobilesorcery.sdk.core;
+
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * <p>A {@link ParameterResolver} that remembers the values
+ * returned by another resolver.</p>
+ * <p>This is intended to be used for the duration of one build
+ * (of one variant), during which parameter values do not change.</p>
+ */
+public class CachingParameterResolver extends ParameterResolver {
+
+	private static final String NULL = new String();
+
+	private final ParameterResolver delegate;
+
+	private final HashMap<String, String> values = new HashMap<String, String>();
+
+	public CachingParameterResolver(ParameterResolver delegate) {
+		this.delegate = delegate;
+	}
+
+	@Override
+	public String get(String key) throws ParameterResolverException {
+		synchronized (values) {
+			String result = values.get(key);
+			if (result == null) {
+				result = delegate.get(key);
+				values.put(key, result == null ? NULL : result);
+			}
+			return result == NULL ? null : result;
+		}
+	}
+
+	@Override
+	public List<String> listPrefixes() {
+		return delegate.listPrefixes();
+	}
+
+	@Override
+	public List<String> listAvailableParameters(String prefix) {
+		return delegate.listAvailableParameters(prefix);
+	}
+
+	/**
+	 * Clears all remembered values.
+	 */
+	public void clear() {
+		synchronized (values) {
+			values.clear();
+		}
+	}
+}
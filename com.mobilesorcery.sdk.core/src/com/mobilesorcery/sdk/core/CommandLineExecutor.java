@@ -202,25 +202,36 @@ public class CommandLineExecutor {
 			    console.addMessage(replace(consoleMsg, parameters));
 			}
 
-			/* It is better to pass the command as an array here since then Java will
-			 * fix all problems with quotations and such that are suitable for the
-			 * platform. */
-			if (dir == null && envs == null) {
-			    currentProcess = Runtime.getRuntime().exec(resolvedLine);
-			} else {
-			    currentProcess = Runtime.getRuntime().exec(resolvedLine, getEnv(), new File(dir));
-			}
+			BuildTrace.Span span = BuildTrace.begin(new File(resolvedLine[0]).getName(), BuildTrace.CATEGORY_PROCESS);
+			span.setArg("command", Util.truncate(mergedCommandLine, null, 1024));
+			try {
+				/* It is better to pass the command as an array here since then Java will
+				 * fix all problems with quotations and such that are suitable for the
+				 * platform. */
+				if (dir == null && envs == null) {
+				    currentProcess = Runtime.getRuntime().exec(resolvedLine);
+				} else {
+				    currentProcess = Runtime.getRuntime().exec(resolvedLine, getEnv(), new File(dir));
+				}
 
-			console.attachProcess(currentProcess, stdoutHandler, stderrHandler);
+				console.attachProcess(currentProcess, stdoutHandler, stderrHandler);
 
-			// Ok, we're up and running
-			if (stdoutHandler != null) { stdoutHandler.start(currentProcess); }
-			if (stderrHandler != null) { stderrHandler.start(currentProcess); }
+				// Ok, we're up and running
+				if (stdoutHandler != null) { stdoutHandler.start(currentProcess); }
+				if (stderrHandler != null) { stderrHandler.start(currentProcess); }
 
-			try {
-				result = fork ? 0 : currentProcess.waitFor();
-			} catch (InterruptedException e) {
-				throw new IOException("Process interrupted.");
+				try {
+					result = fork ? 0 : currentProcess.waitFor();
+				} catch (InterruptedException e) {
+					// Do not leave the process running
+					currentProcess.destroy();
+					throw new IOException("Process interrupted.");
+				}
+				if (!fork) {
+					span.setArg("exit", result);
+				}
+			} finally {
+				span.end();
 			}
 		}
 
@@ -269,7 +280,7 @@ public class CommandLineExecutor {
 	}
 
 	public void kill() {
-		if (currentProcess == null) {
+		if (currentProcess != null) {
 			currentProcess.destroy();
 		}
 	}
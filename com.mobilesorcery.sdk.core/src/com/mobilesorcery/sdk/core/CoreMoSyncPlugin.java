@@ -13,6 +13,7 @@
 */
 package com.mobilesorcery.sdk.core;
 
+import java.io.File;
 import java.io.FileInputStream;
 import java.io.InputStream;
 import java.security.SecureRandom;
@@ -30,6 +31,7 @@ import java.util.Random;
 import java.util.Set;
 import java.util.TreeSet;
 import java.util.UUID;
+import java.util.concurrent.Callable;
 import java.util.regex.Pattern;
 
 import javax.crypto.spec.PBEKeySpec;
@@ -76,6 +78,8 @@ import com.mobilesorcery.sdk.core.launch.MoReLauncher;
 import com.mobilesorcery.sdk.core.memory.LowMemoryManager;
 import com.mobilesorcery.sdk.core.security.IApplicationPermissions;
 import com.mobilesorcery.sdk.core.stats.Stats;
+import com.mobilesorcery.sdk.internal.BuildEnvironmentListener;
+import com.mobilesorcery.sdk.internal.ChangeJournal;
 import com.mobilesorcery.sdk.internal.ErrorPackager;
 import com.mobilesorcery.sdk.internal.HeadlessUpdater;
 import com.mobilesorcery.sdk.internal.PID;
@@ -112,6 +116,17 @@ public class CoreMoSyncPlugin extends AbstractUIPlugin implements IPropertyChang
 	 */
 	public static final String LOG_CONSOLE_NAME = "@@log";
 
+	/**
+	 * The preference for the maximum number of characters
+	 * a console keeps in memory; older output is discarded
+	 * (but is still available in the console log files).
+	 */
+	public static final String CONSOLE_RETENTION_PREF = PLUGIN_ID + ".console.retention";
+
+	private static final long CONSOLE_LOG_MAX_SIZE = 4 * 1024 * 1024;
+
+	private static final int CONSOLE_LOG_FILES = 3;
+
 	private static final String WORKSPACE_TOKEN_PREF = PLUGIN_ID + ".w.s.token";
 
 	private static final String PREFERRED_LAUNCER_PREF_PREFIX = PLUGIN_ID + "preferred.launcher.";
@@ -154,8 +169,14 @@ public class CoreMoSyncPlugin extends AbstractUIPlugin implements IPropertyChang
 
 	private IProvider<IProcessConsole, String> ideProcessConsoleProvider;
 
+	private final HashMap<String, BufferedProcessConsole> ideProcessConsoles = new HashMap<String, BufferedProcessConsole>();
+
+	private final ThreadLocal<IProvider<IProcessConsole, String>> threadProcessConsoleProvider = new ThreadLocal<IProvider<IProcessConsole, String>>();
+
 	private EmulatorProcessManager emulatorProcessManager;
 
+	private final ChangeJournal changeJournal = new ChangeJournal();
+
     private String[] buildConfigurationTypes;
 
     private final HashMap<String, Integer> logCounts = new HashMap<String, Integer>();
@@ -187,6 +208,7 @@ public class CoreMoSyncPlugin extends AbstractUIPlugin implements IPropertyChang
         aboutBoxHack();
         initReIndexerListener();
         initRebuildListener();
+        initBuildEnvironmentListener();
         initPackagers();
         initDeviceFilterFactories();
         initPanicErrorMessages();
@@ -298,10 +320,15 @@ public class CoreMoSyncPlugin extends AbstractUIPlugin implements IPropertyChang
         MoSyncProject.addGlobalPropertyChangeListener(new RebuildListener());
     }
 
+	private void initBuildEnvironmentListener() {
+		MoSyncTool.getDefault().addPropertyChangeListener(new BuildEnvironmentListener());
+	}
+
     @Override
 	public void stop(BundleContext context) throws Exception {
     	// Must be here, before nulling the plugin
         Stats.getStats().stop();
+        closeIDEProcessConsoles();
         plugin = null;
         projectDependencyManager = null;
         disposeUpdater();
@@ -629,10 +656,12 @@ public class CoreMoSyncPlugin extends AbstractUIPlugin implements IPropertyChang
 
 	private void installResourceListener() {
 		ResourcesPlugin.getWorkspace().addResourceChangeListener(this, IResourceChangeEvent.PRE_DELETE | IResourceChangeEvent.PRE_BUILD | IResourceChangeEvent.PRE_CLOSE | IResourceChangeEvent.POST_CHANGE);
+		ResourcesPlugin.getWorkspace().addResourceChangeListener(changeJournal, IResourceChangeEvent.POST_CHANGE);
 	}
 
 	private void deinstallResourceListener() {
 		ResourcesPlugin.getWorkspace().removeResourceChangeListener(this);
+		ResourcesPlugin.getWorkspace().removeResourceChangeListener(changeJournal);
 	}
 
 	/**
@@ -660,11 +689,52 @@ public class CoreMoSyncPlugin extends AbstractUIPlugin implements IPropertyChang
 	 * returned.
 	 */
 	public IProcessConsole createConsole(String consoleName) {
+		IProvider<IProcessConsole, String> threadProvider = threadProcessConsoleProvider.get();
+		IProcessConsole threadConsole = threadProvider == null ? null : threadProvider.get(consoleName);
+		if (threadConsole != null) {
+			return threadConsole;
+		}
 		if (isHeadless || LOG_CONSOLE_NAME.equals(consoleName)) {
 			return new LogProcessConsole(consoleName);
 		} else {
-			return ideProcessConsoleProvider == null ? new LogProcessConsole(consoleName) : ideProcessConsoleProvider.get(consoleName);
+			return ideProcessConsoleProvider == null ? new LogProcessConsole(consoleName) : getIDEProcessConsole(consoleName);
+		}
+	}
+
+	private synchronized IProcessConsole getIDEProcessConsole(String consoleName) {
+		// UI consoles are fed from a separate thread, in chunks,
+		// and everything is logged to disk as well. Consoles are
+		// reused until the UI releases them, see releaseIDEProcessConsole.
+		BufferedProcessConsole console = ideProcessConsoles.get(consoleName);
+		if (console == null) {
+			console = new BufferedProcessConsole(consoleName, ideProcessConsoleProvider.get(consoleName));
+			String logFileName = consoleName.replaceAll("[^\\w\\-]", "_") + ".log";
+			File logFile = getStateLocation().append("console").append(logFileName).toFile();
+			console.setLogFile(logFile, CONSOLE_LOG_MAX_SIZE, CONSOLE_LOG_FILES);
+			ideProcessConsoles.put(consoleName, console);
+		}
+		return console;
+	}
+
+	/**
+	 * INTERNAL: Clients should not call this method.
+	 * Called when the UI console with the given name is no longer
+	 * shown, so that it is not reused; the next console created
+	 * with that name is attached to a new UI console.
+	 * @param consoleName
+	 */
+	public synchronized void releaseIDEProcessConsole(String consoleName) {
+		BufferedProcessConsole console = ideProcessConsoles.remove(consoleName);
+		if (console != null) {
+			console.close();
+		}
+	}
+
+	private synchronized void closeIDEProcessConsoles() {
+		for (BufferedProcessConsole console : ideProcessConsoles.values()) {
+			console.close();
 		}
+		ideProcessConsoles.clear();
 	}
 
 	/**
@@ -848,6 +918,14 @@ public class CoreMoSyncPlugin extends AbstractUIPlugin implements IPropertyChang
 		return emulatorProcessManager;
 	}
 
+	/**
+	 * Returns the journal of workspace file changes.
+	 * @return
+	 */
+	public ChangeJournal getChangeJournal() {
+		return changeJournal;
+	}
+
 	/**
 	 * INTERNAL: Clients should not call this method.
 	 */
@@ -856,12 +934,56 @@ public class CoreMoSyncPlugin extends AbstractUIPlugin implements IPropertyChang
 		this.ideProcessConsoleProvider = ideProcessConsoleProvider;
 	}
 
+	/**
+	 * Redirects all consoles created by the current thread to a provider.
+	 * Used for sending the output of concurrent headless builds to
+	 * different clients. The redirection is not inherited by other
+	 * threads; tasks handed to other threads should be wrapped using
+	 * {@link #withThreadProcessConsoleProvider(Callable)}.
+	 * @param threadProcessConsoleProvider The provider, or {@code null}
+	 * to use the default consoles
+	 */
+	public void setThreadProcessConsoleProvider(IProvider<IProcessConsole, String> threadProcessConsoleProvider) {
+		if (threadProcessConsoleProvider == null) {
+			this.threadProcessConsoleProvider.remove();
+		} else {
+			this.threadProcessConsoleProvider.set(threadProcessConsoleProvider);
+		}
+	}
+
+	/**
+	 * Wraps a task so that, whatever thread it runs in, it uses the
+	 * console provider set for the current thread by
+	 * {@link #setThreadProcessConsoleProvider(IProvider)}.
+	 * @param task
+	 * @return
+	 */
+	public <T> Callable<T> withThreadProcessConsoleProvider(final Callable<T> task) {
+		final IProvider<IProcessConsole, String> provider = threadProcessConsoleProvider.get();
+		if (provider == null) {
+			return task;
+		}
+		return new Callable<T>() {
+			@Override
+			public T call() throws Exception {
+				IProvider<IProcessConsole, String> previous = threadProcessConsoleProvider.get();
+				setThreadProcessConsoleProvider(provider);
+				try {
+					return task.call();
+				} finally {
+					setThreadProcessConsoleProvider(previous);
+				}
+			}
+		};
+	}
+
 	@Override
 	public void propertyChange(PropertyChangeEvent event) {
 		if (MoSyncTool.MOSYNC_HOME_PREF.equals(event.getProperty()) || MoSyncTool.MO_SYNC_HOME_FROM_ENV_PREF.equals(event.getProperty())) {
 			initPanicErrorMessages();
 		}
-
+		// Default include paths, libraries, etc may have changed
+		BuildEnvironment.invalidateAll();
 	}
 
 
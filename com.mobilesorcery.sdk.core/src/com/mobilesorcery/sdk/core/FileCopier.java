@@ -0,0 +1,327 @@
+/*  Copyright (C) 2009 Mobile Sorcery AB
+
+    This program is free software; you can redistribute it and/or modify it
+    under the terms of the Eclipse Public License v1.0.
+
+    This program is distributed in the hope that it will be useful, but WITHOUT
+    ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+    FITNESS FOR A PARTICULAR PURPOSE. See the Eclipse Public License v1.0 for
+    more details.
+
+    You should have received a copy of the Eclipse Public License v1.0 along
+    with this program. It is also available at http://www.eclipse.org/legal/epl-v10.html
+*/
+package com.mobilesorcery.sdk.core;
+
+import java.io.File;
+import java.io.FileFilter;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.OperationCanceledException;
+
+/**
+ * <p>An incremental file and directory copier.</p>
+ * <p>Files that are already up to date in the destination
+ * are skipped; a file is considered up to date if it has the same
+ * size and modification time as the source (or, if
+ * {@link #setCompareContents(boolean)} is set, if it has the same
+ * contents). Copied files get the modification time of their source.
+ * Files are copied using {@link java.nio.channels.FileChannel#transferTo(long, long, java.nio.channels.WritableByteChannel)}
+ * on a small thread pool.</p>
+ * <p>Each instance keeps track of the number of bytes copied and skipped,
+ * and should only be used for one copy operation at a time.</p>
+ */
+public class FileCopier {
+
+	/**
+	 * The default number of threads to use for copying.
+	 */
+	public static final int DEFAULT_THREADS = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors()));
+
+	private FileFilter filter;
+	private int maxDepth = Util.INFINITE_DEPTH;
+	private boolean incremental = true;
+	private boolean compareContents = false;
+	private int threads = DEFAULT_THREADS;
+
+	private final AtomicLong bytesCopied = new AtomicLong();
+	private final AtomicLong bytesSkipped = new AtomicLong();
+	private final AtomicInteger filesCopied = new AtomicInteger();
+	private final AtomicInteger filesSkipped = new AtomicInteger();
+
+	/**
+	 * Sets the filter that decides which files and directories to copy.
+	 * @param filter The filter, or <code>null</code> to copy everything
+	 * @return This copier
+	 */
+	public FileCopier setFilter(FileFilter filter) {
+		this.filter = filter;
+		return this;
+	}
+
+	/**
+	 * Sets the maximum directory depth to copy; the source
+	 * directory is at depth 0.
+	 * @param maxDepth
+	 * @return This copier
+	 */
+	public FileCopier setMaxDepth(int maxDepth) {
+		this.maxDepth = maxDepth;
+		return this;
+	}
+
+	/**
+	 * Sets whether files already up to date should be skipped. The default is <code>true</code>.
+	 * @param incremental
+	 * @return This copier
+	 */
+	public FileCopier setIncremental(boolean incremental) {
+		this.incremental = incremental;
+		return this;
+	}
+
+	/**
+	 * Sets whether to compare the contents of files (using a hash)
+	 * to decide whether a file is up to date, instead of just
+	 * comparing sizes and timestamps.
+	 * @param compareContents
+	 * @return This copier
+	 */
+	public FileCopier setCompareContents(boolean compareContents) {
+		this.compareContents = compareContents;
+		return this;
+	}
+
+	/**
+	 * Sets the number of threads to use for copying.
+	 * @param threads
+	 * @return This copier
+	 */
+	public FileCopier setThreads(int threads) {
+		this.threads = Math.max(1, threads);
+		return this;
+	}
+
+	/**
+	 * Copies a file or a directory.
+	 * @param monitor
+	 * @param src
+	 * @param dest The destination file. If <code>src</code> is a file
+	 * and <code>dest</code> is an existing directory, the file will be
+	 * copied into that directory.
+	 * @throws IOException
+	 */
+	public void copy(IProgressMonitor monitor, File src, File dest) throws IOException {
+		if (monitor == null) {
+			monitor = new NullProgressMonitor();
+		}
+
+		if (!src.exists()) {
+			throw new FileNotFoundException(src.getAbsolutePath());
+		}
+
+		ArrayList<File[]> files = new ArrayList<File[]>();
+		if (src.isDirectory()) {
+			collect(src, dest, 0, files);
+		} else {
+			if (dest.isDirectory()) {
+				dest = new File(dest, src.getName());
+			}
+			files.add(new File[] { src, dest });
+		}
+
+		copyFiles(monitor, files);
+	}
+
+	private void collect(File srcDir, File destDir, int depth, List<File[]> result) throws IOException {
+		if (depth > maxDepth) {
+			return;
+		}
+
+		destDir.mkdirs();
+		if (!destDir.isDirectory()) {
+			throw new IOException(MessageFormat.format("Could not create directory {0}", destDir));
+		}
+
+		File[] children = srcDir.listFiles();
+		if (children == null) {
+			return;
+		}
+		for (File src : children) {
+			if (filter == null || filter.accept(src)) {
+				File dest = new File(destDir, src.getName());
+				if (src.isDirectory()) {
+					collect(src, dest, depth + 1, result);
+				} else {
+					result.add(new File[] { src, dest });
+				}
+			}
+		}
+	}
+
+	private void copyFiles(IProgressMonitor monitor, List<File[]> files) throws IOException {
+		monitor.beginTask("Copying...", files.size());
+		try {
+			if (threads == 1 || files.size() < 2) {
+				for (File[] file : files) {
+					if (monitor.isCanceled()) {
+						throw new OperationCanceledException();
+					}
+					copyOne(file[0], file[1]);
+					monitor.worked(1);
+				}
+				return;
+			}
+
+			ExecutorService executor = Executors.newFixedThreadPool(Math.min(threads, files.size()), new ThreadFactory() {
+				public Thread newThread(Runnable r) {
+					Thread thread = new Thread(r, "File copier");
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+			try {
+				ArrayList<Future<Object>> pending = new ArrayList<Future<Object>>(files.size());
+				for (final File[] file : files) {
+					pending.add(executor.submit(new Callable<Object>() {
+						public Object call() throws Exception {
+							copyOne(file[0], file[1]);
+							return null;
+						}
+					}));
+				}
+				for (Future<Object> future : pending) {
+					if (monitor.isCanceled()) {
+						throw new OperationCanceledException();
+					}
+					waitFor(future);
+					monitor.worked(1);
+				}
+			} finally {
+				executor.shutdownNow();
+			}
+		} finally {
+			monitor.done();
+		}
+	}
+
+	private void waitFor(Future<Object> future) throws IOException {
+		try {
+			future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new OperationCanceledException();
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof IOException) {
+				throw (IOException) cause;
+			} else if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			IOException wrapped = new IOException(cause.getMessage());
+			wrapped.initCause(cause);
+			throw wrapped;
+		}
+	}
+
+	private void copyOne(File src, File dest) throws IOException {
+		long size = src.length();
+		if (incremental && isUpToDate(src, dest)) {
+			bytesSkipped.addAndGet(size);
+			filesSkipped.incrementAndGet();
+			return;
+		}
+
+		transfer(src, dest);
+		// So that the next copy can tell whether the source has
+		// changed, even if it is replaced by an older file.
+		dest.setLastModified(src.lastModified());
+		bytesCopied.addAndGet(size);
+		filesCopied.incrementAndGet();
+	}
+
+	private boolean isUpToDate(File src, File dest) throws IOException {
+		if (!dest.isFile() || dest.length() != src.length()) {
+			return false;
+		}
+		if (compareContents) {
+			return Arrays.equals(Util.md5(src), Util.md5(dest));
+		}
+		return dest.lastModified() == src.lastModified();
+	}
+
+	/**
+	 * Copies a file using {@link java.nio.channels.FileChannel#transferTo(long, long, java.nio.channels.WritableByteChannel)}.
+	 * @param src
+	 * @param dest
+	 * @throws IOException
+	 */
+	public static void transfer(File src, File dest) throws IOException {
+		File parent = dest.getParentFile();
+		if (parent != null) {
+			parent.mkdirs();
+		}
+		FileInputStream input = new FileInputStream(src);
+		FileOutputStream output = null;
+		try {
+			output = new FileOutputStream(dest);
+			java.nio.channels.FileChannel in = input.getChannel();
+			java.nio.channels.FileChannel out = output.getChannel();
+			long size = in.size();
+			for (long position = 0; position < size;) {
+				long transferred = in.transferTo(position, size - position, out);
+				if (transferred <= 0) {
+					// The source file shrunk while being copied
+					break;
+				}
+				position += transferred;
+			}
+		} finally {
+			Util.safeClose(input);
+			Util.safeClose(output);
+		}
+	}
+
+	public long getBytesCopied() {
+		return bytesCopied.get();
+	}
+
+	public long getBytesSkipped() {
+		return bytesSkipped.get();
+	}
+
+	public int getFilesCopied() {
+		return filesCopied.get();
+	}
+
+	public int getFilesSkipped() {
+		return filesSkipped.get();
+	}
+
+	/**
+	 * Returns a human readable summary of the latest copy operations.
+	 */
+	@Override
+	public String toString() {
+		return MessageFormat.format("{0} files copied ({1}), {2} files up to date ({3})",
+				getFilesCopied(), Util.dataSize(getBytesCopied()),
+				getFilesSkipped(), Util.dataSize(getBytesSkipped()));
+	}
+}
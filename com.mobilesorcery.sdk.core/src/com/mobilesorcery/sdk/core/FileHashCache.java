@@ -0,0 +1,151 @@
+/*  Copyright (C) 2011 Mobile Sorcery AB
+
+    This program is free software; you can redistribute it and/or modify it
+    under the terms of the Eclipse Public License v1.0.
+
+    This program is distributed in the hope that it will be useful, but WITHOUT
+    ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+    FITNESS FOR A PARTICULAR PURPOSE. See the Eclipse Public License v1.0 for
+    more details.
+
+    You should have received a copy of the Eclipse Public License v1.0 along
+    with this program. It is also available at http://www.eclipse.org/legal/epl-v10.html
+*/
+package com.mobilesorcery.sdk.core;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * <p>A cache of the content hashes of files, so that large
+ * files (such as media files) need not be re-read to find
+ * out whether they have changed.</p>
+ * <p>A cached hash is reused as long as the size and time stamp
+ * of the file are the same as when it was hashed. Files that were
+ * modified very shortly before they were hashed are never cached,
+ * since they might be modified again within the resolution of the
+ * file system time stamps.</p>
+ */
+public class FileHashCache {
+
+	private static final long TIMESTAMP_RESOLUTION = 2000;
+
+	private static class Entry {
+		final long length;
+		final long lastModified;
+		final String hash;
+
+		Entry(long length, long lastModified, String hash) {
+			this.length = length;
+			this.lastModified = lastModified;
+			this.hash = hash;
+		}
+	}
+
+	private final HashMap<String, Entry> entries = new HashMap<String, Entry>();
+
+	private final HashMap<String, Entry> used = new HashMap<String, Entry>();
+
+	private int hits;
+
+	private int misses;
+
+	/**
+	 * Returns the content hash of a file, as a base 16 string.
+	 * @param file
+	 * @return
+	 * @throws IOException
+	 */
+	public synchronized String getHash(File file) throws IOException {
+		String path = file.getAbsolutePath();
+		long length = file.length();
+		long lastModified = file.lastModified();
+		Entry entry = entries.get(path);
+		if (entry != null && entry.length == length && entry.lastModified == lastModified) {
+			hits++;
+		} else {
+			misses++;
+			entry = new Entry(length, lastModified, Util.toBase16(Util.md5(file)));
+			if (System.currentTimeMillis() - lastModified < TIMESTAMP_RESOLUTION) {
+				return entry.hash;
+			}
+			entries.put(path, entry);
+		}
+		used.put(path, entry);
+		return entry.hash;
+	}
+
+	/**
+	 * Returns the number of hashes that were found in
+	 * this cache.
+	 * @return
+	 */
+	public synchronized int getHits() {
+		return hits;
+	}
+
+	/**
+	 * Returns the number of hashes that had to be computed.
+	 * @return
+	 */
+	public synchronized int getMisses() {
+		return misses;
+	}
+
+	/**
+	 * Reads a cache previously written by {@link #save(File)}.
+	 * @param file
+	 * @return The cache, or an empty cache if the file
+	 * does not exist or cannot be read
+	 */
+	public static FileHashCache load(File file) {
+		FileHashCache result = new FileHashCache();
+		if (!file.exists()) {
+			return result;
+		}
+		BufferedReader reader = null;
+		try {
+			reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), "UTF-8"));
+			for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+				String[] fields = line.split("\t", 4);
+				if (fields.length == 4) {
+					result.entries.put(fields[3], new Entry(Long.parseLong(fields[1]), Long.parseLong(fields[2]), fields[0]));
+				}
+			}
+		} catch (Exception e) {
+			// Just start over.
+			result.entries.clear();
+		} finally {
+			Util.safeClose(reader);
+		}
+		return result;
+	}
+
+	/**
+	 * Writes this cache to a file; only the hashes of files that
+	 * were asked for since this cache was loaded are written.
+	 * @param file
+	 * @throws IOException
+	 */
+	public synchronized void save(File file) throws IOException {
+		file.getParentFile().mkdirs();
+		Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), "UTF-8"));
+		try {
+			for (Map.Entry<String, Entry> entry : used.entrySet()) {
+				Entry value = entry.getValue();
+				writer.write(value.hash + "\t" + value.length + "\t" + value.lastModified + "\t" + entry.getKey() + "\n");
+			}
+		} finally {
+			writer.close();
+		}
+	}
+}
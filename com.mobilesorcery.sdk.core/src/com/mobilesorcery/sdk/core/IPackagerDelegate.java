@@ -59,4 +59,21 @@ public interface IPackagerDelegate {
 	 */
 	public String getShortDescription(MoSyncProject project, IProfile profile);
 
+	/**
+	 * <p>Returns a fingerprint of all inputs of packaging, such as the
+	 * linked program, the resources, the icon and the packaging parameters.</p>
+	 * <p>If the fingerprint equals that of the last successful packaging
+	 * for the same build variant, and the package is still present,
+	 * {@link #createPackage(MoSyncProject, IBuildSession, IBuildVariant, IFileTreeDiff, IBuildResult)}
+	 * will not be called.</p>
+	 * @param project
+	 * @param session
+	 * @param variant
+	 * @return The fingerprint, or <code>null</code> if this packager
+	 * cannot tell what its inputs are, in which case it is always called.
+	 * @throws CoreException
+	 * @see AbstractPackager#addPackageInputs(MoSyncProject, IBuildSession, IBuildVariant, PackageFingerprint)
+	 */
+	public PackageFingerprint getPackageFingerprint(MoSyncProject project, IBuildSession session, IBuildVariant variant) throws CoreException;
+
 }
@@ -22,5 +22,16 @@ public interface ISLDInfo {
     public Collection<String> getAllFilenames();
     
     public Collection<String> getAllFunctions();
+
+    /**
+     * Returns the first line at or after <code>line</code> in a file
+     * that has an address associated with it, which is where a
+     * debugger would put a breakpoint requested for <code>line</code>.
+     * @param fileName A file name, as returned by {@link #getAllFilenames()}
+     * @param line
+     * @return The line number, or {@link #UNKNOWN_LINE} if there is no
+     * such line
+     */
+    public int getFirstLineWithCode(String fileName, int line);
    
 }
\ No newline at end of file
@@ -22,9 +22,6 @@ import java.util.Stack;
 import java.util.AbstractMap.SimpleEntry;
 import java.util.Map.Entry;
 
-import javax.xml.parsers.SAXParser;
-import javax.xml.parsers.SAXParserFactory;
-
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.NullProgressMonitor;
 import org.xml.sax.Attributes;
@@ -120,6 +117,7 @@ public class IconManager
 		
 	private Map<String, List<Icon>>	m_iconMap;
 	private DefaultPackager			m_internal;
+	private IconRenderer			m_renderer;
 	
 	
 	/**
@@ -138,6 +136,7 @@ public class IconManager
 	{
 		m_internal = p;
 		m_iconMap  = new HashMap<String, List<Icon>>( );
+		m_renderer = new IconRenderer( b );
 		
 		File iconXML = b.getIconFile();
 		
@@ -168,8 +167,9 @@ public class IconManager
 	
 	/**
 	 * Will "inject", that is copy or convert the best fitting 
-	 * icon to the output file. Conversion is done with the
-	 * ImageMagick tool which is assumed to be in %mosync-bin%.
+	 * icon to the output file. Bitmaps are scaled in-process 
+	 * by an {@link IconRenderer}; other conversions are done with
+	 * the ImageMagick tool which is assumed to be in %mosync-bin%.
 	 * 
 	 * @param o The file where the icon will be written to.	 * 
 	 * @param w The width of the output icon
@@ -222,6 +222,16 @@ public class IconManager
 			}
 			else
 			{	
+				// Scale in-process if possible, the result is cached
+				// and shared between all variants.
+				File rendered = m_renderer.render( ico.getFile( ), w, h, type );
+				if ( rendered != null )
+				{
+					console.addMessage("using scaled icon :" + ico.getFile( ).getAbsolutePath( ));
+					Util.copyFile( new NullProgressMonitor( ), rendered, o );
+					return true;
+				}
+				
 				// Convert
 				console.addMessage("converting icon :" + ico.getFile( ).getAbsolutePath( ));
 				
@@ -312,14 +322,11 @@ public class IconManager
 	private void loadIconMetaData ( File f )
 	throws Exception
 	{
-		SAXParser 			saxParse;
 		XMLHandler 			iconParser = new XMLHandler( );
-		SAXParserFactory	saxFact = SAXParserFactory.newInstance( );
 				
 		try 
 		{			
-			saxParse = saxFact.newSAXParser( );
-			saxParse.parse( f, iconParser );
+			XMLReaderPool.parse( f, iconParser );
 		} 
 		catch ( Exception e ) 
 		{
@@ -0,0 +1,221 @@
+/*  Copyright (C) 2009 Mobile Sorcery AB
+
+    This program is free software; you can redistribute it and/or modify it
+    under the terms of the Eclipse Public License v1.0.
+
+    This program is distributed in the hope that it will be useful, but WITHOUT
+    ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+    FITNESS FOR A PARTICULAR PURPOSE. See the Eclipse Public License v1.0 for
+    more details.
+
+    You should have received a copy of the Eclipse Public License v1.0 along
+    with this program. It is also available at http://www.eclipse.org/legal/epl-v10.html
+*/
+package com.mobilesorcery.sdk.core;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+
+import javax.imageio.ImageIO;
+
+/**
+ * <p>Scales bitmap icons in-process and caches the results.</p>
+ * <p>Icons keep their aspect ratio, but unlike <code>convert -resize</code>
+ * the output is always exactly the requested size: the scaled icon is
+ * centered and padded (with transparent pixels if the format supports
+ * it, otherwise white), since platforms reject icons of the wrong size.</p>
+ * <p>The rendered icons are keyed on the hash of the source icon and
+ * the requested size and format, so the same icon is only rendered
+ * once, regardless of how many packagers, variants or builds ask for it.</p>
+ * <p>Only bitmap formats supported by {@link ImageIO} are handled;
+ * clients should fall back to external tools for other formats
+ * (such as SVG).</p>
+ */
+public class IconRenderer {
+
+	private static final String CACHE_FOLDER = "icons";
+
+	// Source file -> hash; the key includes the timestamp and size of the file
+	private static final Cache<String, String> hashes = new Cache<String, String>("icon-hashes", 256);
+
+	private final File cacheDir;
+
+	private int rendered;
+
+	private int cacheHits;
+
+	/**
+	 * Creates a renderer that keeps its output in a directory.
+	 * @param cacheDir
+	 */
+	public IconRenderer(File cacheDir) {
+		this.cacheDir = cacheDir;
+	}
+
+	/**
+	 * Creates a renderer that keeps its output in the (shared,
+	 * non-variant specific) metadata area of a project.
+	 * @param project
+	 */
+	public IconRenderer(MoSyncProject project) {
+		this(project.getWrappedProject().getLocation().append(MoSyncBuilder.OUTPUT).append(".metadata").append(CACHE_FOLDER).toFile());
+	}
+
+	/**
+	 * Returns <code>true</code> if this renderer can handle
+	 * a certain format.
+	 * @param format The format, such as <code>png</code>
+	 * @return
+	 */
+	public static boolean canWrite(String format) {
+		return ImageIO.getImageWritersByFormatName(format.toLowerCase()).hasNext();
+	}
+
+	/**
+	 * Renders an icon in a certain size and format.
+	 * @param source The source icon
+	 * @param width
+	 * @param height
+	 * @param format The output format, such as <code>png</code>
+	 * @return The rendered icon (which is owned by this renderer and should be
+	 * copied by clients), or <code>null</code> if this renderer cannot
+	 * handle the source or output format.
+	 * @throws IOException
+	 */
+	public File render(File source, int width, int height, String format) throws IOException {
+		format = format.toLowerCase();
+		if (width <= 0 || height <= 0 || !canWrite(format)) {
+			return null;
+		}
+
+		File result = new File(cacheDir, hash(source) + "-" + width + "x" + height + "-fit." + format);
+		if (result.exists()) {
+			cacheHits++;
+			return result;
+		}
+
+		BufferedImage image = ImageIO.read(source);
+		if (image == null) {
+			return null;
+		}
+
+		BufferedImage scaled = scale(image, width, height, hasAlpha(format));
+		cacheDir.mkdirs();
+		// Write to a temporary file first, so we never end up with a half-written cached icon
+		File tmp = File.createTempFile("icon", "." + format, cacheDir);
+		try {
+			if (!ImageIO.write(scaled, format, tmp)) {
+				return null;
+			}
+			if (!tmp.renameTo(result) && !result.exists()) {
+				throw new IOException("Could not write icon to cache: " + result);
+			}
+		} finally {
+			tmp.delete();
+		}
+		rendered++;
+		return result;
+	}
+
+	/**
+	 * Scales an image to fit within a certain size, keeping its aspect
+	 * ratio, and centers it in an image of exactly that size.
+	 * @param image
+	 * @param width
+	 * @param height
+	 * @param alpha Whether to keep the alpha channel; if <code>false</code>,
+	 * the padding is white
+	 * @return
+	 */
+	public static BufferedImage scale(BufferedImage image, int width, int height, boolean alpha) {
+		double ratio = Math.min((double) width / image.getWidth(), (double) height / image.getHeight());
+		int fitWidth = Math.max(1, Math.min(width, (int) Math.round(image.getWidth() * ratio)));
+		int fitHeight = Math.max(1, Math.min(height, (int) Math.round(image.getHeight() * ratio)));
+		BufferedImage scaled = resample(image, fitWidth, fitHeight, alpha);
+		if (fitWidth == width && fitHeight == height) {
+			return scaled;
+		}
+
+		BufferedImage result = new BufferedImage(width, height, imageType(alpha));
+		Graphics2D g = result.createGraphics();
+		try {
+			if (!alpha) {
+				g.setColor(Color.WHITE);
+				g.fillRect(0, 0, width, height);
+			}
+			g.drawImage(scaled, (width - fitWidth) / 2, (height - fitHeight) / 2, null);
+		} finally {
+			g.dispose();
+		}
+		return result;
+	}
+
+	/**
+	 * Resamples an image using high quality resampling; large downscales are done
+	 * in several steps of at most 50% each.
+	 */
+	private static BufferedImage resample(BufferedImage image, int width, int height, boolean alpha) {
+		int type = imageType(alpha);
+		BufferedImage result = image;
+		int currentWidth = image.getWidth();
+		int currentHeight = image.getHeight();
+		do {
+			currentWidth = currentWidth > width ? Math.max(width, currentWidth / 2) : width;
+			currentHeight = currentHeight > height ? Math.max(height, currentHeight / 2) : height;
+			BufferedImage step = new BufferedImage(currentWidth, currentHeight, type);
+			Graphics2D g = step.createGraphics();
+			try {
+				g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BICUBIC);
+				g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+				g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+				if (!alpha) {
+					g.setColor(Color.WHITE);
+					g.fillRect(0, 0, currentWidth, currentHeight);
+				}
+				g.drawImage(result, 0, 0, currentWidth, currentHeight, null);
+			} finally {
+				g.dispose();
+			}
+			result = step;
+		} while (currentWidth != width || currentHeight != height);
+		return result;
+	}
+
+	private static int imageType(boolean alpha) {
+		return alpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB;
+	}
+
+	private static boolean hasAlpha(String format) {
+		return !"jpg".equals(format) && !"jpeg".equals(format) && !"bmp".equals(format);
+	}
+
+	private static String hash(File source) throws IOException {
+		String key = source.getAbsolutePath() + ":" + source.lastModified() + ":" + source.length();
+		String result = hashes.get(key);
+		if (result == null) {
+			result = Util.toBase16(Util.md5(source));
+			hashes.put(key, result);
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the number of icons rendered by this renderer.
+	 * @return
+	 */
+	public int getRendered() {
+		return rendered;
+	}
+
+	/**
+	 * Returns the number of icons this renderer found in its cache.
+	 * @return
+	 */
+	public int getCacheHits() {
+		return cacheHits;
+	}
+}
@@ -0,0 +1,362 @@
+/*  Copyright (C) 2009 Mobile Sorcery AB
+
+    This program is free software; you can redistribute it and/or modify it
+    under the terms of the Eclipse Public License v1.0.
+
+    This program is distributed in the hope that it will be useful, but WITHOUT
+    ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+    FITNESS FOR A PARTICULAR PURPOSE. See the Eclipse Public License v1.0 for
+    more details.
+
+    You should have received a copy of the Eclipse Public License v1.0 along
+    with this program. It is also available at http://www.eclipse.org/legal/epl-v10.html
+*/
+package com.mobilesorcery.sdk.core;
+
+import java.io.UnsupportedEncodingException;
+import java.util.ArrayList;
+
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.AttributesImpl;
+import org.xml.sax.helpers.DefaultHandler;
+
+/**
+ * <p>A small, non-blocking XML reader that is fed data as it
+ * arrives and reports SAX events to a handler as soon as each
+ * element or text section is complete.</p>
+ * <p>Unlike a regular SAX parser, this reader never blocks waiting
+ * for more input, so it needs neither a separate thread nor a piped
+ * stream. It only supports the subset of XML used by the emulator
+ * test reports: elements, attributes, text, comments, CDATA sections
+ * and the predefined and numeric entities; no namespaces and no DTDs.
+ * The input is assumed to be UTF-8. Complete documents should be
+ * parsed using {@link XMLReaderPool} instead.</p>
+ */
+public class IncrementalXMLReader {
+
+	private final DefaultHandler handler;
+
+	private byte[] buffer = new byte[1024];
+	private int length;
+
+	private final ArrayList<String> openElements = new ArrayList<String>();
+
+	// How far we already scanned for the end of the incomplete
+	// construct at the start of the buffer, so we need not rescan it
+	// on every feed; and whether that scan ended inside a quote.
+	private int scanOffset;
+	private char scanQuote;
+
+	private boolean started;
+
+	public IncrementalXMLReader(DefaultHandler handler) {
+		this.handler = handler;
+	}
+
+	/**
+	 * Feeds text into this reader; all complete elements and
+	 * text sections are immediately reported to the handler.
+	 * @param data
+	 * @throws SAXException If the data is not well-formed,
+	 * or if the handler throws an exception
+	 */
+	public void feed(String data) throws SAXException {
+		try {
+			byte[] bytes = data.getBytes("UTF-8");
+			feed(bytes, 0, bytes.length);
+		} catch (UnsupportedEncodingException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * Feeds data into this reader; all complete elements and
+	 * text sections are immediately reported to the handler.
+	 * @param data
+	 * @param offset
+	 * @param length
+	 * @throws SAXException If the data is not well-formed,
+	 * or if the handler throws an exception
+	 */
+	public void feed(byte[] data, int offset, int length) throws SAXException {
+		startDocument();
+		ensureCapacity(this.length + length);
+		System.arraycopy(data, offset, buffer, this.length, length);
+		this.length += length;
+		int consumed = parse(false);
+		compact(consumed);
+	}
+
+	/**
+	 * Signals the end of input; any trailing text is reported
+	 * and all elements still open are closed.
+	 * @throws SAXException
+	 */
+	public void end() throws SAXException {
+		startDocument();
+		int consumed = parse(true);
+		compact(consumed);
+		for (int i = openElements.size() - 1; i >= 0; i--) {
+			String name = openElements.remove(i);
+			handler.endElement("", name, name);
+		}
+		handler.endDocument();
+	}
+
+	private void startDocument() throws SAXException {
+		if (!started) {
+			started = true;
+			handler.startDocument();
+		}
+	}
+
+	private int parse(boolean atEnd) throws SAXException {
+		int pos = 0;
+		while (pos < length) {
+			if (buffer[pos] != '<') {
+				int textEnd = indexOf((byte) '<', Math.max(pos, scanOffset));
+				if (textEnd == -1) {
+					if (!atEnd) {
+						// We may be in the middle of a multi-byte character or entity
+						return incomplete(pos, length);
+					}
+					textEnd = length;
+				}
+				characters(decode(pos, textEnd), true);
+				pos = textEnd;
+			} else if (startsWith(pos, "<!--")) {
+				int end = indexOf("-->", Math.max(pos + 4, scanOffset));
+				if (end == -1) {
+					return incomplete(pos, length - 2);
+				}
+				pos = end + 3;
+			} else if (startsWith(pos, "<![CDATA[")) {
+				int end = indexOf("]]>", Math.max(pos + 9, scanOffset));
+				if (end == -1) {
+					return incomplete(pos, length - 2);
+				}
+				characters(decode(pos + 9, end), false);
+				pos = end + 3;
+			} else {
+				int end = indexOfTagEnd(pos);
+				if (end == -1) {
+					return incomplete(pos, length);
+				}
+				tag(decode(pos + 1, end));
+				pos = end + 1;
+			}
+			scanOffset = 0;
+			scanQuote = 0;
+		}
+		return pos;
+	}
+
+	private int incomplete(int pos, int scanned) {
+		// The buffer will be compacted so that pos becomes 0
+		scanOffset = Math.max(0, scanned - pos);
+		return pos;
+	}
+
+	private void tag(String tag) throws SAXException {
+		if (tag.startsWith("?") || tag.startsWith("!")) {
+			// Processing instructions, doctypes
+			return;
+		}
+		if (tag.startsWith("/")) {
+			String name = tag.substring(1).trim();
+			if (openElements.isEmpty()) {
+				throw new SAXException("Unexpected end tag: " + name);
+			}
+			String open = openElements.get(openElements.size() - 1);
+			if (!open.equals(name)) {
+				throw new SAXException("Mismatched end tag: expected </" + open + ">, found </" + name + ">");
+			}
+			openElements.remove(openElements.size() - 1);
+			handler.endElement("", name, name);
+			return;
+		}
+
+		boolean isEmpty = tag.endsWith("/");
+		if (isEmpty) {
+			tag = tag.substring(0, tag.length() - 1);
+		}
+		int nameEnd = 0;
+		while (nameEnd < tag.length() && !Character.isWhitespace(tag.charAt(nameEnd))) {
+			nameEnd++;
+		}
+		String name = tag.substring(0, nameEnd);
+		if (name.length() == 0) {
+			throw new SAXException("Missing element name");
+		}
+		AttributesImpl attributes = parseAttributes(tag, nameEnd);
+		handler.startElement("", name, name, attributes);
+		if (isEmpty) {
+			handler.endElement("", name, name);
+		} else {
+			openElements.add(name);
+		}
+	}
+
+	private AttributesImpl parseAttributes(String tag, int pos) throws SAXException {
+		AttributesImpl attributes = new AttributesImpl();
+		int len = tag.length();
+		while (true) {
+			while (pos < len && Character.isWhitespace(tag.charAt(pos))) {
+				pos++;
+			}
+			if (pos >= len) {
+				return attributes;
+			}
+			int eq = tag.indexOf('=', pos);
+			if (eq == -1) {
+				throw new SAXException("Malformed attribute: " + tag.substring(pos));
+			}
+			String name = tag.substring(pos, eq).trim();
+			int quoteStart = eq + 1;
+			while (quoteStart < len && Character.isWhitespace(tag.charAt(quoteStart))) {
+				quoteStart++;
+			}
+			char quote = quoteStart < len ? tag.charAt(quoteStart) : 0;
+			int quoteEnd = quote == '"' || quote == '\'' ? tag.indexOf(quote, quoteStart + 1) : -1;
+			if (quoteEnd == -1) {
+				throw new SAXException("Unquoted attribute value: " + name);
+			}
+			String value = unescape(tag.substring(quoteStart + 1, quoteEnd));
+			attributes.addAttribute("", name, name, "CDATA", value);
+			pos = quoteEnd + 1;
+		}
+	}
+
+	private void characters(String text, boolean escaped) throws SAXException {
+		if (openElements.isEmpty()) {
+			// Whitespace outside the root element; not reported by SAX either
+			return;
+		}
+		if (escaped) {
+			text = unescape(text);
+		}
+		if (text.length() > 0) {
+			char[] chars = text.toCharArray();
+			handler.characters(chars, 0, chars.length);
+		}
+	}
+
+	static String unescape(String text) {
+		int amp = text.indexOf('&');
+		if (amp == -1) {
+			return text;
+		}
+		StringBuffer result = new StringBuffer(text.length());
+		int pos = 0;
+		while (amp != -1) {
+			int semicolon = text.indexOf(';', amp);
+			if (semicolon == -1) {
+				break;
+			}
+			result.append(text, pos, amp);
+			String entity = text.substring(amp + 1, semicolon);
+			String replacement = resolveEntity(entity);
+			result.append(replacement == null ? text.substring(amp, semicolon + 1) : replacement);
+			pos = semicolon + 1;
+			amp = text.indexOf('&', pos);
+		}
+		result.append(text, pos, text.length());
+		return result.toString();
+	}
+
+	private static String resolveEntity(String entity) {
+		if ("lt".equals(entity)) {
+			return "<";
+		} else if ("gt".equals(entity)) {
+			return ">";
+		} else if ("amp".equals(entity)) {
+			return "&";
+		} else if ("quot".equals(entity)) {
+			return "\"";
+		} else if ("apos".equals(entity)) {
+			return "'";
+		} else if (entity.startsWith("#")) {
+			try {
+				boolean hex = entity.startsWith("#x") || entity.startsWith("#X");
+				int codePoint = Integer.parseInt(entity.substring(hex ? 2 : 1), hex ? 16 : 10);
+				return new String(Character.toChars(codePoint));
+			} catch (IllegalArgumentException e) {
+				return null;
+			}
+		}
+		return null;
+	}
+
+	private int indexOfTagEnd(int pos) {
+		// '>' may appear inside quoted attribute values
+		int from = Math.max(pos + 1, scanOffset);
+		char quote = from == scanOffset ? scanQuote : 0;
+		for (int i = from; i < length; i++) {
+			byte b = buffer[i];
+			if (quote != 0) {
+				if (b == quote) {
+					quote = 0;
+				}
+			} else if (b == '"' || b == '\'') {
+				quote = (char) b;
+			} else if (b == '>') {
+				return i;
+			}
+		}
+		scanQuote = quote;
+		return -1;
+	}
+
+	private int indexOf(byte b, int from) {
+		for (int i = from; i < length; i++) {
+			if (buffer[i] == b) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	private int indexOf(String str, int from) {
+		for (int i = from; i <= length - str.length(); i++) {
+			if (startsWith(i, str)) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	private boolean startsWith(int pos, String str) {
+		if (pos + str.length() > length) {
+			return false;
+		}
+		for (int i = 0; i < str.length(); i++) {
+			if (buffer[pos + i] != str.charAt(i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private String decode(int start, int end) {
+		try {
+			return new String(buffer, start, end - start, "UTF-8");
+		} catch (UnsupportedEncodingException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private void compact(int consumed) {
+		if (consumed > 0) {
+			System.arraycopy(buffer, consumed, buffer, 0, length - consumed);
+			length -= consumed;
+		}
+	}
+
+	private void ensureCapacity(int capacity) {
+		if (capacity > buffer.length) {
+			byte[] newBuffer = new byte[Math.max(capacity, 2 * buffer.length)];
+			System.arraycopy(buffer, 0, newBuffer, 0, length);
+			buffer = newBuffer;
+		}
+	}
+}
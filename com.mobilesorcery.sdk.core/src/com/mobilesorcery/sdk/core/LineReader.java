@@ -13,15 +13,12 @@
 */
 package com.mobilesorcery.sdk.core;
 
-import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.LineNumberReader;
 import java.io.Reader;
+import java.io.StringReader;
 import java.util.concurrent.CopyOnWriteArrayList;
 
-import javax.xml.parsers.SAXParser;
-import javax.xml.parsers.SAXParserFactory;
-
 import org.xml.sax.InputSource;
 import org.xml.sax.helpers.DefaultHandler;
 
@@ -99,6 +96,11 @@ public class LineReader implements Runnable {
     	
     }
 
+    /**
+     * A line handler that parses all lines as an XML document
+     * once the output ends, using a (pooled) SAX parser;
+     * subclasses override the {@link DefaultHandler} methods.
+     */
     public static class XMLLineAdapter extends DefaultHandler implements ILineHandler {
 
     	StringBuffer buffer = new StringBuffer();
@@ -118,9 +120,7 @@ public class LineReader implements Runnable {
 			Exception ex = ioe;
 			if (ioe == null) {
 				try {
-					SAXParserFactory factory = SAXParserFactory.newInstance();
-					SAXParser parser = factory.newSAXParser();
-					parser.parse(new ByteArrayInputStream(buffer.toString().getBytes()), this);
+					XMLReaderPool.parse(new InputSource(new StringReader(buffer.toString())), this);
 				} catch (Exception e) {
 					ex = e;
 				}
@@ -14,6 +14,7 @@
 package com.mobilesorcery.sdk.core;
 
 import java.io.File;
+import java.io.FileFilter;
 import java.io.IOException;
 import java.lang.reflect.InvocationTargetException;
 import java.text.DateFormat;
@@ -56,17 +57,22 @@ import org.eclipse.debug.core.ILaunchConfiguration;
 import org.eclipse.jface.operation.IRunnableWithProgress;
 import org.eclipse.swt.widgets.Display;
 import org.eclipse.ui.PlatformUI;
+import org.json.simple.JSONObject;
 
 import com.mobilesorcery.sdk.core.LineReader.LineAdapter;
 import com.mobilesorcery.sdk.core.build.BuildSequence;
+import com.mobilesorcery.sdk.core.build.CompileBuildStep;
 import com.mobilesorcery.sdk.core.build.IBuildStep;
 import com.mobilesorcery.sdk.core.build.IBuildStepFactory;
+import com.mobilesorcery.sdk.core.build.LinkBuildStep;
+import com.mobilesorcery.sdk.core.build.ResourceBuildStep;
 import com.mobilesorcery.sdk.core.stats.CounterVariable;
 import com.mobilesorcery.sdk.core.stats.Stats;
 import com.mobilesorcery.sdk.core.stats.Variables;
 import com.mobilesorcery.sdk.internal.BuildSession;
 import com.mobilesorcery.sdk.internal.BuildState;
 import com.mobilesorcery.sdk.internal.PipeTool;
+import com.mobilesorcery.sdk.internal.builder.MultiVariantBuildJob;
 import com.mobilesorcery.sdk.internal.dependencies.CompoundDependencyProvider;
 import com.mobilesorcery.sdk.internal.dependencies.DependencyManager;
 import com.mobilesorcery.sdk.internal.dependencies.GCCDependencyProvider;
@@ -74,6 +80,7 @@ import com.mobilesorcery.sdk.internal.dependencies.IDependencyProvider;
 import com.mobilesorcery.sdk.internal.dependencies.ProjectResourceDependencyProvider;
 import com.mobilesorcery.sdk.internal.dependencies.ResourceFileDependencyProvider;
 import com.mobilesorcery.sdk.profiles.IProfile;
+import com.mobilesorcery.sdk.profiles.ProfileDBManager;
 
 /**
  * The main builder. This builder extends ACBuilder for its implementation of
@@ -171,10 +178,28 @@ public class MoSyncBuilder extends ACBuilder {
 	
 	public static final String REBUILD_ON_ERROR = BUILD_PREFS_PREFIX + "rebuild.on.error";
 
+	/**
+	 * Workspace preference; if set, files that have been touched
+	 * but whose contents have not changed will not trigger a rebuild.
+	 */
+	public static final String HASH_CONTENTS = BUILD_PREFS_PREFIX + "hash.contents";
+
 	private static final String APP_CODE = "app.code";
 
 	private static final String CONSOLE_PREPARED = "console.prepared";
 
+	/**
+	 * A build session property; a {@link Map} of build variants
+	 * to the variants whose compilation output they should use
+	 * instead of compiling and linking themselves.
+	 * @see #getCompilationKey(MoSyncProject, IBuildVariant)
+	 */
+	public static final String SHARED_COMPILATION = "shared.compilation";
+
+	private static final String METADATA_FOLDER = ".metadata";
+
+	private static final String PACKAGE_FOLDER = "package";
+
 	public static final int GCC_WALL = 1 << 1;
 
 	public static final int GCC_WEXTRA = 1 << 2;
@@ -343,17 +368,17 @@ public class MoSyncBuilder extends ACBuilder {
 
 	public static IPath getPackageOutputPath(IProject project,
 			IBuildVariant variant) {
-		return getFinalOutputPath(project, variant).append("package");
+		return getFinalOutputPath(project, variant).append(PACKAGE_FOLDER);
 	}
 
+	/**
+	 * Returns the resolved extra compiler switches of the active variant.
+	 * @see BuildEnvironment#getExtraCompilerSwitches()
+	 */
 	public static String getExtraCompilerSwitches(MoSyncProject project)
 			throws ParameterResolverException {
-		IBuildVariant variant = getActiveVariant(project);
-		ParameterResolver resolver = createParameterResolver(project, variant);
-		IPropertyOwner buildProperties = getPropertyOwner(project,
-				variant.getConfigurationId());
-		return Util.replace(buildProperties
-				.getProperty(MoSyncBuilder.EXTRA_COMPILER_SWITCHES), resolver);
+		return project.getBuildEnvironment(getActiveVariant(project))
+				.getExtraCompilerSwitches();
 	}
 
 	@Override
@@ -386,11 +411,11 @@ public class MoSyncBuilder extends ACBuilder {
 		return dependencies.toArray(new IProject[dependencies.size()]);
 	}
 
-	private boolean hasErrorMarkers(IProject project) throws CoreException {
+	private static boolean hasErrorMarkers(IProject project) throws CoreException {
 		return hasErrorMarkers(project, IResource.DEPTH_INFINITE);
 	}
 
-	private boolean hasErrorMarkers(IProject project, int depth)
+	private static boolean hasErrorMarkers(IProject project, int depth)
 			throws CoreException {
 		return project.findMaxProblemSeverity(
 				ICModelMarker.C_MODEL_PROBLEM_MARKER, true, depth) == IMarker.SEVERITY_ERROR;
@@ -558,8 +583,9 @@ public class MoSyncBuilder extends ACBuilder {
 			vars.get(CounterVariable.class, "builds-platform-" + family).inc();
 		}
 
-		ParameterResolver resolver = createParameterResolver(mosyncProject,
-				variant);
+		// Parameter values do not change during the build of a variant
+		ParameterResolver resolver = new CachingParameterResolver(
+				createParameterResolver(mosyncProject, variant));
 
 		ensureOutputIsMarkedDerived(project, variant);
 
@@ -567,6 +593,12 @@ public class MoSyncBuilder extends ACBuilder {
 
 		CoreException errorToShowInConsole = null;
 
+		IBuildVariant compiledVariant = getSharedCompilation(session, variant);
+
+		BuildTrace previousTrace = BuildTrace.getCurrent();
+		BuildTrace trace = new BuildTrace(MessageFormat.format("{0} ({1})", project.getName(), variant));
+		BuildTrace.setCurrent(trace);
+
 		try {
 			/* Set up build monitor */
 			monitor.beginTask(MessageFormat.format("Building {0}", project), 4);
@@ -579,7 +611,10 @@ public class MoSyncBuilder extends ACBuilder {
 			}
 
 			// And we only remove things that are on the project.
+			BuildTrace.Span diffSpan = BuildTrace.begin("Create diff", BuildTrace.CATEGORY_BUILD);
 			IFileTreeDiff diff = createDiff(buildState, session);
+			diffSpan.setArg("full-build", diff == null ? 1 : 0);
+			diffSpan.end();
 			if (PropertyUtil.getBoolean(mosyncProject, REBUILD_ON_ERROR) &&
 					hasErrorMarkers(project)) {
 				// Build all files
@@ -632,12 +667,21 @@ public class MoSyncBuilder extends ACBuilder {
 
 			int continueFlag = IBuildStep.CONTINUE;
 
+			if (compiledVariant != null) {
+				reuseCompilation(mosyncProject, compiledVariant, variant, buildResult, console, monitor);
+			}
+
 			for (IBuildStep buildStep : buildSteps) {
 				long startTime = System.currentTimeMillis();
 				if (monitor.isCanceled()) {
 					return buildResult;
 				}
 
+				if (compiledVariant != null && isCompilationStep(buildStep)) {
+					monitor.worked(1);
+					continue;
+				}
+
 				console.addMessage(IProcessConsole.MESSAGE, MessageFormat.format("Performing build step ''{0}''", buildStep.getName()));
 
 				if (continueFlag != IBuildStep.SKIP
@@ -657,8 +701,13 @@ public class MoSyncBuilder extends ACBuilder {
 					buildStep.initDefaultLineHandler(linehandler);
 					buildStep.initDependencyProvider(dependencyProvider);
 					buildStep.initResourceFilter(resourceFilter);
-					continueFlag = buildStep.incrementalBuild(mosyncProject,
-							session, variant, diff, buildResult, monitor);
+					BuildTrace.Span stepSpan = BuildTrace.begin(buildStep.getName(), BuildTrace.CATEGORY_STEP);
+					try {
+						continueFlag = buildStep.incrementalBuild(mosyncProject,
+								session, variant, diff, buildResult, monitor);
+					} finally {
+						stepSpan.end();
+					}
 					if (continueFlag == IBuildStep.SKIP) {
 						console.addMessage(MessageFormat
 								.format("Was told by build step {0} to skip the remaining build steps. Build successful.",
@@ -675,8 +724,10 @@ public class MoSyncBuilder extends ACBuilder {
 			}
 
 			// Update the current set of dependencies.
+			BuildTrace.Span dependencySpan = BuildTrace.begin("Apply dependencies", BuildTrace.CATEGORY_BUILD);
 			buildState.getDependencyManager().applyDelta(
 					buildResult.getDependencyDelta());
+			dependencySpan.end();
 			
 			Date endTimestamp = Calendar.getInstance().getTime();
 			console.addMessage(MessageFormat.format("Build finished at {0}. (Build time: {1}.)",
@@ -704,14 +755,26 @@ public class MoSyncBuilder extends ACBuilder {
 					CoreMoSyncPlugin.PLUGIN_ID, e.getMessage(), e));
 		} finally {
 			epm.reportProblems();
-			if (!monitor.isCanceled() && !buildResult.success()
-					&& !hasErrorMarkers(project)) {
-				addBuildFailedMarker(project);
-			} else if (buildResult.success()) {
-				clearCMarkers(project);
+			// Variants sharing a compilation may be built concurrently,
+			// so their markers are left to the caller.
+			if (compiledVariant == null) {
+				if (!monitor.isCanceled() && !buildResult.success()) {
+					markBuildFailed(project);
+				} else if (buildResult.success()) {
+					clearCMarkers(project);
+				}
 			}
 
-			saveBuildState(buildState, mosyncProject, buildResult);
+			BuildTrace.Span saveSpan = BuildTrace.begin("Save build state", BuildTrace.CATEGORY_BUILD);
+			try {
+				// No dependencies were recorded for a shared compilation,
+				// so the next build of this variant on its own must be a full one.
+				saveBuildState(buildState, mosyncProject, buildResult, compiledVariant != null);
+			} finally {
+				saveSpan.end();
+				BuildTrace.setCurrent(previousTrace);
+				saveTrace(trace, buildState, buildResult, console);
+			}
 
 			if (errorToShowInConsole != null) {
 				console.addMessage(IProcessConsole.ERR, errorToShowInConsole.getMessage());
@@ -721,6 +784,68 @@ public class MoSyncBuilder extends ACBuilder {
 		return buildResult;
 	}
 
+	private static IBuildVariant getSharedCompilation(IBuildSession session, IBuildVariant variant) {
+		Map<IBuildVariant, IBuildVariant> sharedCompilation = (Map<IBuildVariant, IBuildVariant>) session.getProperties().get(SHARED_COMPILATION);
+		IBuildVariant compiledVariant = sharedCompilation == null ? null : sharedCompilation.get(variant);
+		return variant.equals(compiledVariant) ? null : compiledVariant;
+	}
+
+	private static boolean isCompilationStep(IBuildStep buildStep) {
+		String id = buildStep.getId();
+		return CompileBuildStep.ID.equals(id) || ResourceBuildStep.ID.equals(id) || LinkBuildStep.ID.equals(id);
+	}
+
+	/**
+	 * Copies the compile, resource and link output of one variant to
+	 * another variant, which can then go straight to packaging.
+	 */
+	private void reuseCompilation(MoSyncProject project, IBuildVariant compiledVariant, IBuildVariant variant,
+			IBuildResult buildResult, IProcessConsole console, IProgressMonitor monitor) throws IOException {
+		IProject wrappedProject = project.getWrappedProject();
+		final File compiledOutput = getOutputPath(wrappedProject, compiledVariant).toFile();
+		File output = getOutputPath(wrappedProject, variant).toFile();
+		console.addMessage(MessageFormat.format("Using compilation output of {0}", MoSyncTool.toString(compiledVariant.getProfile())));
+
+		FileCopier copier = new FileCopier().setFilter(new FileFilter() {
+			@Override
+			public boolean accept(File file) {
+				// Build state and packages are variant specific
+				boolean isTopLevel = compiledOutput.equals(file.getParentFile());
+				return !isTopLevel || !(METADATA_FOLDER.equals(file.getName()) || PACKAGE_FOLDER.equals(file.getName()));
+			}
+		});
+		copier.copy(new SubProgressMonitor(monitor, 0), compiledOutput, output);
+		buildResult.setIntermediateBuildResult(LinkBuildStep.ID, getProgramCombOutputPath(wrappedProject, variant).toFile());
+	}
+
+	/**
+	 * Returns a key that is the same for all variants of a project
+	 * that have the same compilation output, ie that only differ
+	 * at the packaging stage.
+	 * @param project
+	 * @param variant
+	 * @return
+	 * @throws CoreException
+	 */
+	public static String getCompilationKey(MoSyncProject project, IBuildVariant variant) throws CoreException {
+		IProfile profile = variant.getProfile();
+		StringBuffer key = new StringBuffer();
+		key.append(variant.getConfigurationId());
+		key.append('|');
+		key.append(variant.getSpecifiers());
+		key.append('|');
+		key.append(getPipeToolMode(project, profile, isLib(project)));
+		key.append('|');
+		key.append(ProfileDBManager.getPlatform(profile));
+		key.append('|');
+		try {
+			key.append(Util.join(getBaseIncludePaths(project, variant), File.pathSeparator));
+		} catch (ParameterResolverException e) {
+			throw new CoreException(new Status(IStatus.ERROR, CoreMoSyncPlugin.PLUGIN_ID, e.getMessage(), e));
+		}
+		return key.toString();
+	}
+
 	public static void refresh(IResource resource) throws CoreException {
 		if (!CoreMoSyncPlugin.isHeadless()) {
 			resource.refreshLocal(IProject.DEPTH_INFINITE, new NullProgressMonitor());
@@ -878,17 +1003,56 @@ public class MoSyncBuilder extends ACBuilder {
 	}
 
 	private void saveBuildState(IBuildState buildState, MoSyncProject project,
-			IBuildResult buildResult) throws CoreException {
+			IBuildResult buildResult, boolean fullRebuildNeeded) throws CoreException {
 		buildState.updateResult(buildResult);
 		buildState.updateState(project.getWrappedProject());
 		buildState.updateBuildProperties(project.getProperties());
-		buildState.fullRebuildNeeded(buildResult == null
+		buildState.fullRebuildNeeded(fullRebuildNeeded || buildResult == null
 				|| !buildResult.success());
 		buildState.save();
 		buildState.setValid(true);
 	}
 
-	private void addBuildFailedMarker(IProject project) throws CoreException {
+	/**
+	 * Writes the trace of a build to the build state directory, and
+	 * adds a summary of it to the build reports kept there.
+	 */
+	private void saveTrace(BuildTrace trace, IBuildState buildState, IBuildResult buildResult, IProcessConsole console) {
+		try {
+			File location = buildState.getLocation().toFile();
+			trace.export(new File(location, BuildTrace.TRACE_FILE));
+			JSONObject report = trace.createReport();
+			report.put("success", buildResult.success());
+			File reportsFile = new File(location, BuildTrace.REPORTS_FILE);
+			JSONObject previous = BuildTrace.findComparableReport(BuildTrace.loadReports(reportsFile), report);
+			BuildTrace.addReport(reportsFile, report);
+			if (previous != null && buildResult.success()) {
+				long total = ((Number) report.get("total-ms")).longValue();
+				long previousTotal = ((Number) previous.get("total-ms")).longValue();
+				if (previousTotal > 0 && total > previousTotal * 5 / 4) {
+					console.addMessage(MessageFormat.format("This build took {0} ms, the previous one with the same build steps {1} ms; see {2} for details.",
+							total, previousTotal, new File(location, BuildTrace.TRACE_FILE)));
+				}
+			}
+		} catch (Exception e) {
+			// Never fail a build because of this.
+			CoreMoSyncPlugin.getDefault().log(e);
+		}
+	}
+
+	/**
+	 * Ensures that a project whose build failed has an error marker,
+	 * which will cause the next build to be a full rebuild.
+	 * @param project
+	 * @throws CoreException
+	 */
+	public static void markBuildFailed(IProject project) throws CoreException {
+		if (!hasErrorMarkers(project)) {
+			addBuildFailedMarker(project);
+		}
+	}
+
+	private static void addBuildFailedMarker(IProject project) throws CoreException {
 		// Ensure there is a build failed marker if the build failed; will cause
 		// all failed builds to
 		// be completely rebuilt later.
@@ -1048,11 +1212,19 @@ public class MoSyncBuilder extends ACBuilder {
 		}
 	}
 
+	/**
+	 * Returns the resolved include paths of a variant, not including
+	 * the output path.
+	 * @see BuildEnvironment#getIncludePaths()
+	 */
 	public static IPath[] getBaseIncludePaths(MoSyncProject project,
 			IBuildVariant variant) throws ParameterResolverException {
-		IPropertyOwner buildProperties = getPropertyOwner(project,
-				variant.getConfigurationId());
+		return project.getBuildEnvironment(variant).getIncludePaths();
+	}
 
+	static IPath[] computeBaseIncludePaths(MoSyncProject project,
+			IBuildVariant variant, IPropertyOwner buildProperties,
+			ParameterResolver resolver) throws ParameterResolverException {
 		ArrayList<IPath> result = new ArrayList<IPath>();
 		if (!PropertyUtil.getBoolean(buildProperties,
 				IGNORE_DEFAULT_INCLUDE_PATHS)) {
@@ -1083,8 +1255,7 @@ public class MoSyncBuilder extends ACBuilder {
 			result.addAll(Arrays.asList(additionalIncludePaths));
 		}
 
-		return resolvePaths(result.toArray(new IPath[0]),
-				createParameterResolver(project, variant));
+		return resolvePaths(result.toArray(new IPath[0]), resolver);
 	}
 
 	public static IPath[] getProfileIncludes(IProfile profile) {
@@ -1192,6 +1363,22 @@ public class MoSyncBuilder extends ACBuilder {
 		};
 	}
 
+	/**
+	 * Creates a job that builds several variants; variants with the
+	 * same compilation output are compiled once and then packaged in
+	 * parallel.
+	 * @param project
+	 * @param buildSession
+	 * @param variantsToBuild
+	 * @return
+	 * @see #getCompilationKey(MoSyncProject, IBuildVariant)
+	 */
+	public static IRunnableWithProgress createSharedCompilationBuildJob(final IProject project,
+			final IBuildSession buildSession,
+			final List<IBuildVariant> variantsToBuild) {
+		return new MultiVariantBuildJob(project, buildSession, variantsToBuild);
+	}
+
 	public static IRunnableWithProgress createBuildJob(final IProject project,
 			final IBuildSession session, final IBuildVariant variant) {
 		return new IRunnableWithProgress() {
@@ -1304,8 +1491,14 @@ public class MoSyncBuilder extends ACBuilder {
 
 	public static IBuildSession createFinalizerBuildSession(
 			List<IBuildVariant> variants) {
+		return createFinalizerBuildSession(variants, false);
+	}
+
+	public static IBuildSession createFinalizerBuildSession(
+			List<IBuildVariant> variants, boolean clean) {
 		return new BuildSession(variants, BuildSession.DO_LINK
-				| BuildSession.DO_PACK | BuildSession.DO_BUILD_RESOURCES);
+				| BuildSession.DO_PACK | BuildSession.DO_BUILD_RESOURCES
+				| (clean ? BuildSession.DO_CLEAN : 0));
 	}
 
 	public static IBuildSession createCompileOnlySession(IBuildVariant variant) {
@@ -1348,7 +1541,7 @@ public class MoSyncBuilder extends ACBuilder {
 	public static IPath getMetaDataPath(MoSyncProject project,
 			IBuildVariant variant) {
 		return getOutputPath(project.getWrappedProject(), variant).append(
-				".metadata");
+				METADATA_FOLDER);
 	}
 
 	public static boolean isLib(MoSyncProject mosyncProject) {
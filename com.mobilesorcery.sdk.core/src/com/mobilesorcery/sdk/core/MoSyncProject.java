@@ -299,6 +299,8 @@ public class MoSyncProject extends PropertyOwnerBase implements
 
 	private final HashMap<IPropertyOwner, PathExclusionFilter> excludes = new HashMap<IPropertyOwner, PathExclusionFilter>();
 
+	private final Cache<IBuildVariant, BuildEnvironment> buildEnvironments = new Cache<IBuildVariant, BuildEnvironment>("build-environments", 32);
+
 	private final ApplicationPermissions permissions;
 
 	private Version formatVersion = CURRENT_VERSION;
@@ -409,6 +411,7 @@ public class MoSyncProject extends PropertyOwnerBase implements
 		if (permissions != null) {
 			permissions.refresh();
 		}
+		buildEnvironments.clear();
 	}
 
 	private void initActiveBuildConfiguration(XMLMemento memento) {
@@ -781,6 +784,7 @@ public class MoSyncProject extends PropertyOwnerBase implements
 	private void firePropertyChange(PropertyChangeEvent event) {
 		// TODO: A bit out of place, but it works
 		excludes.clear();
+		buildEnvironments.clear();
 
 		try {
 			globalListeners.firePropertyChange(event);
@@ -902,11 +906,19 @@ public class MoSyncProject extends PropertyOwnerBase implements
 	 * @param buildConfiguration
 	 * @return
 	 */
-	public synchronized SLD getSLD(IBuildConfiguration buildConfiguration) {
-		IPath outputPath = MoSyncBuilder.getOutputPath(
-				project,
-				new BuildVariant(getTargetProfile(), buildConfiguration == null ? null
-						: buildConfiguration.getId())).append("Sld.tab");
+	public SLD getSLD(IBuildConfiguration buildConfiguration) {
+		return getSLD(new BuildVariant(getTargetProfile(), buildConfiguration == null ? null
+				: buildConfiguration.getId()));
+	}
+
+	/**
+	 * Returns the SLD for a specific build variant.
+	 *
+	 * @param variant
+	 * @return
+	 */
+	public synchronized SLD getSLD(IBuildVariant variant) {
+		IPath outputPath = MoSyncBuilder.getOutputPath(project, variant).append("Sld.tab");
 		SLD sld = slds.get(outputPath.toPortableString());
 		if (sld == null) {
 			sld = new SLD(this, outputPath);
@@ -1123,6 +1135,7 @@ public class MoSyncProject extends PropertyOwnerBase implements
 		} else {
 			getProperties(store).put(key, value);
 		}
+		buildEnvironments.clear();
 		if (save) {
 			updateProjectSpec(store);
 		}
@@ -1244,7 +1257,7 @@ public class MoSyncProject extends PropertyOwnerBase implements
 	 *
 	 * @return
 	 */
-	public IBuildState getBuildState(IBuildVariant variant) {
+	public synchronized IBuildState getBuildState(IBuildVariant variant) {
 		IBuildState result = cachedBuildStates.get(variant);
 		boolean wasNull = true; // result == null;
 		if (wasNull) {
@@ -1439,8 +1452,30 @@ public class MoSyncProject extends PropertyOwnerBase implements
 		return securePropertyOwner;
 	}
 
+	/**
+	 * Returns the resolved include paths, libraries, etc of a
+	 * build variant of this project. The result is cached until
+	 * a property of this project changes.
+	 *
+	 * @param variant
+	 * @return
+	 */
+	public BuildEnvironment getBuildEnvironment(IBuildVariant variant) {
+		BuildEnvironment result = buildEnvironments.get(variant);
+		if (result == null || !result.isValid()) {
+			result = new BuildEnvironment(this, variant);
+			buildEnvironments.put(variant, result);
+		}
+		return result;
+	}
+
+	/**
+	 * Returns a library lookup for a variant, using a given set
+	 * of build properties.
+	 * @see BuildEnvironment#getLibraryLookup() for a cached version that
+	 * uses the properties of the variant
+	 */
 	public LibraryLookup getLibraryLookup(IBuildVariant variant, IPropertyOwner buildProperties) {
-		// TODO: cache?
 		return new LibraryLookup(MoSyncBuilder.getLibraryPaths(
 				getWrappedProject(), buildProperties),
 				MoSyncBuilder.getLibraries(this, variant, buildProperties));
@@ -0,0 +1,169 @@
+/*  Copyright (C) 2011 Mobile Sorcery AB
+
+    This program is free software; you can redistribute it and/or modify it
+    under the terms of the Eclipse Public License v1.0.
+
+    This program is distributed in the hope that it will be useful, but WITHOUT
+    ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+    FITNESS FOR A PARTICULAR PURPOSE. See the Eclipse Public License v1.0 for
+    more details.
+
+    You should have received a copy of the Eclipse Public License v1.0 along
+    with this program. It is also available at http://www.eclipse.org/legal/epl-v10.html
+*/
+package com.mobilesorcery.sdk.core;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * <p>A fingerprint of all the inputs of packaging, such as the linked
+ * program, the resources, the icon and the packaging parameters.</p>
+ * <p>If the fingerprint of a package to be built equals the
+ * fingerprint of the last successfully built package, the packager
+ * need not be run again.</p>
+ * <p>Files are fingerprinted by their contents; to avoid re-reading
+ * unchanged files, a {@link FileHashCache} may be used.</p>
+ * @see IPackagerDelegate#getPackageFingerprint(MoSyncProject, IBuildSession, IBuildVariant)
+ */
+public class PackageFingerprint {
+
+	private static final String MISSING = "<missing>";
+
+	private static final int MAX_DIRECTORY_DEPTH = 8;
+
+	private final TreeMap<String, String> inputs = new TreeMap<String, String>();
+
+	private final FileHashCache hashes;
+
+	public PackageFingerprint() {
+		this(null);
+	}
+
+	/**
+	 * Creates a fingerprint that looks up the hashes of
+	 * files in a cache.
+	 * @param hashes May be <code>null</code>
+	 */
+	public PackageFingerprint(FileHashCache hashes) {
+		this.hashes = hashes;
+	}
+
+	/**
+	 * Adds a packaging input.
+	 * @param key
+	 * @param value May be <code>null</code>
+	 */
+	public void add(String key, String value) {
+		inputs.put(key, value == null ? "" : value);
+	}
+
+	/**
+	 * Adds a file (or a directory, whose files are all
+	 * added recursively) as a packaging input.
+	 * @param key
+	 * @param file May be <code>null</code>
+	 * @throws IOException
+	 */
+	public void add(String key, File file) throws IOException {
+		add(key, file, 0);
+	}
+
+	private void add(String key, File file, int depth) throws IOException {
+		if (file == null || !file.exists()) {
+			add(key, MISSING);
+		} else if (file.isDirectory()) {
+			File[] children = file.listFiles();
+			if (children == null || depth > MAX_DIRECTORY_DEPTH) {
+				add(key, MISSING);
+				return;
+			}
+			Arrays.sort(children);
+			add(key, Integer.toString(children.length));
+			for (File child : children) {
+				add(key + "/" + child.getName(), child, depth + 1);
+			}
+		} else {
+			add(key, hashes == null ? Util.toBase16(Util.md5(file)) : hashes.getHash(file));
+		}
+	}
+
+	/**
+	 * Adds a set of packaging inputs.
+	 * @param prefix The prefix of the keys of the inputs
+	 * @param values
+	 */
+	public void addAll(String prefix, Map<String, String> values) {
+		for (Map.Entry<String, String> value : values.entrySet()) {
+			add(prefix + value.getKey(), value.getValue());
+		}
+	}
+
+	/**
+	 * Returns all inputs of this fingerprint.
+	 * @return
+	 */
+	public Map<String, String> getInputs() {
+		return Collections.unmodifiableMap(inputs);
+	}
+
+	/**
+	 * Returns the fingerprint of all the inputs, as a
+	 * base 16 string.
+	 * @return
+	 */
+	public String getValue() {
+		try {
+			MessageDigest digest = MessageDigest.getInstance("MD5");
+			for (Map.Entry<String, String> input : inputs.entrySet()) {
+				digest.update(input.getKey().getBytes("UTF-8"));
+				digest.update((byte) '=');
+				digest.update(input.getValue().getBytes("UTF-8"));
+				digest.update((byte) '\n');
+			}
+			return Util.toBase16(digest.digest());
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		} catch (UnsupportedEncodingException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * Reads a fingerprint value previously written by {@link #save(File)}.
+	 * @param file
+	 * @return The fingerprint value, or <code>null</code> if there is none
+	 */
+	public static String load(File file) {
+		if (!file.exists()) {
+			return null;
+		}
+		try {
+			return Util.readFile(file.getAbsolutePath()).trim();
+		} catch (IOException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Writes the value of this fingerprint to a file.
+	 * @param file
+	 * @throws IOException
+	 */
+	public void save(File file) throws IOException {
+		file.getParentFile().mkdirs();
+		Util.writeToFile(file, getValue());
+	}
+
+	@Override
+	public String toString() {
+		return getValue() + " " + inputs.keySet();
+	}
+}
@@ -69,6 +69,8 @@ public abstract class PackageToolPackager extends AbstractPackager {
 		// exception
 		// of .* resources, then rebuild. This is because we have no dependency
 		// file output from the package tool (yet?)
+		// Only used if there is no package fingerprint; if the fingerprint
+		// has changed, the diff passed in is null.
 		if (diff == null) {
 			return true;
 		}
@@ -163,6 +165,21 @@ public abstract class PackageToolPackager extends AbstractPackager {
 
 	}
 
+	@Override
+	protected void addPackageInputs(MoSyncProject project, IBuildSession session,
+			IBuildVariant variant, PackageFingerprint fingerprint) throws Exception {
+		super.addPackageInputs(project, session, variant, fingerprint);
+		if (project.getIconFile() == null) {
+			fingerprint.add("icon", getDefaultIconFile());
+		}
+		fingerprint.add("static-recompile", Boolean.toString(shouldUseStaticRecompile(project, variant)));
+		File packageTool = MoSyncTool.getDefault().getBinary("package").toFile();
+		fingerprint.add("package-tool", Long.toString(packageTool.lastModified()));
+		if (project.getPermissions().isPermissionRequested(ICommonPermissions.NFC)) {
+			fingerprint.add("nfc", NFCSupport.create(project).getNFCDescription());
+		}
+	}
+
 	protected boolean shouldUseStaticRecompile(MoSyncProject project, IBuildVariant variant) {
 		return PropertyUtil.getBoolean(
 				MoSyncBuilder.getPropertyOwner(project,
@@ -0,0 +1,185 @@
+/*  Copyright (C) 2009 Mobile Sorcery AB
+
+    This program is free software; you can redistribute it and/or modify it
+    under the terms of the Eclipse Public License v1.0.
+
+    This program is distributed in the hope that it will be useful, but WITHOUT
+    ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+    FITNESS FOR A PARTICULAR PURPOSE. See the Eclipse Public License v1.0 for
+    more details.
+
+    You should have received a copy of the Eclipse Public License v1.0 along
+    with this program. It is also available at http://www.eclipse.org/legal/epl-v10.html
+*/
+package com.mobilesorcery.sdk.core;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+
+/**
+ * <p>A compiled representation of a string containing parameters
+ * tagged with <code>%</code>s, such as <code>%mosync-home%/bin</code>.</p>
+ * <p>A template is parsed once into a list of literal and parameter
+ * segments; resolving it against a {@link ParameterResolver} is then
+ * just a matter of concatenating the segments. Compiled templates
+ * are cached, so clients should use {@link #compile(String)} rather
+ * than keeping their own references.</p>
+ * <p>The syntax is the one used by {@link Util#replace(String, ParameterResolver)}:
+ * <ul>
+ * <li><code>%%</code> is an escaped <code>%</code>,</li>
+ * <li><code>%#...%</code> is a comment and is removed,</li>
+ * <li>parameters that cannot be resolved are left as-is,</li>
+ * <li>the values of parameters are themselves resolved, and</li>
+ * <li>an unterminated parameter at the end of the string is removed.</li>
+ * </ul></p>
+ */
+public final class ParameterTemplate {
+
+	private static final int MAX_DEPTH = 12;
+
+	private static final int CACHE_SIZE = 2048;
+
+	private static final Cache<String, ParameterTemplate> cache = new Cache<String, ParameterTemplate>("parameter-templates", CACHE_SIZE);
+
+	private final String template;
+
+	// Even indices are literals, odd indices are parameter names.
+	private final String[] segments;
+
+	private ParameterTemplate(String template, String[] segments) {
+		this.template = template;
+		this.segments = segments;
+	}
+
+	/**
+	 * Returns the compiled template for a string.
+	 * @param template
+	 * @return
+	 */
+	public static ParameterTemplate compile(String template) {
+		ParameterTemplate result = cache.get(template);
+		if (result == null) {
+			result = parse(template);
+			cache.put(template, result);
+		}
+		return result;
+	}
+
+	private static ParameterTemplate parse(String template) {
+		ArrayList<String> segments = new ArrayList<String>();
+		StringBuffer literal = new StringBuffer();
+		int length = template.length();
+		int i = 0;
+		while (i < length) {
+			char ch = template.charAt(i);
+			if (ch != '%') {
+				literal.append(ch);
+				i++;
+				continue;
+			}
+
+			int paramEnd = template.indexOf('%', i + 1);
+			if (paramEnd == -1) {
+				// Unterminated parameter; ignored
+				break;
+			}
+
+			String paramName = template.substring(i + 1, paramEnd);
+			if (paramName.length() == 0) {
+				// Escape pattern %% => %
+				literal.append('%');
+			} else if (paramName.charAt(0) != '#') {
+				segments.add(literal.toString());
+				segments.add(paramName);
+				literal.setLength(0);
+			}
+			i = paramEnd + 1;
+		}
+		segments.add(literal.toString());
+		return new ParameterTemplate(template, segments.toArray(new String[segments.size()]));
+	}
+
+	/**
+	 * Returns the names of all parameters of this template,
+	 * in order of appearance.
+	 * @return
+	 */
+	public List<String> getParameters() {
+		ArrayList<String> result = new ArrayList<String>(segments.length / 2);
+		for (int i = 1; i < segments.length; i += 2) {
+			result.add(segments[i]);
+		}
+		return result;
+	}
+
+	/**
+	 * Returns <code>true</code> if this template contains no
+	 * parameters.
+	 * @return
+	 */
+	public boolean isLiteral() {
+		return segments.length == 1;
+	}
+
+	/**
+	 * Resolves this template.
+	 * @param resolver The resolver to use, may be <code>null</code>
+	 * @return
+	 * @throws ParameterResolverException
+	 * @throws IllegalArgumentException If the parameters are cyclic
+	 */
+	public String resolve(ParameterResolver resolver) throws ParameterResolverException {
+		if (isLiteral()) {
+			return segments[0];
+		}
+		StringBuffer result = new StringBuffer(template.length() * 2);
+		resolve(resolver, result, null);
+		return result.toString();
+	}
+
+	private void resolve(ParameterResolver resolver, StringBuffer result, LinkedList<String> stack) throws ParameterResolverException {
+		result.append(segments[0]);
+		for (int i = 1; i < segments.length; i += 2) {
+			String paramName = segments[i];
+			String paramValue = resolver == null ? null : resolver.get(paramName);
+			if (paramValue == null) {
+				// Just leave as-is
+				result.append('%');
+				result.append(paramName);
+				result.append('%');
+			} else {
+				ParameterTemplate value = compile(paramValue);
+				if (value.isLiteral()) {
+					result.append(value.segments[0]);
+				} else {
+					if (stack == null) {
+						stack = new LinkedList<String>();
+					}
+					if (stack.contains(paramName) || stack.size() >= MAX_DEPTH) {
+						throw new IllegalArgumentException(cycleMessage(stack, paramName));
+					}
+					stack.addLast(paramName);
+					value.resolve(resolver, result, stack);
+					stack.removeLast();
+				}
+			}
+			result.append(segments[i + 1]);
+		}
+	}
+
+	@Override
+	public String toString() {
+		return template;
+	}
+
+	private static String cycleMessage(List<String> stack, String paramName) {
+		StringBuffer result = new StringBuffer("Cyclic parameters: "); //$NON-NLS-1$
+		for (String param : stack) {
+			result.append(param);
+			result.append(" -> "); //$NON-NLS-1$
+		}
+		result.append(paramName);
+		return result.toString();
+	}
+}
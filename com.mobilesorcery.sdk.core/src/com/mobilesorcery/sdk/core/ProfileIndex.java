@@ -0,0 +1,122 @@
+/*  Copyright (C) 2011 Mobile Sorcery AB
+
+    This program is free software; you can redistribute it and/or modify it
+    under the terms of the Eclipse Public License v1.0.
+
+    This program is distributed in the hope that it will be useful, but WITHOUT
+    ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+    FITNESS FOR A PARTICULAR PURPOSE. See the Eclipse Public License v1.0 for
+    more details.
+
+    You should have received a copy of the Eclipse Public License v1.0 along
+    with this program. It is also available at http://www.eclipse.org/legal/epl-v10.html
+*/
+package com.mobilesorcery.sdk.core;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Set;
+
+import com.mobilesorcery.sdk.profiles.IDeviceFilter;
+import com.mobilesorcery.sdk.profiles.IProfile;
+import com.mobilesorcery.sdk.profiles.IVendor;
+
+/**
+ * <p>A precomputed view of the vendors and profiles accepted by a
+ * device filter, so that viewers need not re-apply the filter
+ * every time they ask for an element.</p>
+ * <p>Each {@link #update(IVendor[], IDeviceFilter)} applies the filter
+ * exactly once per profile and reports which vendors changed, so
+ * clients can refresh only those.</p>
+ */
+public class ProfileIndex {
+
+	private static final IProfile[] NO_PROFILES = new IProfile[0];
+
+	private IVendor[] vendors = new IVendor[0];
+
+	private HashMap<IVendor, IProfile[]> profiles = new HashMap<IVendor, IProfile[]>();
+
+	private int profileCount;
+
+	private int totalProfileCount;
+
+	/**
+	 * Re-applies a filter. A vendor is visible if at least
+	 * one of its profiles is accepted by the filter.
+	 * @param allVendors The vendors to index
+	 * @param filter The filter, or <code>null</code> to accept all profiles
+	 * @return The visible vendors whose visible profiles changed, or <code>null</code>
+	 * if the set or order of visible vendors changed.
+	 */
+	public synchronized Set<IVendor> update(IVendor[] allVendors, IDeviceFilter filter) {
+		ArrayList<IVendor> newVendors = new ArrayList<IVendor>();
+		HashMap<IVendor, IProfile[]> newProfiles = new HashMap<IVendor, IProfile[]>();
+		int newProfileCount = 0;
+		int newTotalProfileCount = 0;
+		for (IVendor vendor : allVendors) {
+			IProfile[] vendorProfiles = vendor.getProfiles();
+			newTotalProfileCount += vendorProfiles.length;
+			IProfile[] accepted = ProfileManager.filterProfiles(vendorProfiles, filter);
+			if (accepted.length > 0) {
+				newVendors.add(vendor);
+				newProfiles.put(vendor, accepted);
+				newProfileCount += accepted.length;
+			}
+		}
+
+		IVendor[] newVendorArray = newVendors.toArray(new IVendor[newVendors.size()]);
+		Set<IVendor> changed = null;
+		if (Arrays.equals(vendors, newVendorArray)) {
+			changed = new HashSet<IVendor>();
+			for (IVendor vendor : newVendorArray) {
+				if (!Arrays.equals(profiles.get(vendor), newProfiles.get(vendor))) {
+					changed.add(vendor);
+				}
+			}
+		}
+
+		vendors = newVendorArray;
+		profiles = newProfiles;
+		profileCount = newProfileCount;
+		totalProfileCount = newTotalProfileCount;
+		return changed;
+	}
+
+	/**
+	 * Returns the visible vendors.
+	 * @return
+	 */
+	public synchronized IVendor[] getVendors() {
+		return vendors;
+	}
+
+	/**
+	 * Returns the visible profiles of a vendor.
+	 * @param vendor
+	 * @return The visible profiles, or an empty array if the
+	 * vendor is not visible
+	 */
+	public synchronized IProfile[] getProfiles(IVendor vendor) {
+		IProfile[] result = profiles.get(vendor);
+		return result == null ? NO_PROFILES : result;
+	}
+
+	/**
+	 * Returns the number of visible profiles.
+	 * @return
+	 */
+	public synchronized int getProfileCount() {
+		return profileCount;
+	}
+
+	/**
+	 * Returns the number of profiles, visible or not.
+	 * @return
+	 */
+	public synchronized int getTotalProfileCount() {
+		return totalProfileCount;
+	}
+}
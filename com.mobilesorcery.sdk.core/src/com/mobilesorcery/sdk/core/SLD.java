@@ -16,10 +16,15 @@ package com.mobilesorcery.sdk.core;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
 
 import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
 
 import com.mobilesorcery.sdk.internal.SLDInfoImpl;
 import com.mobilesorcery.sdk.internal.SLDParser;
@@ -27,7 +32,14 @@ import com.mobilesorcery.sdk.internal.SLDParser;
 /**
  * A class for handling a single the state of SLD data;
  * each build configuration typically have an SLD.
- * 
+ * <p>Parsing is shared: if several threads ask for the SLD
+ * at the same time, the file is parsed once. After a build,
+ * {@link #preload()} may be used to start parsing the new SLD
+ * in the background; {@link #parseSLD()} then waits for that
+ * parse rather than starting another one. A stale SLD is never
+ * returned, since clients such as the debugger must resolve
+ * addresses against the binary that is actually running.</p>
+ *
  * @author Mattias Bybro, mattias.bybro@purplescout.se
  *
  */
@@ -37,17 +49,55 @@ public class SLD {
 
 	private MoSyncProject project;
 
-	private long lastSLDTimestamp;
+	private volatile long lastSLDTimestamp;
+
+	private volatile SLDInfoImpl lastSLD;
 
-	private SLDInfoImpl lastSLD;
+	/**
+	 * A parse of the SLD file, that may be waited for by
+	 * several threads and that updates the cached SLD when done.
+	 */
+	private class ParseTask extends FutureTask<SLDInfoImpl> {
+
+		ParseTask(final IPath sld, final long timestamp) {
+			super(new Callable<SLDInfoImpl>() {
+				@Override
+				public SLDInfoImpl call() throws Exception {
+					SLDInfoImpl result = parse(sld);
+					synchronized (SLD.this) {
+						if (result != null && timestamp >= lastSLDTimestamp) {
+							lastSLD = result;
+							lastSLDTimestamp = timestamp;
+						}
+					}
+					return result;
+				}
+			});
+		}
+
+		@Override
+		protected void done() {
+			synchronized (SLD.this) {
+				if (pendingParse == this) {
+					pendingParse = null;
+				}
+			}
+		}
+	}
+
+	private ParseTask pendingParse;
+
+	private long pendingTimestamp;
 
 	private IPath sldFile;
 
+	private Symbolizer symbolizer;
+
 	public SLD(MoSyncProject project, IPath sldFile) {
 		this.project = project;
 		this.sldFile = sldFile;
 	}
-	
+
 	/**
 	 * <p>Parses the SLD of this project; equivalent to
 	 * <code>parseSLD(false)</code></p>
@@ -56,67 +106,160 @@ public class SLD {
     public ISLDInfo parseSLD() {
     	return parseSLD(false);
     }
-    
+
     /**
      * Parses the SLD of this project if the SLD
      * file has a newer time stamp than when last parsed,
      * or if <code>force</code> is set to <code>true</code>.
      * If the project property defined by NO_CACHE_SLD_KEY is
      * set to <code>true</code>, parsing will always take place.
+     * If the SLD is being parsed in the background (see {@link #preload()})
+     * and <code>force</code> is <code>false</code>, this method waits
+     * for that parse to finish.
      * @param force
      * @return
      */
-    public synchronized ISLDInfo parseSLD(boolean force) {
+    public ISLDInfo parseSLD(boolean force) {
         IPath sld = getSLDPath();
         if (!sld.toFile().exists()) {
             return null;
         }
-        
+
         boolean dontCache = Boolean.parseBoolean(project.getProperty(NO_CACHE_SLD_KEY));
-        boolean alwaysParse = force || dontCache; 
-        
-        SLDInfoImpl result = dontCache ? null : lastSLD;
-        
+        if (dontCache) {
+        	trace(true, true, true);
+        	return parse(sld);
+        }
+
         long currentSLDTimestamp = sld.toFile().lastModified();
+        SLDInfoImpl result = lastSLD;
         boolean timestampChanged = lastSLDTimestamp != currentSLDTimestamp;
-        boolean hasNoCached = lastSLD == null;
-        
-        boolean doParse = alwaysParse || hasNoCached || timestampChanged;
-        
-        if (CoreMoSyncPlugin.getDefault().isDebugging()) {
-        	if (doParse) {
-        		CoreMoSyncPlugin.trace("Parsing SLD: force = {0}, nocache = {1}, dirty = {2}", alwaysParse, hasNoCached, timestampChanged);
+        if (!force && result != null && !timestampChanged) {
+        	return result;
+        }
+
+        ParseTask parse;
+        boolean runHere = false;
+        synchronized (this) {
+        	if (force || pendingParse == null || pendingTimestamp != currentSLDTimestamp) {
+        		trace(force, result == null, timestampChanged);
+        		pendingParse = new ParseTask(sld, currentSLDTimestamp);
+        		pendingTimestamp = currentSLDTimestamp;
+        		runHere = true;
+        	}
+        	parse = pendingParse;
+        }
+
+        if (runHere) {
+        	parse.run();
+        }
+        return awaitParse(parse);
+    }
+
+    /**
+     * Returns a symbolizer for the SLD of this project, as
+     * returned by {@link #parseSLD()}; the same symbolizer is
+     * returned until the SLD is re-parsed, so that resolved
+     * addresses are shared between its clients.
+     * @return
+     */
+    public Symbolizer getSymbolizer() {
+    	ISLDInfo sld = parseSLD();
+    	synchronized (this) {
+    		if (symbolizer == null || symbolizer.getSLDInfo() != sld) {
+    			symbolizer = new Symbolizer(sld);
+    		}
+    		return symbolizer;
+    	}
+    }
+
+    /**
+     * Starts parsing the SLD of this project in the background,
+     * unless it is already parsed, being parsed, or not supposed
+     * to be cached.
+     */
+    public void preload() {
+        IPath sld = getSLDPath();
+        if (!sld.toFile().exists() || Boolean.parseBoolean(project.getProperty(NO_CACHE_SLD_KEY))) {
+        	return;
+        }
+
+        long currentSLDTimestamp = sld.toFile().lastModified();
+        final ParseTask parse;
+        synchronized (this) {
+        	boolean upToDate = lastSLD != null && lastSLDTimestamp == currentSLDTimestamp;
+        	boolean beingParsed = pendingParse != null && pendingTimestamp == currentSLDTimestamp;
+        	if (upToDate || beingParsed) {
+        		return;
+        	}
+        	if (CoreMoSyncPlugin.getDefault().isDebugging()) {
+        		CoreMoSyncPlugin.trace("Preloading SLD {0}", sld);
         	}
+        	parse = new ParseTask(sld, currentSLDTimestamp);
+        	pendingParse = parse;
+        	pendingTimestamp = currentSLDTimestamp;
         }
-        
-        if (doParse) {
-	        SLDParser parser = new SLDParser();
-	        try {
-	            parser.parse(sld.toFile());
-	            result = parser.getSLD();
-	            if (!dontCache) { 
-	            	lastSLD = result;
-	            	lastSLDTimestamp = currentSLDTimestamp; 
-	            }
-	        } catch (IOException e) {
-	            // Ignore.
-	        	e.printStackTrace();
-	            CoreMoSyncPlugin.getDefault().getLog().log(new Status(IStatus.ERROR, CoreMoSyncPlugin.PLUGIN_ID, "Could not parse SLD file", e));
-	        }
+
+        Job job = new Job("Loading debug information") {
+			@Override
+			protected IStatus run(IProgressMonitor monitor) {
+				parse.run();
+				return Status.OK_STATUS;
+			}
+        };
+        job.setSystem(true);
+        job.setPriority(Job.LONG);
+        job.schedule();
+    }
+
+    private static SLDInfoImpl parse(IPath sld) {
+        SLDParser parser = new SLDParser();
+        try {
+            parser.parse(sld.toFile());
+            return parser.getSLD();
+        } catch (IOException e) {
+            // Ignore.
+        	e.printStackTrace();
+            CoreMoSyncPlugin.getDefault().getLog().log(new Status(IStatus.ERROR, CoreMoSyncPlugin.PLUGIN_ID, "Could not parse SLD file", e));
+            return null;
+        }
+    }
+
+    private SLDInfoImpl awaitParse(FutureTask<SLDInfoImpl> parse) {
+    	boolean interrupted = false;
+    	try {
+    		while (true) {
+    			try {
+    				return parse.get();
+    			} catch (InterruptedException e) {
+    				interrupted = true;
+    			}
+    		}
+    	} catch (ExecutionException e) {
+    		CoreMoSyncPlugin.getDefault().log(e.getCause());
+    		return null;
+    	} finally {
+    		if (interrupted) {
+    			Thread.currentThread().interrupt();
+    		}
+    	}
+    }
+
+    private void trace(boolean alwaysParse, boolean hasNoCached, boolean timestampChanged) {
+        if (CoreMoSyncPlugin.getDefault().isDebugging()) {
+        	CoreMoSyncPlugin.trace("Parsing SLD: force = {0}, nocache = {1}, dirty = {2}", alwaysParse, hasNoCached, timestampChanged);
         }
-        
-        return result;
     }
 
     /**
      * <p>Returns the path to the SLD file.</p>
-     * <p>The SLD file maps addresses to files and line numbers.</p> 
+     * <p>The SLD file maps addresses to files and line numbers.</p>
      * @return
      */
     public IPath getSLDPath() {
-    	return sldFile;       
+    	return sldFile;
     }
-    
+
     /**
      * Utility method for parsing SDL info files
      * @param input
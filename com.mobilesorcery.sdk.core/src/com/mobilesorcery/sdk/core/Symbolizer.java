@@ -0,0 +1,189 @@
+/*  Copyright (C) 2011 Mobile Sorcery AB
+
+    This program is free software; you can redistribute it and/or modify it
+    under the terms of the Eclipse Public License v1.0.
+
+    This program is distributed in the hope that it will be useful, but WITHOUT
+    ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+    FITNESS FOR A PARTICULAR PURPOSE. See the Eclipse Public License v1.0 for
+    more details.
+
+    You should have received a copy of the Eclipse Public License v1.0 along
+    with this program. It is also available at http://www.eclipse.org/legal/epl-v10.html
+*/
+package com.mobilesorcery.sdk.core;
+
+import java.util.HashMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * <p>Maps instruction pointers, such as those of emulator call stacks,
+ * to files, lines and (demangled) function names.</p>
+ * <p>A symbolizer is shared by all clients of the same {@link ISLDInfo}
+ * (see {@link SLD#getSymbolizer()}), which is never modified once parsed,
+ * so lookups may run concurrently. Resolved addresses are memoized, since
+ * stack reports tend to contain the same addresses over and over.</p>
+ */
+public class Symbolizer {
+
+	/**
+	 * A resolved address.
+	 */
+	public static class Frame {
+
+		private final int address;
+		private final String fileName;
+		private final int line;
+		private final String function;
+
+		Frame(int address, String fileName, int line, String function) {
+			this.address = address;
+			this.fileName = fileName;
+			this.line = line;
+			this.function = function;
+		}
+
+		public int getAddress() {
+			return address;
+		}
+
+		/**
+		 * Returns the file of this frame.
+		 * @return The file name, or <code>null</code> if unknown
+		 */
+		public String getFileName() {
+			return fileName;
+		}
+
+		/**
+		 * Returns the line of this frame.
+		 * @return The line, or {@link ISLDInfo#UNKNOWN_LINE} if unknown
+		 */
+		public int getLine() {
+			return line;
+		}
+
+		/**
+		 * Returns the demangled name of the function of this frame.
+		 * @return The function name, or <code>null</code> if unknown
+		 */
+		public String getFunction() {
+			return function;
+		}
+
+		/**
+		 * Returns this frame as <code>file:line</code>, the
+		 * format used by the emulator console.
+		 */
+		@Override
+		public String toString() {
+			return (fileName == null ? "Unknown file" : fileName) + (line > 0 ? (":" + line) : "");
+		}
+	}
+
+	private static final ThreadPoolExecutor executor = createExecutor();
+
+	private final ISLDInfo sld;
+
+	private final Cache<Integer, Frame> frames = new Cache<Integer, Frame>("symbols", 4096);
+
+	/**
+	 * Creates a symbolizer.
+	 * @param sld The SLD to resolve addresses against, or <code>null</code>
+	 * if there is no debug information, in which case no address is resolved
+	 */
+	public Symbolizer(ISLDInfo sld) {
+		this.sld = sld;
+	}
+
+	private static ThreadPoolExecutor createExecutor() {
+		int threads = Math.max(1, Runtime.getRuntime().availableProcessors());
+		ThreadPoolExecutor result = new ThreadPoolExecutor(threads, threads, 5, TimeUnit.SECONDS,
+				new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+			private final AtomicInteger count = new AtomicInteger();
+
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread thread = new Thread(r, "Symbolizer " + count.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		result.allowCoreThreadTimeOut(true);
+		return result;
+	}
+
+	/**
+	 * Returns the SLD this symbolizer resolves addresses against.
+	 * @return
+	 */
+	public ISLDInfo getSLDInfo() {
+		return sld;
+	}
+
+	/**
+	 * Resolves a single address.
+	 * @param address
+	 * @return
+	 */
+	public Frame symbolize(int address) {
+		Frame frame = frames.get(address);
+		if (frame == null) {
+			Frame newFrame = lookup(address);
+			frame = frames.putIfAbsent(address, newFrame);
+			if (frame == null) {
+				frame = newFrame;
+			}
+		}
+		return frame;
+	}
+
+	/**
+	 * Resolves a batch of addresses, for example a call stack;
+	 * each distinct address is only looked up once.
+	 * @param addresses
+	 * @return The frames, in the same order as <code>addresses</code>
+	 */
+	public Frame[] symbolize(int[] addresses) {
+		Frame[] result = new Frame[addresses.length];
+		HashMap<Integer, Frame> resolved = new HashMap<Integer, Frame>();
+		for (int i = 0; i < addresses.length; i++) {
+			Frame frame = resolved.get(addresses[i]);
+			if (frame == null) {
+				frame = symbolize(addresses[i]);
+				resolved.put(addresses[i], frame);
+			}
+			result[i] = frame;
+		}
+		return result;
+	}
+
+	/**
+	 * Resolves a batch of addresses in the background. Several
+	 * batches may be resolved concurrently, so clients that need
+	 * the results in order should wait for them in order.
+	 * @param addresses
+	 * @return The future frames, see {@link #symbolize(int[])}
+	 */
+	public Future<Frame[]> symbolizeAsync(final int[] addresses) {
+		return executor.submit(new Callable<Frame[]>() {
+			@Override
+			public Frame[] call() {
+				return symbolize(addresses);
+			}
+		});
+	}
+
+	private Frame lookup(int address) {
+		if (sld == null) {
+			return new Frame(address, null, ISLDInfo.UNKNOWN_LINE, null);
+		}
+		return new Frame(address, sld.getFileName(address), sld.getLine(address), sld.getFunction(address));
+	}
+}
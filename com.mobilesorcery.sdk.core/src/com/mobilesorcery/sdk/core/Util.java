@@ -28,6 +28,8 @@ import java.io.OutputStream;
 import java.io.Reader;
 import java.io.Writer;
 import java.net.URLEncoder;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.text.FieldPosition;
 import java.text.MessageFormat;
 import java.util.ArrayList;
@@ -365,9 +367,20 @@ public class Util {
 		if (dest.isDirectory()) {
 			dest = new File(dest, src.getName());
 		}
-		mergeFiles(monitor, new File[] { src }, dest);
+		if (!src.exists()) {
+			throw new FileNotFoundException(src.getAbsolutePath());
+		}
+		if (src.isDirectory()) {
+			throw new IOException(src + " is a directory, cannot be copied");
+		}
+		FileCopier.transfer(src, dest);
 	}
 
+	/**
+	 * Copies a directory; files that are already up to date
+	 * in the destination directory will not be copied.
+	 * @see FileCopier
+	 */
 	public static void copyDir(IProgressMonitor monitor, File srcDir,
 			File destDir, FileFilter filter) throws IOException {
 		copyDir(monitor, srcDir, destDir, filter, 0);
@@ -379,21 +392,30 @@ public class Util {
 			return;
 		}
 
-		destDir.mkdirs();
+		new FileCopier().setFilter(filter).setMaxDepth(MAX_DEPTH - depth).copy(monitor, srcDir, destDir);
+	}
 
-		File[] files = srcDir.listFiles();
-		monitor.beginTask("Recursive copy", IProgressMonitor.UNKNOWN);
-		for (int i = 0; i < files.length; i++) {
-			File src = new File(srcDir, files[i].getName());
-			if (filter == null || filter.accept(src)) {
-				File dest = new File(destDir, files[i].getName());
-				if (files[i].isDirectory()) {
-					copyDir(new NullProgressMonitor(), src, dest, filter,
-							depth + 1);
-				} else {
-					copyFile(new NullProgressMonitor(), src, dest);
+	/**
+	 * Computes the MD5 hash of the contents of a file.
+	 * @param file
+	 * @return
+	 * @throws IOException
+	 */
+	public static byte[] md5(File file) throws IOException {
+		try {
+			MessageDigest digest = MessageDigest.getInstance("MD5");
+			InputStream input = new FileInputStream(file);
+			try {
+				byte[] buffer = new byte[65536];
+				for (int read = input.read(buffer); read != -1; read = input.read(buffer)) {
+					digest.update(buffer, 0, read);
 				}
+			} finally {
+				safeClose(input);
 			}
+			return digest.digest();
+		} catch (NoSuchAlgorithmException e) {
+			throw new IOException(e.getMessage());
 		}
 	}
 
@@ -723,7 +745,7 @@ public class Util {
 	 */
     public static String replace(String input, Map<String, String> map) {
         try {
-			return innerReplace(input, new DefaultParameterResolver(map), 0).toString();
+			return replace(input, new DefaultParameterResolver(map));
 		} catch (ParameterResolverException e) {
 			// The default should never throw this exception
 			throw new RuntimeException(e);
@@ -737,9 +759,10 @@ public class Util {
 	 * @param map
 	 * @return
 	 * @throws ParameterResolverException
+	 * @see ParameterTemplate
 	 */
     public static String replace(String input, ParameterResolver resolver) throws ParameterResolverException {
-        return innerReplace(input, resolver, 0).toString();
+        return ParameterTemplate.compile(input).resolve(resolver);
     }
 
 	public static String[] replace(String[] input, ParameterResolver resolver) throws ParameterResolverException {
@@ -750,50 +773,6 @@ public class Util {
 		return output;
 	}
 
-    private static StringBuffer innerReplace(String input, ParameterResolver map, int depth) throws ParameterResolverException {
-        if (depth > 12) {
-            throw new IllegalArgumentException("Cyclic parameters"); //$NON-NLS-1$
-        }
-
-        StringBuffer result = new StringBuffer();
-        char[] chars = input.toCharArray();
-        boolean inParam = false;
-        int paramStart = 0;
-
-        for (int i = 0; i < chars.length; i++) {
-            if ('%' == chars[i]) {
-                if (!inParam) {
-                    paramStart = i;
-                } else {
-                    String paramName = input.substring(paramStart + 1, i);
-                    if (paramName.length() > 0 && paramName.charAt(0) == '#') {
-                        // TODO.
-                    } else {
-                        if (paramName.length() == 0) { // Escape pattern %% => %
-                            result.append("%"); //$NON-NLS-1$
-                        } else {
-                            String paramValue = map == null ? null : map.get(paramName);
-                            if (paramValue != null) {
-                                result.append(innerReplace(paramValue, map, depth + 1));
-                            } else {
-                                // Just leave as-is
-                                result.append('%');
-                                result.append(paramName);
-                                result.append('%');
-                            }
-                        }
-                    }
-                }
-
-                inParam = !inParam;
-            } else if (!inParam) {
-                result.append(chars[i]);
-            }
-        }
-
-        return result;
-    }
-
     /**
      * Creates a GET URL, given a baseURL and a map of parameters to send in the GET
      * @param service
@@ -0,0 +1,141 @@
+/*  Copyright (C) 2011 Mobile Sorcery AB
+
+    This program is free software; you can redistribute it and/or modify it
+    under the terms of the Eclipse Public License v1.0.
+
+    This program is distributed in the hope that it will be useful, but WITHOUT
+    ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+    FITNESS FOR A PARTICULAR PURPOSE. See the Eclipse Public License v1.0 for
+    more details.
+
+    You should have received a copy of the Eclipse Public License v1.0 along
+    with this program. It is also available at http://www.eclipse.org/legal/epl-v10.html
+*/
+package com.mobilesorcery.sdk.core;
+
+import java.io.File;
+import java.io.IOException;
+
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.parsers.SAXParserFactory;
+
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+import org.xml.sax.helpers.DefaultHandler;
+
+/**
+ * <p>Shared SAX parsing; instead of creating a new parser factory
+ * and parser for every document, each thread reuses its own
+ * {@link XMLReader}s.</p>
+ * <p>For XML that arrives piece by piece, such as the output of
+ * a process, see {@link IncrementalXMLReader}.</p>
+ */
+public class XMLReaderPool {
+
+	private static final DefaultHandler NULL_HANDLER = new DefaultHandler();
+
+	private static class PooledReaders {
+		final XMLReader[] readers = new XMLReader[2];
+		final boolean[] inUse = new boolean[2];
+	}
+
+	private static final ThreadLocal<PooledReaders> pool = new ThreadLocal<PooledReaders>() {
+		@Override
+		protected PooledReaders initialValue() {
+			return new PooledReaders();
+		}
+	};
+
+	private static SAXParserFactory[] factories = new SAXParserFactory[2];
+
+	private XMLReaderPool() {
+	}
+
+	/**
+	 * Parses a file.
+	 * @param file
+	 * @param handler
+	 * @throws IOException
+	 * @throws SAXException
+	 */
+	public static void parse(File file, DefaultHandler handler) throws IOException, SAXException {
+		parse(new InputSource(file.toURI().toString()), handler, false);
+	}
+
+	/**
+	 * Parses a document, without namespace support.
+	 * @param input
+	 * @param handler
+	 * @throws IOException
+	 * @throws SAXException
+	 */
+	public static void parse(InputSource input, DefaultHandler handler) throws IOException, SAXException {
+		parse(input, handler, false);
+	}
+
+	/**
+	 * Parses a document.
+	 * @param input
+	 * @param handler The handler to receive all content, error and DTD events;
+	 * it is also used for resolving entities.
+	 * @param namespaceAware
+	 * @throws IOException
+	 * @throws SAXException
+	 */
+	public static void parse(InputSource input, DefaultHandler handler, boolean namespaceAware) throws IOException, SAXException {
+		PooledReaders readers = pool.get();
+		int index = namespaceAware ? 1 : 0;
+		if (readers.inUse[index]) {
+			// A handler started parsing another document; do not pool this one.
+			XMLReader reader = createReader(namespaceAware);
+			parse(reader, input, handler);
+			return;
+		}
+
+		XMLReader reader = readers.readers[index];
+		if (reader == null) {
+			reader = createReader(namespaceAware);
+			readers.readers[index] = reader;
+		}
+		readers.inUse[index] = true;
+		try {
+			parse(reader, input, handler);
+		} finally {
+			// Do not keep the handler alive.
+			setHandler(reader, NULL_HANDLER);
+			readers.inUse[index] = false;
+		}
+	}
+
+	private static void parse(XMLReader reader, InputSource input, DefaultHandler handler) throws IOException, SAXException {
+		setHandler(reader, handler);
+		reader.parse(input);
+	}
+
+	private static void setHandler(XMLReader reader, DefaultHandler handler) {
+		reader.setContentHandler(handler);
+		reader.setErrorHandler(handler);
+		reader.setDTDHandler(handler);
+		reader.setEntityResolver(handler);
+	}
+
+	private static synchronized XMLReader createReader(boolean namespaceAware) throws SAXException {
+		try {
+			return getFactory(namespaceAware).newSAXParser().getXMLReader();
+		} catch (ParserConfigurationException e) {
+			throw new SAXException(e);
+		}
+	}
+
+	private static SAXParserFactory getFactory(boolean namespaceAware) {
+		int index = namespaceAware ? 1 : 0;
+		if (factories[index] == null) {
+			SAXParserFactory factory = SAXParserFactory.newInstance();
+			factory.setValidating(false);
+			factory.setNamespaceAware(namespaceAware);
+			factories[index] = factory;
+		}
+		return factories[index];
+	}
+}
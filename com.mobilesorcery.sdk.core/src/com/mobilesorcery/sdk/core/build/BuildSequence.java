@@ -37,7 +37,7 @@ public class BuildSequence implements IBuildSequence {
 		};
 
 	// Can leak max 8 prjs.
-	private static Cache<MoSyncProject, BuildSequence> cache = new Cache<MoSyncProject, BuildSequence> (8);
+	private static Cache<MoSyncProject, BuildSequence> cache = new Cache<MoSyncProject, BuildSequence>("build-sequences", 8);
 
 	public BuildSequence(MoSyncProject project) {
 		this.project = project;
@@ -58,7 +58,10 @@ public class BuildSequence implements IBuildSequence {
 		BuildSequence cached = cache.get(project);
 		if (cached == null) {
 			cached = new BuildSequence(project);
-			cache.put(project, cached);
+			BuildSequence existing = cache.putIfAbsent(project, cached);
+			if (existing != null) {
+				cached = existing;
+			}
 		}
 		return cached;
 	}
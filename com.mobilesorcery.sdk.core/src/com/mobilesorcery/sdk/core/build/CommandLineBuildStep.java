@@ -1,17 +1,31 @@
 package com.mobilesorcery.sdk.core.build;
 
+import java.io.File;
 import java.io.IOException;
 import java.text.MessageFormat;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 import org.eclipse.core.resources.IResource;
 import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IPath;
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.OperationCanceledException;
+import org.eclipse.core.runtime.Path;
 import org.eclipse.core.runtime.Status;
 import org.eclipse.ui.IMemento;
 
+import com.mobilesorcery.sdk.core.AbstractProcessConsole;
 import com.mobilesorcery.sdk.core.CommandLineExecutor;
 import com.mobilesorcery.sdk.core.CoreMoSyncPlugin;
 import com.mobilesorcery.sdk.core.IBuildResult;
@@ -20,6 +34,8 @@ import com.mobilesorcery.sdk.core.IBuildState;
 import com.mobilesorcery.sdk.core.IBuildVariant;
 import com.mobilesorcery.sdk.core.IFileTreeDiff;
 import com.mobilesorcery.sdk.core.IFilter;
+import com.mobilesorcery.sdk.core.IProcessConsole;
+import com.mobilesorcery.sdk.core.LineReader.ILineHandler;
 import com.mobilesorcery.sdk.core.MoSyncBuilder;
 import com.mobilesorcery.sdk.core.MoSyncProject;
 import com.mobilesorcery.sdk.core.ParameterResolver;
@@ -68,6 +84,9 @@ public class CommandLineBuildStep extends AbstractBuildStep {
 		String filePattern;
 		String name;
 		boolean failOnError = false;
+		boolean failFast = true;
+		int maxParallelRuns = 1;
+		String outputPattern;
 		private Script script;
 
 		public boolean shouldFailOnError() {
@@ -94,6 +113,11 @@ public class CommandLineBuildStep extends AbstractBuildStep {
 				name = command.getString("name");
 				Boolean failOnError = command.getBoolean("foe");
 				this.failOnError = failOnError == null ? false : failOnError;
+				Boolean failFast = command.getBoolean("ff");
+				this.failFast = failFast == null ? true : failFast;
+				Integer maxParallelRuns = command.getInteger("jobs");
+				this.maxParallelRuns = maxParallelRuns == null ? 1 : Math.max(1, maxParallelRuns);
+				outputPattern = command.getString("out");
 			}
 		}
 
@@ -104,6 +128,9 @@ public class CommandLineBuildStep extends AbstractBuildStep {
 			command.putString("pt", filePattern);
 			command.putString("name", name);
 			command.putBoolean("foe", failOnError);
+			command.putBoolean("ff", failFast);
+			command.putInteger("jobs", maxParallelRuns);
+			command.putString("out", outputPattern);
 			command.putTextData(rawScript);
 		}
 
@@ -138,6 +165,50 @@ public class CommandLineBuildStep extends AbstractBuildStep {
 			this.runPerFile = runPerFile;
 		}
 
+		/**
+		 * Returns whether a per-file script should stop at the first
+		 * file that fails, or run for all files and report all
+		 * failures at the end. Only applies if this build step
+		 * {@link #shouldFailOnError()}.
+		 * @return
+		 */
+		public boolean shouldFailFast() {
+			return failFast;
+		}
+
+		public void setFailFast(boolean failFast) {
+			this.failFast = failFast;
+		}
+
+		/**
+		 * Returns the maximum number of files a per-file
+		 * script may run for at the same time.
+		 * @return
+		 */
+		public int getMaxParallelRuns() {
+			return maxParallelRuns;
+		}
+
+		public void setMaxParallelRuns(int maxParallelRuns) {
+			this.maxParallelRuns = Math.max(1, maxParallelRuns);
+		}
+
+		/**
+		 * Returns the (whitespace separated) output files of a per-file
+		 * script, typically parameterized with <code>%file%</code>; files
+		 * whose outputs are all newer than the file itself are skipped.
+		 * Relative paths are relative to the project.
+		 * @return The output pattern, or <code>null</code> if the
+		 * script should always run for every file
+		 */
+		public String getOutputPattern() {
+			return outputPattern;
+		}
+
+		public void setOutputPattern(String outputPattern) {
+			this.outputPattern = outputPattern;
+		}
+
 		public String getFilePattern() {
 			return filePattern;
 		}
@@ -221,6 +292,84 @@ public class CommandLineBuildStep extends AbstractBuildStep {
 		}
 	}
 
+	/**
+	 * Collects the output of a script run for one file, so that
+	 * the output of scripts running in parallel is not interleaved.
+	 */
+	private static class CapturingConsole extends AbstractProcessConsole {
+
+		private final ArrayList<Integer> types = new ArrayList<Integer>();
+		private final ArrayList<String> lines = new ArrayList<String>();
+		private final ArrayList<CountDownLatch> streams = new ArrayList<CountDownLatch>();
+		Exception error;
+
+		@Override
+		public void attachProcess(Process process, ILineHandler stdoutDelegate, ILineHandler stderrDelegate) {
+			CountDownLatch done = new CountDownLatch(2);
+			synchronized (this) {
+				streams.add(done);
+			}
+			super.attachProcess(process, new StreamEnd(stdoutDelegate, done), new StreamEnd(stderrDelegate, done));
+		}
+
+		@Override
+		protected synchronized void writeLine(int type, String line) {
+			types.add(type);
+			lines.add(line);
+		}
+
+		/**
+		 * Waits for all process output to be read, and then
+		 * writes it to another console.
+		 */
+		void replay(IProcessConsole console) throws InterruptedException {
+			ArrayList<CountDownLatch> streams;
+			synchronized (this) {
+				streams = new ArrayList<CountDownLatch>(this.streams);
+			}
+			for (CountDownLatch stream : streams) {
+				stream.await();
+			}
+			synchronized (this) {
+				for (int i = 0; i < lines.size(); i++) {
+					console.addMessage(types.get(i), lines.get(i));
+				}
+			}
+		}
+	}
+
+	private static class StreamEnd implements ILineHandler {
+		private final ILineHandler delegate;
+		private final CountDownLatch done;
+
+		StreamEnd(ILineHandler delegate, CountDownLatch done) {
+			this.delegate = delegate;
+			this.done = done;
+		}
+
+		@Override
+		public void start(Process process) {
+			if (delegate != null) {
+				delegate.start(process);
+			}
+		}
+
+		@Override
+		public void newLine(String line) {
+			if (delegate != null) {
+				delegate.newLine(line);
+			}
+		}
+
+		@Override
+		public void stop(IOException e) {
+			if (delegate != null) {
+				delegate.stop(e);
+			}
+			done.countDown();
+		}
+	}
+
 	private final Factory prototype;
 
 	public CommandLineBuildStep(Factory prototype) {
@@ -246,17 +395,13 @@ public class CommandLineBuildStep extends AbstractBuildStep {
 			return filter == null || filter.inverseAccept(resource);
 		}
 
-		public void executeScript() throws IOException, ParameterResolverException {
-			// TODO: Refactor this!?
-			BuildStepParameterResolver resolver = (BuildStepParameterResolver) getParameterResolver();
-			resolver.setAllFiles(changedOrAddedResources);
-
+		public void executeScript(MoSyncProject mosyncProject, IProgressMonitor monitor) throws IOException, ParameterResolverException {
 			if (runPerFile) {
-				for (IResource resource : changedOrAddedResources) {
-					resolver.setCurrentResource(resource);
-					CommandLineBuildStep.this.executeScript(resolver);
-				}
+				// Each file gets its own resolver, since they may run in parallel
+				executePerFile(mosyncProject, super.getParameterResolver(), changedOrAddedResources, monitor);
 			} else {
+				BuildStepParameterResolver resolver = (BuildStepParameterResolver) getParameterResolver();
+				resolver.setAllFiles(changedOrAddedResources);
 				CommandLineBuildStep.this.executeScript(resolver);
 			}
 		}
@@ -278,13 +423,226 @@ public class CommandLineBuildStep extends AbstractBuildStep {
 		Visitor visitor = new Visitor(prototype.filePattern, prototype.runPerFile);
 		visitor.setParameterResolver(getParameterResolver());
 		project.getWrappedProject().accept(visitor);
-		visitor.executeScript();
+		visitor.executeScript(project, monitor);
 
         return CONTINUE;
 	}
 
+	private void executePerFile(MoSyncProject project, ParameterResolver fallback, List<IResource> resources, IProgressMonitor monitor) throws IOException, ParameterResolverException {
+		ArrayList<BuildStepParameterResolver> runs = new ArrayList<BuildStepParameterResolver>();
+		int upToDate = 0;
+		for (IResource resource : resources) {
+			BuildStepParameterResolver resolver = createParameterResolver(fallback);
+			resolver.setAllFiles(resources);
+			resolver.setCurrentResource(resource);
+			if (isUpToDate(project, resource, resolver)) {
+				upToDate++;
+			} else {
+				runs.add(resolver);
+			}
+		}
+
+		IProcessConsole console = getOutputConsole();
+		if (upToDate > 0) {
+			console.addMessage(MessageFormat.format("{0}: {1} file(s) up to date", prototype.getName(), upToDate));
+		}
+
+		ArrayList<FileRun> fileRuns = new ArrayList<FileRun>();
+		for (final BuildStepParameterResolver resolver : runs) {
+			fileRuns.add(new FileRun() {
+				@Override
+				public void run(IProcessConsole output) throws IOException, ParameterResolverException {
+					executeScript(resolver, output);
+				}
+			});
+		}
+
+		FileRuns perFile = new FileRuns(fileRuns, prototype.shouldFailFast());
+		int threads = Math.min(prototype.getMaxParallelRuns(), runs.size());
+		try {
+			if (threads <= 1) {
+				perFile.runSequentially(monitor);
+			} else {
+				perFile.runInParallel(threads, console, monitor);
+			}
+		} catch (InterruptedException e) {
+			throw new IOException("Interrupted.");
+		}
+		perFile.rethrow(prototype.name);
+	}
+
+	/**
+	 * A script run for one file.
+	 */
+	interface FileRun {
+		/**
+		 * @param console The console to write to, or <code>null</code>
+		 * for the default console
+		 */
+		public void run(IProcessConsole console) throws IOException, ParameterResolverException;
+	}
+
+	/**
+	 * Runs the scripts of a set of files, one at a time or in
+	 * parallel, and keeps track of the runs that failed.
+	 */
+	static class FileRuns {
+
+		private static final long TERMINATION_TIMEOUT = 30;
+
+		private final List<? extends FileRun> runs;
+		private final boolean failFast;
+		private int failures;
+		private Exception firstError;
+
+		FileRuns(List<? extends FileRun> runs, boolean failFast) {
+			this.runs = runs;
+			this.failFast = failFast;
+		}
+
+		/**
+		 * Runs the scripts in the calling thread; unless fail fast,
+		 * all scripts are run even if some of them fail.
+		 * @throws OperationCanceledException If the monitor was canceled
+		 */
+		void runSequentially(IProgressMonitor monitor) {
+			for (FileRun run : runs) {
+				if (monitor.isCanceled()) {
+					throw new OperationCanceledException();
+				}
+				try {
+					run.run(null);
+				} catch (Exception e) {
+					if (failed(e)) {
+						return;
+					}
+				}
+			}
+		}
+
+		/**
+		 * Runs the scripts in parallel. The output is written in the same
+		 * order as the files were submitted, regardless of the order the
+		 * scripts finish in. On cancellation or fail fast, the scripts
+		 * that are still running are interrupted, which destroys their
+		 * processes, and are waited for.
+		 * @throws OperationCanceledException If the monitor was canceled
+		 */
+		void runInParallel(int threads, IProcessConsole console, IProgressMonitor monitor) throws InterruptedException {
+			ExecutorService executor = Executors.newFixedThreadPool(threads);
+			try {
+				ArrayList<Future<CapturingConsole>> results = new ArrayList<Future<CapturingConsole>>();
+				for (final FileRun run : runs) {
+					results.add(executor.submit(new Callable<CapturingConsole>() {
+						@Override
+						public CapturingConsole call() {
+							CapturingConsole output = new CapturingConsole();
+							try {
+								run.run(output);
+							} catch (Exception e) {
+								output.error = e;
+							}
+							return output;
+						}
+					}));
+				}
+
+				for (Future<CapturingConsole> result : results) {
+					CapturingConsole output = await(result, monitor);
+					if (output == null) {
+						throw new OperationCanceledException();
+					}
+					output.replay(console);
+					if (output.error != null && failed(output.error)) {
+						return;
+					}
+				}
+			} finally {
+				executor.shutdownNow();
+				executor.awaitTermination(TERMINATION_TIMEOUT, TimeUnit.SECONDS);
+			}
+		}
+
+		private boolean failed(Exception e) {
+			failures++;
+			if (firstError == null) {
+				firstError = e;
+			}
+			return failFast;
+		}
+
+		int getFailures() {
+			return failures;
+		}
+
+		/**
+		 * Throws the error of the first failed run, or a summary
+		 * if more than one run failed.
+		 * @param name The name of the build step
+		 */
+		void rethrow(String name) throws IOException, ParameterResolverException {
+			if (firstError instanceof ParameterResolverException) {
+				throw (ParameterResolverException) firstError;
+			} else if (firstError instanceof RuntimeException) {
+				throw (RuntimeException) firstError;
+			} else if (failures > 1) {
+				throw new IOException(MessageFormat.format(
+						"External command \"{0}\" failed for {1} of {2} files; first error: {3}",
+						name, failures, runs.size(), firstError.getMessage()));
+			} else if (firstError != null) {
+				throw (IOException) firstError;
+			}
+		}
+
+		private static CapturingConsole await(Future<CapturingConsole> result, IProgressMonitor monitor) throws InterruptedException {
+			while (!monitor.isCanceled()) {
+				try {
+					return result.get(250, TimeUnit.MILLISECONDS);
+				} catch (TimeoutException e) {
+					// Check for cancellation again
+				} catch (CancellationException e) {
+					return null;
+				} catch (ExecutionException e) {
+					// Our tasks do not throw.
+					throw new IllegalStateException(e.getCause());
+				}
+			}
+			return null;
+		}
+	}
+
+	private boolean isUpToDate(MoSyncProject project, IResource resource, ParameterResolver resolver) throws ParameterResolverException {
+		String outputPattern = prototype.getOutputPattern();
+		IPath location = resource.getLocation();
+		if (Util.isEmpty(outputPattern) || location == null) {
+			return false;
+		}
+		long lastModified = location.toFile().lastModified();
+		for (String output : outputPattern.trim().split("\\s+")) {
+			IPath outputPath = new Path(Util.replace(output, resolver));
+			if (!outputPath.isAbsolute()) {
+				outputPath = project.getWrappedProject().getLocation().append(outputPath);
+			}
+			File outputFile = outputPath.toFile();
+			if (!outputFile.exists() || outputFile.lastModified() < lastModified) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private IProcessConsole getOutputConsole() {
+		IProcessConsole console = getConsole();
+		return console == null ? CoreMoSyncPlugin.getDefault().createConsole(MoSyncBuilder.CONSOLE_ID) : console;
+	}
+
 	public void executeScript(ParameterResolver resolver) throws IOException,
 			ParameterResolverException {
+		executeScript(resolver, null);
+	}
+
+	private void executeScript(ParameterResolver resolver, final IProcessConsole console) throws IOException,
+			ParameterResolverException {
 		Script script = prototype.getScript();
 		String[][] cmdLines = script.getCommandLines();
 		for (int i = 0; i < cmdLines.length; i++) {
@@ -295,7 +653,12 @@ public class CommandLineBuildStep extends AbstractBuildStep {
 				String resolvedArg = Util.replace(arg, resolver);
 				resolvedCmdLine[j] = resolvedArg;
 			}
-			CommandLineExecutor executor = new CommandLineExecutor(MoSyncBuilder.CONSOLE_ID);
+			CommandLineExecutor executor = new CommandLineExecutor(MoSyncBuilder.CONSOLE_ID) {
+				@Override
+				public IProcessConsole createConsole() {
+					return console == null ? super.createConsole() : console;
+				}
+			};
 			int exitCode = executor.runCommandLine(resolvedCmdLine);
 			if (prototype.shouldFailOnError() && exitCode != 0) {
 				throw new IOException(
@@ -72,7 +72,7 @@ public class CompileBuildStep extends AbstractBuildStep {
         ILineHandler lineHandler = getDefaultLineHandler();
 
         compilerVisitor.setConsole(getConsole());
-        compilerVisitor.setExtraCompilerSwitches(MoSyncBuilder.getExtraCompilerSwitches(mosyncProject));
+        compilerVisitor.setExtraCompilerSwitches(mosyncProject.getBuildEnvironment(variant).getExtraCompilerSwitches());
         Integer gccWarnings = PropertyUtil.getInteger(buildProperties, MoSyncBuilder.GCC_WARNINGS);
         compilerVisitor.setGCCWarnings(gccWarnings == null ? 0 : gccWarnings.intValue());
         compilerVisitor.setOutputPath(MoSyncBuilder.getOutputPath(project, variant));
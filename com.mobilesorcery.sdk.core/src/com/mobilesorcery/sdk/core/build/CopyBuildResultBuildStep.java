@@ -13,6 +13,7 @@ import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.NullProgressMonitor;
 import org.eclipse.ui.IMemento;
 
+import com.mobilesorcery.sdk.core.FileCopier;
 import com.mobilesorcery.sdk.core.IBuildConfiguration;
 import com.mobilesorcery.sdk.core.IBuildResult;
 import com.mobilesorcery.sdk.core.IBuildSession;
@@ -134,16 +135,19 @@ public class CopyBuildResultBuildStep extends AbstractBuildStep {
 						getConsole().addMessage(
 								"Copied to release package folder:");
 					}
+					FileCopier copier = new FileCopier();
 					for (Map.Entry<String, List<File>> buildArtifact : buildArtifacts
 							.entrySet()) {
 						for (File file : buildArtifact.getValue()) {
 							File dest = outputFolder.append(file.getName())
 									.toFile();
-							Util.copy(new NullProgressMonitor(), file, dest,
-									null);
+							copier.copy(new NullProgressMonitor(), file, dest);
 							getConsole().addMessage("\t" + dest.getAbsolutePath());
 						}
 					}
+					if (!buildArtifacts.isEmpty()) {
+						getConsole().addMessage("\t(" + copier + ")");
+					}
 					IFolder toRefresh = project.getWrappedProject().getFolder(
 							prototype.getFolderName());
 					MoSyncBuilder.ensureFolderIsMarkedDerived(toRefresh);
@@ -4,15 +4,24 @@ import java.io.File;
 import java.io.IOException;
 import java.text.MessageFormat;
 import java.util.ArrayList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
 
 import org.eclipse.core.resources.IProject;
 import org.eclipse.core.resources.IResource;
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IPath;
 import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.Path;
+import org.eclipse.core.runtime.Status;
 import org.eclipse.core.runtime.SubProgressMonitor;
 import org.eclipse.ui.IMemento;
 
+import com.mobilesorcery.sdk.core.BuildEnvironment;
+import com.mobilesorcery.sdk.core.CoreMoSyncPlugin;
 import com.mobilesorcery.sdk.core.DefaultPackager;
 import com.mobilesorcery.sdk.core.IBuildResult;
 import com.mobilesorcery.sdk.core.IBuildSession;
@@ -25,7 +34,8 @@ import com.mobilesorcery.sdk.core.IPropertyOwner;
 import com.mobilesorcery.sdk.core.MoSyncBuilder;
 import com.mobilesorcery.sdk.core.MoSyncProject;
 import com.mobilesorcery.sdk.core.MoSyncProjectParameterResolver;
-import com.mobilesorcery.sdk.core.ParameterResolver;
+import com.mobilesorcery.sdk.core.MoSyncTool;
+import com.mobilesorcery.sdk.core.PackageFingerprint;
 import com.mobilesorcery.sdk.core.PropertyUtil;
 import com.mobilesorcery.sdk.core.Util;
 import com.mobilesorcery.sdk.core.LineReader.ILineHandler;
@@ -56,6 +66,12 @@ public class LinkBuildStep extends AbstractBuildStep {
 
 	public static final String ID = "link";
 
+	private static final String LINK_FINGERPRINT_FILE = ".linkfingerprint";
+
+	private static final String IL_DIRECTORY = "il";
+
+	private static final String PROGRAM = "program";
+
 	public LinkBuildStep() {
 		setId(ID);
 		setName("Link");
@@ -75,14 +91,13 @@ public class LinkBuildStep extends AbstractBuildStep {
 		IProject project = mosyncProject.getWrappedProject();
 		IProfile targetProfile = variant.getProfile();
 		IPath resource = MoSyncBuilder.getResourceOutputPath(project, variant);
-		ParameterResolver resolver = getParameterResolver();
 
         boolean isLib = MoSyncBuilder.isLib(mosyncProject);
 		IPath program = MoSyncBuilder.getProgramOutputPath(project, variant);
         IPath programComb = MoSyncBuilder.getProgramCombOutputPath(project, variant);
         IPath libraryOutput = isLib ? MoSyncBuilder.computeLibraryOutput(mosyncProject, buildProperties) : null;
 
-        boolean librariesHaveChanged = haveLibrariesChanged(mosyncProject, variant, buildProperties, programComb);
+        boolean librariesHaveChanged = haveLibrariesChanged(mosyncProject, variant, programComb);
         boolean requiresLinking = librariesHaveChanged || diff == null || !diff.isEmpty();
         if (librariesHaveChanged) {
         	console.addMessage("Libraries have changed, will require re-linking");
@@ -97,8 +112,11 @@ public class LinkBuildStep extends AbstractBuildStep {
             String pipeToolMode = MoSyncBuilder.getPipeToolMode(mosyncProject, targetProfile, isLib);
             pipeTool.setMode(pipeToolMode);
             pipeTool.setOutputFile(isLib ? libraryOutput : program);
-            pipeTool.setLibraryPaths(MoSyncBuilder.resolvePaths(MoSyncBuilder.getLibraryPaths(project, buildProperties), resolver));
-            pipeTool.setLibraries(MoSyncBuilder.getLibraries(mosyncProject, variant, buildProperties));
+            BuildEnvironment environment = mosyncProject.getBuildEnvironment(variant);
+            IPath[] libraryPaths = environment.getLibraryPaths();
+            IPath[] libraries = environment.getLibraries();
+            pipeTool.setLibraryPaths(libraryPaths);
+            pipeTool.setLibraries(libraries);
             boolean elim = !isLib && PropertyUtil.getBoolean(buildProperties, MoSyncBuilder.DEAD_CODE_ELIMINATION);
             pipeTool.setDeadCodeElimination(elim);
             pipeTool.setCollectStabs(true);
@@ -106,30 +124,83 @@ public class LinkBuildStep extends AbstractBuildStep {
             String[] extraLinkerSwitches = PropertyUtil.getStrings(buildProperties, MoSyncBuilder.EXTRA_LINK_SWITCHES);
             pipeTool.setExtraSwitches(extraLinkerSwitches);
 
-            continueFlag = (pipeTool.run() == PipeTool.SKIP_RETURN_CODE ? IBuildStep.SKIP : IBuildStep.CONTINUE);
+            IPath output = isLib ? libraryOutput : program;
+            File fingerprintFile = getBuildState().getLocation().append(LINK_FINGERPRINT_FILE).toFile();
+            String fingerprint = computeLinkFingerprint(mosyncProject, variant, pipeToolMode, output, objectFiles, libraryPaths, libraries, elim, extraLinkerSwitches);
+            boolean upToDate = fingerprint.equals(PackageFingerprint.load(fingerprintFile)) && linkOutputExists(output);
 
-            // If needed, run a second time to generate IL
-            if (isLib == false && pipeToolMode.equals(PipeTool.BUILD_C_MODE) == false) {
-            	pipeTool.setMode(PipeTool.BUILD_C_MODE);
-        		pipeTool.run();
-            }
+            if (upToDate) {
+            	console.addMessage("Object files and libraries unchanged, will reuse previous link output");
+            } else {
+            	fingerprintFile.delete();
+            	long startTime = System.currentTimeMillis();
+            	long serialTime = 0;
+
+                // If needed, generate IL as well; this is done in parallel and in
+                // a separate directory, and the result is then moved to the output
+                // directory, just as if the two had been run one after the other.
+            	boolean generateIL = isLib == false && pipeToolMode.equals(PipeTool.BUILD_C_MODE) == false;
+            	File ilDir = new File(program.toFile().getParentFile(), IL_DIRECTORY);
+            	FutureTask<Long> ilTask = null;
+            	if (generateIL) {
+            		Util.deleteFiles(ilDir, null, 8, new NullProgressMonitor());
+            		final PipeTool ilPipeTool = createILPipeTool(session, project, variant, objectFiles, libraryPaths, libraries, elim, extraLinkerSwitches, ilDir);
+            		ilTask = new FutureTask<Long>(CoreMoSyncPlugin.getDefault().withThreadProcessConsoleProvider(new Callable<Long>() {
+						@Override
+						public Long call() throws Exception {
+							long ilStartTime = System.currentTimeMillis();
+							ilPipeTool.run();
+							return System.currentTimeMillis() - ilStartTime;
+						}
+            		}));
+            		Thread ilThread = new Thread(ilTask, "Generating IL");
+            		ilThread.setDaemon(true);
+            		ilThread.start();
+            	}
+
+            	boolean linked = false;
+            	try {
+            		long linkStartTime = System.currentTimeMillis();
+            		continueFlag = (pipeTool.run() == PipeTool.SKIP_RETURN_CODE ? IBuildStep.SKIP : IBuildStep.CONTINUE);
+            		serialTime += System.currentTimeMillis() - linkStartTime;
+            		linked = true;
+            	} finally {
+            		if (ilTask != null && !linked) {
+            			// Do not leave the IL pass running; its result is discarded.
+            			awaitIL(ilTask, false);
+            		}
+            	}
+
+            	if (generateIL) {
+            		serialTime += awaitIL(ilTask, true);
+            		moveFiles(ilDir, program.toFile().getParentFile());
+            		long savedTime = serialTime - (System.currentTimeMillis() - startTime);
+            		if (savedTime > 0) {
+            			console.addMessage(MessageFormat.format("Generated IL in parallel with linking, saved {0} ms", savedTime));
+            		}
+            	}
 
-            if (elim) {
-                PipeTool elimPipeTool = new PipeTool();
-                elimPipeTool.setProject(project);
-                elimPipeTool.setVariant(variant);
-                elimPipeTool.setLineHandler(lineHandler);
-                elimPipeTool.setNoVerify(true);
-                elimPipeTool.setGenerateSLD(false);
-                elimPipeTool.setMode(PipeTool.BUILD_C_MODE);
-                elimPipeTool.setOutputFile(program);
-                elimPipeTool.setConsole(console);
-                elimPipeTool.setExtraSwitches(extraLinkerSwitches);
-                elimPipeTool.setAppCode(MoSyncBuilder.getCurrentAppCode(session));
-                elimPipeTool.setArguments(buildProperties);
-                File rebuildFile = new File(elimPipeTool.getExecDir(), "rebuild.s");
-                elimPipeTool.setInputFiles(new String[] { rebuildFile.getAbsolutePath() });
-                elimPipeTool.run();
+            	if (elim) {
+            		PipeTool elimPipeTool = new PipeTool();
+            		elimPipeTool.setProject(project);
+            		elimPipeTool.setVariant(variant);
+            		elimPipeTool.setLineHandler(lineHandler);
+            		elimPipeTool.setNoVerify(true);
+            		elimPipeTool.setGenerateSLD(false);
+            		elimPipeTool.setMode(PipeTool.BUILD_C_MODE);
+            		elimPipeTool.setOutputFile(program);
+            		elimPipeTool.setConsole(console);
+            		elimPipeTool.setExtraSwitches(extraLinkerSwitches);
+            		elimPipeTool.setAppCode(MoSyncBuilder.getCurrentAppCode(session));
+            		elimPipeTool.setArguments(buildProperties);
+            		File rebuildFile = new File(elimPipeTool.getExecDir(), "rebuild.s");
+            		elimPipeTool.setInputFiles(new String[] { rebuildFile.getAbsolutePath() });
+            		elimPipeTool.run();
+            	}
+
+            	if (continueFlag == IBuildStep.CONTINUE) {
+            		saveLinkFingerprint(fingerprintFile, fingerprint);
+            	}
             }
 
             if (!isLib) {
@@ -152,12 +223,131 @@ public class LinkBuildStep extends AbstractBuildStep {
             }
         }
 
+        if (!isLib && continueFlag == IBuildStep.CONTINUE) {
+        	preloadSLD(mosyncProject, variant);
+        }
+
         IPath buildResult = isLib ? libraryOutput : programComb;
     	result.setIntermediateBuildResult(ID, buildResult.toFile());
 
         return continueFlag;
 	}
 
+    /**
+     * Parses the new SLD in the background, so the debugger, emulator
+     * etc need not wait for it. Only the SLD of the target profile is
+     * used by them, so other variants are not preloaded.
+     */
+    private void preloadSLD(MoSyncProject mosyncProject, IBuildVariant variant) {
+    	if (CoreMoSyncPlugin.isHeadless() || !Util.equals(mosyncProject.getTargetProfile(), variant.getProfile())) {
+    		return;
+    	}
+    	mosyncProject.getSLD(variant).preload();
+    }
+
+    private PipeTool createILPipeTool(IBuildSession session, IProject project, IBuildVariant variant, String[] objectFiles,
+    		IPath[] libraryPaths, IPath[] libraries, boolean elim, String[] extraLinkerSwitches, File ilDir) {
+    	PipeTool ilPipeTool = new PipeTool();
+    	ilPipeTool.setProject(project);
+    	ilPipeTool.setVariant(variant);
+    	// Errors are reported by the target pass, which links the same files
+    	ilPipeTool.setLineHandler(null);
+    	ilPipeTool.setConsole(getConsole());
+    	ilPipeTool.setParameterResolver(getParameterResolver());
+    	ilPipeTool.setAppCode(MoSyncBuilder.getCurrentAppCode(session));
+    	ilPipeTool.setArguments(getBuildProperties());
+    	ilPipeTool.setInputFiles(objectFiles);
+    	ilPipeTool.setMode(PipeTool.BUILD_C_MODE);
+    	ilPipeTool.setOutputFile(new Path(new File(ilDir, PROGRAM).getAbsolutePath()));
+    	ilPipeTool.setLibraryPaths(libraryPaths);
+    	ilPipeTool.setLibraries(libraries);
+    	ilPipeTool.setDeadCodeElimination(elim);
+    	ilPipeTool.setCollectStabs(true);
+    	ilPipeTool.setExtraSwitches(extraLinkerSwitches);
+    	return ilPipeTool;
+    }
+
+    private long awaitIL(FutureTask<Long> ilTask, boolean reportErrors) throws CoreException {
+    	try {
+    		return ilTask.get();
+    	} catch (InterruptedException e) {
+    		Thread.currentThread().interrupt();
+    		if (!reportErrors) {
+    			return 0;
+    		}
+    		throw new CoreException(new Status(IStatus.CANCEL, CoreMoSyncPlugin.PLUGIN_ID, "Interrupted"));
+    	} catch (ExecutionException e) {
+    		if (!reportErrors) {
+    			return 0;
+    		}
+    		Throwable cause = e.getCause();
+    		if (cause instanceof CoreException) {
+    			throw (CoreException) cause;
+    		}
+    		throw new CoreException(new Status(IStatus.ERROR, CoreMoSyncPlugin.PLUGIN_ID, cause.getMessage(), cause));
+    	}
+    }
+
+    private void moveFiles(File fromDir, File toDir) throws IOException {
+    	File[] files = fromDir.listFiles();
+    	if (files == null) {
+    		return;
+    	}
+    	for (File file : files) {
+    		File dest = new File(toDir, file.getName());
+    		dest.delete();
+    		if (!file.renameTo(dest)) {
+    			Util.copyFile(new NullProgressMonitor(), file, dest);
+    			file.delete();
+    		}
+    	}
+    	fromDir.delete();
+    }
+
+    /**
+     * Computes a fingerprint of all inputs of linking; if it matches
+     * the fingerprint of the last link, the previous output is reused.
+     * (The app code is deliberately left out, it is random for each session.)
+     */
+    private String computeLinkFingerprint(MoSyncProject mosyncProject, IBuildVariant variant, String pipeToolMode,
+    		IPath output, String[] objectFiles, IPath[] libraryPaths, IPath[] libraries,
+    		boolean elim, String[] extraLinkerSwitches) throws IOException {
+    	PackageFingerprint fingerprint = new PackageFingerprint();
+    	fingerprint.add("mode", pipeToolMode);
+    	fingerprint.add("output", output.toOSString());
+    	fingerprint.add("elim", Boolean.toString(elim));
+    	fingerprint.add("extra-switches", Util.join(extraLinkerSwitches, " "));
+    	fingerprint.add("pipe-tool", Long.toString(MoSyncTool.getDefault().getBinary("pipe-tool").toFile().lastModified()));
+    	IPropertyOwner buildProperties = getBuildProperties();
+    	fingerprint.add("heap-size", buildProperties.getProperty(MoSyncBuilder.MEMORY_HEAPSIZE_KB));
+    	fingerprint.add("stack-size", buildProperties.getProperty(MoSyncBuilder.MEMORY_STACKSIZE_KB));
+    	fingerprint.add("data-size", buildProperties.getProperty(MoSyncBuilder.MEMORY_DATASIZE_KB));
+    	for (int i = 0; i < objectFiles.length; i++) {
+    		fingerprint.add("object:" + i + ":" + objectFiles[i], new File(objectFiles[i]));
+    	}
+    	fingerprint.add("library-paths", Util.join(libraryPaths, File.pathSeparator));
+    	fingerprint.add("libraries", Util.join(libraries, File.pathSeparator));
+    	for (File library : mosyncProject.getBuildEnvironment(variant).getLibraryLookup().resolveLibraryLocations()) {
+    		fingerprint.add("library:" + library.getAbsolutePath(), library);
+    	}
+    	return fingerprint.getValue();
+    }
+
+    private boolean linkOutputExists(IPath output) {
+    	File execDir = output.toFile().getParentFile();
+    	return output.toFile().exists() && new File(execDir, "sld.tab").exists() && new File(execDir, "stabs.tab").exists();
+    }
+
+    private void saveLinkFingerprint(File fingerprintFile, String fingerprint) {
+    	try {
+    		fingerprintFile.getParentFile().mkdirs();
+    		Util.writeToFile(fingerprintFile, fingerprint);
+    	} catch (IOException e) {
+    		// Next time we'll just link again.
+    		CoreMoSyncPlugin.getDefault().log(e);
+    	}
+    }
+
     private String[] getResourceFiles(IBuildSession session) {
 		String[] result = (String[]) session.getProperties().get(ResourceBuildStep.RESOURCE_FILES);
 		return result == null ? new String[0] : result;
@@ -174,13 +364,12 @@ public class LinkBuildStep extends AbstractBuildStep {
      *
      * @param mosyncProject Project to check for changes.
 	 * @param variant
-     * @param buildProperties Build properties of project.
      * @param programComb Latest built program file.
      * @return true if any of the libraries have changed, false otherwise.
      */
-    private boolean haveLibrariesChanged(MoSyncProject mosyncProject, IBuildVariant variant, IPropertyOwner buildProperties, IPath programComb)
+    private boolean haveLibrariesChanged(MoSyncProject mosyncProject, IBuildVariant variant, IPath programComb)
     {
-        long librariesTouched = mosyncProject.getLibraryLookup(variant, buildProperties).getLastTouched();
+        long librariesTouched = mosyncProject.getBuildEnvironment(variant).getLibraryLookup().getLastTouched();
         long programCombTouched = programComb.toFile().exists() ? programComb.toFile().lastModified() : Long.MAX_VALUE;
         return librariesTouched > programCombTouched;
     }
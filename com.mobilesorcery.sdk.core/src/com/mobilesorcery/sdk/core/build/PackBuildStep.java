@@ -1,7 +1,10 @@
 package com.mobilesorcery.sdk.core.build;
 
+import java.io.File;
 import java.io.IOException;
 import java.text.MessageFormat;
+import java.util.List;
+import java.util.Map;
 
 import org.eclipse.core.resources.IProject;
 import org.eclipse.core.resources.IResource;
@@ -24,6 +27,7 @@ import com.mobilesorcery.sdk.core.IPropertyOwner;
 import com.mobilesorcery.sdk.core.MoSyncBuilder;
 import com.mobilesorcery.sdk.core.MoSyncProject;
 import com.mobilesorcery.sdk.core.MoSyncTool;
+import com.mobilesorcery.sdk.core.PackageFingerprint;
 import com.mobilesorcery.sdk.core.PropertyUtil;
 import com.mobilesorcery.sdk.core.LineReader.ILineHandler;
 import com.mobilesorcery.sdk.core.Util;
@@ -53,6 +57,8 @@ public class PackBuildStep extends AbstractBuildStep {
 
 	public static final String ID = "pack";
 
+	private static final String FINGERPRINT_FILE = ".packagefingerprint";
+
 	public PackBuildStep() {
 		setId(ID);
 		setName("Pack");
@@ -71,7 +77,26 @@ public class PackBuildStep extends AbstractBuildStep {
 		} else {
 	        monitor.setTaskName(MessageFormat.format("Packaging for {0}", targetProfile));
 	        IPackager packager = targetProfile.getPackager();
-	        packager.createPackage(mosyncProject, session, variant, diff, buildResult);
+	        PackageFingerprint fingerprint = packager.getPackageFingerprint(mosyncProject, session, variant);
+	        File fingerprintFile = getFingerprintFile();
+	        Map<String, List<File>> previousPackage = getPreviousPackage();
+	        if (fingerprint != null && !session.doClean() && previousPackage != null &&
+	        		fingerprint.getValue().equals(PackageFingerprint.load(fingerprintFile))) {
+	        	if (CoreMoSyncPlugin.getDefault().isDebugging()) {
+	        		CoreMoSyncPlugin.trace("Package fingerprint unchanged for {0}: {1}", targetProfile, fingerprint);
+	        	}
+	        	console.addMessage(MessageFormat.format("Package for {0} is up to date", MoSyncTool.toString(targetProfile)));
+	        	buildResult.setBuildResult(previousPackage);
+	        } else {
+	        	fingerprintFile.delete();
+	        	// If we have a fingerprint, we know that the inputs have changed
+	        	IFileTreeDiff packageDiff = fingerprint == null ? diff : null;
+	        	packager.createPackage(mosyncProject, session, variant, packageDiff, buildResult);
+	        	if (fingerprint != null && buildResult.success() && buildResult.getBuildResult() != null
+	        			&& BuildResult.exists(buildResult.getBuildResult())) {
+	        		fingerprint.save(fingerprintFile);
+	        	}
+	        }
 		}
 
         if (buildResult.getBuildResult() == null || !BuildResult.exists(buildResult.getBuildResult())) {
@@ -89,6 +114,20 @@ public class PackBuildStep extends AbstractBuildStep {
         return CONTINUE;
 	}
 
+	private File getFingerprintFile() {
+		return getBuildState().getLocation().append(FINGERPRINT_FILE).toFile();
+	}
+
+	private Map<String, List<File>> getPreviousPackage() {
+		IBuildResult previousResult = getBuildState().getBuildResult();
+		if (previousResult == null) {
+			return null;
+		}
+		Map<String, List<File>> previousPackage = previousResult.getBuildResult();
+		boolean exists = previousPackage != null && !previousPackage.isEmpty() && BuildResult.exists(previousPackage);
+		return exists ? previousPackage : null;
+	}
+
 	@Override
 	public boolean shouldBuild(MoSyncProject project, IBuildSession session, IBuildResult buildResult) {
 		return super.shouldBuild(project, session, buildResult) && !MoSyncBuilder.isLib(project);
@@ -63,6 +63,8 @@ public class ResourceBuildStep extends AbstractBuildStep {
         resourceVisitor.setDependencyProvider(getDependencyProvider());
         resourceVisitor.setDiff(diff);
         resourceVisitor.setResourceFilter(getResourceFilter());
+        resourceVisitor.setFingerprintLocation(getBuildState().getLocation().toFile());
+        resourceVisitor.setConsole(getConsole());
 
         monitor.setTaskName("Assembling resources");
         resourceVisitor.incrementalCompile(monitor, getBuildState().getDependencyManager(), result.getDependencyDelta());
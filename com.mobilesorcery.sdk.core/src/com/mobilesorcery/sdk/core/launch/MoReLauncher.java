@@ -59,6 +59,7 @@ import com.mobilesorcery.sdk.internal.OSPipeInputStream;
 import com.mobilesorcery.sdk.internal.debug.MoSyncCDebugTarget;
 import com.mobilesorcery.sdk.internal.debug.MoSyncDebugger;
 import com.mobilesorcery.sdk.internal.launch.EmulatorLaunchConfigurationDelegate;
+import com.mobilesorcery.sdk.internal.launch.EmulatorListenerPool;
 import com.mobilesorcery.sdk.internal.launch.EmulatorParseEventHandler;
 import com.mobilesorcery.sdk.profiles.IProfile;
 
@@ -82,6 +83,7 @@ public class MoReLauncher extends AbstractEmulatorLauncher {
 
 	@Override
 	public void launch(ILaunchConfiguration launchConfig, String mode, ILaunch launch, int emulatorId, IProgressMonitor monitor) throws CoreException {
+		long launchTime = System.currentTimeMillis();
     	boolean debug = EmulatorLaunchConfigurationDelegate.isDebugMode(mode);
 
     	String width = launchConfig.getAttribute(ILaunchConstants.SCREEN_SIZE_WIDTH, "320");
@@ -144,7 +146,8 @@ public class MoReLauncher extends AbstractEmulatorLauncher {
         //String command = Util.join(Util.ensureQuoted(cmdline), " ");
         final SpawnedProcess process = new SpawnedProcess(getMoREExe(), cmdline, dir);
 
-        final EmulatorOutputParser parser = new EmulatorOutputParser(emulatorId, handler);
+        EmulatorListenerPool pool = EmulatorListenerPool.getDefault();
+        final EmulatorOutputParser parser = new EmulatorOutputParser(emulatorId, pool.measure(width, height, launchTime, handler));
         startEmulatorListener(process, parser, readFd, dupWriteFd);
 
         process.setInputStream(messageInputStream);
@@ -153,11 +156,13 @@ public class MoReLauncher extends AbstractEmulatorLauncher {
 			@Override
 			public void run() {
 				parser.awaitParseEventsToBeHandled(2000);
+				handler.awaitOutput(2000);
 			}
     	});
 
         try {
             process.start();
+            pool.emulatorStarted(width, height, launchTime);
 			CoreMoSyncPlugin.getDefault().getEmulatorProcessManager().processStarted(emulatorId);
 
             IProcess p = DebugPlugin.newProcess(launch, process, project.getName());
@@ -244,9 +249,7 @@ public class MoReLauncher extends AbstractEmulatorLauncher {
             }
         };
 
-        Thread thread = new Thread(emulatorListener, "Reading from pipe");
-        thread.setDaemon(true);
-        thread.start();
+        EmulatorListenerPool.getDefault().execute(emulatorListener);
     }
 
     private String[] getCommandLine(IProject project, IBuildVariant variant, String width, String height, int fd, int id, boolean debug) throws CoreException {
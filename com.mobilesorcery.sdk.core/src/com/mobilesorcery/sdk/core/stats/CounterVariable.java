@@ -13,6 +13,10 @@ public class CounterVariable extends DecimalVariable {
 		value.decrementAndGet();
 	}
 
+	public synchronized void add(long delta) {
+		value.addAndGet(delta);
+	}
+
 	@Override
 	public String getType() {
 		return TYPE;
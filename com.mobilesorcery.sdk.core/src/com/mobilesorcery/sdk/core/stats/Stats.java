@@ -17,6 +17,7 @@ import org.json.simple.JSONArray;
 import org.json.simple.JSONObject;
 import org.json.simple.parser.JSONParser;
 
+import com.mobilesorcery.sdk.core.Cache;
 import com.mobilesorcery.sdk.core.CoreMoSyncPlugin;
 import com.mobilesorcery.sdk.core.MoSyncTool;
 import com.mobilesorcery.sdk.core.Util;
@@ -105,6 +106,7 @@ public class Stats {
 	private void saveState() {
 		if (!anotherIDEIsRunning()) {
 			try {
+				Cache.reportAllStats(variables);
 				File unsentFile = getStatsLocation().append("unsent.json").toFile();
 				Util.writeToFile(unsentFile, toString(unsentVariables));
 				File statsFile = getStatsLocation().append("current.json").toFile();
@@ -200,6 +202,7 @@ public class Stats {
 		}
 		// If failed, log and retain these variables until next try...
 		// And we'll try at next startup regardless.
+		Cache.reportAllStats(variables);
 		addToUnsent(variables);
 		final Variables variablesToSend = variables;
 		variablesToSend.get(TimeStamp.class, "send.time").set();
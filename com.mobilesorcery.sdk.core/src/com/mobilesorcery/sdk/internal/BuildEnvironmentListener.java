@@ -0,0 +1,37 @@
+/*  Copyright (C) 2011 Mobile Sorcery AB
+
+    This program is free software; you can redistribute it and/or modify it
+    under the terms of the Eclipse Public License v1.0.
+
+    This program is distributed in the hope that it will be useful, but WITHOUT
+    ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+    FITNESS FOR A PARTICULAR PURPOSE. See the Eclipse Public License v1.0 for
+    more details.
+
+    You should have received a copy of the Eclipse Public License v1.0 along
+    with this program. It is also available at http://www.eclipse.org/legal/epl-v10.html
+*/
+package com.mobilesorcery.sdk.internal;
+
+import java.beans.PropertyChangeEvent;
+import java.beans.PropertyChangeListener;
+
+import com.mobilesorcery.sdk.core.BuildEnvironment;
+import com.mobilesorcery.sdk.core.MoSyncTool;
+
+/**
+ * A listener that discards all cached build environments
+ * if the MoSync home or the profiles are updated.
+ */
+public class BuildEnvironmentListener implements PropertyChangeListener {
+
+	@Override
+	public void propertyChange(PropertyChangeEvent event) {
+		String property = event.getPropertyName();
+		if (MoSyncTool.MOSYNC_HOME_UPDATED.equals(property) ||
+			MoSyncTool.PROFILES_UPDATED.equals(property)) {
+			BuildEnvironment.invalidateAll();
+		}
+	}
+
+}
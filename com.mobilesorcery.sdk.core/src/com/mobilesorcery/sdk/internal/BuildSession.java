@@ -1,6 +1,7 @@
 package com.mobilesorcery.sdk.internal;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -23,7 +24,8 @@ public class BuildSession implements IBuildSession {
     public static final int ALL = DO_PACK | DO_CLEAN | DO_LINK | DO_BUILD_RESOURCES | DO_SAVE_DIRTY_EDITORS;
     
     private List<IBuildVariant> variants;
-    private Map<String, Object> properties = new HashMap<String, Object>();
+    // Variants of a session may be built in parallel
+    private Map<String, Object> properties = Collections.synchronizedMap(new HashMap<String, Object>());
     private int flags;
 
     public BuildSession(List<IBuildVariant> variants, int flags) {
@@ -102,6 +102,13 @@ public class BuildState implements IBuildState {
 
     class FileInfoTree implements IResourceVisitor {
         HashMap<IPath, Long> timestampMap = new HashMap<IPath, Long>();
+        HashMap<IPath, String> hashMap = new HashMap<IPath, String>();
+
+        // Only the snapshot tree keeps hashes
+        boolean isSnapshot = true;
+
+        // A previous snapshot, used to avoid re-hashing unchanged files
+        FileInfoTree previous;
 
         /**
          * Computes a diff between this tree and another tree,
@@ -116,7 +123,7 @@ public class BuildState implements IBuildState {
                 Long otherTimestamp = other.timestampMap.get(path);
                 if (otherTimestamp == null) {
                 	recursiveAdd(diff.added, path);
-                } else if (otherTimestamp.compareTo(timestampMap.get(path)) != 0) {
+                } else if (otherTimestamp.compareTo(timestampMap.get(path)) != 0 && !other.hasSameContents(path)) {
                 	recursiveAdd(diff.changed, path);
                 }
 
@@ -135,6 +142,31 @@ public class BuildState implements IBuildState {
             return diff;
         }
 
+        /**
+         * Computes a diff between this tree and the current
+         * state of a set of files; all other files are assumed
+         * to be unchanged.
+         * @param paths
+         * @return
+         */
+        Diff computeDiff(Set<IPath> paths) {
+            Diff diff = new Diff();
+            for (IPath path : paths) {
+                Long timestamp = timestampMap.get(path);
+                IResource resource = findTrackedResource(path);
+                if (resource == null) {
+                    if (timestamp != null) {
+                        recursiveAdd(diff.removed, path);
+                    }
+                } else if (timestamp == null) {
+                    recursiveAdd(diff.added, path);
+                } else if (timestamp.longValue() != getTimestamp(resource) && !hasSameContents(path)) {
+                    recursiveAdd(diff.changed, path);
+                }
+            }
+            return diff;
+        }
+
         private void recursiveAdd(HashSet<IPath> set, IPath path) {
 			while (!path.isEmpty()) {
 				set.add(path);
@@ -165,20 +197,117 @@ public class BuildState implements IBuildState {
         		return;
         	}
 
-        	IPath fullpath = projectResource.getLocation();
-        	File file = fullpath.toFile();
-            long newTimestamp = file.lastModified();
-            timestampMap.put(path, newTimestamp);
+            updateState(path, projectResource);
+        }
+
+        private void updateState(IPath path, IResource projectResource) {
+            long newTimestamp = getTimestamp(projectResource);
+            Long oldTimestamp = timestampMap.put(path, newTimestamp);
+            if (oldTimestamp == null && previous != null) {
+                oldTimestamp = previous.timestampMap.get(path);
+                String previousHash = previous.hashMap.get(path);
+                if (previousHash != null) {
+                    hashMap.put(path, previousHash);
+                }
+            }
+            if (hashContents && isSnapshot) {
+                if (oldTimestamp == null || oldTimestamp.longValue() != newTimestamp || !hashMap.containsKey(path)) {
+                    String hash = hash(projectResource);
+                    if (hash == null) {
+                        hashMap.remove(path);
+                    } else {
+                        hashMap.put(path, hash);
+                    }
+                }
+            }
+        }
+
+        /**
+         * Updates the state of a set of files, ie adds,
+         * updates or removes them from this tree.
+         * @param paths
+         */
+        void updateState(Set<IPath> paths) {
+            for (IPath path : paths) {
+                IResource resource = findTrackedResource(path);
+                if (resource == null) {
+                    removeState(path);
+                } else {
+                    updateState(path, resource);
+                }
+            }
+        }
+
+        /**
+         * Returns <code>true</code> if content hashing is enabled
+         * and a file has the same contents as it did when this
+         * tree was last updated.
+         * @param path
+         * @return
+         */
+        private boolean hasSameContents(IPath path) {
+            if (!hashContents) {
+                return false;
+            }
+            String hash = hashMap.get(path);
+            IResource resource = project.getWrappedProject().findMember(path);
+            return hash != null && resource != null && hash.equals(hash(resource));
         }
 
         public void removeState(IPath removed) {
             timestampMap.remove(removed);
+            hashMap.remove(removed);
+        }
+    }
+
+    /**
+     * Returns a file of this project that is (or should be) kept in the
+     * file info tree, or <code>null</code> if there is no such file.
+     */
+    private IResource findTrackedResource(IPath path) {
+        IResource resource = project.getWrappedProject().findMember(path);
+        if (resource == null || resource.getType() != IResource.FILE || resource.isVirtual() || resource.getLocation() == null) {
+            return null;
+        }
+        // Same rules as when visiting the project
+        for (IResource parent = resource; parent != null && parent.getType() != IResource.PROJECT; parent = parent.getParent()) {
+            if (parent.isTeamPrivateMember() || parent.isHidden()) {
+                return null;
+            }
+            if (parent != resource && parent.isDerived()) {
+                return null;
+            }
+        }
+        return resource;
+    }
+
+    private static long getTimestamp(IResource resource) {
+        return resource.getLocation().toFile().lastModified();
+    }
+
+    private static String hash(IResource resource) {
+        try {
+            return Util.toBase16(Util.md5(resource.getLocation().toFile()));
+        } catch (IOException e) {
+            return null;
         }
     }
 
+    /**
+     * The number of builds that may use the change journal
+     * before a full verification of the file info tree is made.
+     */
+    private static final int FULL_VERIFICATION_INTERVAL = 20;
+
     private FileInfoTree tree;
     private DependencyManager<IResource> dependencies;
 
+    // The change journal sequence number of the tree, or NO_SEQUENCE
+    // if the tree has not been updated in this session.
+    private long journalSequence = ChangeJournal.NO_SEQUENCE;
+    private int journalBuilds = 0;
+    private boolean hashContents;
+
     private IBuildVariant variant;
     private MoSyncProject project;
     private File buildStateFile;
@@ -257,6 +386,9 @@ public class BuildState implements IBuildState {
         Section files = props.getFirstSection("files");
         parseFileState(files);
 
+        Section hashes = props.getFirstSection("hashes");
+        parseHashes(hashes);
+
         Section dependenciesSection = props.getFirstSection("dependencies");
         parseDependencies(dependenciesSection);
 
@@ -305,6 +437,16 @@ public class BuildState implements IBuildState {
         }
     }
 
+    private void parseHashes(Section hashes) {
+        if (hashes == null) {
+            return;
+        }
+
+        for (Entry entry : hashes.getEntries()) {
+            tree.hashMap.put(new Path(entry.getKey()), entry.getValue());
+        }
+    }
+
     private void parseBuildResult(Section resultSection) {
         if (resultSection == null) {
             return;
@@ -361,6 +503,11 @@ public class BuildState implements IBuildState {
             Section files = props.addSection("files");
             saveFileState(files);
 
+            if (!tree.hashMap.isEmpty()) {
+                Section hashes = props.addSection("hashes");
+                saveHashes(hashes);
+            }
+
             Section deps = props.addSection("dependencies");
             saveDependencies(deps);
 
@@ -420,12 +567,38 @@ public class BuildState implements IBuildState {
         }
     }
 
+    private void saveHashes(Section hashes) {
+        for (Map.Entry<IPath, String> hash : tree.hashMap.entrySet()) {
+            hashes.addEntry(new Entry(hash.getKey().toPortableString(), hash.getValue()));
+        }
+    }
+
     /* (non-Javadoc)
      * @see com.mobilesorcery.sdk.internal.IBuildState#updateState(org.eclipse.core.resources.IResource)
      */
     @Override
 	public void updateState(IResource resource) throws CoreException {
-        resource.accept(tree);
+        initHashContents();
+        IProject project = this.project.getWrappedProject();
+        if (!project.equals(resource)) {
+            resource.accept(tree);
+            return;
+        }
+
+        long sequence = getChangeJournalSequence();
+        Set<IPath> changes = getJournalChanges();
+        if (changes == null) {
+            // Full walk, which also gets rid of files that no longer exist
+            FileInfoTree newTree = new FileInfoTree();
+            newTree.previous = tree;
+            project.accept(newTree);
+            newTree.previous = null;
+            tree = newTree;
+            journalBuilds = 0;
+        } else {
+            tree.updateState(changes);
+        }
+        journalSequence = sequence;
     }
 
     /* (non-Javadoc)
@@ -493,18 +666,54 @@ public class BuildState implements IBuildState {
      */
     @Override
 	public IFileTreeDiff createDiff() throws CoreException {
+        initHashContents();
+        Set<IPath> changes = getJournalChanges();
+        if (changes != null) {
+            journalBuilds++;
+            if (CoreMoSyncPlugin.getDefault().isDebugging()) {
+                CoreMoSyncPlugin.trace("Computing diff from change journal, {0} changed files", changes.size());
+            }
+            return tree.computeDiff(changes);
+        }
+
         FileInfoTree currentTree = new FileInfoTree();
+        currentTree.isSnapshot = false;
         IProject project = this.project.getWrappedProject();
         project.accept(currentTree);
         return currentTree.computeDiff(tree);
     }
 
+    private void initHashContents() {
+        hashContents = CoreMoSyncPlugin.getDefault().getPreferenceStore().getBoolean(MoSyncBuilder.HASH_CONTENTS);
+    }
+
+    private long getChangeJournalSequence() {
+        ChangeJournal journal = CoreMoSyncPlugin.getDefault().getChangeJournal();
+        return journal == null ? ChangeJournal.NO_SEQUENCE : journal.getSequence();
+    }
+
+    /**
+     * Returns the files that have changed since the file info tree
+     * was last updated, or <code>null</code> if a full walk of the
+     * project is needed; either because the change journal does not
+     * know, or because it is time for a full verification.
+     */
+    private Set<IPath> getJournalChanges() {
+        ChangeJournal journal = CoreMoSyncPlugin.getDefault().getChangeJournal();
+        // In headless mode, files are typically changed outside the workspace.
+        if (journal == null || CoreMoSyncPlugin.isHeadless() || journalBuilds >= FULL_VERIFICATION_INTERVAL) {
+            return null;
+        }
+        return journal.getChangesSince(project.getWrappedProject(), journalSequence);
+    }
+
     /* (non-Javadoc)
      * @see com.mobilesorcery.sdk.internal.IBuildState#clear()
      */
     @Override
 	public void clear() {
         tree = new FileInfoTree();
+        journalSequence = ChangeJournal.NO_SEQUENCE;
         dependencies = new DependencyManager<IResource>();
         properties = new HashMap<String, String>();
         buildResult = null;
@@ -0,0 +1,192 @@
+/*  Copyright (C) 2009 Mobile Sorcery AB
+
+    This program is free software; you can redistribute it and/or modify it
+    under the terms of the Eclipse Public License v1.0.
+
+    This program is distributed in the hope that it will be useful, but WITHOUT
+    ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+    FITNESS FOR A PARTICULAR PURPOSE. See the Eclipse Public License v1.0 for
+    more details.
+
+    You should have received a copy of the Eclipse Public License v1.0 along
+    with this program. It is also available at http://www.eclipse.org/legal/epl-v10.html
+*/
+package com.mobilesorcery.sdk.internal;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.IResourceChangeEvent;
+import org.eclipse.core.resources.IResourceChangeListener;
+import org.eclipse.core.resources.IResourceDelta;
+import org.eclipse.core.resources.IResourceDeltaVisitor;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IPath;
+
+import com.mobilesorcery.sdk.core.CoreMoSyncPlugin;
+
+/**
+ * <p>A journal of file changes in the workspace, fed by resource
+ * change events.</p>
+ * <p>Each recorded change gets a sequence number; clients (such
+ * as {@link BuildState}) remember the sequence number of their
+ * latest snapshot and may then ask for all files that have changed
+ * since, instead of walking the whole project.</p>
+ * <p>The journal only knows about changes that have been reported
+ * by the workspace; files changed outside of the workspace will not
+ * show up until the workspace is refreshed. Clients should therefore
+ * do a full verification every now and then.</p>
+ */
+public class ChangeJournal implements IResourceChangeListener {
+
+	/**
+	 * The sequence number that is never covered by the journal.
+	 */
+	public static final long NO_SEQUENCE = -1;
+
+	// If a project has more changes than this, we just
+	// drop them all and let clients do a full walk.
+	private static final int MAX_CHANGES_PER_PROJECT = 50000;
+
+	private static class ProjectJournal {
+		// Project relative path -> sequence number of last change
+		final HashMap<IPath, Long> changes = new HashMap<IPath, Long>();
+		// Changes before this sequence number are unknown
+		long validFrom;
+
+		ProjectJournal(long validFrom) {
+			this.validFrom = validFrom;
+		}
+	}
+
+	private final HashMap<IProject, ProjectJournal> journals = new HashMap<IProject, ProjectJournal>();
+
+	private long sequence = 0;
+
+	/**
+	 * Returns the current sequence number of this journal;
+	 * the next change will get a higher sequence number.
+	 * @return
+	 */
+	public synchronized long getSequence() {
+		return sequence;
+	}
+
+	/**
+	 * Returns the project relative paths of all files that have
+	 * changed (been added, removed or had their contents changed)
+	 * after a given sequence number.
+	 * @param project
+	 * @param since
+	 * @return The changed files, or <code>null</code> if the journal
+	 * cannot tell what has changed since <code>since</code>; clients
+	 * must then find the changes by other means.
+	 */
+	public synchronized Set<IPath> getChangesSince(IProject project, long since) {
+		if (since == NO_SEQUENCE) {
+			return null;
+		}
+		ProjectJournal journal = journals.get(project);
+		if (journal == null) {
+			// Nothing has happened to the project since we started.
+			return new HashSet<IPath>();
+		}
+		if (since < journal.validFrom) {
+			return null;
+		}
+
+		HashSet<IPath> result = new HashSet<IPath>();
+		for (Map.Entry<IPath, Long> change : journal.changes.entrySet()) {
+			if (change.getValue() > since) {
+				result.add(change.getKey());
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Records a change to a file.
+	 * @param file
+	 */
+	public synchronized void markChanged(IResource file) {
+		IProject project = file.getProject();
+		if (project == null) {
+			return;
+		}
+		sequence++;
+		ProjectJournal journal = getJournal(project);
+		journal.changes.put(file.getProjectRelativePath(), sequence);
+		if (journal.changes.size() > MAX_CHANGES_PER_PROJECT) {
+			invalidate(project);
+		}
+	}
+
+	/**
+	 * Forgets all changes to a project; clients will
+	 * have to find out what has changed by other means.
+	 * @param project
+	 */
+	public synchronized void invalidate(IProject project) {
+		sequence++;
+		ProjectJournal journal = getJournal(project);
+		journal.changes.clear();
+		journal.validFrom = sequence;
+		if (CoreMoSyncPlugin.getDefault().isDebugging()) {
+			CoreMoSyncPlugin.trace("Change journal for {0} invalidated", project.getName());
+		}
+	}
+
+	private ProjectJournal getJournal(IProject project) {
+		ProjectJournal journal = journals.get(project);
+		if (journal == null) {
+			journal = new ProjectJournal(0);
+			journals.put(project, journal);
+		}
+		return journal;
+	}
+
+	@Override
+	public void resourceChanged(IResourceChangeEvent event) {
+		IResourceDelta delta = event.getDelta();
+		if (event.getType() != IResourceChangeEvent.POST_CHANGE || delta == null) {
+			return;
+		}
+
+		try {
+			delta.accept(new IResourceDeltaVisitor() {
+				@Override
+				public boolean visit(IResourceDelta delta) throws CoreException {
+					IResource resource = delta.getResource();
+					int type = resource.getType();
+					int flags = delta.getFlags();
+					if (type == IResource.PROJECT) {
+						boolean isOpenedOrMoved = (flags & (IResourceDelta.OPEN | IResourceDelta.MOVED_FROM | IResourceDelta.DESCRIPTION)) != 0;
+						if (delta.getKind() != IResourceDelta.CHANGED || isOpenedOrMoved) {
+							invalidate((IProject) resource);
+							return false;
+						}
+					} else if (type == IResource.FILE) {
+						int kind = delta.getKind();
+						boolean isContentChange = (flags & (IResourceDelta.CONTENT | IResourceDelta.REPLACED | IResourceDelta.LOCAL_CHANGED)) != 0;
+						if (kind == IResourceDelta.ADDED || kind == IResourceDelta.REMOVED || isContentChange) {
+							markChanged(resource);
+						}
+					} else if (type == IResource.FOLDER) {
+						// Linked folders that change target; we cannot trust the deltas.
+						if ((flags & IResourceDelta.LOCAL_CHANGED) != 0) {
+							invalidate(resource.getProject());
+							return false;
+						}
+					}
+					return true;
+				}
+			});
+		} catch (CoreException e) {
+			CoreMoSyncPlugin.getDefault().log(e);
+		}
+	}
+}
@@ -29,6 +29,7 @@ import com.mobilesorcery.sdk.core.IFileTreeDiff;
 import com.mobilesorcery.sdk.core.IPackager;
 import com.mobilesorcery.sdk.core.IProcessConsole;
 import com.mobilesorcery.sdk.core.MoSyncProject;
+import com.mobilesorcery.sdk.core.PackageFingerprint;
 import com.mobilesorcery.sdk.profiles.IProfile;
 
 /**
@@ -57,6 +58,12 @@ public class ErrorPackager extends AbstractPackager implements IPackager {
         buildResult.addError(errorMsg);
     }
 
+	@Override
+	public PackageFingerprint getPackageFingerprint(MoSyncProject project, IBuildSession session, IBuildVariant variant) {
+		// Always report the error
+		return null;
+	}
+
 	@Override
 	public String getId() {
 		return "***error***";
@@ -23,6 +23,7 @@ import com.mobilesorcery.sdk.core.IFileTreeDiff;
 import com.mobilesorcery.sdk.core.IPackager;
 import com.mobilesorcery.sdk.core.IPackagerDelegate;
 import com.mobilesorcery.sdk.core.MoSyncProject;
+import com.mobilesorcery.sdk.core.PackageFingerprint;
 import com.mobilesorcery.sdk.profiles.IProfile;
 
 public class PackagerProxy implements IPackager {
@@ -70,6 +71,12 @@ public class PackagerProxy implements IPackager {
 		}
 	}
 
+	@Override
+	public PackageFingerprint getPackageFingerprint(MoSyncProject project, IBuildSession session, IBuildVariant variant) throws CoreException {
+		initDelegate();
+		return delegate.getPackageFingerprint(project, session, variant);
+	}
+
 	@Override
 	public String getId() {
 		return id;
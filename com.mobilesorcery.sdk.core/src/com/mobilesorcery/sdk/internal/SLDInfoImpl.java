@@ -18,8 +18,10 @@ import java.io.IOException;
 import java.io.Writer;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.TreeMap;
+import java.util.TreeSet;
 import java.util.Map.Entry;
 
 import com.mobilesorcery.sdk.core.ISLDInfo;
@@ -30,6 +32,7 @@ public class SLDInfoImpl implements ISLDInfo {
     private TreeMap<Integer, Integer> addrToFile = new TreeMap<Integer, Integer>();
     private TreeMap<Integer, Integer> addrToLine = new TreeMap<Integer, Integer>();
     public TreeMap<AddressRange, String> startAddrForFunc = new TreeMap<AddressRange, String>(AddressRange.START_COMPARATOR);
+    private HashMap<Integer, TreeSet<Integer>> linesWithCode;
     private File file;
 
     SLDInfoImpl(File sldFile) {
@@ -93,6 +96,9 @@ public class SLDInfoImpl implements ISLDInfo {
     public String getFunction(int addr) {
         AddressRange key = new AddressRange(addr, addr);
         Entry<AddressRange, String> closestEntry = startAddrForFunc.floorEntry(key);
+        if (closestEntry == null) {
+            return null;
+        }
         AddressRange closestAddressRange = closestEntry.getKey();
         return closestAddressRange != null && closestAddressRange.inRange(addr) ? closestEntry.getValue() : null;
     }
@@ -138,5 +144,33 @@ public class SLDInfoImpl implements ISLDInfo {
 		return Collections.unmodifiableCollection(startAddrForFunc.values());	
 	}
 
+	public synchronized int getFirstLineWithCode(String fileName, int line) {
+		if (linesWithCode == null) {
+			linesWithCode = new HashMap<Integer, TreeSet<Integer>>();
+			for (Entry<Integer, Integer> entry : addrToFile.entrySet()) {
+				Integer fileId = entry.getValue();
+				TreeSet<Integer> lines = linesWithCode.get(fileId);
+				if (lines == null) {
+					lines = new TreeSet<Integer>();
+					linesWithCode.put(fileId, lines);
+				}
+				lines.add(addrToLine.get(entry.getKey()));
+			}
+		}
+
+		// The same file may occur several times in the file table
+		int result = UNKNOWN_LINE;
+		for (Entry<Integer, String> file : fileTable.entrySet()) {
+			if (file.getValue().equals(fileName)) {
+				TreeSet<Integer> lines = linesWithCode.get(file.getKey());
+				Integer candidate = lines == null ? null : lines.ceiling(line);
+				if (candidate != null && (result == UNKNOWN_LINE || candidate < result)) {
+					result = candidate;
+				}
+			}
+		}
+		return result;
+	}
+
  
 }
@@ -24,6 +24,7 @@ import java.util.ArrayList;
 
 import org.eclipse.cdt.utils.CPPFilt;
 
+import com.mobilesorcery.sdk.core.Cache;
 import com.mobilesorcery.sdk.core.CoreMoSyncPlugin;
 import com.mobilesorcery.sdk.core.MoSyncTool;
 import com.mobilesorcery.sdk.core.Util;
@@ -40,6 +41,10 @@ public class SLDParser {
 	private static final int FUNCTIONS_STATE = 3;
 	private static final int LINE_IP_STATE = 4;
 
+	// Demangled names are shared between parses, so that re-parsing
+	// the SLD after a build only runs c++filt on new symbols.
+	private static final Cache<String, String> demangledNames = new Cache<String, String>("demangled-names", 16384);
+
 	private int state;
 
 	private ArrayList<Exception> errors = new ArrayList<Exception>();
@@ -47,6 +52,7 @@ public class SLDParser {
 
 	private int currentLine;
 	private CPPFilt cppFilt;
+	private boolean cppFiltFailed;
 
 	public void parse(File sldFile) throws IOException {
 		BufferedReader sldReader = new BufferedReader(new FileReader(sldFile));
@@ -63,14 +69,6 @@ public class SLDParser {
 
 	private void parse(Reader sldReader, File sldFile) throws IOException {
 		try {
-			try {
-				cppFilt = new CPPFilt(MoSyncTool.getDefault()
-						.getBinary("c++filt").toOSString());
-			} catch (IOException e) {
-				// Ignore but log.
-				CoreMoSyncPlugin.getDefault().logOnce(e,
-						getClass().getName() + "c++filt");
-			}
 			sld = new SLDInfoImpl(sldFile);
 			currentLine = 0;
 			LineNumberReader sldLines = new LineNumberReader(sldReader);
@@ -94,6 +92,7 @@ public class SLDParser {
 		} finally {
 			if (cppFilt != null) {
 				cppFilt.dispose();
+				cppFilt = null;
 			}
 		}
 	}
@@ -128,16 +127,44 @@ public class SLDParser {
 		String[] functionEntry = line.split("\\s", 2);
 		if (functionEntry.length == 2) {
 			String symbol = functionEntry[0];
-			String unmangledFunctionName = symbol;
+			String unmangledFunctionName = demangle(symbol);
+			String addrRange = functionEntry[1];
+			sld.addRangeForFunction(unmangledFunctionName,
+					AddressRange.parse(addrRange));
+		}
+	}
+
+	private String demangle(String symbol) {
+		String demangled = demangledNames.get(symbol);
+		if (demangled != null) {
+			return demangled;
+		}
+		CPPFilt cppFilt = getCPPFilt();
+		if (cppFilt != null) {
 			try {
-				unmangledFunctionName = cppFilt.getFunction(symbol);
+				demangled = cppFilt.getFunction(symbol);
+				demangledNames.put(symbol, demangled);
+				return demangled;
 			} catch (IOException e) {
 				// Just present the mangled name
 			}
-			String addrRange = functionEntry[1];
-			sld.addRangeForFunction(unmangledFunctionName,
-					AddressRange.parse(addrRange));
 		}
+		return symbol;
+	}
+
+	private CPPFilt getCPPFilt() {
+		if (cppFilt == null && !cppFiltFailed) {
+			try {
+				cppFilt = new CPPFilt(MoSyncTool.getDefault()
+						.getBinary("c++filt").toOSString());
+			} catch (IOException e) {
+				// Ignore but log.
+				cppFiltFailed = true;
+				CoreMoSyncPlugin.getDefault().logOnce(e,
+						getClass().getName() + "c++filt");
+			}
+		}
+		return cppFilt;
 	}
 
 	private void parseSLDEntry(String line) throws SLDParseException {
@@ -124,6 +124,7 @@ public class BuildPropertiesInitializerDelegate extends AbstractPreferenceInitia
     public void initializeDefaultPreferences() {
         IPreferenceStore store = CoreMoSyncPlugin.getDefault().getPreferenceStore();
         store.setDefault(MoSyncBuilder.REBUILD_ON_ERROR, true);
+        store.setDefault(CoreMoSyncPlugin.CONSOLE_RETENTION_PREF, 1000000);
     }
 
 }
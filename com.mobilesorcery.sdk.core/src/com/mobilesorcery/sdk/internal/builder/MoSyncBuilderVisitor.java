@@ -31,6 +31,7 @@ import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.Status;
 
+import com.mobilesorcery.sdk.core.BuildTrace;
 import com.mobilesorcery.sdk.core.CoreMoSyncPlugin;
 import com.mobilesorcery.sdk.core.IBuildResult;
 import com.mobilesorcery.sdk.core.MoSyncBuilder;
@@ -252,6 +253,8 @@ public class MoSyncBuilderVisitor extends IncrementalBuilderVisitor {
             String cmdLine = Util.join(argsAsArray, " ");
             console.addMessage(cmdLine);
 
+            BuildTrace.Span span = BuildTrace.begin(xgcc.lastSegment(), BuildTrace.CATEGORY_PROCESS);
+            span.setArg("file", cFile.getProjectRelativePath().toString());
             try {
                 // Java automatically escapes the arguments when we call exec with an array instead of a string
                 Process process = Runtime.getRuntime().exec(argsAsArray, null, resource.getProject().getLocation().toFile());
@@ -259,6 +262,7 @@ public class MoSyncBuilderVisitor extends IncrementalBuilderVisitor {
                 console.attachProcess(process, linehandler);
 
                 int result = process.waitFor();
+                span.setArg("exit", result);
                 if (result != 0) {
                     errors++;
                     if (buildResult != null) {
@@ -268,6 +272,8 @@ public class MoSyncBuilderVisitor extends IncrementalBuilderVisitor {
                 compileCount ++;
             } catch (Exception e) {
                 throw new CoreException(new Status(IStatus.ERROR, CoreMoSyncPlugin.PLUGIN_ID, e.getMessage(), e));
+            } finally {
+                span.end();
             }
         }
 
@@ -37,6 +37,7 @@ import org.eclipse.debug.core.DebugPlugin;
 
 import com.mobilesorcery.sdk.core.CommandLineExecutor;
 import com.mobilesorcery.sdk.core.CoreMoSyncPlugin;
+import com.mobilesorcery.sdk.core.IProcessConsole;
 import com.mobilesorcery.sdk.core.MoSyncBuilder;
 import com.mobilesorcery.sdk.core.MoSyncTool;
 import com.mobilesorcery.sdk.core.ParameterResolverException;
@@ -55,6 +56,10 @@ public class MoSyncResourceBuilderVisitor extends IncrementalBuilderVisitor {
 
 	private IDependencyProvider<IResource> dependencyProvider;
 
+	private File fingerprintLocation;
+
+	private IProcessConsole console;
+
 	@Override
 	public boolean visit(IResource resource) throws CoreException {
 		super.visit(resource);
@@ -85,6 +90,20 @@ public class MoSyncResourceBuilderVisitor extends IncrementalBuilderVisitor {
 		this.pipeTool = pipeTool;
 	}
 
+	/**
+	 * Sets the directory where the fingerprint of the last
+	 * resource compilation is kept; if not set, resources are
+	 * always recompiled when they may have changed.
+	 * @param fingerprintLocation
+	 */
+	public void setFingerprintLocation(File fingerprintLocation) {
+		this.fingerprintLocation = fingerprintLocation;
+	}
+
+	public void setConsole(IProcessConsole console) {
+		this.console = console;
+	}
+
 	private int countResourceFiles(List<String> resourceFiles, String ext) {
 		int count = 0;
 		for (String resourceFile : resourceFiles) {
@@ -109,7 +128,27 @@ public class MoSyncResourceBuilderVisitor extends IncrementalBuilderVisitor {
 			if (resDir != null && lstCount == 0) {
 				resourceFiles.add(resDir.getAbsolutePath());
 			}
-			if ((lstxCount > 0 || resDir != null) && lstCount == 0) {
+			boolean useResComp = (lstxCount > 0 || resDir != null) && lstCount == 0;
+			// resourceFiles is replaced by the output of rescomp below
+			final List<String> inputs = new ArrayList<String>(resourceFiles);
+
+			// Resources are compiled all at once; but if none of their
+			// contents have changed (just their time stamps), the last
+			// output is reused.
+			ResourceFingerprint fingerprint = null;
+			if (fingerprintLocation != null && !inputs.isEmpty()) {
+				fingerprint = createResourceFingerprint(useResComp);
+				if (fingerprint.isUpToDate(inputs) && outputFile.toFile().exists()) {
+					if (console != null) {
+						console.addMessage(MessageFormat.format("Resources unchanged, will reuse {0}", outputFile.toOSString()));
+					}
+					addResourceDependencies(dependencyDelta);
+					return;
+				}
+				fingerprint.invalidate();
+			}
+
+			if (useResComp) {
 				// Beware; here we once more update the resourceFiles array...
 				resourceFiles = Arrays.asList(compileWithResComp(resourceFiles.toArray(new String[0]), monitor, dependencyManager, dependencyDelta));
 			}
@@ -117,7 +156,35 @@ public class MoSyncResourceBuilderVisitor extends IncrementalBuilderVisitor {
 			if (!resourceFiles.isEmpty()) {
 				compileWithPipeTool(monitor, dependencyManager, dependencyDelta, resourceFiles.toArray(new String[0]));
 			}
+
+			if (fingerprint != null) {
+				try {
+					fingerprint.save(inputs);
+				} catch (IOException e) {
+					// Next time we'll just compile again.
+					CoreMoSyncPlugin.getDefault().log(e);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Creates the fingerprint of the resource files, the media files
+	 * they refer to (as listed by the last resource compilation) and
+	 * the tools used to compile them.
+	 */
+	private ResourceFingerprint createResourceFingerprint(boolean useResComp) {
+		ResourceFingerprint fingerprint = new ResourceFingerprint(fingerprintLocation);
+		fingerprint.setSetting("output", outputFile.toOSString());
+		fingerprint.setSetting("extra-switches", Util.join(getExtraSwitches(), " "));
+		fingerprint.setSetting("pipe-tool", Long.toString(MoSyncTool.getDefault().getBinary("pipe-tool").toFile().lastModified()));
+		if (useResComp) {
+			fingerprint.setSetting("platform", ProfileDBManager.getPlatform(getVariant().getProfile()));
+			fingerprint.setSetting("rescomp", Long.toString(MoSyncTool.getDefault().getBinary("rescomp").toFile().lastModified()));
 		}
+		fingerprint.setDependencyFile(PipeTool.getResourcesDependencyFile(project, getVariant()).toFile(),
+				outputFile.removeLastSegments(1));
+		return fingerprint;
 	}
 
 	private String[] getExtraSwitches() {
@@ -167,6 +234,10 @@ public class MoSyncResourceBuilderVisitor extends IncrementalBuilderVisitor {
 			throw ParameterResolverException.toCoreException(e);
 		}
 
+		addResourceDependencies(dependencyDelta);
+	}
+
+	private void addResourceDependencies(DependencyManager.Delta<IResource> dependencyDelta) throws CoreException {
 		// Explicitly add dependencies for the pipetool output file -- TODO:
 		// outputfile must equal getresourceoutput; remove one.
 		IPath resourcePath = MoSyncBuilder.getResourceOutputPath(project, getVariant());
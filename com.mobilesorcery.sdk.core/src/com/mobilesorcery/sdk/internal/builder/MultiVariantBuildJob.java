@@ -0,0 +1,251 @@
+/*  Copyright (C) 2009 Mobile Sorcery AB
+
+    This program is free software; you can redistribute it and/or modify it
+    under the terms of the Eclipse Public License v1.0.
+
+    This program is distributed in the hope that it will be useful, but WITHOUT
+    ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+    FITNESS FOR A PARTICULAR PURPOSE. See the Eclipse Public License v1.0 for
+    more details.
+
+    You should have received a copy of the Eclipse Public License v1.0 along
+    with this program. It is also available at http://www.eclipse.org/legal/epl-v10.html
+*/
+package com.mobilesorcery.sdk.internal.builder;
+
+import java.io.File;
+import java.lang.reflect.InvocationTargetException;
+import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.MultiStatus;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.OperationCanceledException;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.SubProgressMonitor;
+import org.eclipse.jface.operation.IRunnableWithProgress;
+
+import com.mobilesorcery.sdk.core.CoreMoSyncPlugin;
+import com.mobilesorcery.sdk.core.IBuildResult;
+import com.mobilesorcery.sdk.core.IBuildSession;
+import com.mobilesorcery.sdk.core.IBuildVariant;
+import com.mobilesorcery.sdk.core.IProcessConsole;
+import com.mobilesorcery.sdk.core.MoSyncBuilder;
+import com.mobilesorcery.sdk.core.MoSyncProject;
+import com.mobilesorcery.sdk.core.MoSyncTool;
+import com.mobilesorcery.sdk.core.Util;
+
+/**
+ * <p>Builds several variants of a project, typically for finalizing.</p>
+ * <p>Variants are grouped by their compilation key; the first variant
+ * of each group is built as usual, and the other variants of the group
+ * then reuse its compilation output and are packaged in parallel.</p>
+ * @see MoSyncBuilder#getCompilationKey(MoSyncProject, IBuildVariant)
+ */
+public class MultiVariantBuildJob implements IRunnableWithProgress {
+
+	private static final int MAX_THREADS = Math.max(1, Runtime.getRuntime().availableProcessors());
+
+	private static class VariantBuild {
+		final IBuildVariant variant;
+		IBuildVariant compiledVariant;
+		long elapsedTime;
+		long size;
+		CoreException error;
+
+		VariantBuild(IBuildVariant variant) {
+			this.variant = variant;
+		}
+	}
+
+	private final IProject project;
+	private final IBuildSession session;
+	private final List<IBuildVariant> variants;
+
+	public MultiVariantBuildJob(IProject project, IBuildSession session, List<IBuildVariant> variants) {
+		this.project = project;
+		this.session = session;
+		this.variants = variants;
+	}
+
+	@Override
+	public void run(final IProgressMonitor monitor) throws InvocationTargetException, InterruptedException {
+		MoSyncProject mosyncProject = MoSyncProject.create(project);
+		if (MoSyncBuilder.isLib(mosyncProject) || variants.size() < 2) {
+			MoSyncBuilder.createBuildJob(project, session, variants).run(monitor);
+			return;
+		}
+
+		LinkedHashMap<String, List<IBuildVariant>> groups = new LinkedHashMap<String, List<IBuildVariant>>();
+		try {
+			for (IBuildVariant variant : variants) {
+				String key = MoSyncBuilder.getCompilationKey(mosyncProject, variant);
+				List<IBuildVariant> group = groups.get(key);
+				if (group == null) {
+					group = new ArrayList<IBuildVariant>();
+					groups.put(key, group);
+				}
+				group.add(variant);
+			}
+		} catch (CoreException e) {
+			throw new InvocationTargetException(e, e.getMessage());
+		}
+
+		Map<IBuildVariant, IBuildVariant> sharedCompilation = Collections.synchronizedMap(new HashMap<IBuildVariant, IBuildVariant>());
+		session.getProperties().put(MoSyncBuilder.SHARED_COMPILATION, sharedCompilation);
+
+		monitor.beginTask(MessageFormat.format("Building {0} variants", variants.size()), variants.size());
+		int threads = Math.min(MAX_THREADS, variants.size() - groups.size());
+		ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, threads), new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread thread = new Thread(r, "Packager");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+
+		ArrayList<VariantBuild> builds = new ArrayList<VariantBuild>();
+		ArrayList<Future<VariantBuild>> packaging = new ArrayList<Future<VariantBuild>>();
+		try {
+			for (List<IBuildVariant> group : groups.values()) {
+				if (monitor.isCanceled()) {
+					break;
+				}
+				// The first variant compiles...
+				IBuildVariant compiledVariant = group.get(0);
+				VariantBuild compiled = build(compiledVariant, new SubProgressMonitor(monitor, 1));
+				builds.add(compiled);
+
+				// ...and the rest are packaged in parallel while we compile the next group.
+				for (IBuildVariant variant : group.subList(1, group.size())) {
+					final VariantBuild build = new VariantBuild(variant);
+					build.compiledVariant = compiledVariant;
+					builds.add(build);
+					if (compiled.error != null) {
+						build.error = new CoreException(new Status(IStatus.ERROR, CoreMoSyncPlugin.PLUGIN_ID,
+								MessageFormat.format("Not built; {0} failed", MoSyncTool.toString(compiledVariant.getProfile()))));
+						monitor.worked(1);
+						continue;
+					}
+					sharedCompilation.put(variant, compiledVariant);
+					packaging.add(executor.submit(CoreMoSyncPlugin.getDefault().withThreadProcessConsoleProvider(new Callable<VariantBuild>() {
+						@Override
+						public VariantBuild call() {
+							return build(build, new NullProgressMonitor() {
+								@Override
+								public boolean isCanceled() {
+									return monitor.isCanceled();
+								}
+							});
+						}
+					})));
+				}
+			}
+
+			for (Future<VariantBuild> packaged : packaging) {
+				try {
+					packaged.get();
+				} catch (ExecutionException e) {
+					// Errors are recorded in the build itself
+					CoreMoSyncPlugin.getDefault().log(e.getCause());
+				}
+				monitor.worked(1);
+			}
+		} finally {
+			executor.shutdownNow();
+			session.getProperties().remove(MoSyncBuilder.SHARED_COMPILATION);
+			monitor.done();
+		}
+
+		updateMarkers(builds);
+		printSummary(builds);
+
+		MultiStatus errors = new MultiStatus(CoreMoSyncPlugin.PLUGIN_ID, IStatus.ERROR, "Could not build all variants", null);
+		for (VariantBuild build : builds) {
+			if (build.error != null) {
+				errors.add(new Status(IStatus.ERROR, CoreMoSyncPlugin.PLUGIN_ID,
+						MoSyncTool.toString(build.variant.getProfile()) + ": " + build.error.getMessage(), build.error));
+			}
+		}
+		if (!errors.isOK()) {
+			CoreException error = new CoreException(errors);
+			throw new InvocationTargetException(error, error.getMessage());
+		}
+	}
+
+	private VariantBuild build(IBuildVariant variant, IProgressMonitor monitor) {
+		return build(new VariantBuild(variant), monitor);
+	}
+
+	private VariantBuild build(VariantBuild build, IProgressMonitor monitor) {
+		long startTime = System.currentTimeMillis();
+		try {
+			IBuildResult buildResult = new MoSyncBuilder().build(project, session, build.variant, null, monitor);
+			if (!buildResult.success()) {
+				build.error = buildResult.createException();
+			}
+			Map<String, List<File>> artifacts = buildResult.getBuildResult();
+			if (artifacts != null) {
+				for (List<File> files : artifacts.values()) {
+					for (File file : files) {
+						build.size += file.length();
+					}
+				}
+			}
+		} catch (CoreException e) {
+			build.error = e;
+		} catch (OperationCanceledException e) {
+			// Ignore; we will not print a summary for this one anyway.
+		} finally {
+			build.elapsedTime = System.currentTimeMillis() - startTime;
+			monitor.done();
+		}
+		return build;
+	}
+
+	/**
+	 * Variants that share a compilation leave the project markers alone,
+	 * since they are packaged concurrently; this is where they are
+	 * updated instead, once they are all done.
+	 */
+	private void updateMarkers(List<VariantBuild> builds) {
+		for (VariantBuild build : builds) {
+			if (build.compiledVariant != null && build.error != null) {
+				try {
+					MoSyncBuilder.markBuildFailed(project);
+				} catch (CoreException e) {
+					CoreMoSyncPlugin.getDefault().log(e);
+				}
+				return;
+			}
+		}
+	}
+
+	private void printSummary(List<VariantBuild> builds) {
+		IProcessConsole console = CoreMoSyncPlugin.getDefault().createConsole(MoSyncBuilder.CONSOLE_ID);
+		console.addMessage(IProcessConsole.MESSAGE, "Summary:");
+		for (VariantBuild build : builds) {
+			String profile = MoSyncTool.toString(build.variant.getProfile());
+			String status = build.error == null ? Util.dataSize(build.size) : "FAILED";
+			String compilation = build.compiledVariant == null ? "compiled" : "shared";
+			console.addMessage(IProcessConsole.MESSAGE, MessageFormat.format("\t{0}\t{1}\t{2}\t{3}",
+					profile, compilation, Util.elapsedTime(build.elapsedTime), status));
+		}
+	}
+}
@@ -0,0 +1,148 @@
+/*  Copyright (C) 2011 Mobile Sorcery AB
+
+    This program is free software; you can redistribute it and/or modify it
+    under the terms of the Eclipse Public License v1.0.
+
+    This program is distributed in the hope that it will be useful, but WITHOUT
+    ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+    FITNESS FOR A PARTICULAR PURPOSE. See the Eclipse Public License v1.0 for
+    more details.
+
+    You should have received a copy of the Eclipse Public License v1.0 along
+    with this program. It is also available at http://www.eclipse.org/legal/epl-v10.html
+*/
+package com.mobilesorcery.sdk.internal.builder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.List;
+import java.util.TreeMap;
+
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.runtime.IPath;
+
+import com.mobilesorcery.sdk.core.FileHashCache;
+import com.mobilesorcery.sdk.core.PackageFingerprint;
+import com.mobilesorcery.sdk.core.Util;
+import com.mobilesorcery.sdk.internal.dependencies.GCCDependencyFileParser;
+
+/**
+ * <p>The fingerprint of the inputs of a resource compilation: the
+ * resource files (as given to rescomp or pipe-tool), the media files
+ * they referred to the last time they were compiled, and the settings
+ * and tools used to compile them.</p>
+ * <p>If the fingerprint equals the one saved after the last successful
+ * compilation, that compilation need not be done again. Files are hashed
+ * through a {@link FileHashCache}, so only files that were touched since
+ * the last build are re-read.</p>
+ */
+class ResourceFingerprint {
+
+	static final String FINGERPRINT_FILE = ".resourcefingerprint";
+
+	static final String HASHES_FILE = ".resourcehashes";
+
+	private final File fingerprintFile;
+
+	private final File hashesFile;
+
+	private final FileHashCache hashes;
+
+	private final TreeMap<String, String> settings = new TreeMap<String, String>();
+
+	private File dependencyFile;
+
+	private IPath generatedDir;
+
+	/**
+	 * @param location The directory where the fingerprint
+	 * is kept between builds
+	 */
+	ResourceFingerprint(File location) {
+		this.fingerprintFile = new File(location, FINGERPRINT_FILE);
+		this.hashesFile = new File(location, HASHES_FILE);
+		this.hashes = FileHashCache.load(hashesFile);
+	}
+
+	/**
+	 * Adds a setting that affects the compilation, such as
+	 * the target platform or the version of a tool.
+	 * @param key
+	 * @param value
+	 */
+	void setSetting(String key, String value) {
+		settings.put(key, value);
+	}
+
+	/**
+	 * Sets the dependency file written by the last compilation;
+	 * the media files it lists are part of the fingerprint,
+	 * except those generated into <code>generatedDir</code>
+	 * (their sources already are).
+	 * @param dependencyFile
+	 * @param generatedDir
+	 */
+	void setDependencyFile(File dependencyFile, IPath generatedDir) {
+		this.dependencyFile = dependencyFile;
+		this.generatedDir = generatedDir;
+	}
+
+	String compute(List<String> inputs) throws IOException {
+		PackageFingerprint fingerprint = new PackageFingerprint(hashes);
+		fingerprint.addAll("", settings);
+		for (int i = 0; i < inputs.size(); i++) {
+			String input = inputs.get(i);
+			fingerprint.add("resource:" + i + ":" + input, new File(input));
+		}
+
+		if (dependencyFile != null && dependencyFile.exists()) {
+			GCCDependencyFileParser parser = new GCCDependencyFileParser();
+			parser.parse(dependencyFile);
+			for (Collection<IResource> dependencies : parser.getDependencies().values()) {
+				for (IResource dependency : dependencies) {
+					IPath location = dependency.getLocation();
+					if (location != null && (generatedDir == null || !generatedDir.isPrefixOf(location))) {
+						fingerprint.add("media:" + location.toOSString(), location.toFile());
+					}
+				}
+			}
+		} else {
+			fingerprint.add("media", "<unknown>");
+		}
+		return fingerprint.getValue();
+	}
+
+	/**
+	 * Returns whether the given inputs are the same as those
+	 * of the last successful compilation.
+	 * @param inputs
+	 * @return
+	 * @throws IOException
+	 */
+	boolean isUpToDate(List<String> inputs) throws IOException {
+		String saved = PackageFingerprint.load(fingerprintFile);
+		return saved != null && saved.equals(compute(inputs));
+	}
+
+	/**
+	 * Forgets the last compilation, so that the next compilation
+	 * is done even if it fails before it is saved.
+	 */
+	void invalidate() {
+		fingerprintFile.delete();
+	}
+
+	/**
+	 * Saves the fingerprint of a successful compilation. The
+	 * media files may have changed, so it is computed again.
+	 * @param inputs The same inputs as given to {@link #isUpToDate(List)}
+	 * @throws IOException
+	 */
+	void save(List<String> inputs) throws IOException {
+		String fingerprint = compute(inputs);
+		fingerprintFile.getParentFile().mkdirs();
+		Util.writeToFile(fingerprintFile, fingerprint);
+		hashes.save(hashesFile);
+	}
+}
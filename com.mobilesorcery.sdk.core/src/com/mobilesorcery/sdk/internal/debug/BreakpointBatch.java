@@ -0,0 +1,149 @@
+/*  Copyright (C) 2009 Mobile Sorcery AB
+
+    This program is free software; you can redistribute it and/or modify it
+    under the terms of the Eclipse Public License v1.0.
+
+    This program is distributed in the hope that it will be useful, but WITHOUT
+    ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+    FITNESS FOR A PARTICULAR PURPOSE. See the Eclipse Public License v1.0 for
+    more details.
+
+    You should have received a copy of the Eclipse Public License v1.0 along
+    with this program. It is also available at http://www.eclipse.org/legal/epl-v10.html
+*/
+package com.mobilesorcery.sdk.internal.debug;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <p>A batch of breakpoints to install on a debug target.</p>
+ * <p>Installing a breakpoint usually means one round trip to
+ * the debugger; this class reduces the cost of installing many
+ * breakpoints at once by
+ * <ul>
+ * <li>filtering out breakpoints that can be determined to be
+ * unresolvable beforehand (typically by looking them up in the SLD),
+ * so these never reach the debugger, and</li>
+ * <li>collecting all failures so they can be reported in bulk.</li>
+ * </ul></p>
+ * <p>Breakpoints are installed one at a time, in order; the CDI
+ * breakpoint manager and the MI session are not designed for
+ * concurrent requests.</p>
+ * @param <T> The breakpoint type
+ */
+public class BreakpointBatch<T> {
+
+	/**
+	 * Determines whether a breakpoint can be installed without
+	 * asking the debugger.
+	 */
+	public interface IResolver<T> {
+		/**
+		 * @param breakpoint
+		 * @return <code>false</code> if the breakpoint is known
+		 * to be unresolvable, <code>true</code> if it is or
+		 * may be resolvable.
+		 */
+		public boolean isResolvable(T breakpoint);
+	}
+
+	/**
+	 * Performs the actual installation of a breakpoint;
+	 * each call is assumed to be one round trip.
+	 */
+	public interface IInstaller<T> {
+		public void install(T breakpoint) throws Exception;
+	}
+
+	private final List<T> breakpoints;
+	private final List<T> unresolved = new ArrayList<T>();
+	private final Map<T, Exception> failures = new LinkedHashMap<T, Exception>();
+	private int roundTrips;
+	private long elapsed;
+
+	public BreakpointBatch(List<T> breakpoints) {
+		this.breakpoints = new ArrayList<T>(breakpoints);
+	}
+
+	/**
+	 * Removes all breakpoints from this batch that are
+	 * known to be unresolvable; they are instead available
+	 * through {@link #getUnresolved()}.
+	 * @param resolver
+	 */
+	public void resolve(IResolver<T> resolver) {
+		ArrayList<T> resolved = new ArrayList<T>(breakpoints.size());
+		for (T breakpoint : breakpoints) {
+			if (resolver.isResolvable(breakpoint)) {
+				resolved.add(breakpoint);
+			} else {
+				unresolved.add(breakpoint);
+			}
+		}
+		breakpoints.clear();
+		breakpoints.addAll(resolved);
+	}
+
+	/**
+	 * Installs all (resolvable) breakpoints of this batch, in order.
+	 * @param installer
+	 */
+	public void install(IInstaller<T> installer) {
+		long start = System.currentTimeMillis();
+		try {
+			for (T breakpoint : breakpoints) {
+				roundTrips++;
+				try {
+					installer.install(breakpoint);
+				} catch (Exception e) {
+					failures.put(breakpoint, e);
+				}
+			}
+		} finally {
+			elapsed = System.currentTimeMillis() - start;
+		}
+	}
+
+	/**
+	 * Returns the breakpoints that were found to be unresolvable
+	 * by the latest call to {@link #resolve(IResolver)}.
+	 * @return
+	 */
+	public List<T> getUnresolved() {
+		return Collections.unmodifiableList(unresolved);
+	}
+
+	/**
+	 * Returns the breakpoints that failed to install, along with the
+	 * reason.
+	 * @return
+	 */
+	public Map<T, Exception> getFailures() {
+		return Collections.unmodifiableMap(failures);
+	}
+
+	/**
+	 * Returns the number of install requests sent by this batch.
+	 * @return
+	 */
+	public int getRoundTrips() {
+		return roundTrips;
+	}
+
+	/**
+	 * Returns the time (in ms) it took for the latest
+	 * call to {@link #install(IInstaller)}.
+	 * @return
+	 */
+	public long getElapsedTime() {
+		return elapsed;
+	}
+
+	public int size() {
+		return breakpoints.size();
+	}
+}
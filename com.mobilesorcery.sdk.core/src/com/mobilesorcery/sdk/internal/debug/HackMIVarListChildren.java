@@ -20,8 +20,15 @@ import org.eclipse.cdt.debug.mi.core.output.MIOutput;
 
 public class HackMIVarListChildren extends MIVarListChildren {
 
+	private String name;
+
 	public HackMIVarListChildren(String miVersion, String name) {
 		super(miVersion, name);
+		this.name = name;
+	}
+
+	public String getVarName() {
+		return name;
 	}
 	
 	public MIInfo getMIInfo() throws MIException {
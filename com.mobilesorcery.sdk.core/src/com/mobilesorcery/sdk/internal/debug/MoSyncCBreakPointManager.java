@@ -105,19 +105,29 @@ import org.eclipse.core.resources.IMarkerDelta;
 import org.eclipse.core.resources.IProject;
 import org.eclipse.core.resources.IResource;
 import org.eclipse.core.resources.IStorage;
+import org.eclipse.core.resources.IWorkspace;
+import org.eclipse.core.resources.IWorkspaceRunnable;
 import org.eclipse.core.resources.ResourcesPlugin;
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.Path;
 import org.eclipse.debug.core.DebugException;
 import org.eclipse.debug.core.DebugPlugin;
 import org.eclipse.debug.core.IBreakpointManager;
+import org.eclipse.debug.core.ILaunchConfiguration;
 import org.eclipse.debug.core.model.IBreakpoint;
 import org.eclipse.debug.core.model.IDebugTarget;
 import org.eclipse.debug.core.model.ILineBreakpoint;
 import org.eclipse.debug.core.model.ISourceLocator;
 import org.eclipse.debug.core.sourcelookup.containers.LocalFileStorage;
 
+import com.mobilesorcery.sdk.core.CoreMoSyncPlugin;
+import com.mobilesorcery.sdk.core.IBuildVariant;
+import com.mobilesorcery.sdk.core.ISLDInfo;
+import com.mobilesorcery.sdk.core.MoSyncProject;
+import com.mobilesorcery.sdk.internal.launch.EmulatorLaunchConfigurationDelegate;
+
 @SuppressWarnings("all") // Because of heavy use of discouraged apis
 public class MoSyncCBreakPointManager extends CBreakpointManager {
 
@@ -394,7 +404,7 @@ public class MoSyncCBreakPointManager extends CBreakpointManager {
 			}
 		}
 		breakpointsRemoved( (ICBreakpoint[])removeList.toArray( new ICBreakpoint[removeList.size()] ), new IMarkerDelta[0] );
-		breakpointsAdded( (ICBreakpoint[])installList.toArray( new ICBreakpoint[removeList.size()] ) );
+		breakpointsAdded( (ICBreakpoint[])installList.toArray( new ICBreakpoint[installList.size()] ) );
 		for ( int i = 0; i < breakpoints.length; ++i ) {
 			if ( breakpoints[i] instanceof ICBreakpoint && isTargetAvailable() )
 				changeBreakpointProperties( (ICBreakpoint)breakpoints[i], deltas[i] );
@@ -702,8 +712,11 @@ public class MoSyncCBreakPointManager extends CBreakpointManager {
 				breakpoint.getMarker().setAttribute(IMarker.LINE_NUMBER, newLineNumber);
 				IMarker marker = BreakpointProblems.reportBreakpointMoved(
 						breakpoint, currLineNumber, newLineNumber, getDebugTarget().getName(), getDebugTarget().getInternalID());
-				if (marker != null)
-					fBreakpointProblems.add(marker);
+				if (marker != null) {
+					synchronized ( fBreakpointProblems ) {
+						fBreakpointProblems.add(marker);
+					}
+				}
 			} catch (CoreException e) {}
 		}
 		
@@ -736,8 +749,11 @@ public class MoSyncCBreakPointManager extends CBreakpointManager {
 				marker = BreakpointProblems.reportBreakpointProblem(breakpoint, problemEvent.getDescription(), 
 						problemEvent.getSeverity(), problemEvent.getProblemType(), problemEvent.removeExisting(),
 						problemEvent.removeOnly(), getDebugTarget().getName(), getDebugTarget().getInternalID());
-				if (marker != null)
-					fBreakpointProblems.add(marker);
+				if (marker != null) {
+					synchronized ( fBreakpointProblems ) {
+						fBreakpointProblems.add(marker);
+					}
+				}
 			} catch (DebugException e) {}
 		}
 		
@@ -800,11 +816,13 @@ public class MoSyncCBreakPointManager extends CBreakpointManager {
 
 	private void removeAllBreakpoints() {
 		// Remove all breakpoint problem markers
-		for (Iterator iter = fBreakpointProblems.iterator(); iter.hasNext();) {
-			IMarker marker = (IMarker) iter.next();
-			try {
-				marker.delete();
-			} catch (CoreException e) {}
+		synchronized ( fBreakpointProblems ) {
+			for (Iterator iter = fBreakpointProblems.iterator(); iter.hasNext();) {
+				IMarker marker = (IMarker) iter.next();
+				try {
+					marker.delete();
+				} catch (CoreException e) {}
+			}
 		}
 		
 		ArrayList installedCDIBplist = new ArrayList();
@@ -880,101 +898,165 @@ public class MoSyncCBreakPointManager extends CBreakpointManager {
 		}
 	}
 
+	/*
+	 * ADDED FOR MOSYNC SDK
+	 * Breakpoints are installed as a batch; unresolvable
+	 * line breakpoints are filtered out using the SLD
+	 * (so they never cause a round trip to mdb) and problem
+	 * markers are created in one workspace operation.
+	 */
 	protected void setBreakpointsOnTarget0( ICBreakpoint[] breakpoints ) {
-		ICDITarget cdiTarget = getCDITarget();
-		ICDIBreakpointManagement2 bpManager2 = null;
-		if (cdiTarget instanceof ICDIBreakpointManagement2)
-			bpManager2 = (ICDIBreakpointManagement2) cdiTarget;
-		for ( int i = 0; i < breakpoints.length; ++i ) {
-			try {
-				ICDIBreakpoint b = null;
-				int breakpointType = ICBreakpointType.REGULAR;
-				ICBreakpoint icbreakpoint = breakpoints[i];
-				if (icbreakpoint instanceof ICBreakpointType) {
-					breakpointType = ((ICBreakpointType) icbreakpoint).getType();
+		final ICDITarget cdiTarget = getCDITarget();
+		final ICDIBreakpointManagement2 bpManager2 = cdiTarget instanceof ICDIBreakpointManagement2 ? (ICDIBreakpointManagement2) cdiTarget : null;
+
+		reportUnresolvedBreakpoints( breakpoints );
+
+		BreakpointBatch<ICBreakpoint> batch = new BreakpointBatch<ICBreakpoint>( Arrays.asList( breakpoints ) );
+		final ISLDInfo sld = getSLDInfo();
+		if ( sld != null ) {
+			batch.resolve( new SLDBreakpointResolver( sld ) );
+		}
+
+		batch.install( new BreakpointBatch.IInstaller<ICBreakpoint>() {
+			public void install( ICBreakpoint icbreakpoint ) throws Exception {
+				setBreakpointOnTarget( cdiTarget, bpManager2, icbreakpoint );
+			}
+		} );
+
+		for ( Exception failure : batch.getFailures().values() ) {
+			CDebugCorePlugin.log( failure );
+		}
+
+		if ( CoreMoSyncPlugin.getDefault().isDebugging() ) {
+			CoreMoSyncPlugin.trace( "Installed {0} breakpoints in {1} ms ({2} round trips); skipped {3} unresolvable, {4} failed",
+					batch.size(), batch.getElapsedTime(), batch.getRoundTrips(),
+					batch.getUnresolved().size(), batch.getFailures().size() );
+		}
+	}
+
+	private void setBreakpointOnTarget( ICDITarget cdiTarget, ICDIBreakpointManagement2 bpManager2, ICBreakpoint icbreakpoint ) throws CoreException, CDIException {
+		ICDIBreakpoint b = null;
+		int breakpointType = ICBreakpointType.REGULAR;
+		if (icbreakpoint instanceof ICBreakpointType) {
+			breakpointType = ((ICBreakpointType) icbreakpoint).getType();
+		}
+		if ( icbreakpoint instanceof ICFunctionBreakpoint ) {
+			ICFunctionBreakpoint breakpoint = (ICFunctionBreakpoint)icbreakpoint; 
+			String function = breakpoint.getFunction();
+			String fileName = breakpoint.getFileName();
+			ICDIFunctionLocation location = cdiTarget.createFunctionLocation( fileName, function );
+			ICDICondition condition = createCondition( breakpoint );
+			if (bpManager2 != null)
+				b = bpManager2.setFunctionBreakpoint( breakpointType, location, condition, true, icbreakpoint.isEnabled() );
+			else
+				b = cdiTarget.setFunctionBreakpoint( breakpointType, location, condition, true );								
+		} else if ( icbreakpoint instanceof ICAddressBreakpoint ) {
+			ICAddressBreakpoint breakpoint = (ICAddressBreakpoint)icbreakpoint; 
+			String address = breakpoint.getAddress();
+			ICDIAddressLocation location = cdiTarget.createAddressLocation( new BigInteger ( ( address.startsWith( "0x" ) ) ? address.substring( 2 ) : address, 16 ) ); //$NON-NLS-1$
+			ICDICondition condition = createCondition( breakpoint );
+			if (bpManager2 != null)
+				b = bpManager2.setAddressBreakpoint( breakpointType, location, condition, true, icbreakpoint.isEnabled() );
+			else
+				b = cdiTarget.setAddressBreakpoint( breakpointType, location, condition, true );					
+		} else if ( icbreakpoint instanceof ICLineBreakpoint ) {
+			ICLineBreakpoint breakpoint = (ICLineBreakpoint)icbreakpoint; 
+			String handle = breakpoint.getSourceHandle();
+			IPath path = convertPath( handle );
+			ICDILineLocation location = cdiTarget.createLineLocation( path.toPortableString(), breakpoint.getLineNumber() );
+			ICDICondition condition = createCondition( breakpoint );
+			if (bpManager2 != null)
+				b = bpManager2.setLineBreakpoint( breakpointType, location, condition, true, icbreakpoint.isEnabled() );
+			else
+				b = cdiTarget.setLineBreakpoint( breakpointType, location, condition, true );
+		} else if ( icbreakpoint instanceof ICWatchpoint ) {
+			ICWatchpoint watchpoint = (ICWatchpoint)icbreakpoint;
+			int accessType = 0;
+			accessType |= (watchpoint.isWriteType()) ? ICDIWatchpoint.WRITE : 0;
+			accessType |= (watchpoint.isReadType()) ? ICDIWatchpoint.READ : 0;
+			String expression = watchpoint.getExpression();
+			ICDICondition condition = createCondition( watchpoint );
+			if ( bpManager2 != null ) {
+				if ( icbreakpoint instanceof ICWatchpoint2 ) {
+					ICWatchpoint2 wp2 = (ICWatchpoint2)watchpoint;
+					b = bpManager2.setWatchpoint( breakpointType, accessType, expression, wp2.getMemorySpace(), 
+							wp2.getRange(), condition, icbreakpoint.isEnabled() );
+				} else {
+					b = bpManager2.setWatchpoint( breakpointType, accessType, expression, condition, icbreakpoint.isEnabled() );
 				}
-				if ( icbreakpoint instanceof ICFunctionBreakpoint ) {
-					ICFunctionBreakpoint breakpoint = (ICFunctionBreakpoint)icbreakpoint; 
-					String function = breakpoint.getFunction();
-					String fileName = breakpoint.getFileName();
-					ICDIFunctionLocation location = cdiTarget.createFunctionLocation( fileName, function );
-					ICDICondition condition = createCondition( breakpoint );
-					IMarker marker = BreakpointProblems.reportUnresolvedBreakpoint(breakpoint, getDebugTarget().getName(), getDebugTarget().getInternalID());
-					if (marker != null)
-						fBreakpointProblems.add(marker);
-					if (bpManager2 != null)
-						b = bpManager2.setFunctionBreakpoint( breakpointType, location, condition, true, icbreakpoint.isEnabled() );
-					else
-						b = cdiTarget.setFunctionBreakpoint( breakpointType, location, condition, true );								
-				} else if ( icbreakpoint instanceof ICAddressBreakpoint ) {
-					ICAddressBreakpoint breakpoint = (ICAddressBreakpoint)icbreakpoint; 
-					String address = breakpoint.getAddress();
-					ICDIAddressLocation location = cdiTarget.createAddressLocation( new BigInteger ( ( address.startsWith( "0x" ) ) ? address.substring( 2 ) : address, 16 ) ); //$NON-NLS-1$
-					ICDICondition condition = createCondition( breakpoint );
-					if (bpManager2 != null)
-						b = bpManager2.setAddressBreakpoint( breakpointType, location, condition, true, icbreakpoint.isEnabled() );
-					else
-						b = cdiTarget.setAddressBreakpoint( breakpointType, location, condition, true );					
-				} else if ( icbreakpoint instanceof ICLineBreakpoint ) {
-					ICLineBreakpoint breakpoint = (ICLineBreakpoint)icbreakpoint; 
-					String handle = breakpoint.getSourceHandle();
-					IPath path = convertPath( handle );
-					ICDILineLocation location = cdiTarget.createLineLocation( path.toPortableString(), breakpoint.getLineNumber() );
-					ICDICondition condition = createCondition( breakpoint );
-					IMarker marker = BreakpointProblems.reportUnresolvedBreakpoint(breakpoint, getDebugTarget().getName(), getDebugTarget().getInternalID());
-					if (marker != null)
-						fBreakpointProblems.add(marker);
-					if (bpManager2 != null)
-						b = bpManager2.setLineBreakpoint( breakpointType, location, condition, true, icbreakpoint.isEnabled() );
-					else
-						b = cdiTarget.setLineBreakpoint( breakpointType, location, condition, true );
-				} else if ( icbreakpoint instanceof ICWatchpoint ) {
-					ICWatchpoint watchpoint = (ICWatchpoint)icbreakpoint;
-					int accessType = 0;
-					accessType |= (watchpoint.isWriteType()) ? ICDIWatchpoint.WRITE : 0;
-					accessType |= (watchpoint.isReadType()) ? ICDIWatchpoint.READ : 0;
-					String expression = watchpoint.getExpression();
-					ICDICondition condition = createCondition( watchpoint );
-					if ( bpManager2 != null ) {
-						if ( icbreakpoint instanceof ICWatchpoint2 ) {
-							ICWatchpoint2 wp2 = (ICWatchpoint2)watchpoint;
-							b = bpManager2.setWatchpoint( breakpointType, accessType, expression, wp2.getMemorySpace(), 
-									wp2.getRange(), condition, icbreakpoint.isEnabled() );
-						} else {
-							b = bpManager2.setWatchpoint( breakpointType, accessType, expression, condition, icbreakpoint.isEnabled() );
-						}
-					} else {
-						b = cdiTarget.setWatchpoint(breakpointType, accessType, expression, condition );
-					}
-				} else if (icbreakpoint instanceof ICEventBreakpoint) {
-					ICEventBreakpoint eventbkpt = (ICEventBreakpoint) icbreakpoint;
-					ICDICondition condition = createCondition(eventbkpt);
-					if (cdiTarget instanceof ICDIBreakpointManagement3) {
-						ICDIBreakpointManagement3 bpManager3 = (ICDIBreakpointManagement3) cdiTarget;
-						b = bpManager3.setEventBreakpoint(eventbkpt.getEventType(), eventbkpt
-								.getEventArgument(), breakpointType, condition, true, icbreakpoint.isEnabled());
-					} else {
-						throw new UnsupportedOperationException("BreakpointManager does not support this type of breapoints");
-					}
+			} else {
+				b = cdiTarget.setWatchpoint(breakpointType, accessType, expression, condition );
+			}
+		} else if (icbreakpoint instanceof ICEventBreakpoint) {
+			ICEventBreakpoint eventbkpt = (ICEventBreakpoint) icbreakpoint;
+			ICDICondition condition = createCondition(eventbkpt);
+			if (cdiTarget instanceof ICDIBreakpointManagement3) {
+				ICDIBreakpointManagement3 bpManager3 = (ICDIBreakpointManagement3) cdiTarget;
+				b = bpManager3.setEventBreakpoint(eventbkpt.getEventType(), eventbkpt
+						.getEventArgument(), breakpointType, condition, true, icbreakpoint.isEnabled());
+			} else {
+				throw new UnsupportedOperationException("BreakpointManager does not support this type of breapoints");
+			}
 
+		}
+		if ( b != null ) {
+			synchronized ( getBreakpointMap() ) {
+				Object obj = getBreakpointMap().get( icbreakpoint );
+				if ( obj instanceof BreakpointInProgess ) {
+					((BreakpointInProgess)obj).setCDIBreakpoint( b );
 				}
-				if ( b != null ) {
-					Object obj = getBreakpointMap().get( icbreakpoint );
-					if ( obj instanceof BreakpointInProgess ) {
-						((BreakpointInProgess)obj).setCDIBreakpoint( b );
+			}
+		}
+		// Hack: see bug 105196: [CDI]: Add "enabled" flag to the "set...Breakpoint" methods
+		if (bpManager2 == null && b != null && b.isEnabled() != icbreakpoint.isEnabled() ) {
+			b.setEnabled( icbreakpoint.isEnabled() );
+		}
+	}
+
+	/*
+	 * ADDED FOR MOSYNC SDK
+	 * Reports all breakpoints as unresolved in a single
+	 * workspace operation; the markers are removed as
+	 * the breakpoints get resolved.
+	 */
+	private void reportUnresolvedBreakpoints( final ICBreakpoint[] breakpoints ) {
+		IWorkspaceRunnable reporter = new IWorkspaceRunnable() {
+			public void run( IProgressMonitor monitor ) throws CoreException {
+				for ( int i = 0; i < breakpoints.length; ++i ) {
+					if ( breakpoints[i] instanceof ICLineBreakpoint && !(breakpoints[i] instanceof ICAddressBreakpoint) ) {
+						IMarker marker = BreakpointProblems.reportUnresolvedBreakpoint(breakpoints[i], getDebugTarget().getName(), getDebugTarget().getInternalID());
+						if (marker != null) {
+							synchronized ( fBreakpointProblems ) {
+								fBreakpointProblems.add(marker);
+							}
+						}
 					}
 				}
-				// Hack: see bug 105196: [CDI]: Add "enabled" flag to the "set...Breakpoint" methods
-				if (bpManager2 == null && b != null && b.isEnabled() != icbreakpoint.isEnabled() ) {
-					b.setEnabled( icbreakpoint.isEnabled() );
-				}
-			}
-			catch( CoreException e ) {
 			}
-			catch( NumberFormatException e ) {
-			}
-			catch( CDIException e ) {
+		};
+		try {
+			ResourcesPlugin.getWorkspace().run( reporter, null, IWorkspace.AVOID_UPDATE, null );
+		}
+		catch( CoreException e ) {
+			CDebugCorePlugin.log( e.getStatus() );
+		}
+	}
+
+	/*
+	 * ADDED FOR MOSYNC SDK
+	 */
+	private ISLDInfo getSLDInfo() {
+		try {
+			ILaunchConfiguration config = getDebugTarget().getLaunch().getLaunchConfiguration();
+			MoSyncProject project = MoSyncProject.create( getProject() );
+			if ( config == null || project == null ) {
+				return null;
 			}
+			IBuildVariant variant = EmulatorLaunchConfigurationDelegate.getVariant( config, "debug" );
+			return project.getSLD( variant ).parseSLD();
+		}
+		catch( CoreException e ) {
+			return null;
 		}
 	}
 
@@ -13,12 +13,20 @@
 */
 package com.mobilesorcery.sdk.internal.debug;
 
+import java.util.Observable;
+import java.util.Observer;
+
 import org.eclipse.cdt.debug.mi.core.IMITTY;
 import org.eclipse.cdt.debug.mi.core.MIException;
 import org.eclipse.cdt.debug.mi.core.MIProcess;
 import org.eclipse.cdt.debug.mi.core.MISession;
+import org.eclipse.cdt.debug.mi.core.command.Command;
 import org.eclipse.cdt.debug.mi.core.command.CommandFactory;
 import org.eclipse.cdt.debug.mi.core.command.MITargetSelect;
+import org.eclipse.cdt.debug.mi.core.command.MIVarDelete;
+import org.eclipse.cdt.debug.mi.core.event.MIRunningEvent;
+import org.eclipse.cdt.debug.mi.core.output.MIInfo;
+import org.eclipse.cdt.debug.mi.core.output.MIOutput;
 import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.Status;
 
@@ -26,9 +34,60 @@ import com.mobilesorcery.sdk.core.CoreMoSyncPlugin;
 
 public class MoSyncMISession extends MISession {
 
+	// Lazily initialized, since the super constructor posts commands.
+	private VariableChildrenCache childrenCache;
+
 	public MoSyncMISession(MIProcess process, IMITTY pty, int type,
 			CommandFactory commandFactory, int timeout) throws MIException {
 		super(process, pty, type, commandFactory, timeout);	
+		addObserver(new Observer() {
+			public void update(Observable o, Object event) {
+				// The cached children are only valid while suspended
+				if (event instanceof MIRunningEvent) {
+					getChildrenCache().invalidate();
+				}
+			}
+		});
+	}
+
+	public synchronized VariableChildrenCache getChildrenCache() {
+		if (childrenCache == null) {
+			childrenCache = new VariableChildrenCache();
+		}
+		return childrenCache;
+	}
+
+	public void postCommand(Command cmd, long timeout) throws MIException {
+		if (timeout < 0) {
+			// No reply to cache.
+			super.postCommand(cmd, timeout);
+		} else if (cmd instanceof HackMIVarListChildren) {
+			postListChildren((HackMIVarListChildren) cmd, timeout);
+		} else {
+			super.postCommand(cmd, timeout);
+			if (cmd instanceof MIVarDelete) {
+				String[] params = ((MIVarDelete) cmd).getParameters();
+				if (params != null && params.length > 0) {
+					getChildrenCache().remove(params[params.length - 1]);
+				}
+			}
+		}
+	}
+
+	private void postListChildren(HackMIVarListChildren cmd, long timeout) throws MIException {
+		VariableChildrenCache cache = getChildrenCache();
+		String name = cmd.getVarName();
+		MIOutput output = cache.get(name);
+		if (output != null) {
+			cmd.setMIOutput(output);
+			return;
+		}
+
+		super.postCommand(cmd, timeout);
+		output = cmd.getMIOutput();
+		if (output != null && !new MIInfo(output).isError()) {
+			cache.put(name, output);
+		}
 	}
 
 	protected void initialize() throws MIException {
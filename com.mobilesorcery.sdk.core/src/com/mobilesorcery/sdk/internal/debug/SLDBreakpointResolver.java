@@ -0,0 +1,111 @@
+/*  Copyright (C) 2009 Mobile Sorcery AB
+
+    This program is free software; you can redistribute it and/or modify it
+    under the terms of the Eclipse Public License v1.0.
+
+    This program is distributed in the hope that it will be useful, but WITHOUT
+    ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+    FITNESS FOR A PARTICULAR PURPOSE. See the Eclipse Public License v1.0 for
+    more details.
+
+    You should have received a copy of the Eclipse Public License v1.0 along
+    with this program. It is also available at http://www.eclipse.org/legal/epl-v10.html
+*/
+package com.mobilesorcery.sdk.internal.debug;
+
+import java.util.HashMap;
+import java.util.HashSet;
+
+import org.eclipse.cdt.debug.core.model.ICAddressBreakpoint;
+import org.eclipse.cdt.debug.core.model.ICBreakpoint;
+import org.eclipse.cdt.debug.core.model.ICFunctionBreakpoint;
+import org.eclipse.cdt.debug.core.model.ICLineBreakpoint;
+import org.eclipse.core.runtime.CoreException;
+
+import com.mobilesorcery.sdk.core.ISLDInfo;
+
+/**
+ * Uses the SLD to find line breakpoints that mdb will
+ * not be able to resolve. Breakpoints in files unknown to
+ * the SLD are always considered resolvable, since the
+ * SLD may refer to them using some other path; so are
+ * breakpoints in files that match several SLD files,
+ * such as two <code>util.c</code> in different directories.
+ */
+class SLDBreakpointResolver implements BreakpointBatch.IResolver<ICBreakpoint> {
+
+	private final ISLDInfo sld;
+	private HashMap<String, String> sldFileNames;
+	private HashSet<String> ambiguousFileNames;
+
+	public SLDBreakpointResolver(ISLDInfo sld) {
+		this.sld = sld;
+	}
+
+	public boolean isResolvable(ICBreakpoint breakpoint) {
+		if (!(breakpoint instanceof ICLineBreakpoint) || breakpoint instanceof ICFunctionBreakpoint || breakpoint instanceof ICAddressBreakpoint) {
+			return true;
+		}
+
+		try {
+			ICLineBreakpoint lineBreakpoint = (ICLineBreakpoint) breakpoint;
+			String sldFileName = findSLDFileName(lineBreakpoint.getSourceHandle());
+			if (sldFileName == null) {
+				return true;
+			}
+			int line = lineBreakpoint.getLineNumber();
+			return sld.getFirstLineWithCode(sldFileName, line) != ISLDInfo.UNKNOWN_LINE;
+		} catch (CoreException e) {
+			return true;
+		}
+	}
+
+	/**
+	 * Returns the SLD file name of a source file.
+	 * @param sourceHandle
+	 * @return The SLD file name, or <code>null</code> if no SLD file
+	 * or more than one SLD file matches the source file
+	 */
+	String findSLDFileName(String sourceHandle) {
+		if (sourceHandle == null) {
+			return null;
+		}
+		if (sldFileNames == null) {
+			sldFileNames = new HashMap<String, String>();
+			ambiguousFileNames = new HashSet<String>();
+			for (String sldFileName : sld.getAllFilenames()) {
+				String normalized = normalize(sldFileName);
+				String previous = sldFileNames.put(normalized, sldFileName);
+				if (previous != null && !previous.equals(sldFileName)) {
+					ambiguousFileNames.add(normalized);
+				}
+			}
+		}
+
+		String handle = normalize(sourceHandle);
+		if (sldFileNames.containsKey(handle)) {
+			return ambiguousFileNames.contains(handle) ? null : sldFileNames.get(handle);
+		}
+
+		// The SLD may use relative paths; if several of them
+		// match, we cannot tell which one is meant.
+		String match = null;
+		for (String candidate : sldFileNames.keySet()) {
+			if (handle.endsWith("/" + candidate)) {
+				if (match != null || ambiguousFileNames.contains(candidate)) {
+					return null;
+				}
+				match = candidate;
+			}
+		}
+		return match == null ? null : sldFileNames.get(match);
+	}
+
+	private static String normalize(String path) {
+		String result = path.replace('\\', '/');
+		while (result.startsWith("./")) {
+			result = result.substring(2);
+		}
+		return result;
+	}
+}
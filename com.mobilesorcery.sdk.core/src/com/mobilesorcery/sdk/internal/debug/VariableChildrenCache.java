@@ -0,0 +1,86 @@
+/*  Copyright (C) 2009 Mobile Sorcery AB
+
+    This program is free software; you can redistribute it and/or modify it
+    under the terms of the Eclipse Public License v1.0.
+
+    This program is distributed in the hope that it will be useful, but WITHOUT
+    ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+    FITNESS FOR A PARTICULAR PURPOSE. See the Eclipse Public License v1.0 for
+    more details.
+
+    You should have received a copy of the Eclipse Public License v1.0 along
+    with this program. It is also available at http://www.eclipse.org/legal/epl-v10.html
+*/
+package com.mobilesorcery.sdk.internal.debug;
+
+import java.util.HashMap;
+import java.util.Iterator;
+
+import org.eclipse.cdt.debug.mi.core.output.MIOutput;
+
+/**
+ * <p>A cache of <code>-var-list-children</code> replies; the
+ * cache is only valid while the target is suspended and
+ * must be invalidated as soon as it resumes.</p>
+ * <p>Large arrays need no special treatment here; CDT partitions
+ * them and lists the children of each partition separately.</p>
+ */
+public class VariableChildrenCache {
+
+	private final HashMap<String, MIOutput> children = new HashMap<String, MIOutput>();
+	private int hits;
+	private int misses;
+
+	/**
+	 * Returns a cached reply, or <code>null</code> if there is none.
+	 * @param name The variable name
+	 * @return
+	 */
+	public synchronized MIOutput get(String name) {
+		MIOutput result = children.get(name);
+		if (result == null) {
+			misses++;
+		} else {
+			hits++;
+		}
+		return result;
+	}
+
+	public synchronized void put(String name, MIOutput output) {
+		children.put(name, output);
+	}
+
+	/**
+	 * Removes all cached data for a variable and its
+	 * children; should be called when a variable object is deleted.
+	 * @param name
+	 */
+	public synchronized void remove(String name) {
+		String childPrefix = name + ".";
+		for (Iterator<String> keys = children.keySet().iterator(); keys.hasNext(); ) {
+			String key = keys.next();
+			if (key.equals(name) || key.startsWith(childPrefix)) {
+				keys.remove();
+			}
+		}
+	}
+
+	/**
+	 * Clears all cached replies.
+	 */
+	public synchronized void invalidate() {
+		children.clear();
+	}
+
+	public synchronized int size() {
+		return children.size();
+	}
+
+	public synchronized int getHits() {
+		return hits;
+	}
+
+	public synchronized int getMisses() {
+		return misses;
+	}
+}
@@ -0,0 +1,103 @@
+/*  Copyright (C) 2011 Mobile Sorcery AB
+
+    This program is free software; you can redistribute it and/or modify it
+    under the terms of the Eclipse Public License v1.0.
+
+    This program is distributed in the hope that it will be useful, but WITHOUT
+    ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+    FITNESS FOR A PARTICULAR PURPOSE. See the Eclipse Public License v1.0 for
+    more details.
+
+    You should have received a copy of the Eclipse Public License v1.0 along
+    with this program. It is also available at http://www.eclipse.org/legal/epl-v10.html
+*/
+package com.mobilesorcery.sdk.internal.launch;
+
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import com.mobilesorcery.sdk.core.CoreMoSyncPlugin;
+import com.mobilesorcery.sdk.internal.EmulatorOutputParser.IParseEventHandler;
+import com.mobilesorcery.sdk.internal.EmulatorOutputParser.ParseEvent;
+
+/**
+ * <p>A pool of threads for listening to emulator output, so that
+ * repeated launches reuse the threads reading the emulator pipe.
+ * Threads that have been idle for a while are evicted.</p>
+ * <p>In debug mode, the time until the emulator is started and
+ * until it first reports back is traced.</p>
+ */
+public class EmulatorListenerPool {
+
+	private static final long IDLE_TIMEOUT = 300;
+
+	private static EmulatorListenerPool instance = new EmulatorListenerPool();
+
+	private final ThreadPoolExecutor executor;
+
+	private EmulatorListenerPool() {
+		executor = new ThreadPoolExecutor(0, Integer.MAX_VALUE, IDLE_TIMEOUT,
+				TimeUnit.SECONDS, new SynchronousQueue<Runnable>(), new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread thread = new Thread(r, "Reading from pipe");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+	}
+
+	public static EmulatorListenerPool getDefault() {
+		return instance;
+	}
+
+	/**
+	 * Executes an emulator listener in a pooled thread.
+	 * @param listener
+	 */
+	public void execute(Runnable listener) {
+		executor.execute(listener);
+	}
+
+	/**
+	 * Records that an emulator process was started.
+	 * @param width
+	 * @param height
+	 * @param launchTime The time of the launch request, as
+	 * returned by {@link System#currentTimeMillis()}
+	 */
+	public void emulatorStarted(String width, String height, long launchTime) {
+		if (CoreMoSyncPlugin.getDefault().isDebugging()) {
+			CoreMoSyncPlugin.trace("Emulator ({0}x{1}) started in {2} ms", width, height, System.currentTimeMillis() - launchTime);
+		}
+	}
+
+	/**
+	 * Wraps a parse event handler so that the time until the emulator
+	 * first reports back is traced.
+	 * @param width
+	 * @param height
+	 * @param launchTime
+	 * @param handler
+	 * @return
+	 */
+	public IParseEventHandler measure(final String width, final String height, final long launchTime, final IParseEventHandler handler) {
+		if (!CoreMoSyncPlugin.getDefault().isDebugging()) {
+			return handler;
+		}
+		return new IParseEventHandler() {
+			private boolean connected = false;
+
+			@Override
+			public void handleEvent(ParseEvent event) {
+				if (!connected) {
+					connected = true;
+					CoreMoSyncPlugin.trace("Emulator ({0}x{1}) connected in {2} ms", width, height, System.currentTimeMillis() - launchTime);
+				}
+				handler.handleEvent(event);
+			}
+		};
+	}
+}
@@ -18,12 +18,19 @@ package com.mobilesorcery.sdk.internal.launch;
 
 import java.io.IOException;
 import java.io.PipedOutputStream;
+import java.util.concurrent.Callable;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
 
 import com.mobilesorcery.sdk.core.CoreMoSyncPlugin;
 import com.mobilesorcery.sdk.core.IBuildConfiguration;
 import com.mobilesorcery.sdk.core.ISLDInfo;
 import com.mobilesorcery.sdk.core.MoSyncProject;
+import com.mobilesorcery.sdk.core.SimpleQueue;
+import com.mobilesorcery.sdk.core.Symbolizer;
+import com.mobilesorcery.sdk.core.Symbolizer.Frame;
 import com.mobilesorcery.sdk.internal.EmulatorOutputParser;
 import com.mobilesorcery.sdk.internal.EmulatorOutputParser.ParseEvent;
 
@@ -39,10 +46,14 @@ public class EmulatorParseEventHandler implements EmulatorOutputParser.IParseEve
     }*/
     
     private MoSyncProject project = null;
-    private ISLDInfo sldInfo = null;
+    private volatile Symbolizer symbolizer = null;
 
     private PipedOutputStream messageStream;
 
+    // All output goes through this queue, so that the event thread never
+    // waits for stacks to be symbolized while output is kept in order.
+    private final SimpleQueue output = new SimpleQueue(true);
+
     private CountDownLatch sldLatch = null;
 
     private String exitMessage;
@@ -57,15 +68,25 @@ public class EmulatorParseEventHandler implements EmulatorOutputParser.IParseEve
         startSLDParsing();
     }
 
+    /**
+     * Creates a handler that resolves addresses with a given
+     * symbolizer, rather than with the SLD of a project.
+     * @param symbolizer
+     */
+    EmulatorParseEventHandler(Symbolizer symbolizer) {
+        this.symbolizer = symbolizer;
+        this.sldLatch = new CountDownLatch(0);
+    }
+
     private void startSLDParsing() {
     	sldLatch = new CountDownLatch(1);
     	Runnable sldRunnable = new Runnable() {
 			public void run() {
 				try {
-					ISLDInfo oldSLDInfo = sldInfo;
-					sldInfo = project.getSLD(buildConfiguration).parseSLD();
+					ISLDInfo oldSLDInfo = symbolizer == null ? null : symbolizer.getSLDInfo();
+					symbolizer = project.getSLD(buildConfiguration).getSymbolizer();
 					if (CoreMoSyncPlugin.getDefault().isDebugging()) {
-						if (oldSLDInfo == sldInfo) {
+						if (oldSLDInfo == symbolizer.getSLDInfo()) {
 							CoreMoSyncPlugin.trace("Using cached SLD for " + project.getName());
 						} else {
 							CoreMoSyncPlugin.trace("Done parsing sld for " + project.getName());
@@ -91,38 +112,70 @@ public class EmulatorParseEventHandler implements EmulatorOutputParser.IParseEve
     public void handleEvent(ParseEvent event) {
         int[] stack = event.stack;
 
-        try {
-            if (CoreMoSyncPlugin.getDefault().isDebugging()) {
-            	CoreMoSyncPlugin.trace(event);
-            }
+        if (CoreMoSyncPlugin.getDefault().isDebugging()) {
+        	CoreMoSyncPlugin.trace(event);
+        }
 
-            switch (event.type) {
-            case EmulatorOutputParser.REPORT_STRING:
-            case EmulatorOutputParser.REPORT_EXIT_STRING:
-                messageStream.write(emulatorId(event.message).getBytes());
-                messageStream.write('\n');
-                break;
-            case EmulatorOutputParser.REPORT_IP:
-                stack = new int[] { event.ip };
-                // fall thru
-            case EmulatorOutputParser.REPORT_CALL_STACK:
-                ISLDInfo sld = getSLD();
-                for (int i = 0; stack != null && i < stack.length; i++) {
-                    String filename = sld == null ? null : sld.getFileName(stack[i]);
-                    int line = sld == null ? -1 : sld.getLine(stack[i]);
-                    String sldMsg = (filename == null ? "Unknown file" : filename) + (line > 0 ? (":" + line) : "");
-                    // console.addMessage("0x" + Integer.toHexString(stack[i]) +
-                    // ": " + sldMsg);
-                    messageStream.write(emulatorId("IP:0x" + Integer.toHexString(stack[i]) + ": " + sldMsg).getBytes());
-                    messageStream.write('\n');
+        switch (event.type) {
+        case EmulatorOutputParser.REPORT_STRING:
+        case EmulatorOutputParser.REPORT_EXIT_STRING:
+            final String message = event.message;
+            output.execute(new Runnable() {
+                public void run() {
+                    write(emulatorId(message) + "\n");
                 }
-                break;
-            case EmulatorOutputParser.REPORT_LOAD_PROGRAM:
-            case EmulatorOutputParser.REPORT_RELOAD:
-                sld = null;
-                break;
+            });
+            break;
+        case EmulatorOutputParser.REPORT_IP:
+            stack = new int[] { event.ip };
+            // fall thru
+        case EmulatorOutputParser.REPORT_CALL_STACK:
+            if (stack != null) {
+                final Future<Frame[]> frames = symbolize(stack);
+                output.execute(new Runnable() {
+                    public void run() {
+                        write(frames);
+                    }
+                });
+            }
+            break;
+        }
+    }
+
+    private Future<Frame[]> symbolize(final int[] stack) {
+    	Symbolizer symbolizer = this.symbolizer;
+    	if (symbolizer != null) {
+    		return symbolizer.symbolizeAsync(stack);
+    	}
+    	// Not yet parsed; wait for it on the output thread
+    	FutureTask<Frame[]> result = new FutureTask<Frame[]>(new Callable<Frame[]>() {
+    		public Frame[] call() throws Exception {
+    			return getSymbolizer().symbolize(stack);
+    		}
+    	});
+    	output.execute(result);
+    	return result;
+    }
+
+    private void write(Future<Frame[]> frames) {
+        try {
+            StringBuffer msg = new StringBuffer();
+            for (Frame frame : frames.get()) {
+                msg.append(emulatorId("IP:0x" + Integer.toHexString(frame.getAddress()) + ": " + frame));
+                msg.append('\n');
             }
-        } catch (Exception e) {
+            write(msg.toString());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            CoreMoSyncPlugin.getDefault().log(e.getCause());
+        }
+    }
+
+    private void write(String msg) {
+        try {
+            messageStream.write(msg.getBytes());
+        } catch (IOException e) {
             // Ignore.
         	e.printStackTrace();
         }
@@ -132,17 +185,24 @@ public class EmulatorParseEventHandler implements EmulatorOutputParser.IParseEve
         return emulatorId > 0 ? "[" + emulatorId + "] " + msg : msg;
     }
 
-    private ISLDInfo getSLD() throws IOException {
-    	try {
-    		if (sldLatch.getCount() > 0) {
-    			messageStream.write("Reading line number information - may take a few moments\n".getBytes());
-    		}
-    		
-			sldLatch.await();
-			return sldInfo;
-		} catch (InterruptedException e) {
-			throw new IOException(e.getMessage());
-		}        
+    private Symbolizer getSymbolizer() throws InterruptedException {
+    	if (sldLatch.getCount() > 0) {
+    		write("Reading line number information - may take a few moments\n");
+    	}
+
+    	sldLatch.await();
+    	Symbolizer result = symbolizer;
+    	return result == null ? new Symbolizer(null) : result;
+    }
+
+    /**
+     * Waits for all pending output to be written to the
+     * message output stream; no more output is written after this
+     * method has been called.
+     * @param timeout Timeout in ms
+     */
+    public void awaitOutput(int timeout) {
+    	output.awaitShutdown(timeout);
     }
 
     /**
@@ -38,15 +38,15 @@ public class DeviceCapabilitiesFilter extends AbstractDeviceFilter {
 
 	private HashMap<String, List<IProfile>> profilesForRuntime;
 
-	private static Cache<String, DeviceCapabilitiesFilter> cachedFilters = new Cache<String, DeviceCapabilitiesFilter>(32);
+	private static Cache<String, DeviceCapabilitiesFilter> cachedFilters = new Cache<String, DeviceCapabilitiesFilter>("device-filters", 32);
 
 	public static DeviceCapabilitiesFilter create(String[] requiredCapabilities, String[] optionalCapabilities) {
 		DeviceCapabilitiesFilter uninited = new DeviceCapabilitiesFilter(requiredCapabilities, optionalCapabilities);
 		String token = uninited.toString();
 		DeviceCapabilitiesFilter filter = cachedFilters.get(token);
 		if (filter == null) {
-			filter = uninited;
-			cachedFilters.put(token, uninited);
+			DeviceCapabilitiesFilter existing = cachedFilters.putIfAbsent(token, uninited);
+			filter = existing == null ? uninited : existing;
 		}
 		return filter;
 	}
@@ -66,6 +66,8 @@ public class FinalizerParser {
 
 	private final String cfgId;
 
+	private boolean clean;
+
 	/**
 	 * Creates a new parser
 	 * @param project
@@ -81,6 +83,14 @@ public class FinalizerParser {
 		this(project, null);
 	}
 
+	/**
+	 * Sets whether to clean each variant before building it.
+	 * @param clean
+	 */
+	public void setClean(boolean clean) {
+		this.clean = clean;
+	}
+
 	public void execute(Reader script, IProgressMonitor monitor) throws IOException, ParseException, InvocationTargetException,
 			InterruptedException {
 	    ArrayList<IBuildVariant> variantsToBuild = new ArrayList<IBuildVariant>();
@@ -103,8 +113,8 @@ public class FinalizerParser {
 		if (variantsToBuild.isEmpty()) {
 			throw new ParseException(Messages.FinalizerParser_ParseError_0, 0);
 		}
-		IBuildSession buildSession = MoSyncBuilder.createFinalizerBuildSession(variantsToBuild);
-		IRunnableWithProgress buildJob = MoSyncBuilder.createBuildJob(project.getWrappedProject(), buildSession, variantsToBuild);
+		IBuildSession buildSession = MoSyncBuilder.createFinalizerBuildSession(variantsToBuild, clean);
+		IRunnableWithProgress buildJob = MoSyncBuilder.createSharedCompilationBuildJob(project.getWrappedProject(), buildSession, variantsToBuild);
 		buildJob.run(monitor);
 	}
 
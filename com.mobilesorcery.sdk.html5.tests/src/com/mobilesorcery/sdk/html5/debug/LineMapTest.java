@@ -0,0 +1,82 @@
+package com.mobilesorcery.sdk.html5.debug;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class LineMapTest {
+
+	private static final int BENCHMARK_ROUNDS = 10;
+
+	// Generous, so that slow build machines do not fail the test.
+	private static final long MAX_MS_PER_ROUND = 1000;
+
+	@Test
+	public void testLinesAndColumns() {
+		LineMap map = new LineMap("a\nbc\r\nd\re");
+		assertEquals(4, map.getLineCount());
+		assertEquals(1, map.getLine(0));
+		assertEquals(1, map.getLine(1));
+		assertEquals(2, map.getLine(2));
+		assertEquals(1, map.getColumn(3));
+		assertEquals(2, map.getLine(5));
+		assertEquals(3, map.getLine(6));
+		assertEquals(4, map.getLine(8));
+		assertEquals(0, map.getColumn(8));
+		assertEquals(6, map.getLineStart(3));
+		assertEquals(-1, map.getLineStart(5));
+	}
+
+	@Test
+	public void testIntSortedMap() {
+		IntSortedMap<String> map = new IntSortedMap<String>();
+		map.put(10, "10");
+		map.put(30, "30");
+		map.put(20, "20");
+		map.put(20, "twenty");
+		assertEquals(3, map.size());
+		assertEquals("twenty", map.get(20));
+		assertNull(map.get(15));
+		assertNull(map.floorValue(5));
+		assertEquals("10", map.floorValue(15));
+		assertEquals("30", map.floorValue(100));
+		assertEquals(20, map.keyAt(1));
+	}
+
+	@Test
+	public void benchmarkLargeSources() {
+		// A 1 MB single-line 'minified' file and a 50k line file.
+		StringBuilder minified = new StringBuilder(1 << 20);
+		while (minified.length() < (1 << 20)) {
+			minified.append("function f(a,b){return a+b;};var x=f(1,2);");
+		}
+		StringBuilder multiline = new StringBuilder();
+		for (int i = 0; i < 50000; i++) {
+			multiline.append("var x").append(i).append(" = ").append(i).append(";\n");
+		}
+
+		benchmark("1 MB single line", minified, 1);
+		benchmark("50k lines", multiline, 50001);
+	}
+
+	private void benchmark(String name, CharSequence source, int expectedLines) {
+		long start = System.nanoTime();
+		int length = source.length();
+		for (int round = 0; round < BENCHMARK_ROUNDS; round++) {
+			LineMap map = new LineMap(source);
+			assertEquals(expectedLines, map.getLineCount());
+			IntSortedMap<Object> positions = new IntSortedMap<Object>();
+			for (int pos = 0; pos < length; pos += 7) {
+				map.getLine(pos);
+				map.getColumn(pos);
+				positions.put(pos, source);
+			}
+			assertEquals(source, positions.floorValue(length));
+		}
+		long elapsed = (System.nanoTime() - start) / 1000000;
+		long perRound = elapsed / BENCHMARK_ROUNDS;
+		assertTrue("LineMap benchmark, " + name + ": " + perRound + " ms/round", perRound < MAX_MS_PER_ROUND);
+	}
+}
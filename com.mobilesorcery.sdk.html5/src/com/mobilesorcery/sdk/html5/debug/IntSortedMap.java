@@ -0,0 +1,132 @@
+package com.mobilesorcery.sdk.html5.debug;
+
+import java.util.Arrays;
+
+/**
+ * A sorted map with primitive <code>int</code> keys, backed by two
+ * parallel arrays. Keys are mostly added in ascending order during
+ * instrumentation (the AST is visited in source order), so
+ * <code>put</code> has an append fast path; out-of-order keys
+ * are inserted using binary search.
+ * <p>This class is not thread safe.
+ * @param <V>
+ */
+public class IntSortedMap<V> {
+
+	private static final int INITIAL_CAPACITY = 16;
+
+	private int[] keys = new int[INITIAL_CAPACITY];
+	private Object[] values = new Object[INITIAL_CAPACITY];
+	private int size;
+
+	public V put(int key, V value) {
+		if (size == 0 || keys[size - 1] < key) {
+			ensureCapacity(size + 1);
+			keys[size] = key;
+			values[size] = value;
+			size++;
+			return null;
+		}
+
+		int ix = Arrays.binarySearch(keys, 0, size, key);
+		if (ix >= 0) {
+			V old = valueAt(ix);
+			values[ix] = value;
+			return old;
+		}
+
+		int insertionPoint = -ix - 1;
+		ensureCapacity(size + 1);
+		System.arraycopy(keys, insertionPoint, keys, insertionPoint + 1, size - insertionPoint);
+		System.arraycopy(values, insertionPoint, values, insertionPoint + 1, size - insertionPoint);
+		keys[insertionPoint] = key;
+		values[insertionPoint] = value;
+		size++;
+		return null;
+	}
+
+	public V get(int key) {
+		int ix = Arrays.binarySearch(keys, 0, size, key);
+		return ix >= 0 ? valueAt(ix) : null;
+	}
+
+	public boolean containsKey(int key) {
+		return Arrays.binarySearch(keys, 0, size, key) >= 0;
+	}
+
+	/**
+	 * Returns the index of the greatest key less than or equal to
+	 * <code>key</code>, or <code>-1</code> if there is no such key.
+	 * @param key
+	 * @return
+	 */
+	public int floorIndex(int key) {
+		int ix = Arrays.binarySearch(keys, 0, size, key);
+		return ix >= 0 ? ix : -ix - 2;
+	}
+
+	/**
+	 * Returns the value associated with the greatest key less
+	 * than or equal to <code>key</code>, or <code>null</code>
+	 * if there is no such key.
+	 * @param key
+	 * @return
+	 */
+	public V floorValue(int key) {
+		int ix = floorIndex(key);
+		return ix >= 0 ? valueAt(ix) : null;
+	}
+
+	public int keyAt(int ix) {
+		checkIndex(ix);
+		return keys[ix];
+	}
+
+	@SuppressWarnings("unchecked")
+	public V valueAt(int ix) {
+		checkIndex(ix);
+		return (V) values[ix];
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	public void clear() {
+		Arrays.fill(values, 0, size, null);
+		size = 0;
+	}
+
+	private void checkIndex(int ix) {
+		if (ix < 0 || ix >= size) {
+			throw new IndexOutOfBoundsException(Integer.toString(ix));
+		}
+	}
+
+	private void ensureCapacity(int capacity) {
+		if (capacity > keys.length) {
+			int newCapacity = Math.max(capacity, keys.length * 2);
+			keys = Arrays.copyOf(keys, newCapacity);
+			values = Arrays.copyOf(values, newCapacity);
+		}
+	}
+
+	@Override
+	public String toString() {
+		StringBuffer result = new StringBuffer("{");
+		for (int i = 0; i < size; i++) {
+			if (i > 0) {
+				result.append(", ");
+			}
+			result.append(keys[i]);
+			result.append('=');
+			result.append(values[i]);
+		}
+		result.append('}');
+		return result.toString();
+	}
+}
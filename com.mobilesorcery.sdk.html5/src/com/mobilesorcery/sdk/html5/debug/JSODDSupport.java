@@ -125,10 +125,10 @@ public class JSODDSupport {
 				.nestScope();
 		private final Stack<FunctionRewrite> functionRewriteStack = new Stack<FunctionRewrite>();
 		private final Stack<IRedefinable> redefinableStack = new Stack<IRedefinable>();
-		private final TreeMap<Integer, LocalVariableScope> localVariables = new TreeMap<Integer, LocalVariableScope>();
+		private final IntSortedMap<LocalVariableScope> localVariables = new IntSortedMap<LocalVariableScope>();
 		private final HashSet<ASTNode> exclusions = new HashSet<ASTNode>();
 		private final HashSet<ASTNode> blockifiables = new HashSet<ASTNode>();
-		private final TreeMap<Integer, List<String>> insertions = new TreeMap<Integer, List<String>>();
+		private final IntSortedMap<List<String>> insertions = new IntSortedMap<List<String>>();
 		private final HashMap<ASTNode, JavaScriptUnit> nodeToUnitMap = new HashMap<ASTNode, JavaScriptUnit>();
 		private final HashMap<ASTNode, String> nodeRedefinables = new HashMap<ASTNode, String>();
 		private final HashMap<String, IRedefinable> redefinables = new HashMap<String, IRedefinable>();
@@ -140,7 +140,7 @@ public class JSODDSupport {
 
 		private String originalSource;
 		private long fileId;
-		private HashMap<Integer, NodeRewrite> instrumentedLines = new HashMap<Integer, NodeRewrite>();
+		private IntSortedMap<NodeRewrite> instrumentedLines = new IntSortedMap<NodeRewrite>();
 		private LineMap lineMap;
 		private Position currentPosition;
 
@@ -480,11 +480,10 @@ public class JSODDSupport {
 
 			this.originalSource = originalSource;
 
-			for (Map.Entry<Integer, LocalVariableScope> scope : localVariables
-					.entrySet()) {
-				int mappedLineNo = lineByLineOriginalSource.getLine(scope
-						.getKey());
-				scopeMap.put(mappedLineNo, scope.getValue());
+			for (int i = 0; i < localVariables.size(); i++) {
+				int mappedLineNo = lineByLineOriginalSource.getLine(localVariables
+						.keyAt(i));
+				scopeMap.put(mappedLineNo, localVariables.valueAt(i));
 			}
 
 			NodeRewrite rootRewrite = new NodeRewrite(this, null);
@@ -505,7 +504,9 @@ public class JSODDSupport {
 			rootRewrite.rewrite(null, doc);
 			instrumented = doc.rewrite();
 
-			instrumentedLines.addAll(this.instrumentedLines.keySet());
+			for (int i = 0; i < this.instrumentedLines.size(); i++) {
+				instrumentedLines.add(this.instrumentedLines.keyAt(i));
+			}
 
 			if (output != null) {
 				output.write(instrumented);
@@ -1,53 +1,87 @@
 package com.mobilesorcery.sdk.html5.debug;
 
-import java.util.Map.Entry;
-import java.util.TreeMap;
+import java.util.Arrays;
 
+/**
+ * Maps character offsets of a source text to line and column numbers.
+ * The line starts are kept in a sorted primitive array and looked up
+ * using binary search, so no boxing or tree nodes are needed even for
+ * very large (or very long, minified) files.
+ */
 public class LineMap {
 
-	private final TreeMap<Integer, Integer> lines = new TreeMap<Integer, Integer>();
+	private static final int INITIAL_CAPACITY = 64;
 
-	public LineMap(String text) {
-		char[] chars = text.toCharArray();
-		int startOfLine = 0;
-		int line = 1;
-		for (int i = 0; i < chars.length; i++) {
-			char ch = chars[i];
-			char peek = i < chars.length - 1 ? chars[i + 1] : '\0';
+	private int[] lineStarts;
+	private int lineCount;
+
+	public LineMap(CharSequence text) {
+		int length = text.length();
+		lineStarts = new int[Math.max(INITIAL_CAPACITY, Math.min(length / 32 + 1, 1 << 16))];
+		addLineStart(0);
+		for (int i = 0; i < length; i++) {
+			char ch = text.charAt(i);
 			if (ch == '\r' || ch == '\n') {
-				line = addLine(startOfLine, line);
-				if (peek == '\n' && ch == '\r') {
+				if (ch == '\r' && i < length - 1 && text.charAt(i + 1) == '\n') {
 					i++;
 				}
-				startOfLine = i + 1;
+				addLineStart(i + 1);
 			}
 		}
+	}
 
+	private void addLineStart(int startIx) {
+		if (lineCount == lineStarts.length) {
+			lineStarts = Arrays.copyOf(lineStarts, lineCount * 2);
+		}
+		lineStarts[lineCount] = startIx;
+		lineCount++;
 	}
 
-	private int addLine(int startIx, int line) {
-		lines.put(startIx, line);
-		return line + 1;
+	private int lineIndex(int pos) {
+		if (pos <= 0) {
+			return 0;
+		}
+		int ix = Arrays.binarySearch(lineStarts, 0, lineCount, pos);
+		// Not an exact match -> the insertion point is the line after.
+		return ix >= 0 ? ix : -ix - 2;
 	}
 
+	/**
+	 * Returns the (1-based) line number of a character offset.
+	 * @param pos
+	 * @return
+	 */
 	public int getLine(int pos) {
-		Integer line = lines.floorKey(pos);
-		if (line == null) {
-			return 1;
-		}
-		return lines.get(line);
+		return lineIndex(pos) + 1;
 	}
-	
+
+	/**
+	 * Returns the (0-based) column of a character offset.
+	 * @param pos
+	 * @return
+	 */
 	public int getColumn(int pos) {
-		Entry<Integer, Integer> entry = lines.floorEntry(pos);
-		if (entry == null) {
+		if (pos < 0) {
 			return pos;
 		}
-		return lines.get(entry.getKey()) - pos;
+		return pos - lineStarts[lineIndex(pos)];
+	}
+
+	/**
+	 * Returns the offset of the first character of a (1-based) line.
+	 * @param line
+	 * @return The offset, or {@code -1} if there is no such line
+	 */
+	public int getLineStart(int line) {
+		if (line < 1 || line > lineCount) {
+			return -1;
+		}
+		return lineStarts[line - 1];
 	}
 
 	public int getLineCount() {
-		return lines.size() + 1;
+		return lineCount;
 	}
 
 }
@@ -1,8 +1,5 @@
 package com.mobilesorcery.sdk.html5.debug.rewrite;
 
-import java.util.Map;
-import java.util.Map.Entry;
-import java.util.NavigableMap;
 import java.util.Set;
 
 import org.eclipse.wst.jsdt.core.dom.ASTNode;
@@ -14,6 +11,7 @@ import org.eclipse.wst.jsdt.core.dom.SimpleName;
 import org.eclipse.wst.jsdt.core.dom.TryStatement;
 
 import com.mobilesorcery.sdk.core.IFilter;
+import com.mobilesorcery.sdk.html5.debug.IntSortedMap;
 import com.mobilesorcery.sdk.html5.debug.JSODDSupport;
 import com.mobilesorcery.sdk.html5.debug.LocalVariableScope;
 import com.mobilesorcery.sdk.html5.debug.Position;
@@ -23,12 +21,12 @@ public class StatementRewrite extends NodeRewrite {
 	private static final String NESTED_FUNCTION_BUG = "JSDT internals makes it impossible to add breakpoints to or hot replace this piece of code (Reason: 'nested function bug')";
 	
 	private long fileId;
-	private NavigableMap<Integer, LocalVariableScope> localVariables;
+	private IntSortedMap<LocalVariableScope> localVariables;
 	private Set<ASTNode> blockifiables;
-	private Map<Integer, NodeRewrite> instrumentedLines;
+	private IntSortedMap<NodeRewrite> instrumentedLines;
 	private boolean forceInstrumentation;
 
-	public StatementRewrite(ISourceSupport rewriter, ASTNode node, long fileId, NavigableMap<Integer, LocalVariableScope> localVariables, Set<ASTNode> blockifiables, Map<Integer, NodeRewrite> instrumentedLines, boolean forceInstrumentation) {
+	public StatementRewrite(ISourceSupport rewriter, ASTNode node, long fileId, IntSortedMap<LocalVariableScope> localVariables, Set<ASTNode> blockifiables, IntSortedMap<NodeRewrite> instrumentedLines, boolean forceInstrumentation) {
 		super(rewriter, node);
 		this.fileId = fileId;
 		this.localVariables = localVariables;
@@ -50,11 +48,11 @@ public class StatementRewrite extends NodeRewrite {
 		}
 		Position end = getPosition(node, false);
 		int lineNo = start.getLine();
-		Entry<Integer, LocalVariableScope> scope = localVariables.floorEntry(start.getPosition());
+		LocalVariableScope scope = localVariables.floorValue(start.getPosition());
 		String scopeDesc = "";
 		if (scope != null) {
 			// Skip this in output
-			//scopeDesc = "/*" + scope.getValue().getLocalVariables()
+			//scopeDesc = "/*" + scope.getLocalVariables()
 			//		+ "*/";
 		}
 		
@@ -0,0 +1,86 @@
+/*  Copyright (C) 2011 Mobile Sorcery AB
+
+    This program is free software; you can redistribute it and/or modify it
+    under the terms of the Eclipse Public License v1.0.
+
+    This program is distributed in the hope that it will be useful, but WITHOUT
+    ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+    FITNESS FOR A PARTICULAR PURPOSE. See the Eclipse Public License v1.0 for
+    more details.
+
+    You should have received a copy of the Eclipse Public License v1.0 along
+    with this program. It is also available at http://www.eclipse.org/legal/epl-v10.html
+*/
+package com.mobilesorcery.sdk.importproject;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.mobilesorcery.sdk.core.Util;
+
+public class FindProjectsRunnableTest {
+
+	private File root;
+
+	@Before
+	public void setUp() throws IOException {
+		root = File.createTempFile("findprojects", "");
+		root.delete();
+		root.mkdirs();
+	}
+
+	@After
+	public void tearDown() {
+		Util.deleteFiles(root, null, Util.INFINITE_DEPTH, new NullProgressMonitor());
+		root.delete();
+	}
+
+	@Test
+	public void testFindsAllProjects() throws Exception {
+		Set<File> expected = new HashSet<File>();
+		// Wide and deep enough to keep all scanning threads busy
+		for (int i = 0; i < 20; i++) {
+			File dir = new File(root, "dir" + i);
+			for (int j = 0; j < 5; j++) {
+				dir = new File(dir, "sub" + j);
+				expected.add(createFile(new File(dir, "project" + j + ".msp")));
+				createFile(new File(dir, "main.cpp"));
+			}
+			expected.add(createFile(new File(root, "dir" + i + "/legacy.mopro")));
+		}
+
+		FindProjectsRunnable runnable = new FindProjectsRunnable(root);
+		runnable.run(new NullProgressMonitor());
+		assertEquals(expected, new HashSet<File>(Arrays.asList(runnable.getProjectDescriptionFiles())));
+	}
+
+	@Test
+	public void testCancel() throws Exception {
+		for (int i = 0; i < 20; i++) {
+			createFile(new File(root, "dir" + i + "/project.msp"));
+		}
+
+		NullProgressMonitor monitor = new NullProgressMonitor();
+		monitor.setCanceled(true);
+		FindProjectsRunnable runnable = new FindProjectsRunnable(root);
+		runnable.run(monitor);
+		assertEquals(0, runnable.getProjectDescriptionFiles().length);
+	}
+
+	private File createFile(File file) throws IOException {
+		file.getParentFile().mkdirs();
+		new FileOutputStream(file).close();
+		return file;
+	}
+}
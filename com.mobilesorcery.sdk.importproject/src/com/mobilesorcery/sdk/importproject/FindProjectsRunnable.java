@@ -19,8 +19,15 @@ import java.beans.PropertyChangeSupport;
 import java.io.File;
 import java.io.IOException;
 import java.lang.reflect.InvocationTargetException;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.jface.operation.IRunnableWithProgress;
@@ -37,6 +44,8 @@ public class FindProjectsRunnable implements IRunnableWithProgress {
     
     public static final String FINISHED = "finished"; //$NON-NLS-1$
 
+    private static final int MAX_THREADS = Math.max(2, Math.min(8, 2 * Runtime.getRuntime().availableProcessors()));
+
     private PropertyChangeSupport listeners = new PropertyChangeSupport(this);
     
     private File root;
@@ -47,7 +56,9 @@ public class FindProjectsRunnable implements IRunnableWithProgress {
     }
 
     public File[] getProjectDescriptionFiles() {
-        return projectDescriptionFiles.toArray(new File[projectDescriptionFiles.size()]);
+        synchronized (projectDescriptionFiles) {
+            return projectDescriptionFiles.toArray(new File[projectDescriptionFiles.size()]);
+        }
     }
     
     public void run(IProgressMonitor monitor) throws InvocationTargetException, InterruptedException {
@@ -61,30 +72,107 @@ public class FindProjectsRunnable implements IRunnableWithProgress {
 
     public void findInDirectory(IProgressMonitor monitor, File root) throws IOException {
         try {
-            findInDirectory(monitor, root, projectDescriptionFiles, new HashSet<String>());
+            new Scan(monitor, projectDescriptionFiles).run(root);
         } finally {
             listeners.firePropertyChange(new PropertyChangeEvent(this, FINISHED, null, getProjectDescriptionFiles()));
         }
     }
-    
-    private void findInDirectory(IProgressMonitor monitor, File dir, Set<File> projectDescriptionFiles, Set<String> directoriesVisited) throws IOException {
-        monitor.setTaskName(Messages.FindProjectsRunnable_ScanningProgress + dir.getAbsolutePath());
-        if (monitor.isCanceled()) {
-            return;
+
+    /**
+     * Scans a directory tree, with each directory being listed
+     * by one of a few threads; the calling thread only waits
+     * and reports progress.
+     */
+    private class Scan {
+
+        private final IProgressMonitor monitor;
+        private final Set<File> projectDescriptionFiles;
+        private final Set<String> directoriesVisited = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+        private final AtomicInteger pending = new AtomicInteger();
+        private final Object lock = new Object();
+        private ExecutorService executor;
+        private volatile File currentDir;
+        private volatile IOException error;
+
+        Scan(IProgressMonitor monitor, Set<File> projectDescriptionFiles) {
+            this.monitor = monitor;
+            this.projectDescriptionFiles = projectDescriptionFiles;
         }
-        
-        File[] files = dir.listFiles();
-        for (int i = 0; i < files.length; i++) {
-            String ext = Util.getExtension(files[i]);
-            if (files[i].isDirectory() && !isTemplateDirectory(files[i])) {
-                if (directoriesVisited.contains(files[i].getCanonicalPath())) {
-                    return;
+
+        void run(File root) throws IOException {
+            executor = Executors.newFixedThreadPool(MAX_THREADS, new ThreadFactory() {
+                public Thread newThread(Runnable r) {
+                    Thread thread = new Thread(r, "Scanning for projects"); //$NON-NLS-1$
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+            try {
+                submit(root);
+                synchronized (lock) {
+                    while (pending.get() > 0 && !monitor.isCanceled() && error == null) {
+                        File dir = currentDir;
+                        if (dir != null) {
+                            monitor.setTaskName(Messages.FindProjectsRunnable_ScanningProgress + dir.getAbsolutePath());
+                        }
+                        lock.wait(100);
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                executor.shutdownNow();
+            }
+
+            if (error != null) {
+                throw error;
+            }
+        }
+
+        private void submit(final File dir) {
+            pending.incrementAndGet();
+            try {
+                executor.execute(new Runnable() {
+                    public void run() {
+                        try {
+                            if (!monitor.isCanceled() && error == null) {
+                                scan(dir);
+                            }
+                        } catch (IOException e) {
+                            error = e;
+                        } finally {
+                            if (pending.decrementAndGet() == 0 || error != null) {
+                                synchronized (lock) {
+                                    lock.notifyAll();
+                                }
+                            }
+                        }
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                // Cancelled; the executor was shut down.
+                pending.decrementAndGet();
+            }
+        }
+
+        private void scan(File dir) throws IOException {
+            currentDir = dir;
+            File[] files = dir.listFiles();
+            if (files == null) {
+                return;
+            }
+
+            for (int i = 0; i < files.length; i++) {
+                String ext = Util.getExtension(files[i]);
+                if (files[i].isDirectory() && !isTemplateDirectory(files[i])) {
+                    if (directoriesVisited.add(files[i].getCanonicalPath())) {
+                        submit(files[i]);
+                    }
+                } else if ("msp".equals(ext) || "mopro".equals(ext)) { //$NON-NLS-1$ //$NON-NLS-2$
+                    synchronized (projectDescriptionFiles) {
+                        projectDescriptionFiles.add(files[i]);
+                    }
                 }
-                
-                directoriesVisited.add(files[i].getCanonicalPath());
-                findInDirectory(monitor, files[i], projectDescriptionFiles, directoriesVisited);
-            } else if ("msp".equals(ext) || "mopro".equals(ext)) { //$NON-NLS-1$ //$NON-NLS-2$
-                projectDescriptionFiles.add(files[i]);                
             }
         }
     }
@@ -38,6 +38,7 @@ import org.eclipse.swt.widgets.Label;
 
 import com.mobilesorcery.sdk.core.MoSyncProject;
 import com.mobilesorcery.sdk.core.MoSyncTool;
+import com.mobilesorcery.sdk.core.ProfileIndex;
 import com.mobilesorcery.sdk.core.ProfileManager;
 import com.mobilesorcery.sdk.profiles.ICompositeDeviceFilter;
 import com.mobilesorcery.sdk.profiles.IDeviceFilter;
@@ -63,6 +64,7 @@ public class DeviceFilterComposite extends Composite {
     PropertyChangeSupport listeners = new PropertyChangeSupport(this);
     private final Label deviceCountLabel;
 	private MoSyncProject currentProject;
+	private ProfileIndex profileIndex;
 
     public DeviceFilterComposite(Composite parent, int style) {
         super(parent, style);
@@ -199,6 +201,16 @@ public class DeviceFilterComposite extends Composite {
         updateUI(true);
     }
 
+    /**
+     * Sets a profile index that is kept up to date with the
+     * current project's filter; if set, the device count is
+     * taken from the index instead of re-applying the filter.
+     * @param profileIndex
+     */
+    public void setProfileIndex(ProfileIndex profileIndex) {
+    	this.profileIndex = profileIndex;
+    }
+
     private void updateUI(final boolean updateCount) {
         filterTable.getControl().getDisplay().asyncExec(new Runnable() {
             @Override
@@ -227,6 +239,9 @@ public class DeviceFilterComposite extends Composite {
     }
 
     protected String getDeviceCountText() {
+    	if (profileIndex != null) {
+    		return MessageFormat.format("{0} of {1} included", profileIndex.getProfileCount(), profileIndex.getTotalProfileCount());
+    	}
     	ProfileManager mgr = currentProject == null ?
     			MoSyncTool.getDefault().getProfileManager(MoSyncTool.LEGACY_PROFILE_TYPE) :
 				currentProject.getProfileManager();
@@ -16,6 +16,7 @@ package com.mobilesorcery.sdk.profiles.ui.internal;
 import java.beans.PropertyChangeEvent;
 import java.beans.PropertyChangeListener;
 import java.text.MessageFormat;
+import java.util.Set;
 
 import org.eclipse.core.resources.IProject;
 import org.eclipse.core.resources.IResource;
@@ -35,7 +36,6 @@ import org.eclipse.jface.viewers.IStructuredSelection;
 import org.eclipse.jface.viewers.SelectionChangedEvent;
 import org.eclipse.jface.viewers.StructuredSelection;
 import org.eclipse.jface.viewers.TreeViewer;
-import org.eclipse.jface.viewers.ViewerFilter;
 import org.eclipse.swt.SWT;
 import org.eclipse.swt.custom.SashForm;
 import org.eclipse.swt.custom.StackLayout;
@@ -58,17 +58,16 @@ import com.mobilesorcery.sdk.core.CoreMoSyncPlugin;
 import com.mobilesorcery.sdk.core.IUpdater;
 import com.mobilesorcery.sdk.core.MoSyncProject;
 import com.mobilesorcery.sdk.core.MoSyncTool;
+import com.mobilesorcery.sdk.core.ProfileIndex;
 import com.mobilesorcery.sdk.profiles.IDeviceFilter;
 import com.mobilesorcery.sdk.profiles.IProfile;
 import com.mobilesorcery.sdk.profiles.IVendor;
-import com.mobilesorcery.sdk.profiles.filter.CompositeDeviceFilter;
 import com.mobilesorcery.sdk.profiles.ui.DeviceFilterComposite;
-import com.mobilesorcery.sdk.profiles.ui.DeviceViewerFilter;
 import com.mobilesorcery.sdk.profiles.ui.internal.actions.FinalizeForProfileAction;
 import com.mobilesorcery.sdk.profiles.ui.internal.actions.SetTargetProfileAction;
 import com.mobilesorcery.sdk.profiles.ui.internal.actions.ShowProfileInfoAction;
+import com.mobilesorcery.sdk.ui.LazyProfileContentProvider;
 import com.mobilesorcery.sdk.ui.MosyncUIPlugin;
-import com.mobilesorcery.sdk.ui.ProfileContentProvider;
 import com.mobilesorcery.sdk.ui.ProfileLabelProvider;
 
 public class ProfilesView extends ViewPart implements PropertyChangeListener {
@@ -111,6 +110,7 @@ public class ProfilesView extends ViewPart implements PropertyChangeListener {
     private final FinalizeForProfileAction buildForProfile = new FinalizeForProfileAction();
 
     private TreeViewer profileTree;
+    private final ProfileIndex profileIndex = new ProfileIndex();
     private ProfileLabelProvider profileLabelProvider;
     private DeviceFilterComposite deviceFilter;
     private Label projectLabel;
@@ -214,11 +214,14 @@ public class ProfilesView extends ViewPart implements PropertyChangeListener {
         main.setLayoutData(mainData);
         // main.setLayout(new FillLayout());
 
-        profileTree = new TreeViewer(main, SWT.BORDER);
+        // Virtual, so only visible vendors and profiles are created
+        profileTree = new TreeViewer(main, SWT.VIRTUAL | SWT.BORDER);
+        profileTree.setUseHashlookup(true);
         profileLabelProvider = new ProfileLabelProvider(SWT.NONE);
         profileTree.setLabelProvider(profileLabelProvider);
-        profileTree.setContentProvider(new ProfileContentProvider());
-        profileTree.setInput(MoSyncTool.getDefault().getProfileManager(MoSyncTool.LEGACY_PROFILE_TYPE).getVendors());
+        profileTree.setContentProvider(new LazyProfileContentProvider());
+        updateProfileIndex(null);
+        profileTree.setInput(profileIndex);
 
         profileTree.addSelectionChangedListener(new ISelectionChangedListener() {
             @Override
@@ -244,6 +247,7 @@ public class ProfilesView extends ViewPart implements PropertyChangeListener {
         });
 
         deviceFilter = new DeviceFilterComposite(main, SWT.NONE);
+        deviceFilter.setProfileIndex(profileIndex);
 
         main.setWeights(new int[] { 3, 2 });
 
@@ -318,9 +322,8 @@ public class ProfilesView extends ViewPart implements PropertyChangeListener {
         profileTree.getTree().getDisplay().asyncExec(new Runnable() {
             @Override
 			public void run() {
+                updateProfileIndex(newProject);
                 if (newProject != null) {
-                    profileTree.setInput(newProject.getFilteredVendors());
-                    profileTree.setFilters(new ViewerFilter[] { new DeviceViewerFilter(newProject.getDeviceFilter()) });
                     deviceFilter.setCurrentProject(newProject);
                     IProfile target = newProject.getTargetProfile();
                     if (target != null) {
@@ -328,10 +331,6 @@ public class ProfilesView extends ViewPart implements PropertyChangeListener {
                     }
 
                     updateProjectText(newProject);
-                } else {
-                    profileTree.setInput(MoSyncTool.getDefault().getProfileManager(MoSyncTool.LEGACY_PROFILE_TYPE).getVendors());
-                    profileTree.setFilters(new ViewerFilter[] { new DeviceViewerFilter( new CompositeDeviceFilter()) });
-                    profileTree.refresh();
                 }
 
                 profileTree.getControl().setEnabled(newProject != null);
@@ -344,6 +343,30 @@ public class ProfilesView extends ViewPart implements PropertyChangeListener {
         selectionProvider.setSelection(newProject == null ? new StructuredSelection() : new StructuredSelection(newProject.getWrappedProject()));
     }
 
+    /**
+     * Re-applies the device filter of a project to the profile index
+     * and refreshes only the parts of the tree that changed.
+     * @param project The project, or <code>null</code> to show all profiles
+     */
+    private void updateProfileIndex(MoSyncProject project) {
+        IVendor[] vendors = project == null ?
+                MoSyncTool.getDefault().getProfileManager(MoSyncTool.LEGACY_PROFILE_TYPE).getVendors() :
+                project.getProfileManager().getVendors();
+        Set<IVendor> changed = profileIndex.update(vendors, project == null ? null : project.getDeviceFilter());
+        if (profileTree.getInput() == null) {
+            return;
+        }
+        if (changed == null) {
+            profileTree.setChildCount(profileIndex, profileIndex.getVendors().length);
+            profileTree.refresh();
+        } else {
+            for (IVendor vendor : changed) {
+                profileTree.setChildCount(vendor, profileIndex.getProfiles(vendor).length);
+                profileTree.refresh(vendor);
+            }
+        }
+    }
+
     protected void updateProjectText(MoSyncProject project) {
         projectLabel.setText(MessageFormat.format(Messages.ProfilesView_ProfilesForProject, project.getName()));
     }
@@ -359,26 +382,23 @@ public class ProfilesView extends ViewPart implements PropertyChangeListener {
     	} else
         if (event.getPropertyName() == MoSyncTool.MOSYNC_HOME_UPDATED) {
             updateVisiblePane();
-            if (currentProject != null) {
-            	profileTree.setFilters(new ViewerFilter[] { new DeviceViewerFilter(currentProject.getDeviceFilter()) });
-            	profileTree.setInput(MoSyncTool.getDefault().getProfileManager(MoSyncTool.LEGACY_PROFILE_TYPE).getVendors());
-            }
+            updateProfileIndex(currentProject);
         } else if (event.getPropertyName() == MoSyncProject.TARGET_PROFILE_CHANGED) {
             Object oldValue = event.getOldValue();
             Object newValue = event.getNewValue();
+            // Only the labels change
             if (oldValue != null) {
-                profileTree.refresh(event.getOldValue());
+                profileTree.update(oldValue, null);
             }
 
             if (newValue != null) {
-                profileTree.refresh(event.getNewValue());
+                profileTree.update(newValue, null);
             }
 
             updateTargetProfileLink(currentProject.getTargetProfile());
         } else if (event.getSource() instanceof IDeviceFilter) {
+            updateProfileIndex(currentProject);
         	deviceFilter.setCurrentProject(currentProject);
-            profileTree.setFilters(new ViewerFilter[] { new DeviceViewerFilter(currentProject.getDeviceFilter()) });
-            profileTree.setInput(currentProject == null ? MoSyncTool.getDefault().getProfileManager(MoSyncTool.LEGACY_PROFILE_TYPE).getVendors() : currentProject.getFilteredVendors());
         } else if (event.getPropertyName() == MoSyncTool.PROFILES_UPDATED ||
         		event.getPropertyName() == MoSyncProject.PROFILE_MANAGER_TYPE_KEY) {
             profileTree.getControl().getDisplay().asyncExec(new Runnable() {
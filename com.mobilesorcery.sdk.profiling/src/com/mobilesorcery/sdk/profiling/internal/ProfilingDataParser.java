@@ -18,17 +18,14 @@ import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 
-import javax.xml.parsers.SAXParser;
-import javax.xml.parsers.SAXParserFactory;
-
 import org.xml.sax.InputSource;
-import org.xml.sax.XMLReader;
 import org.xml.sax.helpers.DefaultHandler;
 
 import com.mobilesorcery.sdk.core.ISLDInfo;
 import com.mobilesorcery.sdk.core.ParseException;
 import com.mobilesorcery.sdk.core.SLD;
 import com.mobilesorcery.sdk.core.Util;
+import com.mobilesorcery.sdk.core.XMLReaderPool;
 import com.mobilesorcery.sdk.profiling.IInvocation;
 import com.mobilesorcery.sdk.profiling.Invocation;
 
@@ -53,13 +50,7 @@ public class ProfilingDataParser extends DefaultHandler {
             Invocation root = new Invocation(null);
         ProfilingDataParserHandler handler = new ProfilingDataParserHandler(root, info);
         try {
-            SAXParserFactory spf = SAXParserFactory.newInstance();
-            spf.setValidating(false);
-            spf.setNamespaceAware(true);
-            SAXParser sp = spf.newSAXParser();
-            final XMLReader xr = sp.getXMLReader();
-            xr.setContentHandler(handler);
-            xr.parse(new InputSource(input));
+            XMLReaderPool.parse(new InputSource(input), handler, true);
             return root;
         } catch (IOException e) {
             throw e;
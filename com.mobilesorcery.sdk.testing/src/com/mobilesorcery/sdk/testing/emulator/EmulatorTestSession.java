@@ -16,18 +16,21 @@
  */
 package com.mobilesorcery.sdk.testing.emulator;
 
-import java.io.IOException;
-import java.io.PipedInputStream;
-import java.io.PipedOutputStream;
-
 import org.eclipse.debug.core.ILaunchConfiguration;
+import org.xml.sax.SAXException;
 
 import com.mobilesorcery.sdk.core.CoreMoSyncPlugin;
 import com.mobilesorcery.sdk.core.IEmulatorProcessListener;
+import com.mobilesorcery.sdk.core.IncrementalXMLReader;
 import com.mobilesorcery.sdk.testing.IRelaunchableTestSession;
 import com.mobilesorcery.sdk.testing.TestSession;
 import com.mobilesorcery.sdk.testing.TestSessionEvent;
 
+/**
+ * A test session that collects its test results from the output
+ * of an emulator process; the output is parsed incrementally as
+ * it is streamed.
+ */
 public class EmulatorTestSession extends TestSession implements IEmulatorProcessListener, IRelaunchableTestSession {
 
 	static final byte[] TEST_MARKUP_PREFIX = "__TEST_MARKUP__".getBytes();
@@ -36,10 +39,10 @@ public class EmulatorTestSession extends TestSession implements IEmulatorProcess
 	public final static String FILE_KEY = XMLTestReportParser.FILE_ATTR;			
 	public final static String LINE_KEY = XMLTestReportParser.LINE_ATTR;
 
-	private boolean parserStarted;
-	private PipedOutputStream buffer;
 	private ILaunchConfiguration launchConfig;
 	private int emulatorId;
+	private IncrementalXMLReader reader;
+	private boolean failed;
 	
 	public EmulatorTestSession(String name, ILaunchConfiguration launchConfig, int emulatorId) {
 		super(name);
@@ -59,51 +62,40 @@ public class EmulatorTestSession extends TestSession implements IEmulatorProcess
 		notifyListeners(new TestSessionEvent(TestSessionEvent.SESSION_FINISHED, this, this));
 	}
 	
-	public void dataStreamed(int id, byte[] data, int offset, int length) {
-		try {
-			if (length < TEST_MARKUP_PREFIX_LEN) {
+	public synchronized void dataStreamed(int id, byte[] data, int offset, int length) {
+		if (failed || length < TEST_MARKUP_PREFIX_LEN) {
+			return;
+		}
+			
+		for (int i = 0; i < TEST_MARKUP_PREFIX_LEN; i++) {
+			if (TEST_MARKUP_PREFIX[i] != data[offset + i]) {
 				return;
 			}
+		}
 			
-			for (int i = 0; i < TEST_MARKUP_PREFIX_LEN; i++) {
-				if (TEST_MARKUP_PREFIX[i] != data[offset + i]) {
-					return;
-				}
+		try {
+			if (reader == null) {
+				reader = new IncrementalXMLReader(new XMLTestReportParser(this));
 			}
-			
-			feedIntoParser(data, offset + TEST_MARKUP_PREFIX_LEN, length - TEST_MARKUP_PREFIX_LEN);
-		} catch (IOException e) {
-			// We don't report this to the UI, since it will for sure be reported by the other thread;
-			// if we would report it, a potentially large number of spurious error messages could show up.
-			e.printStackTrace();
-		}
-	}
-
-	private void feedIntoParser(byte[] data, int offset, int length) throws IOException {
-		if (!parserStarted) {
-			parserStarted = true;
-			XMLTestReportParser parser = new XMLTestReportParser(this, this);
-			PipedInputStream input = new PipedInputStream();
-			buffer = new PipedOutputStream();
-			buffer.connect(input);
-            // A small fix; we always need a root element, but the test framework will not give that to us.
-            buffer.write("<root>\n".getBytes());
-			parser.parse(input);
+			reader.feed(data, offset + TEST_MARKUP_PREFIX_LEN, length - TEST_MARKUP_PREFIX_LEN);
+		} catch (Exception e) {
+			// Only report the first error; otherwise a potentially
+			// large number of spurious error messages could show up.
+			failed = true;
+			reportSessionError(e);
 		}
-		
-		buffer.write(data, offset, length);
 	}
 
 	public void processStarted(int id) {
 	}
 
-	public void processStopped(int id) {
-		try {
-            // A small fix; we always need a root element, but the test framework will not give that to us.
-            buffer.write("</root>\n".getBytes());
-			buffer.close();
-		} catch (IOException e) {
-			reportSessionError(e);
+	public synchronized void processStopped(int id) {
+		if (reader != null && !failed) {
+			try {
+				reader.end();
+			} catch (SAXException e) {
+				reportSessionError(e);
+			}
 		}
 	}
 
@@ -16,15 +16,8 @@
  */
 package com.mobilesorcery.sdk.testing.emulator;
 
-import java.io.InputStream;
-
-import javax.xml.parsers.SAXParser;
-import javax.xml.parsers.SAXParserFactory;
-
 import org.xml.sax.Attributes;
-import org.xml.sax.InputSource;
 import org.xml.sax.SAXException;
-import org.xml.sax.XMLReader;
 import org.xml.sax.helpers.DefaultHandler;
 
 import com.mobilesorcery.sdk.testing.AssertionFailed;
@@ -36,10 +29,6 @@ import com.mobilesorcery.sdk.testing.TestSession;
 import com.mobilesorcery.sdk.testing.TestSuite;
 
 class XMLTestReportParser extends DefaultHandler {
-	/**
-	 * 
-	 */
-	private final EmulatorTestSession emulatorTestSession;
 	final static String FILE_ATTR = "file";			
 	final static String LINE_ATTR = "line";			
 
@@ -62,31 +51,10 @@ class XMLTestReportParser extends DefaultHandler {
 	private String currentTag = null;
 	private AssertionFailed currentAssertionFailed;
 	
-	public XMLTestReportParser(EmulatorTestSession emulatorTestSession, TestSession session) {
-		this.emulatorTestSession = emulatorTestSession;
+	public XMLTestReportParser(TestSession session) {
 		this.session = session;
 	}
 	
-	public void parse(final InputStream input) {
-		Thread thread = new Thread(new Runnable() {
-			public void run() {
-				try {
-					SAXParserFactory spf = SAXParserFactory.newInstance();
-					spf.setValidating(false);
-					spf.setNamespaceAware(true);
-					SAXParser sp = spf.newSAXParser();
-					final XMLReader xr = sp.getXMLReader();
-					xr.setContentHandler(XMLTestReportParser.this);
-					xr.parse(new InputSource(input));
-				} catch (Exception e) {
-					XMLTestReportParser.this.emulatorTestSession.reportSessionError(e);
-				}
-			}					
-		});
-		
-		thread.start();
-	}
-	
 	public void startElement(String uri, String name, String qName, Attributes atts) {
 		currentTag = name;
 		
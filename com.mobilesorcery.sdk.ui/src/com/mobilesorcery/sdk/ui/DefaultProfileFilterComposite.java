@@ -268,6 +268,8 @@ public class DefaultProfileFilterComposite extends Composite implements
 				control.required.setSelection(isRequired);
 				updateCapabilityUI(capability);
 			}
+			// All platform controls need to be updated
+			eligiblePlatforms.clear();
 			updateEligiblePlatforms();
 		}
 	}
@@ -285,6 +287,10 @@ public class DefaultProfileFilterComposite extends Composite implements
 		DeviceCapabilitiesFilter filter = createCapabilitiesFilter();
 		for (IVendor platform : platformControls.keySet()) {
 			boolean acceptedPlatform = filter.accept(platform);
+			// Only touch the controls of platforms that changed
+			if (Boolean.valueOf(acceptedPlatform).equals(eligiblePlatforms.get(platform))) {
+				continue;
+			}
 			PlatformControl platformControl = platformControls.get(platform);
 			platformControl.image.setImage(getPlatformImage(platform, acceptedPlatform));
 			platformControl.selected.setEnabled(acceptedPlatform);
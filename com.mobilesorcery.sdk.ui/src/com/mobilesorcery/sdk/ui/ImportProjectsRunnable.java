@@ -23,6 +23,13 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
@@ -30,18 +37,24 @@ import javax.xml.parsers.DocumentBuilderFactory;
 import org.eclipse.core.resources.IFile;
 import org.eclipse.core.resources.IProject;
 import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.IResourceRuleFactory;
 import org.eclipse.core.resources.IResourceStatus;
+import org.eclipse.core.resources.IWorkspace;
 import org.eclipse.core.resources.IWorkspaceRoot;
+import org.eclipse.core.resources.IWorkspaceRunnable;
 import org.eclipse.core.resources.ResourcesPlugin;
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IPath;
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.MultiStatus;
+import org.eclipse.core.runtime.NullProgressMonitor;
 import org.eclipse.core.runtime.Path;
 import org.eclipse.core.runtime.Status;
 import org.eclipse.core.runtime.SubProgressMonitor;
+import org.eclipse.core.runtime.jobs.ISchedulingRule;
 import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.core.runtime.jobs.MultiRule;
 import org.eclipse.jface.dialogs.MessageDialog;
 import org.eclipse.swt.widgets.Display;
 import org.eclipse.swt.widgets.Shell;
@@ -91,6 +104,29 @@ public class ImportProjectsRunnable extends WorkspaceModifyOperation {
 		}
 	};
 
+	private static final int MAX_THREADS = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors()));
+
+	/**
+	 * The state of a single project import, passed
+	 * between the phases of an import.
+	 */
+	private static class ProjectImport {
+		final File projectDescription;
+		final String preferredProjectName;
+		IPath projectMetaDataLocation;
+		IProject project;
+		MoSyncProject mosyncProject;
+		Document doc;
+		String[] projectPaths;
+		boolean success = true;
+		Exception error;
+
+		ProjectImport(File projectDescription, String preferredProjectName) {
+			this.projectDescription = projectDescription;
+			this.preferredProjectName = preferredProjectName;
+		}
+	}
+
 	private final File[] projectDescriptions;
 	private final String[] preferredProjectNames;
 	private Map<String, String> keyMap;
@@ -115,6 +151,9 @@ public class ImportProjectsRunnable extends WorkspaceModifyOperation {
 
 	public ImportProjectsRunnable(File[] projectDescriptions,
 			String[] preferredProjectNames, int strategy, List<IProject> result) {
+		// No rule, not even when run as an operation (eg from a wizard);
+		// each phase of the import acquires the rules it needs.
+		super((ISchedulingRule) null);
 		this.projectDescriptions = projectDescriptions;
 		this.preferredProjectNames = preferredProjectNames;
 		this.copyStrategy = strategy & 0x3; // Max value of copy strategies.
@@ -153,7 +192,7 @@ public class ImportProjectsRunnable extends WorkspaceModifyOperation {
 		};
 
 		importJob.setUser(true);
-		importJob.setRule(ResourcesPlugin.getWorkspace().getRoot());
+		// No rule; each phase of the import acquires the rules it needs.
 		if (schedule) {
 			importJob.schedule();
 		}
@@ -179,24 +218,93 @@ public class ImportProjectsRunnable extends WorkspaceModifyOperation {
 
 	@Override
 	protected void execute(IProgressMonitor monitor) throws CoreException {
-		monitor.beginTask(Messages.ImportProjectsRunnable_ImportProgress,
-				projectDescriptions.length);
+		importProjects(monitor);
+	}
 
-		ArrayList<IStatus> errorStatus = new ArrayList<IStatus>();
+	/**
+	 * <p>Imports all projects, in three phases:</p>
+	 * <ol>
+	 * <li>The projects are created, one at a time, and left closed;</li>
+	 * <li>their files are copied and their descriptions are parsed,
+	 * in parallel and without holding any scheduling rule;</li>
+	 * <li>each project is opened, set up and refreshed in a single
+	 * workspace operation, holding only the rules required for that
+	 * project.</li>
+	 * </ol>
+	 * <p>Since resource change notifications and autobuilds are deferred
+	 * until the end of a workspace operation, no builder or indexer
+	 * sees a project before its MoSync settings are applied.</p>
+	 * @param monitor
+	 * @throws CoreException
+	 */
+	private void importProjects(IProgressMonitor monitor) throws CoreException {
+		final int total = projectDescriptions.length;
+		monitor.beginTask(Messages.ImportProjectsRunnable_ImportProgress, 3 * total);
+
+		final ArrayList<ProjectImport> imports = new ArrayList<ProjectImport>();
+		for (int i = 0; i < total; i++) {
+			imports.add(new ProjectImport(projectDescriptions[i], getPreferredProjectName(i)));
+		}
+
+		IWorkspace workspace = ResourcesPlugin.getWorkspace();
+		workspace.run(new IWorkspaceRunnable() {
+			@Override
+			public void run(IProgressMonitor monitor) throws CoreException {
+				monitor.beginTask(Messages.ImportProjectsRunnable_ImportProgress, total);
+				for (ProjectImport projectImport : imports) {
+					if (monitor.isCanceled()) {
+						return;
+					}
+					try {
+						createProject(projectImport, new SubProgressMonitor(monitor, 1));
+					} catch (Exception e) {
+						projectImport.error = e;
+					}
+				}
+			}
+		}, workspace.getRoot(), IResource.NONE, new SubProgressMonitor(monitor, total));
+
+		if (!copyFiles(imports, monitor)) {
+			return;
+		}
 
-		for (int i = 0; i < projectDescriptions.length; i++) {
+		ArrayList<IStatus> errorStatus = new ArrayList<IStatus>();
+		long startTime = System.currentTimeMillis();
+		int done = 0;
+		for (final ProjectImport projectImport : imports) {
 			if (monitor.isCanceled()) {
 				return;
 			}
-			try {
-				importProject(monitor, getPreferredProjectName(i),
-						projectDescriptions[i]);
-			} catch (Exception e) {
+			if (projectImport.error == null) {
+				try {
+					IResourceRuleFactory ruleFactory = workspace.getRuleFactory();
+					ISchedulingRule rule = MultiRule.combine(ruleFactory.modifyRule(projectImport.project),
+							ruleFactory.refreshRule(projectImport.project));
+					workspace.run(new IWorkspaceRunnable() {
+						@Override
+						public void run(IProgressMonitor monitor) throws CoreException {
+							setupProject(projectImport, monitor);
+						}
+					}, rule, IResource.NONE, new SubProgressMonitor(monitor, 1));
+				} catch (Exception e) {
+					projectImport.error = e;
+				}
+			} else {
+				monitor.worked(1);
+			}
+
+			if (projectImport.error == null) {
+				if (result != null) {
+					result.add(projectImport.project);
+				}
+			} else {
 				errorStatus.add(new Status(IStatus.ERROR,
-						MosyncUIPlugin.PLUGIN_ID, projectDescriptions[i] + "; "
-								+ e.getMessage(), e));
-				CoreMoSyncPlugin.getDefault().log(e);
+						MosyncUIPlugin.PLUGIN_ID, projectImport.projectDescription + "; "
+								+ projectImport.error.getMessage(), projectImport.error));
+				CoreMoSyncPlugin.getDefault().log(projectImport.error);
 			}
+			done++;
+			reportProgress(monitor, done, total, startTime);
 		}
 
 		if (!errorStatus.isEmpty()) {
@@ -210,6 +318,79 @@ public class ImportProjectsRunnable extends WorkspaceModifyOperation {
 		}
 	}
 
+	private boolean copyFiles(List<ProjectImport> imports, final IProgressMonitor monitor) {
+		ExecutorService executor = Executors.newFixedThreadPool(MAX_THREADS, new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread thread = new Thread(r, "Project import"); //$NON-NLS-1$
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+
+		// Workers must not report progress; they are only told about cancellation.
+		final IProgressMonitor workerMonitor = new NullProgressMonitor() {
+			@Override
+			public boolean isCanceled() {
+				return monitor.isCanceled();
+			}
+		};
+
+		try {
+			ArrayList<Future<?>> copies = new ArrayList<Future<?>>();
+			for (final ProjectImport projectImport : imports) {
+				copies.add(executor.submit(new Runnable() {
+					@Override
+					public void run() {
+						if (projectImport.error == null && !workerMonitor.isCanceled()) {
+							try {
+								copyFiles(projectImport, workerMonitor);
+							} catch (Exception e) {
+								projectImport.error = e;
+							}
+						}
+					}
+				}));
+			}
+
+			long startTime = System.currentTimeMillis();
+			int done = 0;
+			for (Future<?> copy : copies) {
+				while (!isDone(copy)) {
+					if (monitor.isCanceled()) {
+						return false;
+					}
+				}
+				monitor.worked(1);
+				done++;
+				reportProgress(monitor, done, imports.size(), startTime);
+			}
+			return !monitor.isCanceled();
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	private boolean isDone(Future<?> future) {
+		try {
+			future.get(250, TimeUnit.MILLISECONDS);
+			return true;
+		} catch (TimeoutException e) {
+			return false;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return true;
+		} catch (ExecutionException e) {
+			// Errors are recorded in the project import itself.
+			return true;
+		}
+	}
+
+	private void reportProgress(IProgressMonitor monitor, int done, int total, long startTime) {
+		double elapsed = Math.max(1, System.currentTimeMillis() - startTime) / 1000.0;
+		monitor.subTask(MessageFormat.format("{0} of {1} projects ({2,number,0.0} projects/s)", done, total, done / elapsed));
+	}
+
 	private String getPreferredProjectName(int ix) {
 		if (preferredProjectNames == null || ix < 0
 				|| ix >= preferredProjectNames.length) {
@@ -219,9 +400,8 @@ public class ImportProjectsRunnable extends WorkspaceModifyOperation {
 		}
 	}
 
-	private void importProject(IProgressMonitor monitor,
-			String preferredProjectName, File projectDescription)
-			throws CoreException {
+	private void createProject(ProjectImport projectImport, IProgressMonitor monitor) throws CoreException {
+		File projectDescription = projectImport.projectDescription;
 		if (projectDescription.isDirectory()) {
 			throw new CoreException(new Status(IStatus.ERROR,
 					MosyncUIPlugin.PLUGIN_ID,
@@ -236,45 +416,78 @@ public class ImportProjectsRunnable extends WorkspaceModifyOperation {
 		 * )); }
 		 */
 
-		monitor = new SubProgressMonitor(monitor, 4);
+		monitor.beginTask("", 2); //$NON-NLS-1$
+		String preferredProjectName = projectImport.preferredProjectName;
 		String projectName = preferredProjectName == null ? Util
 				.getNameWithoutExtension(projectDescription)
 				: preferredProjectName;
 
-		IPath projectMetaDataLocation = getProjectMetaDataLocation(projectDescription);
+		projectImport.projectMetaDataLocation = getProjectMetaDataLocation(projectDescription);
 
 		URI location = shouldCopy() ? null : projectDescription.getParentFile()
 				.toURI();
 
 		IProject project = createProjectWithUniqueName(projectName, location,
-				monitor);
+				new SubProgressMonitor(monitor, 1));
 
-		project.open(new SubProgressMonitor(monitor, 1));
+		projectImport.project = project;
+		projectImport.mosyncProject = MoSyncProject.create(project);
 
-		MoSyncProject mosyncProject = MoSyncProject.create(project);
+		// Keep the project closed until it is set up, or the autobuilder
+		// and the indexer will see a half-imported project.
+		project.close(new SubProgressMonitor(monitor, 1));
+		monitor.done();
+	}
 
-		if (!shouldUseNewFormatIfAvailable() || projectMetaDataLocation == null) {
-			parseProjectDescription(new SubProgressMonitor(monitor, 1),
-					mosyncProject, projectDescription);
+	private void copyFiles(ProjectImport projectImport, IProgressMonitor monitor) throws Exception {
+		File projectDescription = projectImport.projectDescription;
+		if (!shouldUseNewFormatIfAvailable() || projectImport.projectMetaDataLocation == null) {
+			DocumentBuilder builder = DocumentBuilderFactory.newInstance()
+					.newDocumentBuilder();
+			projectImport.doc = builder.parse(projectDescription);
+			projectImport.projectPaths = findFiles(projectImport.doc, projectDescription);
+			if (shouldCopy()) {
+				projectImport.success &= copyFilesToProject(monitor, projectImport.mosyncProject,
+						projectDescription, projectImport.projectPaths);
+			}
 		} else if (shouldCopy()) {
-			copyFilesToProject(
+			projectImport.projectPaths = new String[] { projectImport.projectMetaDataLocation.toFile().getParent() };
+			projectImport.success &= copyFilesToProject(
 					monitor,
-					mosyncProject,
+					projectImport.mosyncProject,
 					projectDescription,
-					new String[] { projectMetaDataLocation.toFile().getParent() });
+					projectImport.projectPaths);
+		}
+	}
+
+	private void setupProject(ProjectImport projectImport, IProgressMonitor monitor) throws CoreException {
+		monitor.beginTask("", 4); //$NON-NLS-1$
+		// Closing the project disposed of its MoSyncProject.
+		projectImport.project.open(new SubProgressMonitor(monitor, 1));
+		projectImport.mosyncProject = MoSyncProject.create(projectImport.project);
+		MoSyncProject mosyncProject = projectImport.mosyncProject;
+		File projectDescription = projectImport.projectDescription;
+		if (shouldCopy() && projectImport.projectPaths != null) {
+			linkFilesToProject(new SubProgressMonitor(monitor, 1), mosyncProject, projectDescription, projectImport.projectPaths);
+		} else {
+			monitor.worked(1);
+		}
+
+		if (projectImport.doc != null) {
+			applyProjectDescription(new SubProgressMonitor(monitor, 1),
+					mosyncProject, projectImport.doc, projectImport.success);
+		} else {
+			monitor.worked(1);
 		}
 
 		// And we will have to re-initialize in case there is a .mosyncproject
 		// file
 		// available.
-		MoSyncProject.create(project, projectMetaDataLocation);
+		MoSyncProject.create(projectImport.project, projectImport.projectMetaDataLocation);
 
-		project.refreshLocal(IResource.DEPTH_INFINITE, new SubProgressMonitor(
+		projectImport.project.refreshLocal(IResource.DEPTH_INFINITE, new SubProgressMonitor(
 				monitor, 1));
-
-		if (result != null) {
-			result.add(project);
-		}
+		monitor.done();
 	}
 
 	private IPath getProjectMetaDataLocation(File projectDescription) {
@@ -332,22 +545,10 @@ public class ImportProjectsRunnable extends WorkspaceModifyOperation {
 		return result;
 	}
 
-	private void parseProjectDescription(IProgressMonitor monitor,
-			MoSyncProject project, File projectDescription)
+	private void applyProjectDescription(IProgressMonitor monitor,
+			MoSyncProject project, Document doc, boolean success)
 			throws CoreException {
 		try {
-			boolean success = true;
-
-			DocumentBuilder builder = DocumentBuilderFactory.newInstance()
-					.newDocumentBuilder();
-			Document doc = builder.parse(projectDescription);
-			String[] projectPaths = findFiles(doc, projectDescription);
-
-			if (shouldCopy()) {
-				success &= copyFilesToProject(monitor, project,
-						projectDescription, projectPaths);
-			}
-
 			Map<String, String> properties = parseProperties(doc);
 
 			String targetVendor = properties.remove("targetVendor"); //$NON-NLS-1$
@@ -379,6 +580,8 @@ public class ImportProjectsRunnable extends WorkspaceModifyOperation {
 		} catch (Exception e) {
 			throw new CoreException(new Status(IStatus.ERROR,
 					MosyncUIPlugin.PLUGIN_ID, e.getMessage(), e));
+		} finally {
+			monitor.done();
 		}
 	}
 
@@ -386,6 +589,10 @@ public class ImportProjectsRunnable extends WorkspaceModifyOperation {
 		return copyStrategy != DO_NOT_COPY;
 	}
 
+	/**
+	 * Copies the files of a project; this method does not modify
+	 * the workspace and may be called without any scheduling rule.
+	 */
 	private boolean copyFilesToProject(IProgressMonitor monitor,
 			MoSyncProject project, File projectDescription,
 			String[] projectPaths) throws CoreException {
@@ -394,35 +601,23 @@ public class ImportProjectsRunnable extends WorkspaceModifyOperation {
 		File projectDir = projectDescription.getParentFile();
 		if (copyStrategy == COPY_ALL_FILES) {
 			try {
-				Util.copyDir(new SubProgressMonitor(monitor, 1), projectDir,
+				Util.copyDir(monitor, projectDir,
 						project.getWrappedProject().getLocation().toFile(),
 						copyFilter);
 			} catch (IOException e) {
 				e.printStackTrace();
 				success = false;
 			}
-		} else {
+		} else if (copyStrategy == COPY_ONLY_FILES_IN_PROJECT_DESC) {
 			for (int i = 0; i < projectPaths.length; i++) {
 				File copySrc = new File(projectDir, projectPaths[i]);
-
-				// If project has files that are not located in any subfolder of
-				// the
-				// project's;
-				// create link instead
-				if (projectPaths[i].contains("..")) { //$NON-NLS-1$
-					String filename = copySrc.getName();
-					IFile projectFile = project.getWrappedProject().getFile(
-							new Path(filename));
-					projectFile.createLink(new Path(copySrc.getAbsolutePath()),
-							IFile.ALLOW_MISSING_LOCAL, new SubProgressMonitor(
-									monitor, 1));
-				} else if (copyStrategy == COPY_ONLY_FILES_IN_PROJECT_DESC) {
+				if (!projectPaths[i].contains("..")) { //$NON-NLS-1$
 					Path path = new Path(projectPaths[i]);
 					IFile projectFile = project.getWrappedProject().getFile(
 							path);
 					File copyDest = projectFile.getLocation().toFile();
 					try {
-						Util.copy(new SubProgressMonitor(monitor, 1), copySrc,
+						Util.copy(monitor, copySrc,
 								copyDest, copyFilter);
 					} catch (IOException e) {
 						e.printStackTrace();
@@ -435,6 +630,37 @@ public class ImportProjectsRunnable extends WorkspaceModifyOperation {
 		return success;
 	}
 
+	private void linkFilesToProject(IProgressMonitor monitor,
+			MoSyncProject project, File projectDescription,
+			String[] projectPaths) throws CoreException {
+		if (copyStrategy == COPY_ALL_FILES) {
+			monitor.done();
+			return;
+		}
+
+		monitor.beginTask("", projectPaths.length); //$NON-NLS-1$
+		File projectDir = projectDescription.getParentFile();
+		for (int i = 0; i < projectPaths.length; i++) {
+			File copySrc = new File(projectDir, projectPaths[i]);
+
+			// If project has files that are not located in any subfolder of
+			// the
+			// project's;
+			// create link instead
+			if (projectPaths[i].contains("..")) { //$NON-NLS-1$
+				String filename = copySrc.getName();
+				IFile projectFile = project.getWrappedProject().getFile(
+						new Path(filename));
+				projectFile.createLink(new Path(copySrc.getAbsolutePath()),
+						IFile.ALLOW_MISSING_LOCAL, new SubProgressMonitor(
+								monitor, 1));
+			} else {
+				monitor.worked(1);
+			}
+		}
+		monitor.done();
+	}
+
 	private Map<String, String> parseProperties(Document doc) {
 		Map<String, String> result = new HashMap<String, String>();
 
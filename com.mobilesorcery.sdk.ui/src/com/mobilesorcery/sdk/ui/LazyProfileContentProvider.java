@@ -0,0 +1,93 @@
+/*  Copyright (C) 2011 Mobile Sorcery AB
+
+    This program is free software; you can redistribute it and/or modify it
+    under the terms of the Eclipse Public License v1.0.
+
+    This program is distributed in the hope that it will be useful, but WITHOUT
+    ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+    FITNESS FOR A PARTICULAR PURPOSE. See the Eclipse Public License v1.0 for
+    more details.
+
+    You should have received a copy of the Eclipse Public License v1.0 along
+    with this program. It is also available at http://www.eclipse.org/legal/epl-v10.html
+*/
+package com.mobilesorcery.sdk.ui;
+
+import org.eclipse.jface.viewers.ILazyTreeContentProvider;
+import org.eclipse.jface.viewers.TreeViewer;
+import org.eclipse.jface.viewers.Viewer;
+
+import com.mobilesorcery.sdk.core.ProfileIndex;
+import com.mobilesorcery.sdk.profiles.IProfile;
+import com.mobilesorcery.sdk.profiles.IVendor;
+
+/**
+ * <p>A content provider for <code>SWT.VIRTUAL</code> tree viewers
+ * whose input is a {@link ProfileIndex}; only the vendors and
+ * profiles actually shown are ever materialized as tree items.</p>
+ * <p>Clients that update the index should refresh the vendors
+ * reported as changed, or the whole viewer if the visible vendors
+ * changed.</p>
+ */
+public class LazyProfileContentProvider implements ILazyTreeContentProvider {
+
+	private TreeViewer viewer;
+
+	private ProfileIndex index;
+
+	@Override
+	public void updateElement(Object parent, int index) {
+		if (this.index == null) {
+			return;
+		}
+		if (parent instanceof ProfileIndex) {
+			IVendor[] vendors = this.index.getVendors();
+			if (index < vendors.length) {
+				IVendor vendor = vendors[index];
+				viewer.replace(parent, index, vendor);
+				viewer.setChildCount(vendor, this.index.getProfiles(vendor).length);
+			}
+		} else if (parent instanceof IVendor) {
+			IProfile[] profiles = this.index.getProfiles((IVendor) parent);
+			if (index < profiles.length) {
+				viewer.replace(parent, index, profiles[index]);
+			}
+		}
+	}
+
+	@Override
+	public void updateChildCount(Object element, int currentChildCount) {
+		int childCount = 0;
+		if (index != null) {
+			if (element instanceof ProfileIndex) {
+				childCount = index.getVendors().length;
+			} else if (element instanceof IVendor) {
+				childCount = index.getProfiles((IVendor) element).length;
+			}
+		}
+		if (childCount != currentChildCount) {
+			viewer.setChildCount(element, childCount);
+		}
+	}
+
+	@Override
+	public Object getParent(Object element) {
+		if (element instanceof IProfile) {
+			return ((IProfile) element).getVendor();
+		} else if (element instanceof IVendor) {
+			return index;
+		}
+		return null;
+	}
+
+	@Override
+	public void inputChanged(Viewer viewer, Object oldInput, Object newInput) {
+		this.viewer = (TreeViewer) viewer;
+		this.index = newInput instanceof ProfileIndex ? (ProfileIndex) newInput : null;
+	}
+
+	@Override
+	public void dispose() {
+	}
+
+}
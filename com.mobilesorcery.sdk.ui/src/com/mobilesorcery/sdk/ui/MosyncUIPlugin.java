@@ -88,6 +88,9 @@ import org.eclipse.ui.PlatformUI;
 import org.eclipse.ui.activities.ICategory;
 import org.eclipse.ui.activities.ICategoryActivityBinding;
 import org.eclipse.ui.activities.IWorkbenchActivitySupport;
+import org.eclipse.ui.console.ConsolePlugin;
+import org.eclipse.ui.console.IConsole;
+import org.eclipse.ui.console.IConsoleListener;
 import org.eclipse.ui.ide.ResourceUtil;
 import org.eclipse.ui.ide.undo.CreateProjectOperation;
 import org.eclipse.ui.intro.IIntroManager;
@@ -191,9 +194,11 @@ public class MosyncUIPlugin extends AbstractUIPlugin implements
 
 	private final CountDownLatch workbenchStarted = new CountDownLatch(1);
 
-	@SuppressWarnings("serial")
+	// Unbounded; the images are shown by widgets that do not own them,
+	// so they must not be disposed of until all of them are. There is
+	// just one image per vendor and image size.
 	private final Cache<String, Object> platformImages = new Cache<String, Object>(
-			64) {
+			"platform-images", Integer.MAX_VALUE) {
 		@Override
 		protected void onRemoval(String key, Object value) {
 			if (value instanceof Image) {
@@ -207,6 +212,20 @@ public class MosyncUIPlugin extends AbstractUIPlugin implements
 
 	private LegacyProfileViewOpener legacyProfileViewOpener;
 
+	// Closed consoles must not be reused by the core plugin
+	private final IConsoleListener consoleListener = new IConsoleListener() {
+		@Override
+		public void consolesAdded(IConsole[] consoles) {
+		}
+
+		@Override
+		public void consolesRemoved(IConsole[] consoles) {
+			for (IConsole console : consoles) {
+				CoreMoSyncPlugin.getDefault().releaseIDEProcessConsole(console.getName());
+			}
+		}
+	};
+
 	private boolean isUpdating;
 
 	/**
@@ -232,6 +251,7 @@ public class MosyncUIPlugin extends AbstractUIPlugin implements
 		registerGlobalProjectListener();
 		CoreMoSyncPlugin.getLowMemoryManager().addMemoryLowListener(this, 1);
 		if (!CoreMoSyncPlugin.isHeadless()) {
+			ConsolePlugin.getDefault().getConsoleManager().addConsoleListener(consoleListener);
 			awaitWorkbenchStartup(new IWorkbenchStartupListener() {
 				@Override
 				public void started(IWorkbench wb) {
@@ -344,6 +364,9 @@ public class MosyncUIPlugin extends AbstractUIPlugin implements
 		super.stop(context);
 		ResourcesPlugin.getWorkspace().removeResourceChangeListener(this);
 		CoreMoSyncPlugin.getLowMemoryManager().removeMemoryLowListener(this);
+		if (!CoreMoSyncPlugin.isHeadless()) {
+			ConsolePlugin.getDefault().getConsoleManager().removeConsoleListener(consoleListener);
+		}
 		deregisterGlobalProjectListener();
 		disposePlatformImages();
 	}
@@ -918,11 +941,14 @@ public class MosyncUIPlugin extends AbstractUIPlugin implements
 				}
 			}
 
-			platformImages.put(key, addImage);
-			image = addImage;
-
-			if (CoreMoSyncPlugin.getDefault().isDebugging()) {
-				CoreMoSyncPlugin.trace("Allocated image " + key); //$NON-NLS-1$
+			image = platformImages.putIfAbsent(key, addImage);
+			if (image == null) {
+				image = addImage;
+				if (CoreMoSyncPlugin.getDefault().isDebugging()) {
+					CoreMoSyncPlugin.trace("Allocated image " + key); //$NON-NLS-1$
+				}
+			} else if (addImage instanceof Image) {
+				((Image) addImage).dispose();
 			}
 		}
 
@@ -25,6 +25,7 @@ import org.eclipse.ui.console.MessageConsole;
 import org.eclipse.ui.console.MessageConsoleStream;
 
 import com.mobilesorcery.sdk.core.AbstractProcessConsole;
+import com.mobilesorcery.sdk.core.CoreMoSyncPlugin;
 
 public class IDEProcessConsole extends AbstractProcessConsole {
 
@@ -41,6 +42,7 @@ public class IDEProcessConsole extends AbstractProcessConsole {
     public IDEProcessConsole(String name) {
         console = findConsole(name);
         initStreams();
+        setRetentionFromPrefs();
     }
 
     private void initStreams() {
@@ -79,6 +81,14 @@ public class IDEProcessConsole extends AbstractProcessConsole {
         });
 	}
     
+    private void setRetentionFromPrefs() {
+    	// Keep only the most recent output in memory
+    	int retention = CoreMoSyncPlugin.getDefault().getPreferenceStore().getInt(CoreMoSyncPlugin.CONSOLE_RETENTION_PREF);
+    	if (retention > 0) {
+    		console.setWaterMarks(retention - retention / 5, retention);
+    	}
+    }
+
     private void setTabWidthFromPrefs() {
     	console.setTabWidth(CUIPlugin.getDefault().getPreferenceStore().getInt(BuildConsolePreferencePage.PREF_BUILDCONSOLE_TAB_WIDTH));
     }
@@ -23,6 +23,8 @@ public class BuildPreferencePage extends FieldEditorPreferencePage implements
 	protected void createFieldEditors() {
 		BooleanFieldEditor rebuild = new BooleanFieldEditor(MoSyncBuilder.REBUILD_ON_ERROR, "Always perform full &rebuild on errors", getFieldEditorParent());
 		addField(rebuild);
+		BooleanFieldEditor hashContents = new BooleanFieldEditor(MoSyncBuilder.HASH_CONTENTS, "Only rebuild files whose &contents have changed (slower for large files)", getFieldEditorParent());
+		addField(hashContents);
 	}
 
 
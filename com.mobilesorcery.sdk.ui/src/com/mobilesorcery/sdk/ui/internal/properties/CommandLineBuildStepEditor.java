@@ -8,6 +8,7 @@ import org.eclipse.swt.widgets.Composite;
 import org.eclipse.swt.widgets.Control;
 import org.eclipse.swt.widgets.Label;
 import org.eclipse.swt.widgets.Shell;
+import org.eclipse.swt.widgets.Spinner;
 import org.eclipse.swt.widgets.Text;
 
 import com.mobilesorcery.sdk.core.MoSyncBuilder;
@@ -27,6 +28,9 @@ public final class CommandLineBuildStepEditor extends BuildStepEditor implements
 	private Text script;
 	private Text name;
 	private Button failOnError;
+	private Text outputPattern;
+	private Spinner maxParallelRuns;
+	private Button failFast;
 
 	public CommandLineBuildStepEditor(Shell shell) {
 		// TODO: We may want more types of build steps, maybe a wizard-like thingy?
@@ -60,6 +64,15 @@ public final class CommandLineBuildStepEditor extends BuildStepEditor implements
 		runPerFile.setText("Run script for each file that matches:");
 		filePattern = new Text(main, SWT.BORDER | SWT.SINGLE);
 		filePattern.setLayoutData(new GridData(UIUtils.getDefaultFieldSize(), SWT.DEFAULT));
+		Label outputPatternLabel = new Label(main, SWT.NONE);
+		outputPatternLabel.setText("Skip files whose &outputs are up to date:");
+		outputPattern = new Text(main, SWT.BORDER | SWT.SINGLE);
+		outputPattern.setLayoutData(new GridData(UIUtils.getDefaultFieldSize(), SWT.DEFAULT));
+		Label maxParallelRunsLabel = new Label(main, SWT.NONE);
+		maxParallelRunsLabel.setText("&Maximum number of files to run in parallel:");
+		maxParallelRuns = new Spinner(main, SWT.BORDER);
+		maxParallelRuns.setMinimum(1);
+		maxParallelRuns.setMaximum(64);
 		script = new Text(main, SWT.BORDER | SWT.MULTI | SWT.V_SCROLL | SWT.H_SCROLL);
 		GridData scriptData = new GridData(SWT.FILL, SWT.FILL, true, false, 2, 1);
 		scriptData.heightHint = UIUtils.getDefaultListHeight();
@@ -71,23 +84,36 @@ public final class CommandLineBuildStepEditor extends BuildStepEditor implements
 		name.setText(factory.getName() == null ? "" : factory.getName());
 		runPerFile.setSelection(getFactory().shouldRunPerFile());
 		filePattern.setText(getFactory().getFilePattern() == null ? "" : getFactory().getFilePattern());
+		outputPattern.setText(getFactory().getOutputPattern() == null ? "" : getFactory().getOutputPattern());
+		maxParallelRuns.setSelection(getFactory().getMaxParallelRuns());
 		script.setText(getFactory().getRawScript() == null ? "" : getFactory().getRawScript());
 
 		failOnError = new Button(main, SWT.CHECK);
 		failOnError.setText("&Fail on build error");
 		failOnError.setLayoutData(new GridData(SWT.FILL, SWT.DEFAULT, true, false, 2, 1));
 		failOnError.setSelection(getFactory().shouldFailOnError());
+		failOnError.addListener(SWT.Selection, listener);
+
+		failFast = new Button(main, SWT.CHECK);
+		failFast.setText("&Stop at the first file that fails");
+		failFast.setLayoutData(new GridData(SWT.FILL, SWT.DEFAULT, true, false, 2, 1));
+		failFast.setSelection(getFactory().shouldFailFast());
 
 		ParameterResolver resolver = CommandLineBuildStep.createParameterResolver(
 				MoSyncBuilder.createParameterResolver(project, null));
 		ParameterResolverContentProvider.createProposalProvider(script, resolver);
+		ParameterResolverContentProvider.createProposalProvider(outputPattern, resolver);
 
+		updateUI();
 		return main;
 	}
 
 	@Override
 	public void updateUI() {
 		filePattern.setEnabled(runPerFile.getSelection());
+		outputPattern.setEnabled(runPerFile.getSelection());
+		maxParallelRuns.setEnabled(runPerFile.getSelection());
+		failFast.setEnabled(runPerFile.getSelection() && failOnError.getSelection());
 	}
 
 	@Override
@@ -97,6 +123,9 @@ public final class CommandLineBuildStepEditor extends BuildStepEditor implements
 		getFactory().setRawScript(script.getText());
 		getFactory().setName(name.getText());
 		getFactory().setFailOnError(failOnError.getSelection());
+		getFactory().setOutputPattern(outputPattern.getText());
+		getFactory().setMaxParallelRuns(maxParallelRuns.getSelection());
+		getFactory().setFailFast(failFast.getSelection());
 		super.okPressed();
 	}
 